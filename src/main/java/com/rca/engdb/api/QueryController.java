@@ -2,12 +2,35 @@
 
 package com.rca.engdb.api;
 
+import com.rca.engdb.dto.Approximation;
+import com.rca.engdb.dto.BatchQueryResult;
+import com.rca.engdb.dto.DatabaseResult;
 import com.rca.engdb.dto.QueryRequest;
 import com.rca.engdb.dto.QueryResponse;
+import com.rca.engdb.engine.FederatedJoinPlanner;
 import com.rca.engdb.engine.QueryGenerator;
+import com.rca.engdb.engine.QueryOptimizer;
 import com.rca.engdb.engine.QueryParser;
+import com.rca.engdb.engine.QueryPlan;
 import com.rca.engdb.engine.QueryPlanner;
+import com.rca.engdb.engine.SqlStatement;
+import com.rca.engdb.exec.AdmissionController;
+import com.rca.engdb.exec.ApproximateQueryExecutor;
+import com.rca.engdb.exec.BatchDeduplicator;
+import com.rca.engdb.exec.BulkheadFullException;
+import com.rca.engdb.exec.FanOutExecutor;
+import com.rca.engdb.exec.FederatedJoinExecutor;
+import com.rca.engdb.exec.MaterializedAggregateService;
+import com.rca.engdb.exec.MongoQueryExecutor;
+import com.rca.engdb.exec.QueryContext;
 import com.rca.engdb.exec.QueryExecutor;
+import com.rca.engdb.exec.RequestCoalescer;
+import com.rca.engdb.exec.ResultCache;
+import com.rca.engdb.exec.RunningQueryRegistry;
+import com.rca.engdb.exec.SqlCostGuard;
+import com.rca.engdb.exec.TableReplicaService;
+import com.rca.engdb.metrics.PipelineMetrics;
+import com.rca.engdb.metrics.PipelineMetrics.Stage;
 import com.rca.engdb.ml.IntentClassifier;
 import com.rca.engdb.ml.IntentResult;
 import com.rca.engdb.nlp.PreprocessService;
@@ -15,26 +38,78 @@ import com.rca.engdb.nlp.TokenizerService;
 import com.rca.engdb.ml.IntentType;
 import com.rca.engdb.ast.QueryAST;
 import com.rca.engdb.schema.DatabaseDiscoveryService;
+import com.rca.engdb.schema.MongoSchemaDiscoveryService;
 import com.rca.engdb.schema.SchemaDiscoveryService;
 
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 
+import java.io.IOException;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @RestController
 @RequestMapping("/api/query")
 public class QueryController {
 
+    private static final Logger logger = LoggerFactory.getLogger(QueryController.class);
+
+    private static final String NDJSON = "application/x-ndjson";
+    // Status of a query the client cancelled (nginx's "client closed request")
+    private static final int CLIENT_CLOSED_REQUEST = 499;
+
+    // Time allowed after the longest deadline in a batch for its last answers to be written
+    private static final long BATCH_COMPLETION_MARGIN_MS = 5000;
+
     private final TokenizerService tokenizer;
     private final PreprocessService preprocessor;
     private final IntentClassifier intentClassifier;
     private final QueryParser queryParser;
     private final QueryGenerator queryGenerator;
+    private final QueryOptimizer queryOptimizer;
+    private final QueryPlanner queryPlanner;
     private final QueryExecutor queryExecutor;
+    private final MongoQueryExecutor mongoQueryExecutor;
+    private final SqlCostGuard sqlCostGuard;
+    private final ResultCache resultCache;
+    private final RequestCoalescer requestCoalescer;
+    private final AdmissionController admissionController;
+    private final RunningQueryRegistry runningQueries;
+    private final FanOutExecutor fanOutExecutor;
+    private final FederatedJoinPlanner federatedJoinPlanner;
+    private final FederatedJoinExecutor federatedJoinExecutor;
+    private final TableReplicaService tableReplicas;
+    private final ApproximateQueryExecutor approximateQueryExecutor;
+    private final MaterializedAggregateService materializedAggregates;
+    private final PipelineMetrics metrics;
     private final DatabaseDiscoveryService databaseDiscoveryService;
     private final SchemaDiscoveryService schemaDiscoveryService;
+    private final MongoSchemaDiscoveryService mongoSchemaDiscoveryService;
     private final com.rca.engdb.integration.OpenRouterService openRouterService;
+    private final long defaultTimeoutMs;
+    private final long maxTimeoutMs;
+    private final int batchMaxSize;
+    private final int batchParallelism;
 
     public QueryController(
             TokenizerService tokenizer,
@@ -42,20 +117,60 @@ public class QueryController {
             IntentClassifier intentClassifier,
             QueryParser queryParser,
             QueryGenerator queryGenerator,
+            QueryOptimizer queryOptimizer,
+            QueryPlanner queryPlanner,
             QueryExecutor queryExecutor,
+            MongoQueryExecutor mongoQueryExecutor,
+            SqlCostGuard sqlCostGuard,
+            ResultCache resultCache,
+            RequestCoalescer requestCoalescer,
+            AdmissionController admissionController,
+            RunningQueryRegistry runningQueries,
+            FanOutExecutor fanOutExecutor,
+            FederatedJoinPlanner federatedJoinPlanner,
+            FederatedJoinExecutor federatedJoinExecutor,
+            TableReplicaService tableReplicas,
+            ApproximateQueryExecutor approximateQueryExecutor,
+            MaterializedAggregateService materializedAggregates,
+            PipelineMetrics metrics,
             DatabaseDiscoveryService databaseDiscoveryService,
             SchemaDiscoveryService schemaDiscoveryService,
-            com.rca.engdb.integration.OpenRouterService openRouterService) {
+            MongoSchemaDiscoveryService mongoSchemaDiscoveryService,
+            com.rca.engdb.integration.OpenRouterService openRouterService,
+            @Value("${engdb.query.default-timeout-ms:30000}") long defaultTimeoutMs,
+            @Value("${engdb.query.max-timeout-ms:300000}") long maxTimeoutMs,
+            @Value("${engdb.batch.max-size:1000}") int batchMaxSize,
+            @Value("${engdb.batch.parallelism:8}") int batchParallelism) {
 
         this.tokenizer = tokenizer;
         this.preprocessor = preprocessor;
         this.intentClassifier = intentClassifier;
         this.queryParser = queryParser;
         this.queryGenerator = queryGenerator;
+        this.queryOptimizer = queryOptimizer;
+        this.queryPlanner = queryPlanner;
         this.queryExecutor = queryExecutor;
+        this.mongoQueryExecutor = mongoQueryExecutor;
+        this.sqlCostGuard = sqlCostGuard;
+        this.resultCache = resultCache;
+        this.requestCoalescer = requestCoalescer;
+        this.admissionController = admissionController;
+        this.runningQueries = runningQueries;
+        this.fanOutExecutor = fanOutExecutor;
+        this.federatedJoinPlanner = federatedJoinPlanner;
+        this.federatedJoinExecutor = federatedJoinExecutor;
+        this.tableReplicas = tableReplicas;
+        this.approximateQueryExecutor = approximateQueryExecutor;
+        this.materializedAggregates = materializedAggregates;
+        this.metrics = metrics;
         this.databaseDiscoveryService = databaseDiscoveryService;
         this.schemaDiscoveryService = schemaDiscoveryService;
+        this.mongoSchemaDiscoveryService = mongoSchemaDiscoveryService;
         this.openRouterService = openRouterService;
+        this.defaultTimeoutMs = defaultTimeoutMs;
+        this.maxTimeoutMs = maxTimeoutMs;
+        this.batchMaxSize = batchMaxSize;
+        this.batchParallelism = batchParallelism;
     }
     
     @GetMapping("/databases")
@@ -64,107 +179,644 @@ public class QueryController {
     }
     
     @GetMapping("/schema")
-    public java.util.Map<String, List<String>> getSchema(@RequestParam(required = false) String dbName) {
+    public java.util.Map<String, List<String>> getSchema(@RequestParam(required = false) String dbName,
+                                                         @RequestParam(defaultValue = "mysql") String serviceType) {
+        if ("mongodb".equalsIgnoreCase(serviceType)) {
+            return mongoSchemaDiscoveryService.discoverSchema(dbName);
+        }
         return schemaDiscoveryService.discoverSchema(dbName); 
     }
 
+    @GetMapping("/coalescing")
+    public java.util.Map<String, java.util.Map<String, Long>> getCoalescingStats() {
+        return requestCoalescer.getStats();
+    }
+
+    @GetMapping("/replicas")
+    public java.util.Map<String, java.util.Map<String, Long>> getReplicaStats() {
+        return tableReplicas.getStats();
+    }
+
+    @GetMapping("/materialized")
+    public java.util.Map<String, java.util.Map<String, Long>> getMaterializedAggregateStats() {
+        return materializedAggregates.getStats();
+    }
+
+    @GetMapping("/bulkheads")
+    public java.util.Map<String, java.util.Map<String, Long>> getBulkheadStats() {
+        return admissionController.getStats();
+    }
+
+    /**
+     * Overloaded bulkhead: fail fast and tell the client when to retry
+     */
+    @ExceptionHandler(BulkheadFullException.class)
+    public ResponseEntity<QueryResponse> handleBulkheadFull(BulkheadFullException e) {
+        QueryResponse response = new QueryResponse(null, null, Collections.emptyList(), 0, 0, 0, e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+            .body(response);
+    }
+
+    /**
+     * Query that ran past its deadline
+     */
+    @ExceptionHandler(QueryTimeoutException.class)
+    public ResponseEntity<QueryResponse> handleQueryTimeout(QueryTimeoutException e) {
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(errorResponse(e.getMessage()));
+    }
+
+    /**
+     * Query cancelled by DELETE /{queryId}
+     */
+    @ExceptionHandler(CancellationException.class)
+    public ResponseEntity<QueryResponse> handleCancelled(CancellationException e) {
+        return ResponseEntity.status(CLIENT_CLOSED_REQUEST).body(errorResponse(e.getMessage()));
+    }
+
+    /**
+     * Execute SQL through the result cache. Cache misses take a slot in the query's bulkhead,
+     * and identical statements already running are shared.
+     */
+    private ResultCache.CacheLookup executeSql(String dbName, SqlStatement statement, AdmissionController.QueryClass queryClass) {
+        return resultCache.execute(dbName, statement,
+            () -> requestCoalescer.execute("sql", sqlKey(dbName, statement),
+                () -> admissionController.execute(queryClass,
+                    () -> metrics.time(Stage.EXECUTION, () -> queryExecutor.executeSQLQuery(statement)))));
+    }
+
+    private static String sqlKey(String dbName, SqlStatement statement) {
+        return dbName + "|" + statement.getSql() + "|" + statement.getParameters();
+    }
+
+    private QueryExecutor.QueryResult executeMongoQuery(QueryAST ast) {
+        var filter = queryGenerator.buildMongoFilterDocument(ast.getWhereConditions());
+        String dbName = ast.getDatabaseName();
+
+        switch (ast.getIntent()) {
+            case COUNT:
+                return mongoQueryExecutor.executeCountQuery(dbName, ast.getTargetTable(), filter);
+            case SUM:
+            case AVG:
+            case MAX:
+            case MIN:
+                return mongoQueryExecutor.executeAggregateQuery(dbName, ast.getTargetTable(), filter,
+                    ast.getIntent().name().toLowerCase(), ast.getAggregateColumn() != null ? ast.getAggregateColumn() : "_id");
+            default:
+                return mongoQueryExecutor.executeMongoQuery(dbName, ast.getTargetTable(), filter,
+                    queryGenerator.buildMongoProjectionDocument(ast), queryGenerator.buildMongoSortDocument(ast),
+                    ast.getLimit());
+        }
+    }
+
     @PostMapping
-    public QueryResponse handleQuery(@RequestBody QueryRequest request) {
+    public QueryResponse handleQuery(@RequestBody QueryRequest request, HttpServletResponse servletResponse) {
+        String queryId = queryIdOf(request);
+        long timeoutMs = timeoutOf(request);
+        servletResponse.setHeader("X-Query-Id", queryId);
+
+        // Every stage below waits at most until the deadline, and DELETE /{queryId} cancels it
+        QueryContext context;
+        try {
+            context = runningQueries.start(queryId, timeoutMs);
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        }
+        try {
+            // Identical questions arriving together share one pipeline run (LLM call and execution)
+            String question = normalizeQuestion(request.getQuery());
+            String key = coalescingKey(request, question);
+            return metrics.timeRequest(queryId, targetOf(request), question,
+                () -> requestCoalescer.execute("request", key, () -> answer(request)));
+        } finally {
+            runningQueries.finish(context);
+        }
+    }
+
+    /**
+     * Cancel a running query: its LLM call, JDBC statement or Mongo cursor is aborted
+     */
+    @DeleteMapping("/{queryId}")
+    public ResponseEntity<Void> cancelQuery(@PathVariable String queryId) {
+        return runningQueries.cancel(queryId)
+            ? ResponseEntity.accepted().build()
+            : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Answer a list of questions in one call. Answers stream back as newline-delimited JSON,
+     * one BatchQueryResult per line in the order they complete.
+     *
+     * Each database's schema is read once for the whole batch, questions are parsed in parallel
+     * and identical generated SQL runs only once. At most engdb.batch.parallelism questions are
+     * in flight at a time, so one batch cannot fill the bulkhead queues on its own. Every question
+     * keeps its own query id and deadline, counted from the arrival of the batch.
+     */
+    @PostMapping(path = "/batch", produces = NDJSON)
+    public ResponseEntity<ResponseBodyEmitter> handleBatch(@RequestBody List<QueryRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Batch contains no questions");
+        }
+        if (requests.size() > batchMaxSize) {
+            throw new ResponseStatusException(HttpStatus.CONTENT_TOO_LARGE,
+                "Batch of " + requests.size() + " questions exceeds the limit of " + batchMaxSize);
+        }
+        long arrivalNanos = System.nanoTime();
+
+        // One schema snapshot per database, shared by every question in the batch
+        Map<String, Map<String, List<String>>> schemas = new HashMap<>();
+        for (QueryRequest request : requests) {
+            if (!isFanOut(request)) {
+                schemas.computeIfAbsent(request.getDatabaseName(), schemaDiscoveryService::discoverSchema);
+            }
+        }
+
+        List<String> queryIds = requests.stream().map(this::queryIdOf).toList();
+        long batchTimeoutMs = requests.stream().mapToLong(this::timeoutOf).max().orElse(defaultTimeoutMs);
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(batchTimeoutMs + BATCH_COMPLETION_MARGIN_MS);
+
+        // A client that goes away, or a batch past its deadline, cancels what is still running
+        AtomicBoolean abandoned = new AtomicBoolean();
+        Runnable abandon = () -> {
+            abandoned.set(true);
+            queryIds.forEach(runningQueries::cancel);
+        };
+        emitter.onTimeout(abandon);
+        emitter.onError(e -> abandon.run());
+
+        BatchDeduplicator deduplicator = new BatchDeduplicator();
+        Semaphore permits = new Semaphore(batchParallelism);
+        Thread.ofVirtual().name("query-batch").start(() -> {
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < requests.size() && !abandoned.get(); i++) {
+                    permits.acquire();
+                    int index = i;
+                    executor.execute(() -> {
+                        try {
+                            QueryRequest request = requests.get(index);
+                            long timeoutMs = timeoutOf(request) - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - arrivalNanos);
+                            BatchQueryResult result = answerBatchItem(index, queryIds.get(index), request,
+                                schemas.get(request.getDatabaseName()), timeoutMs, deduplicator);
+                            // Object and newline in one send, so lines from concurrent answers never interleave
+                            emitter.send(new LinkedHashSet<>(List.of(
+                                new ResponseBodyEmitter.DataWithMediaType(result, MediaType.APPLICATION_JSON),
+                                new ResponseBodyEmitter.DataWithMediaType("\n", MediaType.TEXT_PLAIN))));
+                        } catch (IOException | IllegalStateException e) {
+                            abandon.run();
+                        } finally {
+                            permits.release();
+                        }
+                    });
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                abandon.run();
+            }
+            logger.debug("Batch of {} questions ran {} distinct statements, {} answers shared",
+                requests.size(), deduplicator.getDistinct(), deduplicator.getShared());
+            emitter.complete();
+        });
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(emitter);
+    }
+
+    private BatchQueryResult answerBatchItem(int index, String queryId, QueryRequest request,
+                                             Map<String, List<String>> schema, long timeoutMs,
+                                             BatchDeduplicator deduplicator) {
+        if (timeoutMs <= 0) {
+            return new BatchQueryResult(index, queryId, HttpStatus.GATEWAY_TIMEOUT.value(),
+                errorResponse("Query " + queryId + " exceeded its deadline before it could start"));
+        }
+        QueryContext context;
+        try {
+            context = runningQueries.start(queryId, timeoutMs);
+        } catch (IllegalStateException e) {
+            return new BatchQueryResult(index, queryId, HttpStatus.CONFLICT.value(), errorResponse(e.getMessage()));
+        }
+        try {
+            QueryResponse response = metrics.timeRequest(queryId, targetOf(request), normalizeQuestion(request.getQuery()),
+                () -> isFanOut(request) ? answerFanOut(request) : execute(prepare(request, schema), deduplicator));
+            return new BatchQueryResult(index, queryId, HttpStatus.OK.value(), response);
+        } catch (BulkheadFullException e) {
+            return new BatchQueryResult(index, queryId, HttpStatus.SERVICE_UNAVAILABLE.value(), errorResponse(e.getMessage()));
+        } catch (QueryTimeoutException e) {
+            return new BatchQueryResult(index, queryId, HttpStatus.GATEWAY_TIMEOUT.value(), errorResponse(e.getMessage()));
+        } catch (CancellationException e) {
+            return new BatchQueryResult(index, queryId, CLIENT_CLOSED_REQUEST, errorResponse(e.getMessage()));
+        } catch (RuntimeException e) {
+            return new BatchQueryResult(index, queryId, HttpStatus.INTERNAL_SERVER_ERROR.value(), errorResponse(e.getMessage()));
+        } finally {
+            runningQueries.finish(context);
+        }
+    }
+
+    private QueryResponse errorResponse(String message) {
+        return new QueryResponse(null, null, Collections.emptyList(), 0, 0, 0, message);
+    }
+
+    private String queryIdOf(QueryRequest request) {
+        return request.getQueryId() != null && !request.getQueryId().isBlank()
+            ? request.getQueryId() : UUID.randomUUID().toString();
+    }
+
+    private long timeoutOf(QueryRequest request) {
+        return request.getTimeoutMs() != null && request.getTimeoutMs() > 0
+            ? Math.min(request.getTimeoutMs(), maxTimeoutMs) : defaultTimeoutMs;
+    }
+
+    /**
+     * Requests share a pipeline run only if every option that changes the answer matches:
+     * the database or pattern, the question and whether an estimate is acceptable
+     */
+    private String coalescingKey(QueryRequest request, String question) {
+        return targetOf(request) + "|" + request.getApproximate() + "|" + question;
+    }
+
+    private String normalizeQuestion(String question) {
+        if (question == null) return "";
+        return question.trim().replaceAll("\\s+", " ").replaceAll("[?.!]+$", "").toLowerCase();
+    }
+
+    private QueryResponse answer(QueryRequest request) {
+        if (isFanOut(request)) {
+            return answerFanOut(request);
+        }
+        return execute(prepare(request, null), null);
+    }
+
+    private boolean isFanOut(QueryRequest request) {
+        return request.getDatabasePattern() != null && !request.getDatabasePattern().isBlank();
+    }
+
+    /**
+     * Database name, or the pattern of a fan-out query
+     */
+    private String targetOf(QueryRequest request) {
+        return isFanOut(request) ? request.getDatabasePattern() : request.getDatabaseName();
+    }
+
+    /**
+     * Fan-out mode: the question is parsed and planned once, against the first database
+     * matching the pattern, and the same AST runs on every matching database. Only the
+     * rule-based engine is used, since LLM-generated SQL is written for a single schema.
+     */
+    private QueryResponse answerFanOut(QueryRequest request) {
+        var tokens = metrics.time(Stage.TOKENIZE, () -> tokenizer.tokenize(request.getQuery()));
+        var cleaned = metrics.time(Stage.PREPROCESS, () -> preprocessor.clean(tokens));
+        var intentResult = metrics.time(Stage.INTENT, () -> intentClassifier.classify(cleaned));
+        QueryContext.checkCurrent();
+
+        String pattern = request.getDatabasePattern();
+        try {
+            List<String> databases = fanOutExecutor.resolveDatabases(pattern);
+            if (databases.isEmpty()) {
+                return failed(intentResult, "No database matches " + pattern);
+            }
+
+            QueryAST ast = queryParser.parse(cleaned, intentResult, databases.get(0));
+            ast.setDatabaseName(databases.get(0));
+            if (ast.getTargetTable() == null && intentResult.getIntent() != IntentType.SCHEMA) {
+                return noTargetTable(intentResult);
+            }
+            metrics.time(Stage.OPTIMIZE, () -> queryOptimizer.optimize(ast));
+            QueryPlan plan = metrics.time(Stage.PLAN, () -> queryPlanner.plan(ast));
+            queryPlanner.applyPlan(ast, plan);
+            if (plan.getDatabaseType() == QueryPlanner.DatabaseType.MONGODB) {
+                return failed(intentResult, "Fan-out queries run on MySQL databases only");
+            }
+            AdmissionController.QueryClass queryClass = admissionController.classify(ast, plan);
+            QueryContext.checkCurrent();
+
+            FanOutExecutor.FanOutResult fanOut = fanOutExecutor.execute(ast, databases,
+                (database, statement) -> executeSql(database, statement, queryClass).getResult());
+
+            // Shown with the pattern in place of the database name
+            ast.setDatabaseName(pattern);
+            QueryExecutor.QueryResult result = fanOut.getResult();
+            QueryResponse response = new QueryResponse(
+                intentResult.getIntent().name(),
+                queryGenerator.generateSQL(ast),
+                result.getData(),
+                result.getRowCount(),
+                intentResult.getConfidence(),
+                result.getExecutionTimeMs(),
+                result.getErrorMessage()
+            );
+            response.setDatabaseResults(fanOut.getPartials().stream()
+                .map(partial -> new DatabaseResult(partial.getDatabase(), partial.getResult().getRowCount(),
+                    partial.getElapsedMs(), partial.getResult().getErrorMessage()))
+                .toList());
+            return response;
+
+        } catch (BulkheadFullException | QueryTimeoutException | CancellationException e) {
+            // Answered with their own status, not as a failed query
+            throw e;
+        } catch (Exception e) {
+            logger.warn("Fan-out query failed", e);
+            return failed(intentResult, e);
+        }
+    }
+
+    /**
+     * Everything up to execution: NLP, the LLM call or rule-based parsing, planning and
+     * generation. Questions that need no execution (rejected by the cost guard, no target
+     * table, failed generation) come back already answered.
+     *
+     * @param schema schema snapshot to give the LLM, or null to read it from the schema cache
+     */
+    private PreparedQuery prepare(QueryRequest request, Map<String, List<String>> schema) {
 
         // 1. NLP Pipeline
-        var tokens = tokenizer.tokenize(request.getQuery());
-        var cleaned = preprocessor.clean(tokens);
-        var intentResult = intentClassifier.classify(cleaned);
+        var tokens = metrics.time(Stage.TOKENIZE, () -> tokenizer.tokenize(request.getQuery()));
+        var cleaned = metrics.time(Stage.PREPROCESS, () -> preprocessor.clean(tokens));
+        var intentResult = metrics.time(Stage.INTENT, () -> intentClassifier.classify(cleaned));
+        QueryContext.checkCurrent();
         
         String dbName = request.getDatabaseName();
 
         // 2. Query Parsing & Generation
         String generatedQuery = null;
-        QueryExecutor.QueryResult result = null;
 
         try {
 
             // Try OpenRouter first
             if (openRouterService != null) {
                 // Get schema for context
-                var schema = schemaDiscoveryService.discoverSchema(dbName);
-                generatedQuery = openRouterService.generateSQL(request.getQuery(), schema);
+                var llmSchema = schema != null ? schema : schemaDiscoveryService.discoverSchema(dbName);
+                // LLM calls are slow: they have their own bulkhead, and when it is full the
+                // rule-based engine answers instead
+                generatedQuery = admissionController.execute(AdmissionController.QueryClass.LLM, () -> {
+                    String sql = metrics.time(Stage.LLM_CALL, () -> openRouterService.generateSQL(request.getQuery(), llmSchema));
+                    if (sql == null) {
+                        metrics.llmFallback(openRouterService.isConfigured() ? "no_sql" : "not_configured");
+                    }
+                    return sql;
+                }, () -> {
+                    metrics.llmFallback("bulkhead_full");
+                    return null;
+                });
+                QueryContext.checkCurrent();
             }
 
             if (generatedQuery != null) {
-                // Execute generated SQL
-                result = queryExecutor.executeSQLQuery(generatedQuery);
-            } else {
-                // Fallback to local rule-based engine
-                QueryAST ast = queryParser.parse(cleaned, intentResult, dbName);
-                
-                // Set database context in AST for generation
-                if (dbName != null && !dbName.isEmpty()) {
-                    ast.setDatabaseName(dbName);
-                }
-
-                // Check if a target table was identified (unless it's a SCHEMA intent)
-                if (ast.getTargetTable() == null && intentResult.getIntent() != IntentType.SCHEMA) {
-                    return new QueryResponse(
+                // Check the estimated cost of the generated SQL before running it
+                SqlCostGuard.GuardResult guard = sqlCostGuard.check(generatedQuery, dbName);
+                if (!guard.isAllowed()) {
+                    QueryResponse rejected = new QueryResponse(
                         intentResult.getIntent().name(),
-                        "Could not identify a clear query target (table). Please include a valid table name in your question.",
+                        generatedQuery,
                         Collections.emptyList(),
                         0,
                         intentResult.getConfidence(),
                         0,
-                        "No target table identified in query"
+                        guard.getMessage()
                     );
+                    rejected.setCostGuardMessage(guard.getMessage());
+                    return PreparedQuery.answered(rejected);
                 }
 
-                // Choose database type
-                QueryPlanner planner = new QueryPlanner();
-                QueryPlanner.DatabaseType dbType = planner.chooseDatabaseType(ast);
-
-                if (dbType == QueryPlanner.DatabaseType.MONGODB) {
-                    // MongoDB execution
-                    generatedQuery = queryGenerator.generateMongoQuery(ast);
-                    String sql = queryGenerator.generateSQL(ast);
-                    result = queryExecutor.executeSQLQuery(sql);
-                    generatedQuery = sql + " (MongoDB: " + generatedQuery + ")";
-                } else {
-                    // MySQL execution
-                    generatedQuery = queryGenerator.generateSQL(ast);
-                    result = queryExecutor.executeSQLQuery(generatedQuery);
+                SqlStatement statement = new SqlStatement(guard.getSql(), List.of(), List.of());
+                return PreparedQuery.sql(intentResult, guard.getSql(), guard.getMessage(),
+                    dbName, statement, null, Estimation.NONE, admissionController.classify(guard.getEstimate()));
+            }
+
+            // Fallback to local rule-based engine
+            QueryAST ast = queryParser.parse(cleaned, intentResult, dbName);
+
+            // Set database context in AST for generation
+            if (dbName != null && !dbName.isEmpty()) {
+                ast.setDatabaseName(dbName);
+            }
+
+            // Check if a target table was identified (unless it's a SCHEMA intent)
+            if (ast.getTargetTable() == null && intentResult.getIntent() != IntentType.SCHEMA) {
+                return PreparedQuery.answered(noTargetTable(intentResult));
+            }
+
+            // Remove or simplify joins the question does not need
+            metrics.time(Stage.OPTIMIZE, () -> queryOptimizer.optimize(ast));
+
+            // Cost-based plan: backend, join order and safety LIMIT
+            QueryPlan plan = metrics.time(Stage.PLAN, () -> queryPlanner.plan(ast));
+            queryPlanner.applyPlan(ast, plan);
+            logger.debug("Query plan: {}", plan);
+            QueryPlanner.DatabaseType dbType = plan.getDatabaseType();
+            AdmissionController.QueryClass queryClass = admissionController.classify(ast, plan);
+            QueryContext.checkCurrent();
+
+            // A MySQL table joined with a MongoDB collection runs in process, over both stores
+            FederatedJoinPlanner.FederatedJoin federatedJoin = federatedJoinPlanner.plan(ast, cleaned);
+            if (federatedJoin != null) {
+                return PreparedQuery.federated(intentResult, federatedJoin);
+            }
+
+            if (dbType == QueryPlanner.DatabaseType.MONGODB) {
+                // MongoDB execution with typed filter values
+                generatedQuery = metrics.time(Stage.SQL_GENERATION, () -> queryGenerator.generateMongoQuery(ast));
+                return PreparedQuery.mongo(intentResult, generatedQuery, ast, queryClass);
+            }
+
+            // MySQL execution, literals bound as typed parameters
+            generatedQuery = queryGenerator.generateSQL(ast);
+            SqlStatement statement = metrics.time(Stage.SQL_GENERATION, () -> queryGenerator.generateParameterizedSQL(ast));
+            // An estimate when the client asks for one, or the planner routes it there and the client does not object
+            Estimation approximate = request.getApproximate() != null
+                ? (request.getApproximate() ? Estimation.REQUESTED : Estimation.NONE)
+                : plan.getRoute() == QueryPlan.Route.APPROXIMATE ? Estimation.ROUTED : Estimation.NONE;
+            return PreparedQuery.sql(intentResult, generatedQuery, null, dbName, statement, ast, approximate, queryClass);
+
+        } catch (BulkheadFullException | QueryTimeoutException | CancellationException e) {
+            // Answered with their own status, not as a failed query
+            throw e;
+        } catch (Exception e) {
+            logger.warn("Query preparation failed", e);
+            // Fallback for failed parsing/generation
+            return PreparedQuery.answered(failed(intentResult, e));
+        }
+    }
+
+    /**
+     * Run a prepared query and build its response.
+     *
+     * @param deduplicator statements already run by another question of the same batch, or null
+     */
+    private QueryResponse execute(PreparedQuery prepared, BatchDeduplicator deduplicator) {
+        if (prepared.response != null) {
+            return prepared.response;
+        }
+
+        QueryExecutor.QueryResult result = null;
+        ResultCache.CacheLookup cacheLookup = null;
+        ApproximateQueryExecutor.Estimate estimate = null;
+        Long materializedAgeMs = null;
+
+        try {
+            if (prepared.federatedJoin != null) {
+                result = admissionController.execute(prepared.queryClass,
+                    () -> metrics.time(Stage.EXECUTION, () -> federatedJoinExecutor.execute(prepared.federatedJoin)));
+            } else if (prepared.statement == null) {
+                result = admissionController.execute(prepared.queryClass,
+                    () -> metrics.time(Stage.EXECUTION, () -> executeMongoQuery(prepared.ast)));
+            } else {
+                // Small hot tables are answered from their in-memory replica, without MySQL
+                result = prepared.ast != null ? tableReplicas.execute(prepared.ast) : null;
+                if (result == null && prepared.ast != null) {
+                    // Recurring aggregate questions are answered from their materialized aggregate
+                    result = materializedAggregates.execute(prepared.ast);
+                    materializedAgeMs = result != null ? materializedAggregates.ageMs(prepared.ast) : null;
+                }
+                if (result == null && prepared.approximate != Estimation.NONE) {
+                    // Estimated from a primary key sample, or from statistics if the client asked for an
+                    // estimate; null when it must run exactly
+                    estimate = admissionController.execute(prepared.queryClass,
+                        () -> metrics.time(Stage.EXECUTION, () -> approximateQueryExecutor.execute(prepared.ast,
+                            prepared.approximate == Estimation.REQUESTED)));
+                    result = estimate != null ? estimate.getResult() : null;
+                }
+                if (result == null) {
+                    // Execute the SQL, or serve it from the result cache
+                    cacheLookup = deduplicator == null
+                        ? executeSql(prepared.dbName, prepared.statement, prepared.queryClass)
+                        : deduplicator.execute(sqlKey(prepared.dbName, prepared.statement),
+                            () -> executeSql(prepared.dbName, prepared.statement, prepared.queryClass));
+                    result = cacheLookup.getResult();
                 }
             }
 
-            return new QueryResponse(
-                intentResult.getIntent().name(),
-                generatedQuery,
+            if (!result.isSuccess()) {
+                // A statement stopped by the deadline or a cancel request fails the query, not just its rows
+                QueryContext.checkCurrent();
+            }
+
+            QueryResponse response = new QueryResponse(
+                prepared.intentResult.getIntent().name(),
+                prepared.generatedQuery,
                 result.getData(),
                 result.getRowCount(),
-                intentResult.getConfidence(),
+                prepared.intentResult.getConfidence(),
                 result.getExecutionTimeMs(),
                 result.getErrorMessage()
             );
+            response.setCostGuardMessage(prepared.costGuardMessage);
+            if (cacheLookup != null) {
+                metrics.cacheLookup(cacheLookup.isCached());
+            }
+            if (cacheLookup != null && cacheLookup.isCached()) {
+                response.setCached(true);
+                response.setCacheAgeMs(cacheLookup.getAgeMs());
+            }
+            if (materializedAgeMs != null) {
+                response.setCached(true);
+                response.setCacheAgeMs(materializedAgeMs);
+            }
+            if (estimate != null) {
+                response.setApproximation(new Approximation(estimate.getMethod(), estimate.getLower(),
+                    estimate.getUpper(), estimate.getConfidenceLevel(), estimate.getSampleFraction()));
+            }
+            return response;
 
+        } catch (BulkheadFullException | QueryTimeoutException | CancellationException e) {
+            // Answered with their own status, not as a failed query
+            throw e;
         } catch (Exception e) {
-            e.printStackTrace();
-            // Fallback for failed parsing/generation
-            return new QueryResponse(
-                intentResult.getIntent().name(),
-                "ERROR: " + e.getMessage(),
-                Collections.emptyList(),
-                0,
-                intentResult.getConfidence(),
-                0,
-                e.getMessage()
-            );
-        } finally {
-             // Log the result size for debugging
-             if (result != null) {
-                 System.out.println("Query executed. Rows returned: " + result.getRowCount());
-                 if (result.getData() != null && !result.getData().isEmpty()) {
-                     System.out.println("First row: " + result.getData().get(0));
-                 }
-             } else {
-                 System.out.println("Query execution failed or returned null result.");
-             }
-        }
-    }
-}
\ No newline at end of file
+            logger.warn("Query execution failed", e);
+            return failed(prepared.intentResult, e);
+        }
+    }
+
+    private QueryResponse noTargetTable(IntentResult intentResult) {
+        return new QueryResponse(
+            intentResult.getIntent().name(),
+            "Could not identify a clear query target (table). Please include a valid table name in your question.",
+            Collections.emptyList(),
+            0,
+            intentResult.getConfidence(),
+            0,
+            "No target table identified in query"
+        );
+    }
+
+    private QueryResponse failed(IntentResult intentResult, Exception e) {
+        return failed(intentResult, e.getMessage());
+    }
+
+    private QueryResponse failed(IntentResult intentResult, String message) {
+        return new QueryResponse(
+            intentResult.getIntent().name(),
+            "ERROR: " + message,
+            Collections.emptyList(),
+            0,
+            intentResult.getConfidence(),
+            0,
+            message
+        );
+    }
+
+    /**
+     * A question parsed and generated but not yet executed: either a SQL statement,
+     * a MongoDB query (its AST), a federated join, or a response that needs no execution
+     */
+    private static final class PreparedQuery {
+        private final IntentResult intentResult;
+        private final String generatedQuery;
+        private final String costGuardMessage;
+        private final String dbName;
+        private final SqlStatement statement;
+        private final QueryAST ast;
+        private final Estimation approximate;
+        private final AdmissionController.QueryClass queryClass;
+        private final FederatedJoinPlanner.FederatedJoin federatedJoin;
+        private final QueryResponse response;
+
+        private PreparedQuery(IntentResult intentResult, String generatedQuery, String costGuardMessage, String dbName,
+                              SqlStatement statement, QueryAST ast, Estimation approximate,
+                              AdmissionController.QueryClass queryClass,
+                              FederatedJoinPlanner.FederatedJoin federatedJoin, QueryResponse response) {
+            this.intentResult = intentResult;
+            this.generatedQuery = generatedQuery;
+            this.costGuardMessage = costGuardMessage;
+            this.dbName = dbName;
+            this.statement = statement;
+            this.ast = ast;
+            this.approximate = approximate;
+            this.queryClass = queryClass;
+            this.federatedJoin = federatedJoin;
+            this.response = response;
+        }
+
+        /**
+         * @param ast the rule-based AST the statement was generated from, null for LLM SQL
+         * @param approximate whether an estimate of the answer is acceptable, and who chose it
+         */
+        static PreparedQuery sql(IntentResult intentResult, String generatedQuery, String costGuardMessage,
+                                 String dbName, SqlStatement statement, QueryAST ast, Estimation approximate,
+                                 AdmissionController.QueryClass queryClass) {
+            return new PreparedQuery(intentResult, generatedQuery, costGuardMessage, dbName, statement, ast, approximate,
+                queryClass, null, null);
+        }
+
+        static PreparedQuery mongo(IntentResult intentResult, String generatedQuery, QueryAST ast,
+                                   AdmissionController.QueryClass queryClass) {
+            return new PreparedQuery(intentResult, generatedQuery, null, ast.getDatabaseName(), null, ast,
+                Estimation.NONE, queryClass, null, null);
+        }
+
+        static PreparedQuery federated(IntentResult intentResult, FederatedJoinPlanner.FederatedJoin federatedJoin) {
+            // Both sides stream their whole filtered input: always a heavy query
+            return new PreparedQuery(intentResult, federatedJoin.getDescription(), null, federatedJoin.getDatabaseName(),
+                null, federatedJoin.getAst(), Estimation.NONE, AdmissionController.QueryClass.HEAVY, federatedJoin, null);
+        }
+
+        static PreparedQuery answered(QueryResponse response) {
+            return new PreparedQuery(null, response.getGeneratedQuery(), null, null, null, null, Estimation.NONE,
+                null, null, response);
+        }
+    }
+
+    /**
+     * Whether a query may be answered with an estimate: not at all, because the planner routed
+     * it there, or because the client asked for one
+     */
+    private enum Estimation {
+        NONE, ROUTED, REQUESTED
+    }
+}
@@ -6,6 +6,7 @@ public class ConditionNode {
     private String operator;  // =, >, <, >=, <=, !=, LIKE, IN
     private Object value;
     private LogicalOperator logicalOperator;  // AND, OR (for chaining conditions)
+    private Integer sqlType;  // java.sql.Types of the column, null if unknown
 
     public ConditionNode(String column, String operator, Object value) {
         this.column = column;
@@ -53,6 +54,14 @@ public class ConditionNode {
         this.logicalOperator = logicalOperator;
     }
 
+    public Integer getSqlType() {
+        return sqlType;
+    }
+
+    public void setSqlType(Integer sqlType) {
+        this.sqlType = sqlType;
+    }
+
     public enum LogicalOperator {
         AND,
         OR
@@ -1,5 +1,8 @@
 package com.rca.engdb.ast;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class JoinNode {
     
     private String leftTable;
@@ -7,6 +10,7 @@ public class JoinNode {
     private String leftColumn;
     private String rightColumn;
     private JoinType joinType;
+    private List<ConditionNode> conditions = new ArrayList<>();  // Predicates evaluated inside a SEMI join
 
     public JoinNode() {
         // No-arg constructor for builder pattern
@@ -60,10 +64,19 @@ public class JoinNode {
         this.joinType = joinType;
     }
 
+    public List<ConditionNode> getConditions() {
+        return conditions;
+    }
+
+    public void setConditions(List<ConditionNode> conditions) {
+        this.conditions = conditions;
+    }
+
     public enum JoinType {
         INNER,
         LEFT,
         RIGHT,
-        FULL
+        FULL,
+        SEMI    // Existence check only, generated as WHERE EXISTS (...)
     }
 }
@@ -18,7 +18,9 @@ public class SecurityConfig {
             .csrf(csrf -> csrf.disable()) // Disable CSRF for simpler API testing
             .authorizeHttpRequests(auth -> auth
                 .requestMatchers("/", "/index.html", "/databases.html", "/query.html", "/css/**", "/js/**").permitAll() // Allow static resources
+                .requestMatchers("/error").permitAll() // Error responses of public endpoints (e.g. 409, 413)
                 .requestMatchers("/api/query/**").permitAll() // Allow public access to query endpoints
+                .requestMatchers("/actuator/health", "/actuator/prometheus").permitAll() // Health checks and metrics scraping
                 .requestMatchers("/api/**").authenticated() // Secure other API endpoints
                 .anyRequest().authenticated()
             )
@@ -0,0 +1,47 @@
+package com.rca.engdb.dto;
+
+/**
+ * How an approximate answer was obtained and the bounds of the exact answer
+ */
+public class Approximation {
+
+    // STATISTICS (information_schema row estimate) or SAMPLE (primary key range sample)
+    private final String method;
+
+    private final Number lower;
+    private final Number upper;
+
+    // Probability that the bounds contain the exact answer, null for statistics estimates
+    private final Double confidenceLevel;
+
+    // Fraction of the table's key range read, null when no rows were read
+    private final Double sampleFraction;
+
+    public Approximation(String method, Number lower, Number upper, Double confidenceLevel, Double sampleFraction) {
+        this.method = method;
+        this.lower = lower;
+        this.upper = upper;
+        this.confidenceLevel = confidenceLevel;
+        this.sampleFraction = sampleFraction;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public Number getLower() {
+        return lower;
+    }
+
+    public Number getUpper() {
+        return upper;
+    }
+
+    public Double getConfidenceLevel() {
+        return confidenceLevel;
+    }
+
+    public Double getSampleFraction() {
+        return sampleFraction;
+    }
+}
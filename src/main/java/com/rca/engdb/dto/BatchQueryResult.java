@@ -0,0 +1,38 @@
+package com.rca.engdb.dto;
+
+/**
+ * One line of a batch response: the answer to the question at the given position of the batch
+ */
+public class BatchQueryResult {
+
+    private final int index;
+    private final String queryId;
+
+    // HTTP status the question would have had as a single request
+    private final int status;
+
+    private final QueryResponse response;
+
+    public BatchQueryResult(int index, String queryId, int status, QueryResponse response) {
+        this.index = index;
+        this.queryId = queryId;
+        this.status = status;
+        this.response = response;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public String getQueryId() {
+        return queryId;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public QueryResponse getResponse() {
+        return response;
+    }
+}
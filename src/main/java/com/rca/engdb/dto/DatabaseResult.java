@@ -0,0 +1,38 @@
+package com.rca.engdb.dto;
+
+/**
+ * Part of a fan-out answer contributed by one database
+ */
+public class DatabaseResult {
+
+    private final String database;
+    private final int rowCount;
+
+    // Time for this database, including the wait for a fan-out slot
+    private final long executionTimeMs;
+
+    private final String errorMessage;
+
+    public DatabaseResult(String database, int rowCount, long executionTimeMs, String errorMessage) {
+        this.database = database;
+        this.rowCount = rowCount;
+        this.executionTimeMs = executionTimeMs;
+        this.errorMessage = errorMessage;
+    }
+
+    public String getDatabase() {
+        return database;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public long getExecutionTimeMs() {
+        return executionTimeMs;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+}
@@ -9,6 +9,19 @@ public class QueryRequest {
 
     private String databaseName;
 
+    // Fan-out mode: run the question on every MySQL database matching this pattern (* and ?)
+    private String databasePattern;
+
+    // Deadline for the whole request; the server default applies when absent
+    private Long timeoutMs;
+
+    // Client-chosen id, used to cancel the query with DELETE /api/query/{queryId}
+    private String queryId;
+
+    // Approximate COUNT/SUM/AVG: true asks for an estimate, false for the exact answer,
+    // absent lets the planner decide from the table size
+    private Boolean approximate;
+
     public String getQuery() {
         return query;
     }
@@ -24,4 +37,36 @@ public class QueryRequest {
     public void setDatabaseName(String databaseName) {
         this.databaseName = databaseName;
     }
+
+    public String getDatabasePattern() {
+        return databasePattern;
+    }
+
+    public void setDatabasePattern(String databasePattern) {
+        this.databasePattern = databasePattern;
+    }
+
+    public Long getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    public void setTimeoutMs(Long timeoutMs) {
+        this.timeoutMs = timeoutMs;
+    }
+
+    public String getQueryId() {
+        return queryId;
+    }
+
+    public void setQueryId(String queryId) {
+        this.queryId = queryId;
+    }
+
+    public Boolean getApproximate() {
+        return approximate;
+    }
+
+    public void setApproximate(Boolean approximate) {
+        this.approximate = approximate;
+    }
 }
@@ -12,6 +12,11 @@ public class QueryResponse {
     private double confidence;
     private long executionTimeMs;
     private String errorMessage;
+    private String costGuardMessage;
+    private boolean cached;
+    private Long cacheAgeMs;
+    private List<DatabaseResult> databaseResults;
+    private Approximation approximation;
 
     public QueryResponse(String intent, String generatedQuery, List<Map<String, Object>> results, 
                          int rowCount, double confidence, long executionTimeMs, String errorMessage) {
@@ -58,4 +63,59 @@ public class QueryResponse {
     public String getErrorMessage() {
         return errorMessage;
     }
+
+    /**
+     * Why the cost guard rewrote or rejected the generated SQL, if it did
+     */
+    public String getCostGuardMessage() {
+        return costGuardMessage;
+    }
+
+    public void setCostGuardMessage(String costGuardMessage) {
+        this.costGuardMessage = costGuardMessage;
+    }
+
+    /**
+     * Whether the results were served from the result cache
+     */
+    public boolean isCached() {
+        return cached;
+    }
+
+    public void setCached(boolean cached) {
+        this.cached = cached;
+    }
+
+    /**
+     * Age of the cached results in milliseconds, null when freshly executed
+     */
+    public Long getCacheAgeMs() {
+        return cacheAgeMs;
+    }
+
+    public void setCacheAgeMs(Long cacheAgeMs) {
+        this.cacheAgeMs = cacheAgeMs;
+    }
+
+    /**
+     * Result of each database of a fan-out query, null otherwise
+     */
+    public List<DatabaseResult> getDatabaseResults() {
+        return databaseResults;
+    }
+
+    public void setDatabaseResults(List<DatabaseResult> databaseResults) {
+        this.databaseResults = databaseResults;
+    }
+
+    /**
+     * Method and bounds of an approximate answer, null when the results are exact
+     */
+    public Approximation getApproximation() {
+        return approximation;
+    }
+
+    public void setApproximation(Approximation approximation) {
+        this.approximation = approximation;
+    }
 }
@@ -0,0 +1,247 @@
+package com.rca.engdb.engine;
+
+import com.rca.engdb.ast.ConditionNode;
+import com.rca.engdb.ast.QueryAST;
+import com.rca.engdb.ml.IntentType;
+import com.rca.engdb.nlp.ConditionExtractor;
+import com.rca.engdb.schema.MongoSchemaDiscoveryService;
+import com.rca.engdb.schema.SchemaDiscoveryService;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Plans joins between a MySQL table and a MongoDB collection, which neither database can run.
+ *
+ * There are no foreign keys across the two stores, so the joinable pairs are configured as
+ * links in engdb.federation.links ("orders.user_id=users._id", comma-separated, MySQL side
+ * first). A question is federated when its target is one end of a link and it also names the
+ * other end. Conditions and the needed columns are pushed down to each side: a parameterized
+ * SELECT for MySQL and a filter and projection for MongoDB; the join itself runs in process.
+ */
+@Service
+public class FederatedJoinPlanner {
+
+    private static final Set<IntentType> SUPPORTED_INTENTS = EnumSet.of(
+        IntentType.SELECT, IntentType.COUNT, IntentType.SUM, IntentType.AVG, IntentType.MAX, IntentType.MIN);
+
+    private final QueryGenerator queryGenerator;
+    private final QueryPlanner queryPlanner;
+    private final ConditionExtractor conditionExtractor;
+    private final SchemaDiscoveryService schemaDiscoveryService;
+    private final MongoSchemaDiscoveryService mongoSchemaDiscoveryService;
+    private final List<Link> links;
+
+    public FederatedJoinPlanner(QueryGenerator queryGenerator,
+                                QueryPlanner queryPlanner,
+                                ConditionExtractor conditionExtractor,
+                                SchemaDiscoveryService schemaDiscoveryService,
+                                MongoSchemaDiscoveryService mongoSchemaDiscoveryService,
+                                @Value("${engdb.federation.links:}") String links) {
+        this.queryGenerator = queryGenerator;
+        this.queryPlanner = queryPlanner;
+        this.conditionExtractor = conditionExtractor;
+        this.schemaDiscoveryService = schemaDiscoveryService;
+        this.mongoSchemaDiscoveryService = mongoSchemaDiscoveryService;
+        this.links = parseLinks(links);
+    }
+
+    /**
+     * A joinable MySQL column and MongoDB field
+     */
+    public record Link(String table, String column, String collection, String field) {
+    }
+
+    /**
+     * Parse "table.column=collection.field" pairs separated by commas
+     */
+    public static List<Link> parseLinks(String links) {
+        List<Link> parsed = new ArrayList<>();
+        if (links == null || links.isBlank()) return parsed;
+        for (String link : links.split(",")) {
+            String[] ends = link.trim().split("=");
+            if (ends.length != 2) {
+                throw new IllegalArgumentException("Federation link '" + link.trim() + "' is not table.column=collection.field");
+            }
+            String[] table = qualifiedName(link, ends[0]);
+            String[] collection = qualifiedName(link, ends[1]);
+            parsed.add(new Link(table[0], table[1], collection[0], collection[1]));
+        }
+        return parsed;
+    }
+
+    private static String[] qualifiedName(String link, String end) {
+        String name = end.trim();
+        int dot = name.indexOf('.');
+        if (dot <= 0 || dot == name.length() - 1) {
+            throw new IllegalArgumentException("Federation link '" + link.trim() + "' is not table.column=collection.field");
+        }
+        return new String[] {name.substring(0, dot), name.substring(dot + 1)};
+    }
+
+    public List<Link> getLinks() {
+        return links;
+    }
+
+    /**
+     * Plan the question as a federated join, or null if it is not one
+     */
+    public FederatedJoin plan(QueryAST ast, List<String> tokens) {
+        if (links.isEmpty() || ast.getTargetTable() == null || !ast.getJoins().isEmpty()
+                || !SUPPORTED_INTENTS.contains(ast.getIntent())) {
+            return null;
+        }
+        for (Link link : links) {
+            boolean fromTable = link.table().equalsIgnoreCase(ast.getTargetTable());
+            boolean fromCollection = link.collection().equalsIgnoreCase(ast.getTargetTable());
+            if (fromTable && mentions(tokens, link.collection()) || fromCollection && mentions(tokens, link.table())) {
+                return build(ast, tokens, link, fromTable);
+            }
+        }
+        return null;
+    }
+
+    private FederatedJoin build(QueryAST ast, List<String> tokens, Link link, boolean fromTable) {
+        String dbName = ast.getDatabaseName();
+        List<String> tableColumns = columnsOf(schemaDiscoveryService.discoverSchema(dbName), link.table());
+        List<String> collectionFields = columnsOf(mongoSchemaDiscoveryService.discoverSchema(dbName), link.collection());
+
+        // The parser found the conditions on the target; the other side's come from the same tokens
+        List<ConditionNode> tableConditions;
+        List<ConditionNode> collectionConditions;
+        if (fromTable) {
+            tableConditions = ast.getWhereConditions();
+            collectionConditions = conditionExtractor.extractConditions(tokens, collectionFields,
+                orEmpty(mongoSchemaDiscoveryService.getColumnTypes(dbName, link.collection())), dbName);
+        } else {
+            collectionConditions = ast.getWhereConditions();
+            tableConditions = conditionExtractor.extractConditions(tokens, tableColumns,
+                orEmpty(schemaDiscoveryService.getColumnTypes(dbName, link.table())), dbName);
+        }
+
+        // Each side reads its key and the columns the output needs, or everything for SELECT *
+        List<String> needed = neededColumns(ast);
+        List<String> tableProjection = needed == null ? List.of("*") : project(needed, tableColumns, link.column());
+        List<String> collectionProjection = needed == null ? List.of() : project(needed, collectionFields, link.field());
+
+        QueryAST tableQuery = new QueryAST();
+        tableQuery.setIntent(IntentType.SELECT);
+        tableQuery.setTargetTable(link.table());
+        tableQuery.setDatabaseName(dbName);
+        tableQuery.setSelectColumns(new ArrayList<>(tableProjection));
+        tableQuery.setWhereConditions(new ArrayList<>(tableConditions));
+        SqlStatement statement = queryGenerator.generateParameterizedSQL(tableQuery);
+        long tableEstimate = queryPlanner.plan(tableQuery).getEstimatedRows();
+
+        Document filter = queryGenerator.buildMongoFilterDocument(collectionConditions);
+        Document projection = new Document();
+        collectionProjection.forEach(field -> projection.append(field, 1));
+
+        String description = "-- federated join on " + link.table() + "." + link.column() + " = "
+            + link.collection() + "." + link.field() + "\n"
+            + queryGenerator.generateSQL(tableQuery) + ";\n"
+            + "db." + link.collection() + ".find(" + filter.toJson()
+            + (projection.isEmpty() ? "" : ", " + projection.toJson()) + ")";
+
+        return new FederatedJoin(link, fromTable, dbName, statement, tableEstimate,
+            filter, projection, collectionConditions.size(), ast, description);
+    }
+
+    /**
+     * Columns the output reads, or null if it needs all of them
+     */
+    private static List<String> neededColumns(QueryAST ast) {
+        List<String> needed = new ArrayList<>();
+        if (ast.getIntent() == IntentType.SELECT) {
+            if (ast.getSelectColumns().isEmpty() || ast.getSelectColumns().contains("*")) return null;
+            ast.getSelectColumns().forEach(column -> needed.add(plainName(column)));
+        } else if (ast.getAggregateColumn() != null) {
+            needed.add(plainName(ast.getAggregateColumn()));
+        }
+        if (ast.getOrderByColumn() != null) needed.add(plainName(ast.getOrderByColumn()));
+        return needed;
+    }
+
+    private static List<String> project(List<String> needed, List<String> columns, String key) {
+        List<String> projection = new ArrayList<>();
+        projection.add(key);
+        for (String column : columns) {
+            if (!column.equalsIgnoreCase(key) && needed.stream().anyMatch(column::equalsIgnoreCase)) {
+                projection.add(column);
+            }
+        }
+        return projection;
+    }
+
+    private static boolean mentions(List<String> tokens, String name) {
+        for (String token : tokens) {
+            if (token.equalsIgnoreCase(name) || (token + "s").equalsIgnoreCase(name) || token.equalsIgnoreCase(name + "s")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String plainName(String column) {
+        return column.substring(column.lastIndexOf('.') + 1);
+    }
+
+    private static List<String> columnsOf(Map<String, List<String>> schema, String table) {
+        return schema != null ? schema.getOrDefault(table, List.of()) : List.of();
+    }
+
+    private static Map<String, Integer> orEmpty(Map<String, Integer> types) {
+        return types != null ? types : Map.of();
+    }
+
+    /**
+     * A planned federated join: the MySQL side as a statement with its planner estimate, the
+     * MongoDB side as a filter and projection, and the question's AST for the output
+     * (intent, aggregate column, order and limit)
+     */
+    public static class FederatedJoin {
+        private final Link link;
+        private final boolean tableFirst;
+        private final String databaseName;
+        private final SqlStatement statement;
+        private final long tableEstimate;
+        private final Document filter;
+        private final Document projection;
+        private final int collectionConditionCount;
+        private final QueryAST ast;
+        private final String description;
+
+        public FederatedJoin(Link link, boolean tableFirst, String databaseName, SqlStatement statement,
+                             long tableEstimate, Document filter, Document projection, int collectionConditionCount,
+                             QueryAST ast, String description) {
+            this.link = link;
+            this.tableFirst = tableFirst;
+            this.databaseName = databaseName;
+            this.statement = statement;
+            this.tableEstimate = tableEstimate;
+            this.filter = filter;
+            this.projection = projection;
+            this.collectionConditionCount = collectionConditionCount;
+            this.ast = ast;
+            this.description = description;
+        }
+
+        public Link getLink() { return link; }
+        /** Whether the MySQL table is the question's target, so its columns come first */
+        public boolean isTableFirst() { return tableFirst; }
+        public String getDatabaseName() { return databaseName; }
+        public SqlStatement getStatement() { return statement; }
+        public long getTableEstimate() { return tableEstimate; }
+        public Document getFilter() { return filter; }
+        public Document getProjection() { return projection; }
+        public int getCollectionConditionCount() { return collectionConditionCount; }
+        public QueryAST getAst() { return ast; }
+        public String getDescription() { return description; }
+    }
+}
@@ -0,0 +1,230 @@
+package com.rca.engdb.engine;
+
+import com.rca.engdb.schema.ForeignKeyRelation;
+import com.rca.engdb.schema.SchemaDiscoveryService;
+import com.rca.engdb.schema.SchemaGraph;
+import com.rca.engdb.schema.TableStatistics;
+import com.rca.engdb.schema.TableStatisticsService;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Plans the joins needed to connect a set of tables.
+ *
+ * Instead of joining the base table to every other table along independent shortest paths,
+ * the planner builds one connecting subtree over the schema graph (Takahashi-Matsuyama
+ * approximation of the minimal Steiner tree). Routing through an intermediate table costs
+ * more the larger that table is, so bridges go through small link/dimension tables.
+ * The search runs over the compiled schema graph by table id. Trees are cached per
+ * (schema version, database, sorted table set).
+ */
+@Service
+public class JoinPlanner {
+
+    // Cost of one join between tables the query needs anyway
+    private static final double JOIN_COST = 1.0;
+    // Assumed size of a table whose statistics have not been collected
+    private static final long DEFAULT_ROW_ESTIMATE = 1000;
+
+    private final SchemaDiscoveryService schemaDiscoveryService;
+    private final TableStatisticsService statisticsService;
+
+    // "db|t1,t2,..." -> undirected tree edges, with the schema version of the database they were built from
+    private final Map<String, CachedTree> treeCache = new ConcurrentHashMap<>();
+
+    public JoinPlanner(SchemaDiscoveryService schemaDiscoveryService, TableStatisticsService statisticsService) {
+        this.schemaDiscoveryService = schemaDiscoveryService;
+        this.statisticsService = statisticsService;
+    }
+
+    /**
+     * Plan the joins connecting the base table to the other tables.
+     * Each returned relation's from-table is already joined when it is reached, so the
+     * list can be emitted as JOIN clauses in order. Tables that cannot be reached are skipped.
+     */
+    public List<ForeignKeyRelation> planJoins(String dbName, String baseTable, Collection<String> tables) {
+        SchemaGraph schemaGraph = schemaDiscoveryService.getSchemaGraph(dbName);
+        if (schemaGraph == null || baseTable == null) return List.of();
+        SchemaGraph.Snapshot graph = schemaGraph.snapshot();
+
+        // Graph vertices are plain table names, detected tables may be qualified with the database
+        int base = graph.idOf(plainName(baseTable));
+        if (base < 0) return List.of();
+
+        TreeSet<String> terminals = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        terminals.add(graph.name(base));
+        for (String table : tables) {
+            int vertex = graph.idOf(plainName(table));
+            if (vertex >= 0) terminals.add(graph.name(vertex));
+        }
+        if (terminals.size() < 2) return List.of();
+
+        List<ForeignKeyRelation> tree = cachedTree(dbName, terminals, graph);
+        return orient(graph.name(base), tree);
+    }
+
+    private List<ForeignKeyRelation> cachedTree(String dbName, SortedSet<String> terminals, SchemaGraph.Snapshot graph) {
+        long version = schemaDiscoveryService.getSchemaVersion(dbName);
+        String key = dbName + "|" + String.join(",", terminals).toLowerCase();
+        CachedTree cached = treeCache.get(key);
+        if (cached != null && cached.schemaVersion() == version) return cached.edges();
+
+        SteinerTree tree = buildTree(dbName, terminals, graph);
+        // Weights without statistics are guesses; recompute once statistics arrive
+        if (tree.statisticsComplete) {
+            treeCache.put(key, new CachedTree(version, tree.edges));
+        }
+        return tree.edges;
+    }
+
+    /**
+     * Grow a tree from the first terminal, repeatedly attaching the terminal that is
+     * cheapest to reach from any table already in the tree (multi-source Dijkstra).
+     */
+    private SteinerTree buildTree(String dbName, SortedSet<String> terminals, SchemaGraph.Snapshot graph) {
+        int n = graph.size();
+        boolean[] inTree = new boolean[n];
+        boolean[] remaining = new boolean[n];
+        inTree[graph.idOf(terminals.first())] = true;
+        int remainingCount = 0;
+        for (String terminal : terminals) {
+            int id = graph.idOf(terminal);
+            if (!inTree[id] && !remaining[id]) {
+                remaining[id] = true;
+                remainingCount++;
+            }
+        }
+
+        List<ForeignKeyRelation> edges = new ArrayList<>();
+        // Cost of routing through each table, looked up on first use
+        double[] weights = new double[n];
+        Arrays.fill(weights, Double.NaN);
+        boolean statisticsComplete = true;
+
+        double[] distance = new double[n];
+        int[] parentEdge = new int[n];
+        while (remainingCount > 0) {
+            Arrays.fill(distance, Double.MAX_VALUE);
+            PriorityQueue<Reach> queue = new PriorityQueue<>(Comparator.comparingDouble(Reach::distance));
+            for (int table = 0; table < n; table++) {
+                if (inTree[table]) {
+                    distance[table] = 0.0;
+                    queue.add(new Reach(table, 0.0));
+                }
+            }
+
+            int reached = -1;
+            while (!queue.isEmpty()) {
+                Reach current = queue.poll();
+                int table = current.table();
+                if (current.distance() > distance[table]) continue;
+
+                if (remaining[table]) {
+                    reached = table;
+                    break;
+                }
+
+                for (int edge = graph.firstEdge(table); edge < graph.endEdge(table); edge++) {
+                    int next = graph.target(edge);
+                    double weight = JOIN_COST;
+                    if (!remaining[next]) {
+                        if (Double.isNaN(weights[next])) {
+                            TableStatistics stats = statisticsService.getStatistics(dbName, graph.name(next));
+                            statisticsComplete &= stats != null;
+                            weights[next] = intermediateCost(stats);
+                        }
+                        weight = weights[next];
+                    }
+                    double candidate = current.distance() + weight;
+
+                    if (candidate < distance[next]) {
+                        distance[next] = candidate;
+                        parentEdge[next] = edge;
+                        queue.add(new Reach(next, candidate));
+                    }
+                }
+            }
+
+            // Remaining terminals are not connected to the tree
+            if (reached < 0) break;
+
+            // Walk back to the tree, adding the path's tables and joins
+            for (int current = reached; !inTree[current]; current = graph.source(parentEdge[current])) {
+                edges.add(graph.relation(parentEdge[current]));
+                inTree[current] = true;
+                if (remaining[current]) {
+                    remaining[current] = false;
+                    remainingCount--;
+                }
+            }
+        }
+
+        return new SteinerTree(edges, statisticsComplete);
+    }
+
+    /**
+     * Cost of routing through a table the query does not reference: larger tables cost more
+     */
+    private double intermediateCost(TableStatistics stats) {
+        long rows = stats != null ? stats.getRowEstimate() : DEFAULT_ROW_ESTIMATE;
+        return JOIN_COST + Math.log10(1 + rows);
+    }
+
+    /**
+     * Orient tree edges outward from the base table, in breadth-first order
+     */
+    private List<ForeignKeyRelation> orient(String base, List<ForeignKeyRelation> tree) {
+        List<ForeignKeyRelation> ordered = new ArrayList<>();
+        Set<String> joined = new HashSet<>();
+        joined.add(base.toLowerCase());
+
+        List<ForeignKeyRelation> remaining = new ArrayList<>(tree);
+        boolean progress = true;
+        while (!remaining.isEmpty() && progress) {
+            progress = false;
+            Iterator<ForeignKeyRelation> it = remaining.iterator();
+            while (it.hasNext()) {
+                ForeignKeyRelation relation = it.next();
+                boolean fromJoined = joined.contains(relation.getFromTable().toLowerCase());
+                boolean toJoined = joined.contains(relation.getToTable().toLowerCase());
+                if (!fromJoined && !toJoined) continue;
+
+                ordered.add(fromJoined ? relation : new ForeignKeyRelation(
+                    relation.getToTable(), relation.getToColumn(), relation.getFromTable(), relation.getFromColumn()));
+                joined.add(relation.getFromTable().toLowerCase());
+                joined.add(relation.getToTable().toLowerCase());
+                it.remove();
+                progress = true;
+            }
+        }
+        return ordered;
+    }
+
+    private String plainName(String table) {
+        int dot = table.lastIndexOf('.');
+        return dot >= 0 ? table.substring(dot + 1) : table;
+    }
+
+    public void clearCache() {
+        treeCache.clear();
+    }
+
+    private static class SteinerTree {
+        private final List<ForeignKeyRelation> edges;
+        private final boolean statisticsComplete;
+
+        SteinerTree(List<ForeignKeyRelation> edges, boolean statisticsComplete) {
+            this.edges = Collections.unmodifiableList(edges);
+            this.statisticsComplete = statisticsComplete;
+        }
+    }
+
+    private record CachedTree(long schemaVersion, List<ForeignKeyRelation> edges) {
+    }
+
+    // A table reached at a distance, as queued by the search
+    private record Reach(int table, double distance) {
+    }
+}
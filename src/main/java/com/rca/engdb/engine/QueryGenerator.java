@@ -4,15 +4,90 @@ import com.rca.engdb.ast.ConditionNode;
 import com.rca.engdb.ast.JoinNode;
 import com.rca.engdb.ast.QueryAST;
 import com.rca.engdb.ml.IntentType;
+import org.bson.Document;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 public class QueryGenerator {
     
+    /**
+     * Generate SQL with literal values inlined (for display and logging)
+     */
     public String generateSQL(QueryAST ast) {
+        return buildSQL(ast, null, null, false);
+    }
+
+    /**
+     * Generate SQL with ? placeholders and typed parameters for execution.
+     * Binding values with the column's JDBC type avoids implicit conversions
+     * that would keep MySQL from using an index on the column.
+     */
+    public SqlStatement generateParameterizedSQL(QueryAST ast) {
+        List<Object> parameters = new ArrayList<>();
+        List<Integer> parameterTypes = new ArrayList<>();
+        String sql = buildSQL(ast, parameters, parameterTypes, false);
+        return new SqlStatement(sql, parameters, parameterTypes);
+    }
+
+    /**
+     * Parameterized SQL for one database of a fan-out query. Partial averages cannot be
+     * combined, so AVG selects SUM and COUNT of the column (as partial_sum and
+     * partial_count) for the merge to divide; other intents are unchanged.
+     */
+    public SqlStatement generateFanOutSQL(QueryAST ast) {
+        List<Object> parameters = new ArrayList<>();
+        List<Integer> parameterTypes = new ArrayList<>();
+        String sql = buildSQL(ast, parameters, parameterTypes, true);
+        return new SqlStatement(sql, parameters, parameterTypes);
+    }
+
+    /**
+     * Parameterized SQL reading a cluster sample for an approximate COUNT, SUM or AVG of a
+     * single table: only the rows whose key falls in one of the given cells, the ranges of
+     * cellWidth keys starting at origin + cell * cellWidth. Each cell is one result row with
+     * its number (sample_cell), the count and, except for COUNT, the sum of the aggregated
+     * column (sample_count, sample_sum). Cells without matching rows are absent.
+     */
+    public SqlStatement generateSampleSQL(QueryAST ast, String keyColumn, long origin, long cellWidth, long[] cells) {
+        List<Object> parameters = new ArrayList<>();
+        List<Integer> parameterTypes = new ArrayList<>();
+        String column = ast.getAggregateColumn() != null ? ast.getAggregateColumn()
+            : ast.getIntent() == IntentType.COUNT ? "*" : "id";
+
+        StringBuilder sql = new StringBuilder("SELECT FLOOR((")
+            .append(keyColumn).append(" - ").append(origin).append(") / ").append(cellWidth).append(") AS sample_cell, ")
+            .append("COUNT(").append(column).append(") AS sample_count");
+        if (ast.getIntent() != IntentType.COUNT) {
+            sql.append(", SUM(").append(column).append(") AS sample_sum");
+        }
+        sql.append(" FROM ");
+        if (ast.getDatabaseName() != null && !ast.getDatabaseName().isEmpty()) {
+            sql.append(ast.getDatabaseName()).append(".");
+        }
+        sql.append(ast.getTargetTable());
+
+        // Primary key ranges: the range optimizer reads only the sampled cells
+        List<String> ranges = new ArrayList<>();
+        for (long cell : cells) {
+            long start = origin + cell * cellWidth;
+            ranges.add(keyColumn + " >= " + start + " AND " + keyColumn + " < " + (start + cellWidth));
+        }
+        sql.append(" WHERE (").append(String.join(" OR ", ranges)).append(")");
+        for (ConditionNode condition : ast.getWhereConditions()) {
+            sql.append(" AND ").append(buildCondition(condition, parameters, parameterTypes));
+        }
+        sql.append(" GROUP BY sample_cell");
+        return new SqlStatement(sql.toString(), parameters, parameterTypes);
+    }
+
+    private String buildSQL(QueryAST ast, List<Object> parameters, List<Integer> parameterTypes, boolean partialAverage) {
         // Allow null target table only for SCHEMA intent
         if (ast.getTargetTable() == null && ast.getIntent() != IntentType.SCHEMA) {
             throw new IllegalArgumentException("Target table cannot be null");
@@ -48,9 +123,13 @@ public class QueryGenerator {
                 break;
 
             case AVG:
-                sql.append("SELECT AVG(");
-                sql.append(ast.getAggregateColumn() != null ? ast.getAggregateColumn() : "id");
-                sql.append(")");
+                String averaged = ast.getAggregateColumn() != null ? ast.getAggregateColumn() : "id";
+                if (partialAverage) {
+                    sql.append("SELECT SUM(").append(averaged).append(") AS partial_sum, ")
+                       .append("COUNT(").append(averaged).append(") AS partial_count");
+                } else {
+                    sql.append("SELECT AVG(").append(averaged).append(")");
+                }
                 break;
 
             case MAX:
@@ -79,6 +158,7 @@ public class QueryGenerator {
         // JOIN clauses
         if (!ast.getJoins().isEmpty()) {
             for (JoinNode join : ast.getJoins()) {
+                if (join.getJoinType() == JoinNode.JoinType.SEMI) continue;  // Emitted as EXISTS in WHERE
                 sql.append(" ");
                 switch (join.getJoinType()) {
                     case INNER:
@@ -109,12 +189,18 @@ public class QueryGenerator {
             }
         }
 
-        // WHERE clause
-        if (!ast.getWhereConditions().isEmpty()) {
-            sql.append(" WHERE ");
-            sql.append(ast.getWhereConditions().stream()
-                .map(this::buildCondition)
-                .collect(Collectors.joining(" AND ")));
+        // WHERE clause, semi-joins become EXISTS subqueries
+        List<String> predicates = new ArrayList<>();
+        for (ConditionNode condition : ast.getWhereConditions()) {
+            predicates.add(buildCondition(condition, parameters, parameterTypes));
+        }
+        for (JoinNode join : ast.getJoins()) {
+            if (join.getJoinType() == JoinNode.JoinType.SEMI) {
+                predicates.add(buildExists(ast, join, parameters, parameterTypes));
+            }
+        }
+        if (!predicates.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", predicates));
         }
 
         // ORDER BY clause
@@ -133,26 +219,72 @@ public class QueryGenerator {
         return sql.toString();
     }
 
-    private String buildCondition(ConditionNode condition) {
+    private String buildExists(QueryAST ast, JoinNode join, List<Object> parameters, List<Integer> parameterTypes) {
+        StringBuilder sb = new StringBuilder("EXISTS (SELECT 1 FROM ");
+        if (ast.getDatabaseName() != null && !ast.getDatabaseName().isEmpty()) {
+            sb.append(ast.getDatabaseName()).append(".");
+        }
+        sb.append(join.getRightTable())
+          .append(" WHERE ")
+          .append(join.getRightTable()).append(".").append(join.getRightColumn())
+          .append(" = ")
+          .append(join.getLeftTable()).append(".").append(join.getLeftColumn());
+
+        for (ConditionNode condition : join.getConditions()) {
+            sb.append(" AND ").append(buildCondition(condition, parameters, parameterTypes));
+        }
+        return sb.append(")").toString();
+    }
+
+    private String buildCondition(ConditionNode condition, List<Object> parameters, List<Integer> parameterTypes) {
         StringBuilder sb = new StringBuilder();
         sb.append(condition.getColumn())
           .append(" ")
-          .append(condition.getOperator())
-          .append(" ");
+          .append(condition.getOperator());
+
+        if (isUnary(condition.getOperator())) {
+            return sb.toString();
+        }
+        sb.append(" ");
 
-        // Handle value formatting
         Object value = condition.getValue();
-        if (value instanceof String) {
-            sb.append("'").append(value).append("'");
-        } else if (value instanceof Number) {
+        if (parameters != null) {
+            // Bind as a typed parameter
+            sb.append("?");
+            parameters.add(value);
+            parameterTypes.add(jdbcTypeOf(value, condition.getSqlType()));
+            return sb.toString();
+        }
+
+        // Handle value formatting
+        if (value instanceof Number || value instanceof Boolean) {
             sb.append(value);
         } else {
-            sb.append("'").append(value).append("'");
+            sb.append("'").append(String.valueOf(value).replace("'", "''")).append("'");
         }
 
         return sb.toString();
     }
 
+    private boolean isUnary(String operator) {
+        return "IS NULL".equalsIgnoreCase(operator) || "IS NOT NULL".equalsIgnoreCase(operator);
+    }
+
+    /**
+     * JDBC type for a bound value: derived from the coerced Java value, falling back to the column type
+     */
+    private int jdbcTypeOf(Object value, Integer columnType) {
+        if (value instanceof Integer) return Types.INTEGER;
+        if (value instanceof Long) return Types.BIGINT;
+        if (value instanceof BigDecimal) return Types.DECIMAL;
+        if (value instanceof Double) return Types.DOUBLE;
+        if (value instanceof Boolean) return Types.BOOLEAN;
+        if (value instanceof LocalDate) return Types.DATE;
+        if (value instanceof LocalDateTime) return Types.TIMESTAMP;
+        if (columnType != null) return columnType;
+        return Types.VARCHAR;
+    }
+
     public String generateMongoQuery(QueryAST ast) {
         if (ast.getTargetTable() == null && ast.getIntent() != IntentType.SCHEMA) {
             throw new IllegalArgumentException("Target collection cannot be null");
@@ -227,6 +359,11 @@ public class QueryGenerator {
                 mongoQuery.append(".find({})");
         }
 
+        if (ast.getOrderByColumn() != null && ast.getIntent() == IntentType.SELECT) {
+            mongoQuery.append(".sort({\"").append(ast.getOrderByColumn()).append("\": ")
+                      .append(ast.getOrderDirection() == QueryAST.OrderDirection.DESC ? -1 : 1).append("})");
+        }
+
         if (ast.getLimit() != null) {
             mongoQuery.append(".limit(").append(ast.getLimit()).append(")");
         }
@@ -246,11 +383,7 @@ public class QueryGenerator {
             // Handle operators
             switch (condition.getOperator()) {
                 case "=":
-                    if (condition.getValue() instanceof String) {
-                        filter.append("\"").append(condition.getValue()).append("\"");
-                    } else {
-                        filter.append(condition.getValue());
-                    }
+                    filter.append(formatMongoValue(condition.getValue()));
                     break;
                 case ">":
                     filter.append("{$gt: ").append(formatMongoValue(condition.getValue())).append("}");
@@ -276,10 +409,67 @@ public class QueryGenerator {
         return filter.toString();
     }
 
+    /**
+     * Build a MongoDB filter document with typed values (int32/int64/double/decimal/date),
+     * so comparisons match the stored BSON types and can use indexes.
+     */
+    public Document buildMongoFilterDocument(List<ConditionNode> conditions) {
+        Document filter = new Document();
+
+        for (ConditionNode condition : conditions) {
+            String operator = mongoOperator(condition.getOperator());
+            if (operator == null) {
+                filter.append(condition.getColumn(), condition.getValue());
+                continue;
+            }
+
+            // Merge several range operators on the same field into one document
+            Object existing = filter.get(condition.getColumn());
+            Document operators = existing instanceof Document document ? document : new Document();
+            operators.append(operator, condition.getValue());
+            filter.append(condition.getColumn(), operators);
+        }
+
+        return filter;
+    }
+
+    /**
+     * Build a MongoDB projection document for the selected columns
+     */
+    public Document buildMongoProjectionDocument(QueryAST ast) {
+        Document projection = new Document();
+        if (!ast.getSelectColumns().contains("*")) {
+            ast.getSelectColumns().forEach(column -> projection.append(column, 1));
+        }
+        return projection;
+    }
+
+    /**
+     * Build a MongoDB sort document for the ORDER BY column, empty if unordered
+     */
+    public Document buildMongoSortDocument(QueryAST ast) {
+        Document sort = new Document();
+        if (ast.getOrderByColumn() != null) {
+            sort.append(ast.getOrderByColumn(), ast.getOrderDirection() == QueryAST.OrderDirection.DESC ? -1 : 1);
+        }
+        return sort;
+    }
+
+    private String mongoOperator(String operator) {
+        switch (operator) {
+            case ">": return "$gt";
+            case "<": return "$lt";
+            case ">=": return "$gte";
+            case "<=": return "$lte";
+            case "!=": return "$ne";
+            default: return null;
+        }
+    }
+
     private String formatMongoValue(Object value) {
-        if (value instanceof String) {
-            return "\"" + value + "\"";
+        if (value instanceof Number || value instanceof Boolean) {
+            return String.valueOf(value);
         }
-        return String.valueOf(value);
+        return "\"" + value + "\"";
     }
 }
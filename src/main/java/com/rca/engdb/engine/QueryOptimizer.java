@@ -0,0 +1,208 @@
+package com.rca.engdb.engine;
+
+import com.rca.engdb.ast.ConditionNode;
+import com.rca.engdb.ast.JoinNode;
+import com.rca.engdb.ast.QueryAST;
+import com.rca.engdb.ml.IntentType;
+import com.rca.engdb.schema.SchemaDiscoveryService;
+import com.rca.engdb.schema.SchemaGraph;
+import com.rca.engdb.schema.SchemaRegistry;
+import com.rca.engdb.schema.TableStatistics;
+import com.rca.engdb.schema.TableStatisticsService;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Rewrites the parsed QueryAST before SQL generation.
+ *
+ * - Predicates and columns are qualified with the table that owns them
+ * - INNER joins to tables nothing reads from are removed when the foreign key proves every
+ *   row has exactly one match (replaced by an IS NOT NULL check on the key)
+ * - Joins that only filter, with at most one match per row, become semi-joins (EXISTS)
+ *   with their predicates pushed into the subquery
+ *
+ * Joins that can multiply rows are kept, since removing them would change the result.
+ */
+@Service
+public class QueryOptimizer {
+
+    private final SchemaRegistry schemaRegistry;
+    private final SchemaDiscoveryService schemaDiscoveryService;
+    private final TableStatisticsService statisticsService;
+
+    public QueryOptimizer(SchemaRegistry schemaRegistry,
+                          SchemaDiscoveryService schemaDiscoveryService,
+                          TableStatisticsService statisticsService) {
+        this.schemaRegistry = schemaRegistry;
+        this.schemaDiscoveryService = schemaDiscoveryService;
+        this.statisticsService = statisticsService;
+    }
+
+    /**
+     * Optimize the AST in place
+     */
+    public QueryAST optimize(QueryAST ast) {
+        if (ast.getTargetTable() == null || ast.getJoins().isEmpty()) {
+            return ast;
+        }
+
+        String dbName = ast.getDatabaseName();
+        Map<String, List<String>> schema = schemaRegistry.getSchema(dbName);
+        String baseTable = plainName(ast.getTargetTable());
+
+        // Assign every predicate to the table that owns its column
+        List<ConditionNode> baseConditions = new ArrayList<>();
+        List<ConditionNode> joinedConditions = new ArrayList<>();
+        for (ConditionNode condition : ast.getWhereConditions()) {
+            String owner = ownerOf(condition.getColumn(), baseTable, ast.getJoins(), schema);
+            condition.setColumn(qualify(owner, condition.getColumn()));
+            (owner.equalsIgnoreCase(baseTable) ? baseConditions : joinedConditions).add(condition);
+        }
+
+        // Tables whose columns are returned or aggregated must stay joined
+        Set<String> outputTables = new HashSet<>();
+        boolean selectAll = ast.getIntent() == IntentType.SELECT
+            && (ast.getSelectColumns().isEmpty() || ast.getSelectColumns().contains("*"));
+        if (selectAll) {
+            for (JoinNode join : ast.getJoins()) {
+                outputTables.add(join.getRightTable().toLowerCase());
+            }
+        }
+        for (String column : outputColumns(ast)) {
+            outputTables.add(ownerOf(column, baseTable, ast.getJoins(), schema).toLowerCase());
+        }
+
+        SchemaGraph graph = schemaDiscoveryService.getSchemaGraph(dbName);
+        List<JoinNode> joins = new ArrayList<>(ast.getJoins());
+
+        // Work from the leaves of the join tree inwards: a table can only be removed
+        // once no remaining join reads from it
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (JoinNode join : new ArrayList<>(joins)) {
+                String table = join.getRightTable();
+                if (join.getJoinType() != JoinNode.JoinType.INNER
+                        || outputTables.contains(table.toLowerCase())
+                        || !isLeaf(table, joins)) {
+                    continue;
+                }
+
+                List<ConditionNode> predicates = conditionsOn(table, joinedConditions);
+                boolean foreignKey = graph != null && graph.isForeignKey(
+                    join.getLeftTable(), join.getLeftColumn(), join.getRightTable(), join.getRightColumn());
+
+                if (predicates.isEmpty() && foreignKey) {
+                    // The key always finds exactly one row: only NULL keys are filtered out
+                    joins.remove(join);
+                    ConditionNode notNull = new ConditionNode(
+                        qualify(join.getLeftTable(), join.getLeftColumn()), "IS NOT NULL", null);
+                    (join.getLeftTable().equalsIgnoreCase(baseTable) ? baseConditions : joinedConditions).add(notNull);
+                    changed = true;
+                } else if (foreignKey || isUnique(dbName, table, join.getRightColumn())) {
+                    // At most one match: filtering by existence returns the same rows
+                    join.setJoinType(JoinNode.JoinType.SEMI);
+                    join.setConditions(predicates);
+                    joinedConditions.removeAll(predicates);
+                    changed = true;
+                }
+            }
+        }
+
+        List<ConditionNode> where = new ArrayList<>(baseConditions);
+        where.addAll(joinedConditions);
+        ast.setWhereConditions(where);
+        ast.setJoins(joins);
+
+        // Output columns are qualified too when other tables are still joined
+        if (joins.stream().anyMatch(j -> j.getJoinType() != JoinNode.JoinType.SEMI)) {
+            qualifyOutputColumns(ast, baseTable, joins, schema);
+        }
+        return ast;
+    }
+
+    private List<String> outputColumns(QueryAST ast) {
+        List<String> columns = new ArrayList<>();
+        for (String column : ast.getSelectColumns()) {
+            if (!column.equals("*")) columns.add(column);
+        }
+        if (ast.getAggregateColumn() != null) columns.add(ast.getAggregateColumn());
+        if (ast.getOrderByColumn() != null) columns.add(ast.getOrderByColumn());
+        return columns;
+    }
+
+    private void qualifyOutputColumns(QueryAST ast, String baseTable, List<JoinNode> joins,
+                                      Map<String, List<String>> schema) {
+        List<String> selectColumns = new ArrayList<>();
+        for (String column : ast.getSelectColumns()) {
+            selectColumns.add(column.equals("*") ? column : qualify(ownerOf(column, baseTable, joins, schema), column));
+        }
+        ast.setSelectColumns(selectColumns);
+
+        if (ast.getAggregateColumn() != null) {
+            String column = ast.getAggregateColumn();
+            ast.setAggregateColumn(qualify(ownerOf(column, baseTable, joins, schema), column));
+        }
+        if (ast.getOrderByColumn() != null) {
+            String column = ast.getOrderByColumn();
+            ast.setOrderByColumn(qualify(ownerOf(column, baseTable, joins, schema), column));
+        }
+    }
+
+    /**
+     * Table a column belongs to: an explicit qualifier, else the base table if it has the column,
+     * else the first joined table that has it
+     */
+    private String ownerOf(String column, String baseTable, List<JoinNode> joins, Map<String, List<String>> schema) {
+        int dot = column.lastIndexOf('.');
+        if (dot >= 0) return column.substring(0, dot);
+
+        if (hasColumn(schema, baseTable, column)) return baseTable;
+        for (JoinNode join : joins) {
+            if (hasColumn(schema, join.getRightTable(), column)) return join.getRightTable();
+        }
+        return baseTable;
+    }
+
+    private boolean hasColumn(Map<String, List<String>> schema, String table, String column) {
+        for (Map.Entry<String, List<String>> entry : schema.entrySet()) {
+            if (plainName(entry.getKey()).equalsIgnoreCase(table)) {
+                return entry.getValue().stream().anyMatch(c -> c.equalsIgnoreCase(column));
+            }
+        }
+        return false;
+    }
+
+    private boolean isLeaf(String table, List<JoinNode> joins) {
+        return joins.stream().noneMatch(j -> j.getLeftTable().equalsIgnoreCase(table));
+    }
+
+    private List<ConditionNode> conditionsOn(String table, List<ConditionNode> conditions) {
+        List<ConditionNode> result = new ArrayList<>();
+        for (ConditionNode condition : conditions) {
+            if (condition.getColumn().toLowerCase().startsWith(table.toLowerCase() + ".")) {
+                result.add(condition);
+            }
+        }
+        return result;
+    }
+
+    private boolean isUnique(String dbName, String table, String column) {
+        TableStatistics stats = statisticsService.getStatistics(dbName, table);
+        return stats != null && stats.isUnique(column);
+    }
+
+    private String qualify(String table, String column) {
+        return column.contains(".") ? column : plainName(table) + "." + column;
+    }
+
+    private String plainName(String table) {
+        int dot = table.lastIndexOf('.');
+        return dot >= 0 ? table.substring(dot + 1) : table;
+    }
+}
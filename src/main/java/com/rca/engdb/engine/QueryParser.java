@@ -1,15 +1,20 @@
 package com.rca.engdb.engine;
 
+import com.rca.engdb.ast.ConditionNode;
 import com.rca.engdb.ast.JoinNode;
 import com.rca.engdb.ast.QueryAST;
+import com.rca.engdb.metrics.PipelineMetrics;
+import com.rca.engdb.metrics.PipelineMetrics.Stage;
 import com.rca.engdb.ml.IntentResult;
 import com.rca.engdb.ml.IntentType;
 import com.rca.engdb.nlp.ConditionExtractor;
 import com.rca.engdb.nlp.EntityRecognizer;
 import com.rca.engdb.nlp.JoinDetector;
-import com.rca.engdb.schema.SchemaDiscoveryService;
+import com.rca.engdb.nlp.OrderLimitExtractor;
+import com.rca.engdb.schema.ForeignKeyRelation;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Service
@@ -17,17 +22,23 @@ public class QueryParser {
 
     private final EntityRecognizer entityRecognizer;
     private final ConditionExtractor conditionExtractor;
+    private final OrderLimitExtractor orderLimitExtractor;
     private final JoinDetector joinDetector;
-    private final SchemaDiscoveryService schemaDiscoveryService;
+    private final JoinPlanner joinPlanner;
+    private final PipelineMetrics metrics;
 
     public QueryParser(EntityRecognizer entityRecognizer, 
                       ConditionExtractor conditionExtractor,
+                      OrderLimitExtractor orderLimitExtractor,
                       JoinDetector joinDetector,
-                      SchemaDiscoveryService schemaDiscoveryService) {
+                      JoinPlanner joinPlanner,
+                      PipelineMetrics metrics) {
         this.entityRecognizer = entityRecognizer;
         this.conditionExtractor = conditionExtractor;
+        this.orderLimitExtractor = orderLimitExtractor;
         this.joinDetector = joinDetector;
-        this.schemaDiscoveryService = schemaDiscoveryService;
+        this.joinPlanner = joinPlanner;
+        this.metrics = metrics;
     }
 
     /**
@@ -40,7 +51,8 @@ public class QueryParser {
         ast.setIntent(intentResult.getIntent());
         
         // Recognize entities (tables and columns)
-        EntityRecognizer.EntityRecognitionResult entities = entityRecognizer.recognize(tokens, dbName);
+        EntityRecognizer.EntityRecognitionResult entities = metrics.time(Stage.ENTITY_RECOGNITION,
+            () -> entityRecognizer.recognize(tokens, dbName));
         
         if (entities.getTable() != null) {
             ast.setTargetTable(entities.getTable());
@@ -58,22 +70,53 @@ public class QueryParser {
             }
         }
         
-        // Extract WHERE conditions
         if (ast.getTargetTable() != null) {
-            ast.setWhereConditions(conditionExtractor.extractConditions(tokens, ast.getTargetTable(), dbName));
+            // Extract ORDER BY and LIMIT ("top 10", "oldest", "sorted by age")
+            OrderLimitExtractor.OrderLimitResult ordering = metrics.time(Stage.ORDER_LIMIT_EXTRACTION,
+                () -> orderLimitExtractor.extract(tokens, ast.getTargetTable(), dbName));
+            if (ordering.getLimit() != null && isRankingIntent(intentResult.getIntent())) {
+                // "top 10 highest paid instructors", "5 oldest students": the rows, not a MAX or MIN
+                ast.setIntent(IntentType.SELECT);
+                ast.setAggregateColumn(null);
+            }
+            if (ast.getIntent() == IntentType.SELECT) {
+                ast.setOrderByColumn(ordering.getOrderByColumn());
+                ast.setOrderDirection(ordering.getDirection());
+                ast.setLimit(ordering.getLimit());
+            }
+
+            // Extract WHERE conditions from the words that were not part of the ordering
+            ast.setWhereConditions(metrics.time(Stage.CONDITION_EXTRACTION, () -> conditionExtractor.extractConditions(
+                ordering.remainingTokens(tokens), ast.getTargetTable(), dbName)));
+            ast.setSelectColumns(withoutFixedColumns(ast.getSelectColumns(), ast.getWhereConditions()));
         }
         
         // Detect and build JOINs
-        JoinDetector.JoinDetectionResult joinResult = joinDetector.detectJoins(tokens, dbName);
-        if (joinResult.requiresJoin() && joinResult.getDetectedTables().size() > 1) {
-            buildJoinNodes(ast, joinResult.getDetectedTables(), dbName);
-        }
-        
-        // TODO: Extract ORDER BY and LIMIT
+        metrics.time(Stage.JOIN_DETECTION, () -> {
+            JoinDetector.JoinDetectionResult joinResult = joinDetector.detectJoins(tokens, dbName);
+            if (joinResult.requiresJoin() && joinResult.getDetectedTables().size() > 1) {
+                buildJoinNodes(ast, joinResult.getDetectedTables(), dbName);
+            }
+        });
         
         return ast;
     }
 
+    /**
+     * Drop projected columns an equality condition pins to one value: the recognizer only
+     * sees a filter when the value follows the column ("department CS"), not when it comes
+     * first ("in CS department")
+     */
+    private List<String> withoutFixedColumns(List<String> columns, List<ConditionNode> conditions) {
+        List<String> projected = new ArrayList<>(columns);
+        for (ConditionNode condition : conditions) {
+            if ("=".equals(condition.getOperator())) {
+                projected.remove(condition.getColumn());
+            }
+        }
+        return projected.isEmpty() ? List.of("*") : projected;
+    }
+
     private boolean isAggregationIntent(IntentType intent) {
         return intent == IntentType.COUNT || 
                intent == IntentType.SUM || 
@@ -82,6 +125,14 @@ public class QueryParser {
                intent == IntentType.MIN;
     }
 
+    /**
+     * Intents a superlative is classified as, or none at all, which an explicit row count
+     * turns into a ranked listing
+     */
+    private boolean isRankingIntent(IntentType intent) {
+        return intent == IntentType.MAX || intent == IntentType.MIN || intent == IntentType.UNKNOWN;
+    }
+
     private String findAggregateColumn(List<String> tokens, EntityRecognizer.EntityRecognitionResult entities) {
         // Look for numeric-related keywords
         List<String> numericKeywords = List.of("age", "grade", "credit", "price", "salary", "score");
@@ -103,7 +154,7 @@ public class QueryParser {
     }
 
     /**
-     * Build JOIN nodes based on detected tables using SchemaGraph
+     * Build JOIN nodes connecting the detected tables, planned as one join tree
      */
     private void buildJoinNodes(QueryAST ast, List<String> detectedTables, String dbName) {
         if (detectedTables.size() < 2) return;
@@ -111,36 +162,15 @@ public class QueryParser {
         // Use first table as base, join others
         String baseTable = ast.getTargetTable() != null ? ast.getTargetTable() : detectedTables.get(0);
         
-        var schemaGraph = schemaDiscoveryService.getSchemaGraph(dbName);
-        
-        for (String targetTable : detectedTables) {
-            if (targetTable.equalsIgnoreCase(baseTable)) continue;
+        for (ForeignKeyRelation relation : joinPlanner.planJoins(dbName, baseTable, detectedTables)) {
+            JoinNode joinNode = new JoinNode();
+            joinNode.setJoinType(JoinNode.JoinType.INNER);
+            joinNode.setLeftTable(relation.getFromTable());
+            joinNode.setRightTable(relation.getToTable());
+            joinNode.setLeftColumn(relation.getFromColumn());
+            joinNode.setRightColumn(relation.getToColumn());
             
-            // Find JOIN path from base to target
-            var joinPath = schemaGraph.findJoinPath(baseTable, targetTable);
-            
-            if (joinPath != null && !joinPath.getRelations().isEmpty()) {
-                for (var relation : joinPath.getRelations()) {
-                    // Check if this relationship is already added
-                    boolean exists = ast.getJoins().stream().anyMatch(j -> 
-                        (j.getLeftTable().equalsIgnoreCase(relation.getFromTable()) && 
-                         j.getRightTable().equalsIgnoreCase(relation.getToTable())) ||
-                        (j.getLeftTable().equalsIgnoreCase(relation.getToTable()) && 
-                         j.getRightTable().equalsIgnoreCase(relation.getFromTable()))
-                    );
-                    
-                    if (!exists) {
-                        JoinNode joinNode = new JoinNode();
-                        joinNode.setJoinType(JoinNode.JoinType.INNER);
-                        joinNode.setLeftTable(relation.getFromTable());
-                        joinNode.setRightTable(relation.getToTable());
-                        joinNode.setLeftColumn(relation.getFromColumn());
-                        joinNode.setRightColumn(relation.getToColumn());
-                        
-                        ast.getJoins().add(joinNode);
-                    }
-                }
-            }
+            ast.getJoins().add(joinNode);
         }
     }
 }
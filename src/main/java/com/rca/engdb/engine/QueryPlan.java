@@ -0,0 +1,75 @@
+package com.rca.engdb.engine;
+
+import com.rca.engdb.ast.JoinNode;
+
+import java.util.List;
+
+/**
+ * Result of cost-based planning for a QueryAST
+ */
+public class QueryPlan {
+
+    private final QueryPlanner.DatabaseType databaseType;
+    private final long estimatedRows;
+    private final double estimatedCost;
+    private final List<JoinNode> joinOrder;
+    private final Integer safetyLimit;
+    private final Route route;
+
+    public QueryPlan(QueryPlanner.DatabaseType databaseType, long estimatedRows, double estimatedCost,
+                     List<JoinNode> joinOrder, Integer safetyLimit, Route route) {
+        this.databaseType = databaseType;
+        this.estimatedRows = estimatedRows;
+        this.estimatedCost = estimatedCost;
+        this.joinOrder = joinOrder;
+        this.safetyLimit = safetyLimit;
+        this.route = route;
+    }
+
+    public QueryPlanner.DatabaseType getDatabaseType() {
+        return databaseType;
+    }
+
+    /**
+     * Estimated number of rows produced before any LIMIT
+     */
+    public long getEstimatedRows() {
+        return estimatedRows;
+    }
+
+    /**
+     * Estimated number of rows examined, the unit of the cost model
+     */
+    public double getEstimatedCost() {
+        return estimatedCost;
+    }
+
+    public List<JoinNode> getJoinOrder() {
+        return joinOrder;
+    }
+
+    /**
+     * LIMIT to inject for unbounded results, or null if none is needed
+     */
+    public Integer getSafetyLimit() {
+        return safetyLimit;
+    }
+
+    public Route getRoute() {
+        return route;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("QueryPlan[db=%s, rows=%d, cost=%.0f, route=%s, safetyLimit=%s]",
+            databaseType, estimatedRows, estimatedCost, route, safetyLimit);
+    }
+
+    /**
+     * How the query should be answered
+     */
+    public enum Route {
+        EXACT,        // Execute against the backend as-is
+        APPROXIMATE   // Aggregate over a very large table, an estimate is acceptable
+    }
+}
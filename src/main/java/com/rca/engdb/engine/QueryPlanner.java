@@ -1,34 +1,305 @@
 package com.rca.engdb.engine;
 
+import com.rca.engdb.ast.ConditionNode;
+import com.rca.engdb.ast.JoinNode;
 import com.rca.engdb.ast.QueryAST;
+import com.rca.engdb.ml.IntentType;
+import com.rca.engdb.schema.MongoSchemaDiscoveryService;
+import com.rca.engdb.schema.SchemaDiscoveryService;
+import com.rca.engdb.schema.TableStatistics;
+import com.rca.engdb.schema.TableStatisticsService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 @Service
 public class QueryPlanner {
-    
+
+    // Assumed size of a table whose statistics have not been collected
+    private static final long DEFAULT_ROW_ESTIMATE = 1000;
+    private static final double DEFAULT_EQUALITY_SELECTIVITY = 0.1;
+    private static final double RANGE_SELECTIVITY = 0.3;
+    private static final double LIKE_SELECTIVITY = 0.25;
+
+    private final TableStatisticsService statisticsService;
+    private final SchemaDiscoveryService schemaDiscoveryService;
+    private final MongoSchemaDiscoveryService mongoSchemaDiscoveryService;
+    private final Environment environment;
+    private final int safetyLimit;
+    private final long approximateRowThreshold;
+
+    public QueryPlanner(TableStatisticsService statisticsService,
+                        SchemaDiscoveryService schemaDiscoveryService,
+                        MongoSchemaDiscoveryService mongoSchemaDiscoveryService,
+                        Environment environment,
+                        @Value("${engdb.planner.safety-limit:1000}") int safetyLimit,
+                        @Value("${engdb.planner.approximate-row-threshold:50000000}") long approximateRowThreshold) {
+        this.statisticsService = statisticsService;
+        this.schemaDiscoveryService = schemaDiscoveryService;
+        this.mongoSchemaDiscoveryService = mongoSchemaDiscoveryService;
+        this.environment = environment;
+        this.safetyLimit = safetyLimit;
+        this.approximateRowThreshold = approximateRowThreshold;
+    }
+
+    /**
+     * Build a cost-based plan for the query from the collected table statistics
+     */
+    public QueryPlan plan(QueryAST ast) {
+        String dbName = ast.getDatabaseName();
+        TableStatistics base = statisticsService.getStatistics(dbName, ast.getTargetTable());
+        long baseRows = rowsOf(base);
+
+        // Access path for the base table: index lookup if an equality hits an indexed column
+        double selectivity = 1.0;
+        boolean indexedLookup = false;
+        for (ConditionNode condition : ast.getWhereConditions()) {
+            selectivity *= selectivity(base, condition);
+            if ("=".equals(condition.getOperator()) && base != null && base.hasIndexOn(condition.getColumn())) {
+                indexedLookup = true;
+            }
+        }
+
+        double rows = Math.max(1, baseRows * selectivity);
+        double cost = indexedLookup ? log2(baseRows) + rows : baseRows;
+
+        // Joins: index nested loop if the joined column is indexed, hash join otherwise
+        List<JoinNode> joinOrder = orderJoins(ast.getTargetTable(), ast.getJoins(), dbName);
+        for (JoinNode join : joinOrder) {
+            TableStatistics right = statisticsService.getStatistics(dbName, join.getRightTable());
+            long rightRows = rowsOf(right);
+
+            if (right != null && right.hasIndexOn(join.getRightColumn())) {
+                cost += rows * (log2(rightRows) + 1);
+            } else {
+                cost += rows + rightRows;
+            }
+            // A semi-join only filters, it never multiplies rows
+            if (join.getJoinType() != JoinNode.JoinType.SEMI) {
+                rows *= fanout(right, join.getRightColumn(), rightRows);
+            }
+        }
+
+        // ORDER BY on an indexed column with a LIMIT reads the index in order and stops early
+        if (ast.getLimit() != null) {
+            if (ast.getOrderByColumn() != null && ast.getWhereConditions().isEmpty() && ast.getJoins().isEmpty()
+                    && base != null && base.hasIndexOn(plainName(ast.getOrderByColumn()))) {
+                cost = Math.min(cost, log2(baseRows) + ast.getLimit());
+            }
+            rows = Math.min(rows, ast.getLimit());
+        }
+
+        long estimatedRows = (long) Math.ceil(rows);
+
+        // Unbounded SELECTs get the database's safety LIMIT unless statistics show a small result
+        Integer limit = null;
+        int databaseLimit = safetyLimitFor(dbName);
+        if (ast.getIntent() == IntentType.SELECT && ast.getLimit() == null && databaseLimit > 0
+                && (base == null || estimatedRows > databaseLimit)) {
+            limit = databaseLimit;
+        }
+
+        return new QueryPlan(
+            chooseDatabaseType(ast),
+            estimatedRows,
+            cost,
+            joinOrder,
+            limit,
+            chooseRoute(ast, baseRows, base != null)
+        );
+    }
+
+    /**
+     * Safety LIMIT for a database: engdb.planner.safety-limits.<database>, else engdb.planner.safety-limit.
+     * 0 disables the safety LIMIT.
+     */
+    int safetyLimitFor(String dbName) {
+        if (dbName == null || dbName.isEmpty()) return safetyLimit;
+        return environment.getProperty("engdb.planner.safety-limits." + dbName, Integer.class, safetyLimit);
+    }
+
+    /**
+     * Apply the planner decisions (join order, safety LIMIT) to the AST
+     */
+    public void applyPlan(QueryAST ast, QueryPlan plan) {
+        ast.setJoins(new ArrayList<>(plan.getJoinOrder()));
+        if (plan.getSafetyLimit() != null) {
+            ast.setLimit(plan.getSafetyLimit());
+        }
+    }
+
     /**
      * Determine which database to use for the query
      */
     public DatabaseType chooseDatabaseType(QueryAST ast) {
-        // For now, default to MySQL for structured queries
-        // In the future, could use MongoDB for unstructured data
+        String table = ast.getTargetTable();
+        if (table == null) return DatabaseType.MYSQL;
+
+        if (statisticsService.getStatistics(ast.getDatabaseName(), table) != null) {
+            return DatabaseType.MYSQL;
+        }
+
+        Map<String, List<String>> jdbcSchema = schemaDiscoveryService.discoverSchema(ast.getDatabaseName());
+        if (jdbcSchema != null && jdbcSchema.containsKey(table)) {
+            return DatabaseType.MYSQL;
+        }
+
+        // Only collections inferred from MongoDB are routed there
+        Map<String, List<String>> mongoSchema = mongoSchemaDiscoveryService.discoverSchema(ast.getDatabaseName());
+        if (mongoSchema != null && mongoSchema.containsKey(table)) {
+            return DatabaseType.MONGODB;
+        }
+
         return DatabaseType.MYSQL;
     }
 
+    private QueryPlan.Route chooseRoute(QueryAST ast, long baseRows, boolean statisticsAvailable) {
+        if (isEstimable(ast) && statisticsAvailable && baseRows >= approximateRowThreshold) {
+            return QueryPlan.Route.APPROXIMATE;
+        }
+        return QueryPlan.Route.EXACT;
+    }
+
+    /**
+     * Order INNER joins greedily so the smallest reachable table is joined next.
+     * Each join is oriented so its left table is already part of the join tree.
+     * Semi-joins are kept after them; outer joins are order-sensitive and are returned unchanged.
+     */
+    List<JoinNode> orderJoins(String baseTable, List<JoinNode> joins, String dbName) {
+        if (joins.size() < 2 || baseTable == null
+                || joins.stream().anyMatch(j -> j.getJoinType() != JoinNode.JoinType.INNER
+                                             && j.getJoinType() != JoinNode.JoinType.SEMI)) {
+            return joins;
+        }
+
+        Set<String> connected = new HashSet<>();
+        connected.add(plainName(baseTable));
+
+        List<JoinNode> remaining = new ArrayList<>();
+        List<JoinNode> semiJoins = new ArrayList<>();
+        for (JoinNode join : joins) {
+            (join.getJoinType() == JoinNode.JoinType.SEMI ? semiJoins : remaining).add(join);
+        }
+        List<JoinNode> ordered = new ArrayList<>();
+
+        while (!remaining.isEmpty()) {
+            JoinNode best = null;
+            long bestRows = Long.MAX_VALUE;
+
+            for (JoinNode join : remaining) {
+                boolean leftKnown = connected.contains(plainName(join.getLeftTable()));
+                boolean rightKnown = connected.contains(plainName(join.getRightTable()));
+                if (leftKnown == rightKnown) continue;
+
+                String newTable = leftKnown ? join.getRightTable() : join.getLeftTable();
+                long rows = rowsOf(statisticsService.getStatistics(dbName, newTable));
+                if (rows < bestRows) {
+                    bestRows = rows;
+                    best = join;
+                }
+            }
+
+            if (best == null) {
+                // Disconnected or redundant joins keep their original relative order
+                ordered.addAll(remaining);
+                break;
+            }
+
+            remaining.remove(best);
+            if (!connected.contains(plainName(best.getLeftTable()))) {
+                best = new JoinNode(best.getRightTable(), best.getLeftTable(),
+                    best.getRightColumn(), best.getLeftColumn(), best.getJoinType());
+            }
+            connected.add(plainName(best.getRightTable()));
+            ordered.add(best);
+        }
+
+        ordered.addAll(semiJoins);
+        return ordered;
+    }
+
+    private double selectivity(TableStatistics stats, ConditionNode condition) {
+        String operator = condition.getOperator() == null ? "=" : condition.getOperator().toUpperCase();
+        switch (operator) {
+            case "=":
+                return equalitySelectivity(stats, condition.getColumn());
+            case "!=":
+                return 1.0 - equalitySelectivity(stats, condition.getColumn());
+            case ">":
+            case "<":
+            case ">=":
+            case "<=":
+                return RANGE_SELECTIVITY;
+            case "LIKE":
+                return LIKE_SELECTIVITY;
+            default:
+                return 0.5;
+        }
+    }
+
+    private double equalitySelectivity(TableStatistics stats, String column) {
+        if (stats == null || column == null) return DEFAULT_EQUALITY_SELECTIVITY;
+
+        long cardinality = stats.getCardinality(column);
+        if (cardinality > 0) return 1.0 / cardinality;
+        if (stats.isUnique(column)) return 1.0 / Math.max(1, stats.getRowEstimate());
+        return DEFAULT_EQUALITY_SELECTIVITY;
+    }
+
+    /**
+     * Average number of rows matched per probe into the joined table
+     */
+    private double fanout(TableStatistics stats, String column, long rows) {
+        if (stats == null || column == null) return 1.0;
+        if (stats.isUnique(column)) return 1.0;
+
+        long cardinality = stats.getCardinality(column);
+        return cardinality > 0 ? Math.max(1.0, (double) rows / cardinality) : 1.0;
+    }
+
+    private long rowsOf(TableStatistics stats) {
+        return stats != null ? stats.getRowEstimate() : DEFAULT_ROW_ESTIMATE;
+    }
+
+    private double log2(long value) {
+        return Math.log(Math.max(2, value)) / Math.log(2);
+    }
+
+    private String plainName(String table) {
+        int dot = table.lastIndexOf('.');
+        return (dot >= 0 ? table.substring(dot + 1) : table).toLowerCase();
+    }
+
+    /**
+     * Single-table COUNT, SUM and AVG scale up from a sample; MAX and MIN do not
+     */
+    private boolean isEstimable(QueryAST ast) {
+        IntentType intent = ast.getIntent();
+        return ast.getJoins().isEmpty() && (intent == IntentType.COUNT ||
+               intent == IntentType.SUM ||
+               intent == IntentType.AVG);
+    }
+
     /**
      * Estimate query complexity
      */
     public int estimateComplexity(QueryAST ast) {
         int complexity = 1;
-        
+
         if (!ast.getWhereConditions().isEmpty()) {
             complexity += ast.getWhereConditions().size();
         }
-        
+
         if (!ast.getJoins().isEmpty()) {
             complexity += ast.getJoins().size() * 2;
         }
-        
+
         return complexity;
     }
 
@@ -0,0 +1,47 @@
+package com.rca.engdb.engine;
+
+import java.util.List;
+
+/**
+ * A SQL statement with positional (?) parameters and their JDBC types
+ */
+public class SqlStatement {
+
+    private final String sql;
+    private final List<Object> parameters;
+    private final List<Integer> parameterTypes;
+
+    public SqlStatement(String sql, List<Object> parameters, List<Integer> parameterTypes) {
+        this.sql = sql;
+        this.parameters = parameters;
+        this.parameterTypes = parameterTypes;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public List<Object> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * JDBC types (java.sql.Types) of the parameters, in the same order
+     */
+    public List<Integer> getParameterTypes() {
+        return parameterTypes;
+    }
+
+    public Object[] getParameterArray() {
+        return parameters.toArray();
+    }
+
+    public int[] getParameterTypeArray() {
+        return parameterTypes.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    @Override
+    public String toString() {
+        return sql + " " + parameters;
+    }
+}
@@ -0,0 +1,130 @@
+package com.rca.engdb.exec;
+
+import com.rca.engdb.ast.JoinNode;
+import com.rca.engdb.ast.QueryAST;
+import com.rca.engdb.engine.QueryPlan;
+import com.rca.engdb.engine.QueryPlanner;
+import com.rca.engdb.ml.IntentType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * Routes each query into a bulkhead by its expected cost, so heavy queries can only
+ * occupy their own slots and never all the database connections the cheap lookups need.
+ *
+ * - LOOKUP: cheap single-table reads
+ * - AGGREGATION: aggregates and reads the planner expects to be moderately expensive
+ * - HEAVY: multi-join or complex queries, planner cost above the heavy threshold, and
+ *   LLM-generated SQL without an EXPLAIN estimate
+ * - LLM: OpenRouter calls, which hold no connection but are slow, so a burst of questions
+ *   for the LLM never waits behind (or holds up) heavy queries. A question that finds it
+ *   full goes to the rule-based engine rather than being rejected.
+ *
+ * LLM-generated SQL is classified by the rows the cost guard's EXPLAIN expects it to examine,
+ * against the same thresholds as the planner's cost.
+ *
+ * Limits are configured per class: engdb.bulkhead.<class>.max-concurrent, .max-queue,
+ * .queue-timeout-ms and .retry-after-seconds.
+ */
+@Service
+public class AdmissionController {
+
+    public enum QueryClass {
+        LOOKUP(16, 200, 1000),
+        AGGREGATION(4, 50, 2000),
+        HEAVY(2, 10, 5000),
+        LLM(16, 20, 10000);
+
+        private final int defaultMaxConcurrent;
+        private final int defaultMaxQueue;
+        private final long defaultQueueTimeoutMs;
+
+        QueryClass(int defaultMaxConcurrent, int defaultMaxQueue, long defaultQueueTimeoutMs) {
+            this.defaultMaxConcurrent = defaultMaxConcurrent;
+            this.defaultMaxQueue = defaultMaxQueue;
+            this.defaultQueueTimeoutMs = defaultQueueTimeoutMs;
+        }
+    }
+
+    private final QueryPlanner queryPlanner;
+    private final double aggregationCostThreshold;
+    private final double heavyCostThreshold;
+    private final Map<QueryClass, Bulkhead> bulkheads = new EnumMap<>(QueryClass.class);
+
+    public AdmissionController(QueryPlanner queryPlanner,
+                               Environment environment,
+                               @Value("${engdb.bulkhead.aggregation-cost-threshold:10000}") double aggregationCostThreshold,
+                               @Value("${engdb.bulkhead.heavy-cost-threshold:1000000}") double heavyCostThreshold) {
+        this.queryPlanner = queryPlanner;
+        this.aggregationCostThreshold = aggregationCostThreshold;
+        this.heavyCostThreshold = heavyCostThreshold;
+
+        for (QueryClass queryClass : QueryClass.values()) {
+            String prefix = "engdb.bulkhead." + queryClass.name().toLowerCase() + ".";
+            bulkheads.put(queryClass, new Bulkhead(
+                queryClass.name().toLowerCase(),
+                environment.getProperty(prefix + "max-concurrent", Integer.class, queryClass.defaultMaxConcurrent),
+                environment.getProperty(prefix + "max-queue", Integer.class, queryClass.defaultMaxQueue),
+                environment.getProperty(prefix + "queue-timeout-ms", Long.class, queryClass.defaultQueueTimeoutMs),
+                environment.getProperty(prefix + "retry-after-seconds", Long.class, 1L)));
+        }
+    }
+
+    /**
+     * Class of a planned rule-based query
+     */
+    public QueryClass classify(QueryAST ast, QueryPlan plan) {
+        long joins = ast.getJoins().stream().filter(j -> j.getJoinType() != JoinNode.JoinType.SEMI).count();
+        if (joins >= 2 || queryPlanner.needsOptimization(ast) || plan.getEstimatedCost() >= heavyCostThreshold) {
+            return QueryClass.HEAVY;
+        }
+        if (isAggregation(ast.getIntent()) || plan.getEstimatedCost() >= aggregationCostThreshold) {
+            return QueryClass.AGGREGATION;
+        }
+        return QueryClass.LOOKUP;
+    }
+
+    /**
+     * Class of LLM-generated SQL by its EXPLAIN estimate; HEAVY when there is none
+     */
+    public QueryClass classify(SqlCostGuard.CostEstimate estimate) {
+        if (estimate == null || estimate.getRowsExamined() >= heavyCostThreshold) {
+            return QueryClass.HEAVY;
+        }
+        if (estimate.getRowsExamined() >= aggregationCostThreshold) {
+            return QueryClass.AGGREGATION;
+        }
+        return QueryClass.LOOKUP;
+    }
+
+    /**
+     * Run the work in the bulkhead of its class, or throw BulkheadFullException if it is saturated
+     */
+    public <T> T execute(QueryClass queryClass, Supplier<T> work) {
+        return bulkheads.get(queryClass).execute(work);
+    }
+
+    /**
+     * Run the work in the bulkhead of its class, or return the fallback's result if it is saturated
+     */
+    public <T> T execute(QueryClass queryClass, Supplier<T> work, Supplier<T> whenFull) {
+        return bulkheads.get(queryClass).execute(work, whenFull);
+    }
+
+    public Map<String, Map<String, Long>> getStats() {
+        Map<String, Map<String, Long>> stats = new TreeMap<>();
+        bulkheads.forEach((queryClass, bulkhead) -> stats.put(bulkhead.getName(), bulkhead.getStats()));
+        return stats;
+    }
+
+    private boolean isAggregation(IntentType intent) {
+        return intent == IntentType.COUNT || intent == IntentType.SUM || intent == IntentType.AVG
+            || intent == IntentType.MAX || intent == IntentType.MIN;
+    }
+}
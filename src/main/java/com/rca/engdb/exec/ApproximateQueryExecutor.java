@@ -0,0 +1,279 @@
+package com.rca.engdb.exec;
+
+import com.rca.engdb.ast.QueryAST;
+import com.rca.engdb.engine.QueryGenerator;
+import com.rca.engdb.engine.SqlStatement;
+import com.rca.engdb.ml.IntentType;
+import com.rca.engdb.schema.TableStatistics;
+import com.rca.engdb.schema.TableStatisticsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleFunction;
+
+/**
+ * Approximate answers for COUNT, SUM and AVG over a single very large table, with 95%
+ * confidence bounds.
+ *
+ * When the client asked for an estimate, a COUNT(*) without conditions is answered from the
+ * information_schema row estimate, which needs no query at all; InnoDB estimates are only known
+ * to be within a factor, so its bounds are the estimate +/- engdb.approximate.statistics-error.
+ * Queries the planner routed here are held to the sample's bounds. Everything else is
+ * estimated from a cluster sample along an integral primary key: the key range is cut into cells, a random
+ * engdb.approximate.sample-cells of them covering about engdb.approximate.sample-fraction of
+ * the keys are read with primary key range scans, and the per-cell counts and sums are
+ * scaled up. Cells are contiguous key ranges, so the sample reads whole pages instead of
+ * scanning the table as WHERE RAND() < p would.
+ */
+@Service
+public class ApproximateQueryExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ApproximateQueryExecutor.class);
+
+    public static final String METHOD_STATISTICS = "STATISTICS";
+    public static final String METHOD_SAMPLE = "SAMPLE";
+
+    private static final double CONFIDENCE_LEVEL = 0.95;
+    private static final double Z_95 = 1.959964;
+
+    private final QueryExecutor queryExecutor;
+    private final QueryGenerator queryGenerator;
+    private final TableStatisticsService statisticsService;
+    private final double sampleFraction;
+    private final int sampleCells;
+    private final double statisticsError;
+
+    public ApproximateQueryExecutor(QueryExecutor queryExecutor,
+                                    QueryGenerator queryGenerator,
+                                    TableStatisticsService statisticsService,
+                                    @Value("${engdb.approximate.sample-fraction:0.01}") double sampleFraction,
+                                    @Value("${engdb.approximate.sample-cells:256}") int sampleCells,
+                                    @Value("${engdb.approximate.statistics-error:0.5}") double statisticsError) {
+        this.queryExecutor = queryExecutor;
+        this.queryGenerator = queryGenerator;
+        this.statisticsService = statisticsService;
+        this.sampleFraction = sampleFraction;
+        this.sampleCells = sampleCells;
+        this.statisticsError = statisticsError;
+    }
+
+    /**
+     * Estimate the answer to a COUNT, SUM or AVG query, or null if it cannot be estimated
+     * (other intents, joins, no usable primary key, or a sample that would read the whole
+     * table) and must run exactly
+     *
+     * @param requested whether the client asked for an estimate; only then may the answer come
+     *                  from the row estimate in the table statistics
+     */
+    public Estimate execute(QueryAST ast, boolean requested) {
+        IntentType intent = ast.getIntent();
+        if (intent != IntentType.COUNT && intent != IntentType.SUM && intent != IntentType.AVG) return null;
+        if (ast.getTargetTable() == null || !ast.getJoins().isEmpty()) return null;
+
+        TableStatistics statistics = statisticsService.getStatistics(ast.getDatabaseName(), ast.getTargetTable());
+        if (statistics == null) return null;
+
+        if (requested && intent == IntentType.COUNT && ast.getAggregateColumn() == null && ast.getWhereConditions().isEmpty()) {
+            return fromStatistics(statistics);
+        }
+        TableStatistics.IndexDefinition primaryKey = statistics.getIndexes().get("PRIMARY");
+        if (primaryKey == null || primaryKey.getColumns().size() != 1) return null;
+        return fromSample(ast, primaryKey.getColumns().get(0));
+    }
+
+    private Estimate fromStatistics(TableStatistics statistics) {
+        long rows = statistics.getRowEstimate();
+        long lower = Math.round(rows * Math.max(0, 1 - statisticsError));
+        long upper = Math.round(rows * (1 + statisticsError));
+        return new Estimate(single("COUNT(*)", rows), METHOD_STATISTICS, lower, upper, null, null);
+    }
+
+    private Estimate fromSample(QueryAST ast, String keyColumn) {
+        long startTime = System.currentTimeMillis();
+        String table = ast.getDatabaseName() != null && !ast.getDatabaseName().isEmpty()
+            ? ast.getDatabaseName() + "." + ast.getTargetTable() : ast.getTargetTable();
+
+        // Both ends of the primary key are index lookups
+        QueryExecutor.QueryResult range = queryExecutor.executeSQLQuery(
+            "SELECT MIN(" + keyColumn + ") AS low, MAX(" + keyColumn + ") AS high FROM " + table);
+        if (!range.isSuccess() || range.getData().isEmpty()) return null;
+        Long low = integral(range.getData().get(0).get("low"));
+        Long high = integral(range.getData().get(0).get("high"));
+        if (low == null || high == null) return null;
+
+        long span = high - low + 1;
+        if (span <= 0) return null;
+        long cellWidth = Math.max(1, (long) Math.ceil(span * sampleFraction / sampleCells));
+        long cellCount = (span + cellWidth - 1) / cellWidth;
+        if (sampleCells >= cellCount) {
+            // The sample would be the whole table
+            return null;
+        }
+        long[] cells = sampleCells(cellCount, sampleCells);
+
+        SqlStatement statement = queryGenerator.generateSampleSQL(ast, keyColumn, low, cellWidth, cells);
+        logger.debug("Sampling {} of {} cells of {}: {}", cells.length, cellCount, table, statement);
+        QueryExecutor.QueryResult sample = queryExecutor.executeSQLQuery(statement);
+        if (!sample.isSuccess()) {
+            logger.debug("Sample of {} failed, running exactly: {}", table, sample.getErrorMessage());
+            return null;
+        }
+
+        // Cells missing from the result have no matching rows
+        int k = cells.length;
+        double[] counts = new double[k];
+        double[] sums = new double[k];
+        int i = 0;
+        int scale = 0;
+        boolean decimal = true;
+        for (Map<String, Object> row : sample.getData()) {
+            counts[i] = ((Number) row.get("sample_count")).doubleValue();
+            Object sum = row.get("sample_sum");
+            if (sum instanceof BigDecimal value) {
+                scale = Math.max(scale, value.scale());
+            } else if (sum instanceof Double || sum instanceof Float) {
+                decimal = false;
+            }
+            sums[i++] = sum instanceof Number number ? number.doubleValue() : 0;
+        }
+
+        double sampled = (double) k / cellCount;
+        double estimate;
+        double variance;
+        String label;
+        switch (ast.getIntent()) {
+            case COUNT -> {
+                label = "COUNT(" + (ast.getAggregateColumn() != null ? ast.getAggregateColumn() : "*") + ")";
+                estimate = cellCount * mean(counts);
+                variance = (double) cellCount * cellCount * (1 - sampled) * sampleVariance(counts) / k;
+            }
+            case SUM -> {
+                label = "SUM(" + (ast.getAggregateColumn() != null ? ast.getAggregateColumn() : "id") + ")";
+                estimate = cellCount * mean(sums);
+                variance = (double) cellCount * cellCount * (1 - sampled) * sampleVariance(sums) / k;
+            }
+            default -> {
+                label = "AVG(" + (ast.getAggregateColumn() != null ? ast.getAggregateColumn() : "id") + ")";
+                double meanCount = mean(counts);
+                if (meanCount == 0) return null;
+                // Ratio estimator: AVG is total SUM over total COUNT, both estimated from the cells
+                estimate = mean(sums) / meanCount;
+                double[] residuals = new double[k];
+                for (int j = 0; j < k; j++) {
+                    residuals[j] = sums[j] - estimate * counts[j];
+                }
+                variance = (1 - sampled) * sampleVariance(residuals) / (k * meanCount * meanCount);
+                scale += 4;
+            }
+        }
+
+        double margin = Z_95 * Math.sqrt(variance);
+        double lower = estimate - margin;
+        if (ast.getIntent() == IntentType.COUNT) {
+            // At least the rows already seen
+            lower = Math.max(lower, Arrays.stream(counts).sum());
+        }
+        // Typed as MySQL types the exact answer: a whole count, a DECIMAL of the column's scale or a DOUBLE
+        int resultScale = scale;
+        DoubleFunction<Number> typed = ast.getIntent() == IntentType.COUNT ? Math::round
+            : decimal ? value -> BigDecimal.valueOf(value).setScale(resultScale, RoundingMode.HALF_UP)
+            : value -> value;
+        QueryExecutor.QueryResult result = single(label, typed.apply(estimate));
+        result = new QueryExecutor.QueryResult(result.getData(), 1, System.currentTimeMillis() - startTime, true, null);
+        return new Estimate(result, METHOD_SAMPLE, typed.apply(lower), typed.apply(estimate + margin),
+            CONFIDENCE_LEVEL, (double) k * cellWidth / span);
+    }
+
+    /**
+     * k distinct cells out of cellCount, in key order (Floyd's algorithm)
+     */
+    private static long[] sampleCells(long cellCount, int k) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Set<Long> chosen = new HashSet<>();
+        for (long j = cellCount - k; j < cellCount; j++) {
+            long cell = random.nextLong(j + 1);
+            chosen.add(chosen.contains(cell) ? j : cell);
+        }
+        return chosen.stream().mapToLong(Long::longValue).sorted().toArray();
+    }
+
+    private static double mean(double[] values) {
+        return Arrays.stream(values).sum() / values.length;
+    }
+
+    private static double sampleVariance(double[] values) {
+        if (values.length < 2) return 0;
+        double mean = mean(values);
+        double squares = 0;
+        for (double value : values) {
+            squares += (value - mean) * (value - mean);
+        }
+        return squares / (values.length - 1);
+    }
+
+    private static Long integral(Object value) {
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof BigInteger big && big.bitLength() < 63) {
+            return big.longValue();
+        }
+        return null;
+    }
+
+    private static QueryExecutor.QueryResult single(String label, Number value) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put(label, value);
+        return new QueryExecutor.QueryResult(List.of(row), 1, 0, true, null);
+    }
+
+    /**
+     * An approximate answer, how it was obtained and its bounds
+     */
+    public static class Estimate {
+        private final QueryExecutor.QueryResult result;
+        private final String method;
+        private final Number lower;
+        private final Number upper;
+        private final Double confidenceLevel;
+        private final Double sampleFraction;
+
+        Estimate(QueryExecutor.QueryResult result, String method, Number lower, Number upper,
+                 Double confidenceLevel, Double sampleFraction) {
+            this.result = result;
+            this.method = method;
+            this.lower = lower;
+            this.upper = upper;
+            this.confidenceLevel = confidenceLevel;
+            this.sampleFraction = sampleFraction;
+        }
+
+        public QueryExecutor.QueryResult getResult() { return result; }
+        public String getMethod() { return method; }
+        public Number getLower() { return lower; }
+        public Number getUpper() { return upper; }
+
+        /**
+         * Probability that the bounds contain the exact answer, null when they are a rule of
+         * thumb (statistics) rather than a sampling interval
+         */
+        public Double getConfidenceLevel() { return confidenceLevel; }
+
+        /**
+         * Fraction of the key range read, null when no rows were read
+         */
+        public Double getSampleFraction() { return sampleFraction; }
+    }
+}
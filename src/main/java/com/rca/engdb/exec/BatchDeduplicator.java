@@ -0,0 +1,81 @@
+package com.rca.engdb.exec;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Runs each distinct statement of one batch request once.
+ *
+ * Unlike RequestCoalescer, which only joins computations still in flight, results are kept
+ * for the lifetime of the batch: an item whose statement finished before it got there reuses
+ * the result instead of running it again. Create one instance per batch.
+ *
+ * Items have their own deadlines: a result is only kept if the item that ran it was still
+ * within its deadline and not cancelled when it finished. Otherwise the items waiting for it
+ * run the statement again under their own deadline.
+ */
+public class BatchDeduplicator {
+
+    private final Map<String, CompletableFuture<Object>> results = new ConcurrentHashMap<>();
+    private final LongAdder shared = new LongAdder();
+
+    /**
+     * Run the work, or wait for the result of the batch item that ran the same key
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, Supplier<T> work) {
+        while (true) {
+            CompletableFuture<Object> result = new CompletableFuture<>();
+            CompletableFuture<Object> existing = results.putIfAbsent(key, result);
+            if (existing != null) {
+                Object value = RequestCoalescer.await(existing);
+                if (value == RequestCoalescer.LEADER_ENDED) continue;
+                shared.increment();
+                return (T) value;
+            }
+            return run(key, result, work);
+        }
+    }
+
+    private <T> T run(String key, CompletableFuture<Object> result, Supplier<T> work) {
+        QueryContext context = QueryContext.current();
+        T value;
+        try {
+            value = work.get();
+        } catch (RuntimeException | Error e) {
+            complete(key, result, context, e, null);
+            throw e;
+        }
+        complete(key, result, context, null, value);
+        return value;
+    }
+
+    private void complete(String key, CompletableFuture<Object> result, QueryContext context, Throwable failure, Object value) {
+        if (RequestCoalescer.endedEarly(context)) {
+            // Not this batch's result, only this item's timeout or cancellation
+            results.remove(key, result);
+            result.complete(RequestCoalescer.LEADER_ENDED);
+        } else if (failure != null) {
+            result.completeExceptionally(failure);
+        } else {
+            result.complete(value);
+        }
+    }
+
+    /**
+     * Number of distinct keys executed
+     */
+    public int getDistinct() {
+        return results.size();
+    }
+
+    /**
+     * Number of items that reused another item's result
+     */
+    public long getShared() {
+        return shared.sum();
+    }
+}
@@ -0,0 +1,105 @@
+package com.rca.engdb.exec;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * A bounded compartment for one class of queries: at most maxConcurrent run at once,
+ * at most maxQueue wait for a slot, and none waits longer than queueTimeoutMs.
+ * Anything beyond that is rejected immediately with BulkheadFullException.
+ */
+public class Bulkhead {
+
+    private final String name;
+    private final int maxConcurrent;
+    private final int maxQueue;
+    private final long queueTimeoutMs;
+    private final long retryAfterSeconds;
+
+    private final Semaphore permits;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public Bulkhead(String name, int maxConcurrent, int maxQueue, long queueTimeoutMs, long retryAfterSeconds) {
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueue = maxQueue;
+        this.queueTimeoutMs = queueTimeoutMs;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.permits = new Semaphore(maxConcurrent, true);
+    }
+
+    public <T> T execute(Supplier<T> work) {
+        acquire();
+        return run(work);
+    }
+
+    /**
+     * Run the work, or the fallback instead if the bulkhead rejects it
+     */
+    public <T> T execute(Supplier<T> work, Supplier<T> whenFull) {
+        try {
+            acquire();
+        } catch (BulkheadFullException e) {
+            return whenFull.get();
+        }
+        return run(work);
+    }
+
+    private <T> T run(Supplier<T> work) {
+        admitted.increment();
+        try {
+            return work.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void acquire() {
+        if (permits.tryAcquire()) return;
+
+        if (waiting.incrementAndGet() > maxQueue) {
+            waiting.decrementAndGet();
+            throw reject("all " + maxConcurrent + " slots busy and " + maxQueue + " requests queued");
+        }
+        QueryContext context = QueryContext.current();
+        long waitMs = context != null ? Math.min(queueTimeoutMs, context.remainingMs()) : queueTimeoutMs;
+        try {
+            if (!permits.tryAcquire(waitMs, TimeUnit.MILLISECONDS)) {
+                // The request's own deadline expired first: a timeout, not overload
+                if (context != null) context.checkActive();
+                throw reject("no slot freed within " + queueTimeoutMs + "ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw reject("interrupted while queued");
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    private BulkheadFullException reject(String reason) {
+        rejected.increment();
+        return new BulkheadFullException(name, "Server busy (" + name + " queries): " + reason, retryAfterSeconds);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("maxConcurrent", (long) maxConcurrent);
+        stats.put("active", (long) (maxConcurrent - permits.availablePermits()));
+        stats.put("queued", (long) waiting.get());
+        stats.put("admitted", admitted.sum());
+        stats.put("rejected", rejected.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,25 @@
+package com.rca.engdb.exec;
+
+/**
+ * Thrown when a bulkhead has no free slot and its queue is full or the queue wait timed out.
+ * Mapped to 503 Service Unavailable with a Retry-After header.
+ */
+public class BulkheadFullException extends RuntimeException {
+
+    private final String bulkhead;
+    private final long retryAfterSeconds;
+
+    public BulkheadFullException(String bulkhead, String message, long retryAfterSeconds) {
+        super(message);
+        this.bulkhead = bulkhead;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public String getBulkhead() {
+        return bulkhead;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,654 @@
+package com.rca.engdb.exec;
+
+import com.rca.engdb.ast.ConditionNode;
+import com.rca.engdb.ast.QueryAST;
+import org.springframework.util.LinkedCaseInsensitiveMap;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Read-only snapshot of a small table stored by column, with an executor for single-table
+ * query ASTs over it.
+ *
+ * Integer columns are held as long[] and floating point columns as double[], each with a
+ * null bitmap; every other column (strings, decimals, dates) is dictionary-encoded as int
+ * codes into its distinct values. Conditions produce a row bitmap: over primitive columns by
+ * a loop over the array, over dictionary columns by testing each distinct value once and
+ * then the codes. The bitmaps of all conditions are ANDed, as the generated SQL does.
+ *
+ * Results follow MySQL: string comparisons ignore case (the default collations), NULL
+ * matches no comparison and sorts first, SUM of integers and AVG are DECIMAL. Anything the
+ * snapshot cannot answer exactly the way MySQL would (unknown columns, mixed types, joins)
+ * throws ReplicaCannotAnswerException so the caller falls back to the database.
+ */
+public class ColumnarTable {
+
+    // MySQL's div_precision_increment: AVG has the scale of its argument plus 4
+    private static final int AVERAGE_SCALE_INCREMENT = 4;
+
+    private final String name;
+    private final int rowCount;
+    private final List<String> columnNames;
+    private final Map<String, Column> columns = new HashMap<>();
+    private final long bytes;
+
+    private ColumnarTable(String name, int rowCount, List<String> columnNames, List<Column> columnList) {
+        this.name = name;
+        this.rowCount = rowCount;
+        this.columnNames = columnNames;
+        long total = 0;
+        for (int i = 0; i < columnNames.size(); i++) {
+            columns.put(columnNames.get(i).toLowerCase(Locale.ROOT), columnList.get(i));
+            total += columnList.get(i).bytes();
+        }
+        this.bytes = total;
+    }
+
+    /**
+     * Encode rows (as read by JDBC) column by column
+     */
+    public static ColumnarTable of(String name, List<String> columnNames, List<Map<String, Object>> rows) {
+        List<Column> columnList = new ArrayList<>(columnNames.size());
+        for (String column : columnNames) {
+            Object[] values = new Object[rows.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = rows.get(i).get(column);
+            }
+            columnList.add(encode(values));
+        }
+        return new ColumnarTable(name, rows.size(), List.copyOf(columnNames), columnList);
+    }
+
+    public String getName() { return name; }
+    public int getRowCount() { return rowCount; }
+    /** Approximate heap size of the encoded columns */
+    public long getBytes() { return bytes; }
+
+    /**
+     * Answer a single-table query: its rows, or its aggregate as one row labelled like the SQL
+     */
+    public List<Map<String, Object>> answer(QueryAST ast) {
+        if (!ast.getJoins().isEmpty()) {
+            throw new ReplicaCannotAnswerException("Joins are not answered from a replica");
+        }
+        BitSet rows = filter(ast.getWhereConditions());
+
+        String column = ast.getAggregateColumn();
+        Map<String, Object> row = new LinkedCaseInsensitiveMap<>();
+        switch (ast.getIntent()) {
+            case COUNT:
+                row.put("COUNT(" + (column != null ? column : "*") + ")", column != null ? column(column).count(rows) : (long) rows.cardinality());
+                return List.of(row);
+            case SUM:
+                row.put("SUM(" + orId(column) + ")", column(orId(column)).sum(rows));
+                return List.of(row);
+            case AVG:
+                row.put("AVG(" + orId(column) + ")", column(orId(column)).average(rows));
+                return List.of(row);
+            case MAX:
+                row.put("MAX(" + orId(column) + ")", column(orId(column)).extreme(rows, true));
+                return List.of(row);
+            case MIN:
+                row.put("MIN(" + orId(column) + ")", column(orId(column)).extreme(rows, false));
+                return List.of(row);
+            case SELECT:
+                return select(ast, rows);
+            default:
+                throw new ReplicaCannotAnswerException(ast.getIntent() + " is not answered from a replica");
+        }
+    }
+
+    /**
+     * Rows matching all conditions
+     */
+    BitSet filter(List<ConditionNode> conditions) {
+        BitSet rows = new BitSet(rowCount);
+        rows.set(0, rowCount);
+        for (ConditionNode condition : conditions) {
+            if (condition.getLogicalOperator() == ConditionNode.LogicalOperator.OR) {
+                throw new ReplicaCannotAnswerException("OR conditions are not answered from a replica");
+            }
+            rows.and(column(condition.getColumn()).filter(condition.getOperator().toUpperCase(Locale.ROOT), condition.getValue()));
+            if (rows.isEmpty()) break;
+        }
+        return rows;
+    }
+
+    private List<Map<String, Object>> select(QueryAST ast, BitSet rows) {
+        int[] selected = rows.stream().toArray();
+
+        if (ast.getOrderByColumn() != null) {
+            Column order = column(ast.getOrderByColumn());
+            boolean descending = ast.getOrderDirection() == QueryAST.OrderDirection.DESC;
+            Integer[] boxed = Arrays.stream(selected).boxed().toArray(Integer[]::new);
+            Arrays.sort(boxed, (a, b) -> descending ? order.compareRows(b, a) : order.compareRows(a, b));
+            selected = Arrays.stream(boxed).mapToInt(Integer::intValue).toArray();
+        }
+        if (ast.getLimit() != null && selected.length > ast.getLimit()) {
+            selected = Arrays.copyOf(selected, ast.getLimit());
+        }
+
+        List<String> names = ast.getSelectColumns().isEmpty() || ast.getSelectColumns().contains("*")
+            ? columnNames : ast.getSelectColumns();
+        Map<String, Column> output = new LinkedHashMap<>();
+        for (String column : names) {
+            output.put(plainName(column), column(column));
+        }
+
+        List<Map<String, Object>> result = new ArrayList<>(selected.length);
+        for (int row : selected) {
+            Map<String, Object> values = new LinkedCaseInsensitiveMap<>(output.size());
+            output.forEach((column, data) -> values.put(column, data.get(row)));
+            result.add(values);
+        }
+        return result;
+    }
+
+    private Column column(String name) {
+        Column column = columns.get(plainName(name).toLowerCase(Locale.ROOT));
+        if (column == null) {
+            throw new ReplicaCannotAnswerException("Unknown column " + name + " in replica of " + this.name);
+        }
+        return column;
+    }
+
+    private static String orId(String column) {
+        return column != null ? column : "id";
+    }
+
+    private static String plainName(String column) {
+        return column.substring(column.lastIndexOf('.') + 1);
+    }
+
+    private static Column encode(Object[] values) {
+        Class<?> type = null;
+        for (Object value : values) {
+            if (value == null) continue;
+            if (type == null) {
+                type = value.getClass();
+            } else if (type != value.getClass()) {
+                type = Object.class;
+                break;
+            }
+        }
+        if (type == Long.class || type == Integer.class || type == Short.class || type == Byte.class) {
+            return new LongColumn(values, type);
+        }
+        if (type == Double.class || type == Float.class) {
+            return new DoubleColumn(values, type);
+        }
+        return new DictionaryColumn(values);
+    }
+
+    /**
+     * Compare a stored value with a literal (or another stored value) the way MySQL does
+     */
+    static int compareValues(Object a, Object b) {
+        if (a instanceof Boolean x) a = x ? 1L : 0L;
+        if (b instanceof Boolean y) b = y ? 1L : 0L;
+        if (a instanceof Number x) {
+            return toBigDecimal(x).compareTo(toBigDecimal(b));
+        }
+        if (a instanceof String x) {
+            if (b instanceof String y) return x.compareToIgnoreCase(y);
+            throw new ReplicaCannotAnswerException("String compared with " + b.getClass().getSimpleName());
+        }
+        LocalDateTime x = toDateTime(a);
+        LocalDateTime y = toDateTime(b);
+        if (x != null && y != null) return x.compareTo(y);
+        throw new ReplicaCannotAnswerException("Cannot compare " + a.getClass().getSimpleName()
+            + " with " + b.getClass().getSimpleName());
+    }
+
+    private static BigDecimal toBigDecimal(Object value) {
+        if (value instanceof BigDecimal decimal) return decimal;
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return BigDecimal.valueOf(((Number) value).longValue());
+        }
+        if (value instanceof Number number) return BigDecimal.valueOf(number.doubleValue());
+        if (value instanceof String string) {
+            try {
+                return new BigDecimal(string.trim());
+            } catch (NumberFormatException e) {
+                // MySQL would convert the string's numeric prefix; not worth imitating
+            }
+        }
+        throw new ReplicaCannotAnswerException("Number compared with " + value.getClass().getSimpleName());
+    }
+
+    private static LocalDateTime toDateTime(Object value) {
+        if (value instanceof LocalDateTime dateTime) return dateTime;
+        if (value instanceof LocalDate date) return date.atStartOfDay();
+        if (value instanceof Timestamp timestamp) return timestamp.toLocalDateTime();
+        if (value instanceof java.sql.Date date) return date.toLocalDate().atStartOfDay();
+        return null;
+    }
+
+    private static boolean test(String operator, int comparison) {
+        return switch (operator) {
+            case "=" -> comparison == 0;
+            case "!=", "<>" -> comparison != 0;
+            case ">" -> comparison > 0;
+            case ">=" -> comparison >= 0;
+            case "<" -> comparison < 0;
+            case "<=" -> comparison <= 0;
+            default -> throw new ReplicaCannotAnswerException("Operator " + operator + " is not answered from a replica");
+        };
+    }
+
+    /**
+     * LIKE pattern (% and _ wildcards) as a case-insensitive regular expression
+     */
+    static Pattern likePattern(String like) {
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < like.length(); i++) {
+            char c = like.charAt(i);
+            if (c == '\\' && i + 1 < like.length()) {
+                regex.append(Pattern.quote(String.valueOf(like.charAt(++i))));
+            } else if (c == '%') {
+                regex.append(".*");
+            } else if (c == '_') {
+                regex.append('.');
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE | Pattern.DOTALL);
+    }
+
+    /**
+     * One encoded column
+     */
+    private abstract static class Column {
+        abstract Object get(int row);
+        abstract BitSet filter(String operator, Object literal);
+        abstract int compareRows(int a, int b);
+        abstract long count(BitSet rows);
+        abstract Object sum(BitSet rows);
+        abstract Object average(BitSet rows);
+        abstract Object extreme(BitSet rows, boolean max);
+        abstract long bytes();
+    }
+
+    /**
+     * Integer column: values in a long[] with a null bitmap, boxed back to the JDBC type on output
+     */
+    private static final class LongColumn extends Column {
+        private final long[] values;
+        private final BitSet nulls;
+        private final Class<?> type;
+
+        LongColumn(Object[] raw, Class<?> type) {
+            this.values = new long[raw.length];
+            this.nulls = new BitSet(raw.length);
+            this.type = type;
+            for (int i = 0; i < raw.length; i++) {
+                if (raw[i] == null) nulls.set(i);
+                else values[i] = ((Number) raw[i]).longValue();
+            }
+        }
+
+        @Override
+        Object get(int row) {
+            return nulls.get(row) ? null : box(values[row]);
+        }
+
+        private Object box(long value) {
+            if (type == Integer.class) return (int) value;
+            if (type == Short.class) return (short) value;
+            if (type == Byte.class) return (byte) value;
+            return value;
+        }
+
+        @Override
+        BitSet filter(String operator, Object literal) {
+            BitSet result = new BitSet(values.length);
+            if (operator.equals("IS NULL")) return (BitSet) nulls.clone();
+            if (operator.equals("IS NOT NULL")) {
+                result.set(0, values.length);
+                result.andNot(nulls);
+                return result;
+            }
+            if (literal == null) return result;
+
+            BigDecimal decimal = toBigDecimal(literal);
+            long bound;
+            try {
+                bound = decimal.longValueExact();
+            } catch (ArithmeticException e) {
+                // A fractional or out-of-range literal: compare each value exactly
+                for (int i = 0; i < values.length; i++) {
+                    if (test(operator, BigDecimal.valueOf(values[i]).compareTo(decimal))) result.set(i);
+                }
+                result.andNot(nulls);
+                return result;
+            }
+
+            long[] v = values;
+            switch (operator) {
+                case "=" -> { for (int i = 0; i < v.length; i++) if (v[i] == bound) result.set(i); }
+                case "!=", "<>" -> { for (int i = 0; i < v.length; i++) if (v[i] != bound) result.set(i); }
+                case ">" -> { for (int i = 0; i < v.length; i++) if (v[i] > bound) result.set(i); }
+                case ">=" -> { for (int i = 0; i < v.length; i++) if (v[i] >= bound) result.set(i); }
+                case "<" -> { for (int i = 0; i < v.length; i++) if (v[i] < bound) result.set(i); }
+                case "<=" -> { for (int i = 0; i < v.length; i++) if (v[i] <= bound) result.set(i); }
+                default -> throw new ReplicaCannotAnswerException("Operator " + operator + " on a numeric column");
+            }
+            result.andNot(nulls);
+            return result;
+        }
+
+        @Override
+        int compareRows(int a, int b) {
+            boolean nullA = nulls.get(a), nullB = nulls.get(b);
+            if (nullA || nullB) return nullA == nullB ? 0 : nullA ? -1 : 1;
+            return Long.compare(values[a], values[b]);
+        }
+
+        @Override
+        long count(BitSet rows) {
+            BitSet present = (BitSet) rows.clone();
+            present.andNot(nulls);
+            return present.cardinality();
+        }
+
+        @Override
+        Object sum(BitSet rows) {
+            long sum = 0;
+            long count = 0;
+            try {
+                for (int i = rows.nextSetBit(0); i >= 0; i = rows.nextSetBit(i + 1)) {
+                    if (nulls.get(i)) continue;
+                    sum = Math.addExact(sum, values[i]);
+                    count++;
+                }
+            } catch (ArithmeticException e) {
+                throw new ReplicaCannotAnswerException("SUM overflows a long", e);
+            }
+            return count == 0 ? null : BigDecimal.valueOf(sum);
+        }
+
+        @Override
+        Object average(BitSet rows) {
+            long count = count(rows);
+            BigDecimal sum = (BigDecimal) sum(rows);
+            return count == 0 ? null : sum.divide(BigDecimal.valueOf(count), AVERAGE_SCALE_INCREMENT, RoundingMode.HALF_UP);
+        }
+
+        @Override
+        Object extreme(BitSet rows, boolean max) {
+            boolean found = false;
+            long best = 0;
+            for (int i = rows.nextSetBit(0); i >= 0; i = rows.nextSetBit(i + 1)) {
+                if (nulls.get(i)) continue;
+                if (!found || (max ? values[i] > best : values[i] < best)) best = values[i];
+                found = true;
+            }
+            return found ? box(best) : null;
+        }
+
+        @Override
+        long bytes() {
+            return 8L * values.length + values.length / 8;
+        }
+    }
+
+    /**
+     * Floating point column: values in a double[] with a null bitmap
+     */
+    private static final class DoubleColumn extends Column {
+        private final double[] values;
+        private final BitSet nulls;
+        private final Class<?> type;
+
+        DoubleColumn(Object[] raw, Class<?> type) {
+            this.values = new double[raw.length];
+            this.nulls = new BitSet(raw.length);
+            this.type = type;
+            for (int i = 0; i < raw.length; i++) {
+                if (raw[i] == null) nulls.set(i);
+                else values[i] = ((Number) raw[i]).doubleValue();
+            }
+        }
+
+        @Override
+        Object get(int row) {
+            if (nulls.get(row)) return null;
+            return type == Float.class ? (Object) (float) values[row] : values[row];
+        }
+
+        @Override
+        BitSet filter(String operator, Object literal) {
+            BitSet result = new BitSet(values.length);
+            if (operator.equals("IS NULL")) return (BitSet) nulls.clone();
+            if (operator.equals("IS NOT NULL")) {
+                result.set(0, values.length);
+                result.andNot(nulls);
+                return result;
+            }
+            if (literal == null) return result;
+
+            double bound = toBigDecimal(literal).doubleValue();
+            double[] v = values;
+            for (int i = 0; i < v.length; i++) {
+                if (test(operator, Double.compare(v[i], bound))) result.set(i);
+            }
+            result.andNot(nulls);
+            return result;
+        }
+
+        @Override
+        int compareRows(int a, int b) {
+            boolean nullA = nulls.get(a), nullB = nulls.get(b);
+            if (nullA || nullB) return nullA == nullB ? 0 : nullA ? -1 : 1;
+            return Double.compare(values[a], values[b]);
+        }
+
+        @Override
+        long count(BitSet rows) {
+            BitSet present = (BitSet) rows.clone();
+            present.andNot(nulls);
+            return present.cardinality();
+        }
+
+        @Override
+        Object sum(BitSet rows) {
+            double sum = 0;
+            long count = 0;
+            for (int i = rows.nextSetBit(0); i >= 0; i = rows.nextSetBit(i + 1)) {
+                if (nulls.get(i)) continue;
+                sum += values[i];
+                count++;
+            }
+            return count == 0 ? null : sum;
+        }
+
+        @Override
+        Object average(BitSet rows) {
+            long count = count(rows);
+            return count == 0 ? null : (Double) sum(rows) / count;
+        }
+
+        @Override
+        Object extreme(BitSet rows, boolean max) {
+            boolean found = false;
+            double best = 0;
+            for (int i = rows.nextSetBit(0); i >= 0; i = rows.nextSetBit(i + 1)) {
+                if (nulls.get(i)) continue;
+                if (!found || (max ? values[i] > best : values[i] < best)) best = values[i];
+                found = true;
+            }
+            if (!found) return null;
+            return type == Float.class ? (Object) (float) best : best;
+        }
+
+        @Override
+        long bytes() {
+            return 8L * values.length + values.length / 8;
+        }
+    }
+
+    /**
+     * Any other column: int codes into the distinct values, -1 for NULL. The rank of each
+     * distinct value in sort order is computed once, so sorting compares ints.
+     */
+    private static final class DictionaryColumn extends Column {
+        private final int[] codes;
+        private final Object[] dictionary;
+        private final int[] rank;
+
+        DictionaryColumn(Object[] raw) {
+            this.codes = new int[raw.length];
+            Map<Object, Integer> index = new HashMap<>();
+            List<Object> distinct = new ArrayList<>();
+            for (int i = 0; i < raw.length; i++) {
+                if (raw[i] == null) {
+                    codes[i] = -1;
+                    continue;
+                }
+                codes[i] = index.computeIfAbsent(raw[i], value -> {
+                    distinct.add(value);
+                    return distinct.size() - 1;
+                });
+            }
+            this.dictionary = distinct.toArray();
+            this.rank = rankOf(dictionary);
+        }
+
+        private static int[] rankOf(Object[] dictionary) {
+            Integer[] order = new Integer[dictionary.length];
+            for (int i = 0; i < order.length; i++) order[i] = i;
+            try {
+                Arrays.sort(order, (a, b) -> compareValues(dictionary[a], dictionary[b]));
+            } catch (ReplicaCannotAnswerException e) {
+                // Mixed types have no MySQL order we imitate; sorting by this column falls back
+                return null;
+            }
+            int[] rank = new int[dictionary.length];
+            for (int i = 0; i < order.length; i++) {
+                // Values equal under the collation ('a' and 'A') share a rank
+                boolean tied = i > 0 && compareValues(dictionary[order[i]], dictionary[order[i - 1]]) == 0;
+                rank[order[i]] = tied ? rank[order[i - 1]] : i;
+            }
+            return rank;
+        }
+
+        @Override
+        Object get(int row) {
+            return codes[row] < 0 ? null : dictionary[codes[row]];
+        }
+
+        @Override
+        BitSet filter(String operator, Object literal) {
+            BitSet result = new BitSet(codes.length);
+            if (operator.equals("IS NULL") || operator.equals("IS NOT NULL")) {
+                boolean wantNull = operator.equals("IS NULL");
+                for (int i = 0; i < codes.length; i++) {
+                    if ((codes[i] < 0) == wantNull) result.set(i);
+                }
+                return result;
+            }
+            if (literal == null) return result;
+
+            // Evaluate the condition once per distinct value, then select rows by code
+            boolean[] hit = new boolean[dictionary.length];
+            if (operator.equals("LIKE")) {
+                Pattern pattern = likePattern(String.valueOf(literal));
+                for (int d = 0; d < dictionary.length; d++) {
+                    if (!(dictionary[d] instanceof String value)) {
+                        throw new ReplicaCannotAnswerException("LIKE on a non-string column");
+                    }
+                    hit[d] = pattern.matcher(value).matches();
+                }
+            } else {
+                for (int d = 0; d < dictionary.length; d++) {
+                    hit[d] = test(operator, compareValues(dictionary[d], literal));
+                }
+            }
+
+            int[] c = codes;
+            for (int i = 0; i < c.length; i++) {
+                if (c[i] >= 0 && hit[c[i]]) result.set(i);
+            }
+            return result;
+        }
+
+        @Override
+        int compareRows(int a, int b) {
+            if (rank == null) throw new ReplicaCannotAnswerException("Column has no single sort order");
+            int codeA = codes[a], codeB = codes[b];
+            if (codeA < 0 || codeB < 0) return codeA < 0 == codeB < 0 ? 0 : codeA < 0 ? -1 : 1;
+            return Integer.compare(rank[codeA], rank[codeB]);
+        }
+
+        @Override
+        long count(BitSet rows) {
+            long count = 0;
+            for (int i = rows.nextSetBit(0); i >= 0; i = rows.nextSetBit(i + 1)) {
+                if (codes[i] >= 0) count++;
+            }
+            return count;
+        }
+
+        @Override
+        Object sum(BitSet rows) {
+            BigDecimal sum = null;
+            for (int i = rows.nextSetBit(0); i >= 0; i = rows.nextSetBit(i + 1)) {
+                if (codes[i] < 0) continue;
+                BigDecimal value = decimal(dictionary[codes[i]]);
+                sum = sum == null ? value : sum.add(value);
+            }
+            return sum;
+        }
+
+        @Override
+        Object average(BitSet rows) {
+            BigDecimal sum = (BigDecimal) sum(rows);
+            if (sum == null) return null;
+            int scale = 0;
+            for (Object value : dictionary) {
+                scale = Math.max(scale, decimal(value).scale());
+            }
+            return sum.divide(BigDecimal.valueOf(count(rows)), scale + AVERAGE_SCALE_INCREMENT, RoundingMode.HALF_UP);
+        }
+
+        private static BigDecimal decimal(Object value) {
+            if (value instanceof BigDecimal decimal) return decimal;
+            throw new ReplicaCannotAnswerException("Arithmetic on a " + value.getClass().getSimpleName() + " column");
+        }
+
+        @Override
+        Object extreme(BitSet rows, boolean max) {
+            if (rank == null) throw new ReplicaCannotAnswerException("Column has no single sort order");
+            int best = -1;
+            for (int i = rows.nextSetBit(0); i >= 0; i = rows.nextSetBit(i + 1)) {
+                int code = codes[i];
+                if (code < 0) continue;
+                if (best < 0 || (max ? rank[code] > rank[best] : rank[code] < rank[best])) best = code;
+            }
+            return best < 0 ? null : dictionary[best];
+        }
+
+        @Override
+        long bytes() {
+            long bytes = 4L * codes.length + 4L * dictionary.length;
+            for (Object value : dictionary) {
+                bytes += value instanceof String string ? 40 + 2L * string.length() : 32;
+            }
+            return bytes;
+        }
+    }
+}
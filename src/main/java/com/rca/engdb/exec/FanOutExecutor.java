@@ -0,0 +1,330 @@
+package com.rca.engdb.exec;
+
+import com.rca.engdb.ast.QueryAST;
+import com.rca.engdb.engine.QueryGenerator;
+import com.rca.engdb.engine.SqlStatement;
+import com.rca.engdb.ml.IntentType;
+import com.rca.engdb.schema.DatabaseDiscoveryService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Scatter-gather execution of one rule-based query over several MySQL databases that share
+ * a schema, e.g. one database per tenant.
+ *
+ * The AST is compiled once per database and the statements run in parallel, at most
+ * engdb.fanout.parallelism at a time. Partial results are merged as the intent requires:
+ * COUNT and SUM are added up, AVG is divided from the per-database sums and counts, MAX and
+ * MIN are reduced, and SELECT rows are concatenated (re-sorted if the query is ordered) and
+ * cut to the query's LIMIT.
+ */
+@Service
+public class FanOutExecutor {
+
+    static final String PARTIAL_SUM = "partial_sum";
+    static final String PARTIAL_COUNT = "partial_count";
+
+    private final QueryGenerator queryGenerator;
+    private final DatabaseDiscoveryService databaseDiscoveryService;
+    private final int parallelism;
+    private final int maxDatabases;
+
+    public FanOutExecutor(QueryGenerator queryGenerator,
+                          DatabaseDiscoveryService databaseDiscoveryService,
+                          @Value("${engdb.fanout.parallelism:8}") int parallelism,
+                          @Value("${engdb.fanout.max-databases:256}") int maxDatabases) {
+        this.queryGenerator = queryGenerator;
+        this.databaseDiscoveryService = databaseDiscoveryService;
+        this.parallelism = parallelism;
+        this.maxDatabases = maxDatabases;
+    }
+
+    /**
+     * MySQL databases whose name matches the pattern (* and ? wildcards), in name order.
+     * Throws IllegalArgumentException if more than engdb.fanout.max-databases match.
+     */
+    public List<String> resolveDatabases(String pattern) {
+        Pattern regex = globToRegex(pattern);
+        List<String> databases = databaseDiscoveryService.getAllDatabases("mysql").stream()
+            .filter(db -> regex.matcher(db).matches())
+            .sorted()
+            .toList();
+        if (databases.size() > maxDatabases) {
+            throw new IllegalArgumentException(databases.size() + " databases match " + pattern
+                + ", more than the fan-out limit of " + maxDatabases);
+        }
+        return databases;
+    }
+
+    /**
+     * Run the query on every database and merge the results.
+     *
+     * @param executor runs one database's statement, e.g. through the result cache and bulkheads
+     */
+    public FanOutResult execute(QueryAST ast, List<String> databases,
+                                BiFunction<String, SqlStatement, QueryExecutor.QueryResult> executor) {
+        long start = System.nanoTime();
+
+        // Compiled up front on this thread, as the AST is shared
+        String databaseName = ast.getDatabaseName();
+        Map<String, SqlStatement> statements = new LinkedHashMap<>();
+        try {
+            for (String database : databases) {
+                ast.setDatabaseName(database);
+                statements.put(database, queryGenerator.generateFanOutSQL(ast));
+            }
+        } finally {
+            ast.setDatabaseName(databaseName);
+        }
+
+        // Workers run under the request's deadline and are cancelled with it
+        QueryContext context = QueryContext.current();
+        Semaphore permits = new Semaphore(parallelism);
+        List<Partial> partials = new ArrayList<>();
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Partial>> futures = new ArrayList<>();
+            statements.forEach((database, statement) -> {
+                Supplier<Partial> work = () -> executePartial(database, statement, executor, permits);
+                Supplier<Partial> bound = context != null ? context.propagate(work) : work;
+                futures.add(workers.submit(bound::get));
+            });
+            for (Future<Partial> future : futures) {
+                partials.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for the fan-out databases");
+        }
+
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        return new FanOutResult(merge(ast, partials, elapsedMs), partials);
+    }
+
+    private Partial executePartial(String database, SqlStatement statement,
+                                   BiFunction<String, SqlStatement, QueryExecutor.QueryResult> executor,
+                                   Semaphore permits) {
+        long start = System.nanoTime();
+        try {
+            acquire(permits);
+            try {
+                return new Partial(database, executor.apply(database, statement),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            } finally {
+                permits.release();
+            }
+        } catch (RuntimeException e) {
+            // One database failing (or rejected by its bulkhead) is reported, not fatal
+            QueryExecutor.QueryResult failed = new QueryExecutor.QueryResult(
+                List.of(), 0, 0, false, QueryExecutor.errorMessage(e));
+            return new Partial(database, failed, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    private void acquire(Semaphore permits) {
+        QueryContext context = QueryContext.current();
+        try {
+            if (context == null) {
+                permits.acquire();
+                return;
+            }
+            if (!permits.tryAcquire(context.remainingMs(), TimeUnit.MILLISECONDS)) {
+                context.checkActive();
+                throw new CancellationException("Timed out waiting for a fan-out slot");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for a fan-out slot");
+        }
+    }
+
+    /**
+     * Merge the successful partial results; failed databases are named in the error message
+     */
+    static QueryExecutor.QueryResult merge(QueryAST ast, List<Partial> partials, long elapsedMs) {
+        List<QueryExecutor.QueryResult> succeeded = new ArrayList<>();
+        List<String> failures = new ArrayList<>();
+        for (Partial partial : partials) {
+            if (partial.getResult().isSuccess()) {
+                succeeded.add(partial.getResult());
+            } else {
+                failures.add(partial.getDatabase() + ": " + partial.getResult().getErrorMessage());
+            }
+        }
+        String errorMessage = failures.isEmpty() ? null
+            : failures.size() + " of " + partials.size() + " databases failed, results are incomplete. "
+                + String.join("; ", failures);
+        if (succeeded.isEmpty()) {
+            return new QueryExecutor.QueryResult(List.of(), 0, elapsedMs, false, errorMessage);
+        }
+
+        List<Map<String, Object>> rows = switch (ast.getIntent()) {
+            case COUNT, SUM -> aggregate(succeeded, FanOutExecutor::add);
+            case MAX -> aggregate(succeeded, (a, b) -> compare(a, b) >= 0 ? a : b);
+            case MIN -> aggregate(succeeded, (a, b) -> compare(a, b) <= 0 ? a : b);
+            case AVG -> average(ast, succeeded);
+            default -> concatenate(ast, succeeded);
+        };
+        return new QueryExecutor.QueryResult(rows, rows.size(), elapsedMs, true, errorMessage);
+    }
+
+    /**
+     * Combine the single value of each partial's single row, skipping NULLs (as SQL aggregates do)
+     */
+    private static List<Map<String, Object>> aggregate(List<QueryExecutor.QueryResult> partials,
+                                                       BiFunction<Object, Object, Object> combine) {
+        String label = null;
+        Object merged = null;
+        for (QueryExecutor.QueryResult partial : partials) {
+            if (partial.getData().isEmpty()) continue;
+            Map.Entry<String, Object> value = partial.getData().get(0).entrySet().iterator().next();
+            if (label == null) label = value.getKey();
+            if (value.getValue() == null) continue;
+            merged = merged == null ? value.getValue() : combine.apply(merged, value.getValue());
+        }
+        if (label == null) return List.of();
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put(label, merged);
+        return List.of(row);
+    }
+
+    private static List<Map<String, Object>> average(QueryAST ast, List<QueryExecutor.QueryResult> partials) {
+        BigDecimal sum = BigDecimal.ZERO;
+        long count = 0;
+        for (QueryExecutor.QueryResult partial : partials) {
+            if (partial.getData().isEmpty()) continue;
+            Map<String, Object> row = partial.getData().get(0);
+            Object partialSum = row.get(PARTIAL_SUM);
+            Object partialCount = row.get(PARTIAL_COUNT);
+            if (partialSum != null) sum = sum.add(toBigDecimal((Number) partialSum));
+            if (partialCount != null) count += ((Number) partialCount).longValue();
+        }
+        Map<String, Object> row = new LinkedHashMap<>();
+        String column = ast.getAggregateColumn() != null ? ast.getAggregateColumn() : "id";
+        row.put("AVG(" + column + ")", count == 0 ? null : sum.divide(BigDecimal.valueOf(count), MathContext.DECIMAL64));
+        return List.of(row);
+    }
+
+    private static List<Map<String, Object>> concatenate(QueryAST ast, List<QueryExecutor.QueryResult> partials) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        partials.forEach(partial -> rows.addAll(partial.getData()));
+
+        // Each database returned its own top rows; the global order needs one more sort
+        if (ast.getOrderByColumn() != null) {
+            String column = ast.getOrderByColumn().substring(ast.getOrderByColumn().lastIndexOf('.') + 1);
+            Comparator<Map<String, Object>> order = (a, b) -> compare(a.get(column), b.get(column));
+            rows.sort(ast.getOrderDirection() == QueryAST.OrderDirection.DESC ? order.reversed() : order);
+        }
+        if (ast.getLimit() != null && rows.size() > ast.getLimit()) {
+            return new ArrayList<>(rows.subList(0, ast.getLimit()));
+        }
+        return rows;
+    }
+
+    /**
+     * Sum two partial values; integral inputs stay integral
+     */
+    static Object add(Object a, Object b) {
+        if (isIntegral(a) && isIntegral(b)) {
+            return ((Number) a).longValue() + ((Number) b).longValue();
+        }
+        if (a instanceof Double || a instanceof Float || b instanceof Double || b instanceof Float) {
+            return ((Number) a).doubleValue() + ((Number) b).doubleValue();
+        }
+        return toBigDecimal((Number) a).add(toBigDecimal((Number) b));
+    }
+
+    /**
+     * Order values as MySQL does: NULL first, numbers by value whatever their Java type
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static int compare(Object a, Object b) {
+        if (a == null || b == null) return a == null ? (b == null ? 0 : -1) : 1;
+        if (a instanceof Number x && b instanceof Number y) {
+            return toBigDecimal(x).compareTo(toBigDecimal(y));
+        }
+        if (a instanceof Comparable comparable && a.getClass().isInstance(b)) {
+            return comparable.compareTo(b);
+        }
+        return a.toString().compareTo(b.toString());
+    }
+
+    private static boolean isIntegral(Object value) {
+        return value instanceof Long || value instanceof Integer || value instanceof Short
+            || value instanceof Byte || value instanceof BigInteger;
+    }
+
+    static BigDecimal toBigDecimal(Number value) {
+        if (value instanceof BigDecimal decimal) return decimal;
+        if (value instanceof BigInteger integer) return new BigDecimal(integer);
+        if (isIntegral(value)) return BigDecimal.valueOf(value.longValue());
+        return BigDecimal.valueOf(value.doubleValue());
+    }
+
+    private static Pattern globToRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        for (char c : glob.toCharArray()) {
+            switch (c) {
+                case '*' -> regex.append(".*");
+                case '?' -> regex.append('.');
+                default -> regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE);
+    }
+
+    /**
+     * Merged result and the result of each database
+     */
+    public static class FanOutResult {
+        private final QueryExecutor.QueryResult result;
+        private final List<Partial> partials;
+
+        FanOutResult(QueryExecutor.QueryResult result, List<Partial> partials) {
+            this.result = result;
+            this.partials = partials;
+        }
+
+        public QueryExecutor.QueryResult getResult() { return result; }
+        public List<Partial> getPartials() { return partials; }
+    }
+
+    /**
+     * Result of one database, with the time it took including the wait for a fan-out slot
+     */
+    public static class Partial {
+        private final String database;
+        private final QueryExecutor.QueryResult result;
+        private final long elapsedMs;
+
+        Partial(String database, QueryExecutor.QueryResult result, long elapsedMs) {
+            this.database = database;
+            this.result = result;
+            this.elapsedMs = elapsedMs;
+        }
+
+        public String getDatabase() { return database; }
+        public QueryExecutor.QueryResult getResult() { return result; }
+        public long getElapsedMs() { return elapsedMs; }
+    }
+}
@@ -0,0 +1,205 @@
+package com.rca.engdb.exec;
+
+import com.rca.engdb.ast.QueryAST;
+import com.rca.engdb.engine.FederatedJoinPlanner.FederatedJoin;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+
+/**
+ * Runs federated joins: streams the pushed-down MySQL statement and MongoDB find through a
+ * {@link HashJoin} and computes the question's output (rows, or its aggregate) over the joined
+ * rows as they arrive, so only the build side and the output are held in memory.
+ *
+ * The MySQL side is estimated by the planner; the MongoDB side by the collection's document
+ * count, reduced by the usual equality selectivity for each pushed-down condition.
+ */
+@Service
+public class FederatedJoinExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(FederatedJoinExecutor.class);
+
+    private static final double CONDITION_SELECTIVITY = 0.1;
+    private static final int DEADLINE_CHECK_INTERVAL = 1024;
+
+    private final QueryExecutor queryExecutor;
+    private final MongoQueryExecutor mongoQueryExecutor;
+    private final long memoryBudgetBytes;
+    private final Path spillDirectory;
+    private final int spillPartitions;
+
+    public FederatedJoinExecutor(QueryExecutor queryExecutor,
+                                 MongoQueryExecutor mongoQueryExecutor,
+                                 @Value("${engdb.federation.memory-budget-bytes:67108864}") long memoryBudgetBytes,
+                                 @Value("${engdb.federation.spill-directory:${java.io.tmpdir}}") String spillDirectory,
+                                 @Value("${engdb.federation.spill-partitions:32}") int spillPartitions) {
+        this.queryExecutor = queryExecutor;
+        this.mongoQueryExecutor = mongoQueryExecutor;
+        this.memoryBudgetBytes = memoryBudgetBytes;
+        this.spillDirectory = Path.of(spillDirectory);
+        this.spillPartitions = spillPartitions;
+    }
+
+    public QueryExecutor.QueryResult execute(FederatedJoin join) {
+        long startTime = System.currentTimeMillis();
+        try {
+            String dbName = join.getDatabaseName();
+            String collection = join.getLink().collection();
+            long collectionEstimate = (long) Math.max(1, mongoQueryExecutor.estimateDocumentCount(dbName, collection)
+                * Math.pow(CONDITION_SELECTIVITY, join.getCollectionConditionCount()));
+
+            HashJoin.Side table = new HashJoin.Side(join.getLink().table(), join.getLink().column(),
+                rows -> queryExecutor.streamSQLQuery(join.getStatement(), rows), join.getTableEstimate());
+            HashJoin.Side documents = new HashJoin.Side(collection, join.getLink().field(),
+                rows -> mongoQueryExecutor.streamMongoQuery(dbName, collection, join.getFilter(), join.getProjection(), rows),
+                collectionEstimate);
+
+            JoinOutput output = new JoinOutput(join.getAst());
+            HashJoin.Stats stats = new HashJoin(memoryBudgetBytes, spillDirectory, spillPartitions).join(
+                join.isTableFirst() ? table : documents, join.isTableFirst() ? documents : table, false, output);
+            logger.debug("Federated join {}: {}", join.getLink(), stats);
+
+            List<Map<String, Object>> data = output.result();
+            return new QueryExecutor.QueryResult(data, data.size(), System.currentTimeMillis() - startTime, true, null);
+
+        } catch (Exception e) {
+            return new QueryExecutor.QueryResult(new ArrayList<>(), 0, System.currentTimeMillis() - startTime, false,
+                QueryExecutor.errorMessage(e));
+        }
+    }
+
+    /**
+     * The question's output over the joined rows: the rows themselves (ordered and limited),
+     * or one aggregate value. Columns are named as in the question and found in either side.
+     */
+    static class JoinOutput implements Predicate<Map<String, Object>> {
+        private final QueryAST ast;
+        private final String column;
+        private final Comparator<Map<String, Object>> order;
+        private final PriorityQueue<Map<String, Object>> top;
+        private final List<Map<String, Object>> rows = new ArrayList<>();
+        private String resolvedColumn;
+        private String resolvedOrderColumn;
+        private long joined;
+        private long values;
+        private Object aggregate;
+        private BigDecimal sum = BigDecimal.ZERO;
+
+        JoinOutput(QueryAST ast) {
+            this.ast = ast;
+            this.column = ast.getAggregateColumn() != null ? ast.getAggregateColumn() : "id";
+            if (ast.getOrderByColumn() != null) {
+                Comparator<Map<String, Object>> ascending = (a, b) -> FanOutExecutor.compare(
+                    a.get(resolvedOrderColumn), b.get(resolvedOrderColumn));
+                this.order = ast.getOrderDirection() == QueryAST.OrderDirection.DESC ? ascending.reversed() : ascending;
+            } else {
+                this.order = null;
+            }
+            // With ORDER BY and LIMIT only the current top rows are kept, the worst at the head
+            this.top = order != null && ast.getLimit() != null ? new PriorityQueue<>(order.reversed()) : null;
+        }
+
+        @Override
+        public boolean test(Map<String, Object> row) {
+            if (++joined % DEADLINE_CHECK_INTERVAL == 0) QueryContext.checkCurrent();
+
+            switch (ast.getIntent()) {
+                case COUNT:
+                    return true;
+                case SUM:
+                case AVG:
+                case MAX:
+                case MIN:
+                    accumulate(value(row));
+                    return true;
+                default:
+                    return select(row);
+            }
+        }
+
+        private boolean select(Map<String, Object> row) {
+            if (order == null) {
+                rows.add(row);
+                return ast.getLimit() == null || rows.size() < ast.getLimit();
+            }
+            if (resolvedOrderColumn == null) resolvedOrderColumn = resolve(row, ast.getOrderByColumn());
+            if (top == null) {
+                rows.add(row);
+            } else {
+                top.add(row);
+                if (top.size() > ast.getLimit()) top.poll();
+            }
+            return true;
+        }
+
+        private void accumulate(Object value) {
+            // NULLs are skipped, as SQL aggregates do
+            if (value == null) return;
+            switch (ast.getIntent()) {
+                case SUM -> aggregate = aggregate == null ? value : FanOutExecutor.add(aggregate, value);
+                case AVG -> sum = sum.add(FanOutExecutor.toBigDecimal((Number) value));
+                case MAX -> aggregate = aggregate == null || FanOutExecutor.compare(value, aggregate) > 0 ? value : aggregate;
+                case MIN -> aggregate = aggregate == null || FanOutExecutor.compare(value, aggregate) < 0 ? value : aggregate;
+                default -> { }
+            }
+            values++;
+        }
+
+        private Object value(Map<String, Object> row) {
+            if (resolvedColumn == null) resolvedColumn = resolve(row, column);
+            return row.get(resolvedColumn);
+        }
+
+        List<Map<String, Object>> result() {
+            Map<String, Object> row = new LinkedHashMap<>();
+            switch (ast.getIntent()) {
+                case COUNT:
+                    row.put("COUNT(*)", joined);
+                    return List.of(row);
+                case SUM:
+                    row.put("SUM(" + column + ")", aggregate);
+                    return List.of(row);
+                case AVG:
+                    row.put("AVG(" + column + ")", values == 0 ? null : sum.divide(BigDecimal.valueOf(values), MathContext.DECIMAL64));
+                    return List.of(row);
+                case MAX:
+                    row.put("MAX(" + column + ")", aggregate);
+                    return List.of(row);
+                case MIN:
+                    row.put("MIN(" + column + ")", aggregate);
+                    return List.of(row);
+                default:
+                    List<Map<String, Object>> selected = top != null ? new ArrayList<>(top) : rows;
+                    if (order != null) selected.sort(order);
+                    if (ast.getLimit() != null && selected.size() > ast.getLimit()) {
+                        return new ArrayList<>(selected.subList(0, ast.getLimit()));
+                    }
+                    return selected;
+            }
+        }
+
+        /**
+         * Key of a joined row ("side.column") for a column named with or without its side
+         */
+        private static String resolve(Map<String, Object> row, String name) {
+            if (row.containsKey(name)) return name;
+            String suffix = "." + name.substring(name.lastIndexOf('.') + 1).toLowerCase();
+            for (String key : row.keySet()) {
+                if (key.equalsIgnoreCase(name) || key.toLowerCase().endsWith(suffix)) return key;
+            }
+            return name;
+        }
+    }
+}
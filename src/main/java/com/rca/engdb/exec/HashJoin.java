@@ -0,0 +1,379 @@
+package com.rca.engdb.exec;
+
+import org.bson.types.ObjectId;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * In-process equi-join of two row streams, for joins no single database can run
+ * (a MySQL table with a MongoDB collection).
+ *
+ * The side with the smaller row estimate is read into a hash table on its key and the other
+ * side is streamed through it, so only the build side is held in memory. If the hash table
+ * outgrows the memory budget, both sides are split by key hash into partition files on disk
+ * (a Grace hash join) and joined one partition at a time.
+ *
+ * Output rows hold the columns of both sides as "side.column", left side first, whichever
+ * side was built. Join keys are compared by value: numbers of any Java type by their numeric
+ * value, ObjectIds by their hex string; NULL keys never match.
+ */
+public class HashJoin {
+
+    private static final int RESET_INTERVAL = 1000;
+
+    private final long memoryBudgetBytes;
+    private final Path spillDirectory;
+    private final int partitions;
+
+    public HashJoin(long memoryBudgetBytes, Path spillDirectory, int partitions) {
+        this.memoryBudgetBytes = memoryBudgetBytes;
+        this.spillDirectory = spillDirectory;
+        this.partitions = partitions;
+    }
+
+    /**
+     * A stream of rows that can be read once
+     */
+    public interface RowSource {
+        void forEach(Consumer<Map<String, Object>> rows);
+    }
+
+    /**
+     * One input of the join: its name (the column prefix), key column, rows and row estimate
+     */
+    public static class Side {
+        private final String name;
+        private final String keyColumn;
+        private final RowSource rows;
+        private final long estimatedRows;
+
+        public Side(String name, String keyColumn, RowSource rows, long estimatedRows) {
+            this.name = name;
+            this.keyColumn = keyColumn;
+            this.rows = rows;
+            this.estimatedRows = estimatedRows;
+        }
+
+        public String getName() { return name; }
+        public long getEstimatedRows() { return estimatedRows; }
+    }
+
+    /**
+     * Join the sides, passing each output row to the consumer until it returns false.
+     *
+     * @param leftOuter also output the left rows without a match, with no right columns
+     */
+    public Stats join(Side left, Side right, boolean leftOuter, Predicate<Map<String, Object>> output) {
+        Run run = new Run(left, right, leftOuter, output);
+        try {
+            run.execute();
+        } catch (StopJoin e) {
+            // The consumer has all the rows it wants
+        } finally {
+            run.deleteSpillFiles();
+        }
+        return run.stats;
+    }
+
+    /**
+     * Join key by value, so 42, 42L and 42.0 (or a BigDecimal 42.00) match each other
+     */
+    static Object normalizeKey(Object value) {
+        if (value == null) return null;
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof BigInteger || value instanceof BigDecimal || value instanceof Double || value instanceof Float) {
+            BigDecimal decimal = value instanceof BigDecimal d ? d
+                : value instanceof BigInteger i ? new BigDecimal(i)
+                : BigDecimal.valueOf(((Number) value).doubleValue());
+            decimal = decimal.stripTrailingZeros();
+            try {
+                return decimal.scale() <= 0 ? decimal.longValueExact() : decimal;
+            } catch (ArithmeticException e) {
+                return decimal;
+            }
+        }
+        if (value instanceof ObjectId objectId) return objectId.toHexString();
+        return value;
+    }
+
+    /**
+     * State of one join execution
+     */
+    private final class Run {
+        private final Side left;
+        private final Side right;
+        private final Side build;
+        private final Side probe;
+        private final boolean buildIsLeft;
+        private final boolean outerBuild;
+        private final boolean outerProbe;
+        private final Predicate<Map<String, Object>> output;
+        private final Stats stats;
+
+        private Map<Object, List<BuildRow>> table = new HashMap<>();
+        private final List<BuildRow> nullKeys = new ArrayList<>();
+        private long tableBytes;
+        private PartitionFile[] buildFiles;
+        private PartitionFile[] probeFiles;
+
+        Run(Side left, Side right, boolean leftOuter, Predicate<Map<String, Object>> output) {
+            this.left = left;
+            this.right = right;
+            this.buildIsLeft = left.estimatedRows <= right.estimatedRows;
+            this.build = buildIsLeft ? left : right;
+            this.probe = buildIsLeft ? right : left;
+            // An outer join reports the unmatched rows of the left side, built or probed
+            this.outerBuild = leftOuter && buildIsLeft;
+            this.outerProbe = leftOuter && !buildIsLeft;
+            this.output = output;
+            this.stats = new Stats(build.name);
+        }
+
+        void execute() {
+            build.rows.forEach(row -> {
+                stats.buildRows++;
+                Object key = normalizeKey(row.get(build.keyColumn));
+                if (key == null) {
+                    if (outerBuild) nullKeys.add(new BuildRow(row));
+                } else if (buildFiles != null) {
+                    buildFiles[partitionOf(key)].write(row);
+                } else {
+                    table.computeIfAbsent(key, k -> new ArrayList<>(1)).add(new BuildRow(row));
+                    tableBytes += ResultCache.weighRow(row) + 16;
+                    if (tableBytes > memoryBudgetBytes) spill();
+                }
+            });
+
+            if (buildFiles == null) {
+                probe.rows.forEach(row -> {
+                    stats.probeRows++;
+                    probe(row);
+                });
+                emitUnmatched(table);
+            } else {
+                probe.rows.forEach(row -> {
+                    stats.probeRows++;
+                    Object key = normalizeKey(row.get(probe.keyColumn));
+                    if (key == null) {
+                        if (outerProbe) emit(null, row);
+                    } else {
+                        probeFiles[partitionOf(key)].write(row);
+                    }
+                });
+                joinPartitions();
+            }
+
+            for (BuildRow row : nullKeys) {
+                emit(row.row, null);
+            }
+        }
+
+        /**
+         * Move the hash table to the build partition files; the rest of the build side follows it there
+         */
+        private void spill() {
+            buildFiles = new PartitionFile[partitions];
+            probeFiles = new PartitionFile[partitions];
+            for (int i = 0; i < partitions; i++) {
+                buildFiles[i] = new PartitionFile();
+                probeFiles[i] = new PartitionFile();
+            }
+            table.forEach((key, rows) -> rows.forEach(row -> buildFiles[partitionOf(key)].write(row.row)));
+            table = new HashMap<>();
+            tableBytes = 0;
+            stats.spilled = true;
+        }
+
+        private void joinPartitions() {
+            for (int i = 0; i < partitions; i++) {
+                if (buildFiles[i].rows == 0 && (probeFiles[i].rows == 0 || !outerProbe)) continue;
+                stats.spilledPartitions++;
+                stats.spilledBytes += buildFiles[i].size() + probeFiles[i].size();
+
+                Map<Object, List<BuildRow>> partition = new HashMap<>();
+                buildFiles[i].forEach(row -> partition
+                    .computeIfAbsent(normalizeKey(row.get(build.keyColumn)), k -> new ArrayList<>(1))
+                    .add(new BuildRow(row)));
+                table = partition;
+                probeFiles[i].forEach(this::probe);
+                emitUnmatched(partition);
+
+                buildFiles[i].delete();
+                probeFiles[i].delete();
+            }
+        }
+
+        private void probe(Map<String, Object> row) {
+            Object key = normalizeKey(row.get(probe.keyColumn));
+            List<BuildRow> matches = key != null ? table.get(key) : null;
+            if (matches == null) {
+                if (outerProbe) emit(null, row);
+                return;
+            }
+            for (BuildRow match : matches) {
+                match.matched = true;
+                emit(match.row, row);
+            }
+        }
+
+        private void emitUnmatched(Map<Object, List<BuildRow>> partition) {
+            if (!outerBuild) return;
+            for (List<BuildRow> rows : partition.values()) {
+                for (BuildRow row : rows) {
+                    if (!row.matched) emit(row.row, null);
+                }
+            }
+        }
+
+        private void emit(Map<String, Object> buildRow, Map<String, Object> probeRow) {
+            Map<String, Object> leftRow = buildIsLeft ? buildRow : probeRow;
+            Map<String, Object> rightRow = buildIsLeft ? probeRow : buildRow;
+            Map<String, Object> joined = new LinkedHashMap<>();
+            if (leftRow != null) leftRow.forEach((column, value) -> joined.put(left.name + "." + column, value));
+            if (rightRow != null) rightRow.forEach((column, value) -> joined.put(right.name + "." + column, value));
+            stats.outputRows++;
+            if (!output.test(joined)) throw new StopJoin();
+        }
+
+        private int partitionOf(Object key) {
+            int hash = key.hashCode() * 0x9E3779B9;
+            return Math.floorMod(hash ^ (hash >>> 16), partitions);
+        }
+
+        void deleteSpillFiles() {
+            if (buildFiles == null) return;
+            for (int i = 0; i < partitions; i++) {
+                buildFiles[i].delete();
+                probeFiles[i].delete();
+            }
+        }
+    }
+
+    private static final class BuildRow {
+        private final Map<String, Object> row;
+        private boolean matched;
+
+        BuildRow(Map<String, Object> row) {
+            this.row = row;
+        }
+    }
+
+    /**
+     * Rows of one partition of one side, written with Java serialization and read back once
+     */
+    private final class PartitionFile {
+        private Path path;
+        private ObjectOutputStream out;
+        private long rows;
+
+        void write(Map<String, Object> row) {
+            try {
+                if (out == null) {
+                    path = Files.createTempFile(spillDirectory, "engdb-join-", ".spill");
+                    out = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(path)));
+                }
+                out.writeObject(row);
+                // Without resets the stream keeps a reference to every row written
+                if (++rows % RESET_INTERVAL == 0) out.reset();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not spill join rows to " + spillDirectory, e);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        void forEach(Consumer<Map<String, Object>> consumer) {
+            if (path == null) return;
+            try {
+                out.close();
+                out = null;
+                try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+                    for (long i = 0; i < rows; i++) {
+                        consumer.accept((Map<String, Object>) in.readObject());
+                    }
+                }
+            } catch (EOFException e) {
+                throw new IllegalStateException("Join spill file " + path + " is truncated", e);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read join spill file " + path, e);
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        long size() {
+            try {
+                if (out != null) out.flush();
+                return path != null ? Files.size(path) : 0;
+            } catch (IOException e) {
+                return 0;
+            }
+        }
+
+        void delete() {
+            try {
+                if (out != null) out.close();
+                if (path != null) Files.deleteIfExists(path);
+            } catch (IOException e) {
+                // Best effort: the file is in the temp directory
+            }
+            out = null;
+            path = null;
+        }
+    }
+
+    private static final class StopJoin extends RuntimeException {
+        StopJoin() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * What the join did: which side was built, rows read and written, and how much it spilled
+     */
+    public static class Stats {
+        private final String buildSide;
+        private long buildRows;
+        private long probeRows;
+        private long outputRows;
+        private boolean spilled;
+        private int spilledPartitions;
+        private long spilledBytes;
+
+        Stats(String buildSide) {
+            this.buildSide = buildSide;
+        }
+
+        public String getBuildSide() { return buildSide; }
+        public long getBuildRows() { return buildRows; }
+        public long getProbeRows() { return probeRows; }
+        public long getOutputRows() { return outputRows; }
+        public boolean isSpilled() { return spilled; }
+        public int getSpilledPartitions() { return spilledPartitions; }
+        public long getSpilledBytes() { return spilledBytes; }
+
+        @Override
+        public String toString() {
+            return "build=" + buildSide + " (" + buildRows + " rows), probe=" + probeRows + " rows, output=" + outputRows
+                + (spilled ? ", spilled " + spilledPartitions + " partitions (" + spilledBytes + " bytes)" : "");
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.rca.engdb.exec;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Caps the number of request threads using JDBC at once below the size of the connection pool.
+ *
+ * With virtual threads every waiting request has its own thread, so thousands of them
+ * can reach the pool together and fail with Hikari connection timeouts. Requests
+ * instead queue here, in arrival order, for a permit: query execution, the cost guard's
+ * EXPLAIN and the result cache's UPDATE_TIME poll. Work that borrows connections without a
+ * permit (schema discovery, statistics collection, replica and materialized aggregate
+ * loads) runs on a few background threads, and engdb.jdbc.reserved-connections of the pool
+ * are left to it, so a permit holder normally finds a free connection.
+ */
+@Service
+public class JdbcConcurrencyLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(JdbcConcurrencyLimiter.class);
+
+    // Hikari's default maximum-pool-size
+    private static final int DEFAULT_POOL_SIZE = 10;
+
+    private final Semaphore permits;
+    private final int maxConcurrency;
+    private final long acquireTimeoutMs;
+
+    public JdbcConcurrencyLimiter(DataSource dataSource,
+                                  @Value("${engdb.jdbc.max-concurrency:0}") int maxConcurrency,
+                                  @Value("${engdb.jdbc.reserved-connections:3}") int reservedConnections,
+                                  @Value("${engdb.jdbc.acquire-timeout-ms:30000}") long acquireTimeoutMs) {
+        // 0 = size of the Hikari pool, less the connections reserved for work without a permit
+        this.maxConcurrency = maxConcurrency > 0 ? maxConcurrency
+            : Math.max(1, poolSize(dataSource) - Math.max(0, reservedConnections));
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.permits = new Semaphore(this.maxConcurrency, true);
+        logger.info("JDBC concurrency limited to {}", this.maxConcurrency);
+    }
+
+    private static int poolSize(DataSource dataSource) {
+        try {
+            if (dataSource != null && dataSource.isWrapperFor(HikariDataSource.class)) {
+                return dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+            }
+        } catch (Exception e) {
+            logger.debug("Could not read connection pool size: {}", e.getMessage());
+        }
+        return DEFAULT_POOL_SIZE;
+    }
+
+    /**
+     * Run JDBC work once a permit is available.
+     * Throws CannotGetJdbcConnectionException if none frees up within the acquire timeout,
+     * or the query's own timeout exception if its deadline comes first.
+     */
+    public <T> T execute(Supplier<T> work) {
+        // A request never waits past its own deadline
+        QueryContext context = QueryContext.current();
+        long waitMs = context != null ? Math.min(acquireTimeoutMs, context.remainingMs()) : acquireTimeoutMs;
+        try {
+            if (!permits.tryAcquire(waitMs, TimeUnit.MILLISECONDS)) {
+                if (context != null) context.checkActive();
+                throw new CannotGetJdbcConnectionException(
+                    "Timed out after " + acquireTimeoutMs + "ms waiting for one of " + maxConcurrency + " database connections");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CannotGetJdbcConnectionException("Interrupted while waiting for a database connection");
+        }
+
+        try {
+            return work.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+
+    public int getQueueLength() {
+        return permits.getQueueLength();
+    }
+}
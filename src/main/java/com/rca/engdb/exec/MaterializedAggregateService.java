@@ -0,0 +1,476 @@
+package com.rca.engdb.exec;
+
+import com.rca.engdb.ast.ConditionNode;
+import com.rca.engdb.ast.QueryAST;
+import com.rca.engdb.ml.IntentType;
+import com.rca.engdb.schema.TableStatistics;
+import com.rca.engdb.schema.TableStatisticsService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.util.LinkedCaseInsensitiveMap;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory materialized aggregates for the aggregate questions asked over and over with
+ * different literals ("how many orders are paid", "... are shipped").
+ *
+ * Opt-in with engdb.materialized.enabled. Every single-table COUNT, SUM, AVG, MAX or MIN is
+ * reduced to its shape: the table, the columns its conditions test and the aggregated column.
+ * A shape asked at least engdb.materialized.min-hits times within one refresh interval is
+ * materialized as one row per distinct combination of its condition columns holding the
+ * partial count, sum, minimum and maximum, as long as there are at most
+ * engdb.materialized.max-groups of them. Later questions of that shape, with any literals and
+ * operators, are answered by merging the matching groups instead of scanning the table.
+ *
+ * Each refresh aggregates only the rows past the high-water mark of the table's single-column
+ * primary key, or of the column set in engdb.materialized.watermark-column.<table> (a creation
+ * timestamp). Updates and deletes, and rows committed below the mark, are only seen by the full
+ * rebuild every engdb.materialized.rebuild-interval-ms; an aggregate not used since its last
+ * rebuild is dropped instead. Shapes that could not be materialized are tried again after the
+ * same interval.
+ */
+@Service
+public class MaterializedAggregateService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MaterializedAggregateService.class);
+
+    // MySQL's div_precision_increment: AVG has the scale of its argument plus 4
+    private static final int AVERAGE_SCALE_INCREMENT = 4;
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TableStatisticsService statisticsService;
+    private final Environment environment;
+    private final boolean enabled;
+    private final int minHits;
+    private final int maxAggregates;
+    private final int maxGroups;
+    private final long rebuildIntervalMs;
+
+    // Questions per shape since the last refresh
+    private final Map<Shape, LongAdder> observed = new ConcurrentHashMap<>();
+    private final Map<Shape, Aggregate> aggregates = new ConcurrentHashMap<>();
+    // Shapes that could not be materialized (too many groups, no watermark) -> when; retried
+    // after a rebuild interval, as the table or its configuration may have changed
+    private final Map<Shape, Long> rejected = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService refreshExecutor;
+
+    public MaterializedAggregateService(JdbcTemplate jdbcTemplate,
+                                        TableStatisticsService statisticsService,
+                                        Environment environment,
+                                        @Value("${engdb.materialized.enabled:false}") boolean enabled,
+                                        @Value("${engdb.materialized.min-hits:20}") int minHits,
+                                        @Value("${engdb.materialized.max-aggregates:32}") int maxAggregates,
+                                        @Value("${engdb.materialized.max-groups:10000}") int maxGroups,
+                                        @Value("${engdb.materialized.refresh-interval-ms:60000}") long refreshIntervalMs,
+                                        @Value("${engdb.materialized.rebuild-interval-ms:3600000}") long rebuildIntervalMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.statisticsService = statisticsService;
+        this.environment = environment;
+        this.enabled = enabled;
+        this.minHits = minHits;
+        this.maxAggregates = maxAggregates;
+        this.maxGroups = maxGroups;
+        this.rebuildIntervalMs = rebuildIntervalMs;
+
+        // Refreshes only wait on MySQL: one at a time on a virtual thread
+        if (enabled && refreshIntervalMs > 0) {
+            refreshExecutor = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofVirtual().name("materialized-aggregate-refresh").factory());
+            refreshExecutor.scheduleWithFixedDelay(this::refresh, refreshIntervalMs, refreshIntervalMs, TimeUnit.MILLISECONDS);
+        } else {
+            refreshExecutor = null;
+        }
+    }
+
+    /**
+     * Answer an aggregate query from the materialized aggregate of its shape, or null if
+     * there is none yet (the question is counted towards materializing it)
+     */
+    public QueryExecutor.QueryResult execute(QueryAST ast) {
+        if (!enabled) return null;
+        Shape shape = Shape.of(ast);
+        if (shape == null) return null;
+
+        Aggregate aggregate = aggregates.get(shape);
+        if (aggregate == null) {
+            if (!isRejected(shape)) {
+                observed.computeIfAbsent(shape, key -> new LongAdder()).increment();
+            }
+            return null;
+        }
+
+        long startTime = System.currentTimeMillis();
+        Snapshot snapshot = aggregate.snapshot;
+        BitSet groups;
+        try {
+            groups = snapshot.keys.filter(ast.getWhereConditions());
+        } catch (ReplicaCannotAnswerException e) {
+            logger.debug("Materialized aggregate of {} cannot answer the query: {}", shape, e.getMessage());
+            return null;
+        }
+        aggregate.hits.increment();
+
+        Map<String, Object> row = new LinkedCaseInsensitiveMap<>();
+        row.put(label(ast), merge(ast, snapshot.partials, groups));
+        return new QueryExecutor.QueryResult(List.of(row), 1, System.currentTimeMillis() - startTime, true, null);
+    }
+
+    /**
+     * Age of the data a query of this shape would be answered from, or null if it has no
+     * materialized aggregate: the time since its last full rebuild, the only point at which
+     * updates and deletes below the high-water mark are seen
+     */
+    public Long ageMs(QueryAST ast) {
+        Shape shape = enabled ? Shape.of(ast) : null;
+        Aggregate aggregate = shape != null ? aggregates.get(shape) : null;
+        return aggregate != null ? System.currentTimeMillis() - aggregate.builtAt : null;
+    }
+
+    /**
+     * Materialize the shapes asked often enough since the last refresh, bring the existing
+     * aggregates up to date and rebuild (or drop, if unused) those due for a rebuild
+     */
+    public void refresh() {
+        rejected.keySet().removeIf(shape -> !isRejected(shape));
+        Map<Shape, Long> asked = new HashMap<>();
+        observed.forEach((shape, count) -> asked.put(shape, count.sum()));
+        observed.clear();
+
+        for (Aggregate aggregate : List.copyOf(aggregates.values())) {
+            try {
+                boolean rebuild = System.currentTimeMillis() - aggregate.builtAt >= rebuildIntervalMs;
+                if (rebuild && aggregate.hits.sum() == aggregate.hitsAtBuild) {
+                    logger.info("Dropping unused materialized aggregate {}", aggregate.shape);
+                    aggregates.remove(aggregate.shape);
+                } else if (rebuild) {
+                    build(aggregate.shape, aggregate);
+                } else {
+                    update(aggregate);
+                }
+            } catch (Exception e) {
+                logger.warn("Failed to refresh materialized aggregate {}: {}", aggregate.shape, e.getMessage());
+            }
+        }
+
+        asked.entrySet().stream()
+            .filter(entry -> entry.getValue() >= minHits && !aggregates.containsKey(entry.getKey()))
+            .sorted(Map.Entry.<Shape, Long>comparingByValue().reversed())
+            .forEach(entry -> {
+                if (aggregates.size() >= maxAggregates) return;
+                try {
+                    build(entry.getKey(), null);
+                } catch (Exception e) {
+                    logger.warn("Failed to materialize {}: {}", entry.getKey(), e.getMessage());
+                }
+            });
+    }
+
+    /**
+     * Aggregate the whole table up to its current high-water mark
+     */
+    private void build(Shape shape, Aggregate previous) {
+        String watermarkColumn = watermarkColumn(shape);
+        if (watermarkColumn == null) {
+            logger.debug("Not materializing {}: no primary key or watermark column", shape);
+            reject(shape);
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+        Object high = highWatermark(shape, watermarkColumn);
+        Map<List<Object>, Partial> groups = new LinkedHashMap<>();
+        if (high != null && !mergeGroups(shape, groups, watermarkColumn + " <= ?", high)) {
+            reject(shape);
+            return;
+        }
+
+        Aggregate aggregate = new Aggregate(shape, watermarkColumn, previous);
+        aggregate.groups = groups;
+        aggregate.watermark = high;
+        aggregate.snapshot = snapshot(shape, groups);
+        aggregates.put(shape, aggregate);
+        logger.info("Materialized {}: {} groups in {} ms", shape, groups.size(), System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * Merge the rows past the high-water mark into the groups
+     */
+    private void update(Aggregate aggregate) {
+        Object high = highWatermark(aggregate.shape, aggregate.watermarkColumn);
+        if (high == null || high.equals(aggregate.watermark)) {
+            return;
+        }
+
+        boolean merged = aggregate.watermark == null
+            ? mergeGroups(aggregate.shape, aggregate.groups, aggregate.watermarkColumn + " <= ?", high)
+            : mergeGroups(aggregate.shape, aggregate.groups,
+                aggregate.watermarkColumn + " > ? AND " + aggregate.watermarkColumn + " <= ?", aggregate.watermark, high);
+        if (!merged) {
+            reject(aggregate.shape);
+            return;
+        }
+        aggregate.watermark = high;
+        aggregate.snapshot = snapshot(aggregate.shape, aggregate.groups);
+    }
+
+    private Object highWatermark(Shape shape, String watermarkColumn) {
+        return jdbcTemplate.queryForObject(
+            "SELECT MAX(" + watermarkColumn + ") FROM " + shape.database + "." + shape.table, Object.class);
+    }
+
+    /**
+     * Add the partial aggregates of the rows in a watermark range to the groups; false if
+     * that makes more than engdb.materialized.max-groups
+     */
+    private boolean mergeGroups(Shape shape, Map<List<Object>, Partial> groups, String range, Object... bounds) {
+        StringBuilder sql = new StringBuilder("SELECT ");
+        for (String column : shape.groupColumns) {
+            sql.append(column).append(", ");
+        }
+        sql.append("COUNT(*) AS agg_rows");
+        if (shape.column != null) {
+            sql.append(", COUNT(").append(shape.column).append(") AS agg_count")
+               .append(", SUM(").append(shape.column).append(") AS agg_sum")
+               .append(", MIN(").append(shape.column).append(") AS agg_min")
+               .append(", MAX(").append(shape.column).append(") AS agg_max");
+        }
+        sql.append(" FROM ").append(shape.database).append(".").append(shape.table).append(" WHERE ").append(range);
+        if (!shape.groupColumns.isEmpty()) {
+            sql.append(" GROUP BY ").append(String.join(", ", shape.groupColumns));
+        }
+        sql.append(" LIMIT ").append(maxGroups + 1);
+
+        for (Map<String, Object> row : jdbcTemplate.queryForList(sql.toString(), bounds)) {
+            List<Object> key = new ArrayList<>(shape.groupColumns.size());
+            for (String column : shape.groupColumns) {
+                key.add(row.get(column));
+            }
+            Partial delta = new Partial(((Number) row.get("agg_rows")).longValue(),
+                row.get("agg_count") != null ? ((Number) row.get("agg_count")).longValue() : 0,
+                row.get("agg_sum"), row.get("agg_min"), row.get("agg_max"));
+            groups.merge(key, delta, Partial::plus);
+            if (groups.size() > maxGroups) {
+                logger.debug("Not materializing {}: more than {} groups", shape, maxGroups);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Snapshot snapshot(Shape shape, Map<List<Object>, Partial> groups) {
+        List<Map<String, Object>> keys = new ArrayList<>(groups.size());
+        Partial[] partials = new Partial[groups.size()];
+        int i = 0;
+        for (Map.Entry<List<Object>, Partial> group : groups.entrySet()) {
+            Map<String, Object> key = new LinkedCaseInsensitiveMap<>();
+            for (int c = 0; c < shape.groupColumns.size(); c++) {
+                key.put(shape.groupColumns.get(c), group.getKey().get(c));
+            }
+            keys.add(key);
+            partials[i++] = group.getValue();
+        }
+        return new Snapshot(ColumnarTable.of(shape.table, shape.groupColumns, keys), partials);
+    }
+
+    private String watermarkColumn(Shape shape) {
+        String configured = environment.getProperty("engdb.materialized.watermark-column." + shape.table);
+        if (configured != null && IDENTIFIER.matcher(configured).matches()) return configured;
+
+        TableStatistics statistics = statisticsService.getStatistics(shape.database, shape.table);
+        TableStatistics.IndexDefinition primaryKey = statistics != null ? statistics.getIndexes().get("PRIMARY") : null;
+        return primaryKey != null && primaryKey.getColumns().size() == 1 ? primaryKey.getColumns().get(0) : null;
+    }
+
+    private void reject(Shape shape) {
+        aggregates.remove(shape);
+        rejected.put(shape, System.currentTimeMillis());
+    }
+
+    private boolean isRejected(Shape shape) {
+        Long rejectedAt = rejected.get(shape);
+        return rejectedAt != null && System.currentTimeMillis() - rejectedAt < rebuildIntervalMs;
+    }
+
+    /**
+     * Combine the partial aggregates of the matching groups as the aggregate over their rows,
+     * typed the way MySQL types it
+     */
+    private static Object merge(QueryAST ast, Partial[] partials, BitSet groups) {
+        long rows = 0;
+        long count = 0;
+        Object sum = null;
+        Object min = null;
+        Object max = null;
+        for (int i = groups.nextSetBit(0); i >= 0; i = groups.nextSetBit(i + 1)) {
+            Partial partial = partials[i];
+            rows += partial.rows;
+            count += partial.count;
+            sum = Partial.add(sum, partial.sum);
+            min = Partial.extreme(min, partial.min, false);
+            max = Partial.extreme(max, partial.max, true);
+        }
+        return switch (ast.getIntent()) {
+            case COUNT -> ast.getAggregateColumn() == null ? rows : count;
+            case SUM -> sum;
+            case MAX -> max;
+            case MIN -> min;
+            default -> average(sum, count);
+        };
+    }
+
+    private static Object average(Object sum, long count) {
+        if (sum == null || count == 0) return null;
+        if (sum instanceof Double || sum instanceof Float) {
+            return ((Number) sum).doubleValue() / count;
+        }
+        BigDecimal total = FanOutExecutor.toBigDecimal((Number) sum);
+        return total.divide(BigDecimal.valueOf(count), total.scale() + AVERAGE_SCALE_INCREMENT, RoundingMode.HALF_UP);
+    }
+
+    private static String label(QueryAST ast) {
+        String column = ast.getAggregateColumn();
+        if (ast.getIntent() == IntentType.COUNT) {
+            return "COUNT(" + (column != null ? column : "*") + ")";
+        }
+        return ast.getIntent().name() + "(" + (column != null ? column : "id") + ")";
+    }
+
+    /**
+     * Per-aggregate size, age and how often it answered
+     */
+    public Map<String, Map<String, Long>> getStats() {
+        Map<String, Map<String, Long>> stats = new LinkedHashMap<>();
+        long now = System.currentTimeMillis();
+        aggregates.values().stream().sorted((a, b) -> a.shape.toString().compareTo(b.shape.toString())).forEach(aggregate -> {
+            Map<String, Long> entry = new LinkedHashMap<>();
+            entry.put("groups", (long) aggregate.snapshot.partials.length);
+            entry.put("ageMs", now - aggregate.builtAt);
+            entry.put("hits", aggregate.hits.sum());
+            stats.put(aggregate.shape.toString(), entry);
+        });
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (refreshExecutor != null) refreshExecutor.shutdownNow();
+    }
+
+    /**
+     * What a materialized aggregate can answer: aggregates of one column (null for COUNT(*))
+     * of one table, under AND-ed conditions on the group columns with any literals
+     */
+    private record Shape(String database, String table, List<String> groupColumns, String column) {
+
+        static Shape of(QueryAST ast) {
+            IntentType intent = ast.getIntent();
+            if (intent != IntentType.COUNT && intent != IntentType.SUM && intent != IntentType.AVG
+                    && intent != IntentType.MAX && intent != IntentType.MIN) {
+                return null;
+            }
+            if (ast.getTargetTable() == null || ast.getDatabaseName() == null || !ast.getJoins().isEmpty()) return null;
+            String table = plainName(ast.getTargetTable());
+            if (!IDENTIFIER.matcher(table).matches() || !IDENTIFIER.matcher(ast.getDatabaseName()).matches()) return null;
+
+            Set<String> groupColumns = new TreeSet<>();
+            for (ConditionNode condition : ast.getWhereConditions()) {
+                if (condition.getLogicalOperator() == ConditionNode.LogicalOperator.OR) return null;
+                String column = plainName(condition.getColumn());
+                if (!IDENTIFIER.matcher(column).matches()) return null;
+                groupColumns.add(column);
+            }
+
+            String column = ast.getAggregateColumn() != null ? plainName(ast.getAggregateColumn())
+                : intent == IntentType.COUNT ? null : "id";
+            if (column != null && !IDENTIFIER.matcher(column).matches()) return null;
+            return new Shape(ast.getDatabaseName(), table, List.copyOf(groupColumns), column);
+        }
+
+        private static String plainName(String column) {
+            return column.substring(column.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+        }
+
+        @Override
+        public String toString() {
+            return database + "." + table + "(" + (column != null ? column : "*") + ") by " + groupColumns;
+        }
+    }
+
+    /**
+     * Partial aggregates of one group: rows, non-NULL values of the column, their sum,
+     * minimum and maximum
+     */
+    private record Partial(long rows, long count, Object sum, Object min, Object max) {
+
+        Partial plus(Partial other) {
+            return new Partial(rows + other.rows, count + other.count, add(sum, other.sum),
+                extreme(min, other.min, false), extreme(max, other.max, true));
+        }
+
+        static Object add(Object a, Object b) {
+            if (a == null) return b;
+            if (b == null) return a;
+            return FanOutExecutor.add(a, b);
+        }
+
+        static Object extreme(Object a, Object b, boolean max) {
+            if (a == null) return b;
+            if (b == null) return a;
+            int comparison = FanOutExecutor.compare(a, b);
+            return (max ? comparison >= 0 : comparison <= 0) ? a : b;
+        }
+    }
+
+    /**
+     * What queries read: the group keys, for filtering, and their partial aggregates in the same order
+     */
+    private record Snapshot(ColumnarTable keys, Partial[] partials) {
+    }
+
+    private static final class Aggregate {
+        private final Shape shape;
+        private final String watermarkColumn;
+        private final long builtAt = System.currentTimeMillis();
+        private final LongAdder hits;
+        private final long hitsAtBuild;
+
+        // Owned by the refresh thread
+        private Map<List<Object>, Partial> groups;
+        private Object watermark;
+
+        private volatile Snapshot snapshot;
+
+        Aggregate(Shape shape, String watermarkColumn, Aggregate previous) {
+            this.shape = shape;
+            this.watermarkColumn = watermarkColumn;
+            // Hits survive rebuilds
+            this.hits = previous != null ? previous.hits : new LongAdder();
+            this.hitsAtBuild = hits.sum();
+        }
+    }
+}
@@ -2,18 +2,28 @@ package com.rca.engdb.exec;
 
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.BsonField;
+import com.mongodb.client.model.CountOptions;
 import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 @Service
 public class MongoQueryExecutor {
 
+    private static final String DEFAULT_DATABASE = "engdb";
+
     private final MongoClient mongoClient;
 
     public MongoQueryExecutor(MongoClient mongoClient) {
@@ -25,21 +35,41 @@ public class MongoQueryExecutor {
      * Note: This is a simplified implementation that executes basic find queries
      */
     public QueryExecutor.QueryResult executeMongoQuery(String collectionName, Document filter, Document projection) {
+        return executeMongoQuery(DEFAULT_DATABASE, collectionName, filter, projection, null, null);
+    }
+
+    /**
+     * Execute a find query against a specific database, optionally sorted and limited.
+     * A sort with a limit lets MongoDB walk an index in order and stop early.
+     */
+    public QueryExecutor.QueryResult executeMongoQuery(String dbName, String collectionName, Document filter,
+                                                       Document projection, Document sort, Integer limit) {
         long startTime = System.currentTimeMillis();
         
         try {
-            MongoDatabase database = mongoClient.getDatabase("engdb");
+            MongoDatabase database = mongoClient.getDatabase(databaseName(dbName));
             MongoCollection<Document> collection = database.getCollection(collectionName);
             
             List<Map<String, Object>> results = new ArrayList<>();
             
-            // Execute find query
-            for (Document doc : collection.find(filter).projection(projection)) {
-                Map<String, Object> row = new HashMap<>();
-                for (String key : doc.keySet()) {
-                    row.put(key, doc.get(key));
+            // Execute find query, stopped by the server at the request deadline
+            var cursor = collection.find(filter).projection(projection).maxTime(maxTimeMs(), TimeUnit.MILLISECONDS);
+            if (sort != null && !sort.isEmpty()) {
+                cursor = cursor.sort(sort);
+            }
+            if (limit != null) {
+                cursor = cursor.limit(limit);
+            }
+            try (MongoCursor<Document> documents = cursor.iterator();
+                 QueryContext.Registration ignored = onCancel(documents::close)) {
+                while (documents.hasNext()) {
+                    Document doc = documents.next();
+                    Map<String, Object> row = new HashMap<>();
+                    for (String key : doc.keySet()) {
+                        row.put(key, doc.get(key));
+                    }
+                    results.add(row);
                 }
-                results.add(row);
             }
             
             long executionTime = System.currentTimeMillis() - startTime;
@@ -59,22 +89,56 @@ public class MongoQueryExecutor {
                 0,
                 executionTime,
                 false,
-                e.getMessage()
+                QueryExecutor.errorMessage(e)
             );
         }
     }
 
+    /**
+     * Stream the matching documents to the consumer as the cursor returns them, for
+     * operators that read more documents than they keep (the federated join).
+     * Returns the number of documents read; failures are thrown.
+     */
+    public long streamMongoQuery(String dbName, String collectionName, Document filter, Document projection,
+                                 Consumer<Map<String, Object>> rows) {
+        MongoCollection<Document> collection = mongoClient.getDatabase(databaseName(dbName)).getCollection(collectionName);
+        long count = 0;
+        try (MongoCursor<Document> documents = collection.find(filter).projection(projection)
+                .maxTime(maxTimeMs(), TimeUnit.MILLISECONDS).iterator();
+             QueryContext.Registration ignored = onCancel(documents::close)) {
+            while (documents.hasNext()) {
+                rows.accept(new HashMap<>(documents.next()));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Number of documents in a collection from its metadata, without scanning it
+     */
+    public long estimateDocumentCount(String dbName, String collectionName) {
+        return mongoClient.getDatabase(databaseName(dbName)).getCollection(collectionName).estimatedDocumentCount();
+    }
+
     /**
      * Execute count query
      */
     public QueryExecutor.QueryResult executeCountQuery(String collectionName, Document filter) {
+        return executeCountQuery(DEFAULT_DATABASE, collectionName, filter);
+    }
+
+    /**
+     * Execute count query against a specific database
+     */
+    public QueryExecutor.QueryResult executeCountQuery(String dbName, String collectionName, Document filter) {
         long startTime = System.currentTimeMillis();
         
         try {
-            MongoDatabase database = mongoClient.getDatabase("engdb");
+            MongoDatabase database = mongoClient.getDatabase(databaseName(dbName));
             MongoCollection<Document> collection = database.getCollection(collectionName);
             
-            long count = collection.countDocuments(filter);
+            long count = collection.countDocuments(filter, new CountOptions().maxTime(maxTimeMs(), TimeUnit.MILLISECONDS));
             
             List<Map<String, Object>> results = new ArrayList<>();
             Map<String, Object> result = new HashMap<>();
@@ -98,8 +162,84 @@ public class MongoQueryExecutor {
                 0,
                 executionTime,
                 false,
-                e.getMessage()
+                QueryExecutor.errorMessage(e)
+            );
+        }
+    }
+
+    /**
+     * Execute a single-value aggregation ($sum, $avg, $max, $min) over the matching documents
+     */
+    public QueryExecutor.QueryResult executeAggregateQuery(String dbName, String collectionName, Document filter,
+                                                           String operator, String field) {
+        long startTime = System.currentTimeMillis();
+
+        try {
+            MongoDatabase database = mongoClient.getDatabase(databaseName(dbName));
+            MongoCollection<Document> collection = database.getCollection(collectionName);
+
+            String expression = "$" + field;
+            BsonField accumulator;
+            switch (operator) {
+                case "sum": accumulator = Accumulators.sum("result", expression); break;
+                case "avg": accumulator = Accumulators.avg("result", expression); break;
+                case "max": accumulator = Accumulators.max("result", expression); break;
+                case "min": accumulator = Accumulators.min("result", expression); break;
+                default: throw new IllegalArgumentException("Unsupported aggregation: " + operator);
+            }
+
+            List<Bson> pipeline = new ArrayList<>();
+            if (!filter.isEmpty()) {
+                pipeline.add(Aggregates.match(filter));
+            }
+            pipeline.add(Aggregates.group(null, accumulator));
+
+            List<Map<String, Object>> results = new ArrayList<>();
+            Document doc = collection.aggregate(pipeline).maxTime(maxTimeMs(), TimeUnit.MILLISECONDS).first();
+            if (doc != null) {
+                Map<String, Object> row = new HashMap<>();
+                row.put(operator, doc.get("result"));
+                results.add(row);
+            }
+
+            long executionTime = System.currentTimeMillis() - startTime;
+
+            return new QueryExecutor.QueryResult(
+                results,
+                results.size(),
+                executionTime,
+                true,
+                null
+            );
+
+        } catch (Exception e) {
+            long executionTime = System.currentTimeMillis() - startTime;
+            return new QueryExecutor.QueryResult(
+                new ArrayList<>(),
+                0,
+                executionTime,
+                false,
+                QueryExecutor.errorMessage(e)
             );
         }
     }
+
+    /**
+     * maxTimeMS for the current request's remaining time; 0 (no limit) outside a request
+     */
+    private long maxTimeMs() {
+        QueryContext context = QueryContext.current();
+        if (context == null) return 0;
+        context.checkActive();
+        return Math.max(1, context.remainingMs());
+    }
+
+    private QueryContext.Registration onCancel(Runnable action) {
+        QueryContext context = QueryContext.current();
+        return context != null ? context.onCancel(action) : () -> { };
+    }
+
+    private String databaseName(String dbName) {
+        return dbName == null || dbName.isEmpty() ? DEFAULT_DATABASE : dbName;
+    }
 }
@@ -0,0 +1,164 @@
+package com.rca.engdb.exec;
+
+import org.springframework.dao.QueryTimeoutException;
+
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Deadline and cancellation state of one query request.
+ *
+ * The context is bound to the request thread for the duration of the request, so every
+ * stage (bulkhead and connection waits, the OpenRouter call, JDBC and MongoDB execution)
+ * can bound its wait by the remaining time without threading it through each signature.
+ * Stages that block in another system register a cancel action (Statement.cancel, cursor
+ * close, Future.cancel) which runs when the query is cancelled.
+ */
+public class QueryContext implements AutoCloseable {
+
+    private static final ThreadLocal<QueryContext> CURRENT = new ThreadLocal<>();
+
+    private final String queryId;
+    private final long timeoutMs;
+    private final long deadlineNanos;
+    private final QueryContext previous;
+    private final Set<Runnable> cancelActions = ConcurrentHashMap.newKeySet();
+    private volatile boolean cancelled;
+
+    private QueryContext(String queryId, long timeoutMs, QueryContext previous) {
+        this.queryId = queryId;
+        this.timeoutMs = timeoutMs;
+        this.deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        this.previous = previous;
+    }
+
+    /**
+     * Start a query with the given timeout and bind it to the current thread until closed
+     */
+    public static QueryContext open(String queryId, long timeoutMs) {
+        QueryContext context = new QueryContext(queryId, timeoutMs, CURRENT.get());
+        CURRENT.set(context);
+        return context;
+    }
+
+    /**
+     * Context of the query running on this thread, or null outside a request
+     */
+    public static QueryContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Wrap work so it runs bound to this context on whichever thread executes it,
+     * for stages that fan out to other threads
+     */
+    public <T> Supplier<T> propagate(Supplier<T> work) {
+        return () -> {
+            QueryContext bound = CURRENT.get();
+            CURRENT.set(this);
+            try {
+                return work.get();
+            } finally {
+                if (bound != null) {
+                    CURRENT.set(bound);
+                } else {
+                    CURRENT.remove();
+                }
+            }
+        };
+    }
+
+    public String getQueryId() {
+        return queryId;
+    }
+
+    public long getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    /**
+     * Time left until the deadline, rounded up so a wait of this length reaches it
+     */
+    public long remainingMs() {
+        long remainingNanos = deadlineNanos - System.nanoTime();
+        return remainingNanos <= 0 ? 0 : (remainingNanos + 999_999) / 1_000_000;
+    }
+
+    public boolean isExpired() {
+        return System.nanoTime() - deadlineNanos >= 0;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Throw if the query was cancelled or its deadline has passed
+     */
+    public void checkActive() {
+        if (cancelled) {
+            throw new CancellationException("Query " + queryId + " was cancelled");
+        }
+        if (isExpired()) {
+            throw new QueryTimeoutException("Query " + queryId + " exceeded its deadline of " + timeoutMs + "ms");
+        }
+    }
+
+    /**
+     * Check the query on the current thread, if any
+     */
+    public static void checkCurrent() {
+        QueryContext context = CURRENT.get();
+        if (context != null) context.checkActive();
+    }
+
+    /**
+     * Run the action if the query is cancelled while the registration is open.
+     * Runs immediately if the query is already cancelled.
+     */
+    public Registration onCancel(Runnable action) {
+        cancelActions.add(action);
+        if (cancelled && cancelActions.remove(action)) {
+            action.run();
+        }
+        return () -> cancelActions.remove(action);
+    }
+
+    /**
+     * Cancel the query: stages still waiting fail and in-flight work is aborted
+     */
+    public void cancel() {
+        cancelled = true;
+        for (Runnable action : cancelActions) {
+            if (cancelActions.remove(action)) {
+                try {
+                    action.run();
+                } catch (RuntimeException e) {
+                    // Best effort: the work may have finished in the meantime
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (CURRENT.get() == this) {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    /**
+     * Handle of a cancel action, closed once the guarded work has finished
+     */
+    public interface Registration extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -1,37 +1,163 @@
 package com.rca.engdb.exec;
 
+import com.rca.engdb.engine.SqlStatement;
+import com.rca.engdb.metrics.JdbcExecutionEvent;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.Query;
+import org.springframework.jdbc.core.ColumnMapRowMapper;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.StatementCreatorUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Service
 public class QueryExecutor {
+
+    private static final Pattern LEADING_SELECT = Pattern.compile("^\\s*SELECT\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern MAX_EXECUTION_TIME = Pattern.compile("MAX_EXECUTION_TIME", Pattern.CASE_INSENSITIVE);
+    private static final int STREAM_FETCH_SIZE = 1000;
     
     private final org.springframework.jdbc.core.JdbcTemplate jdbcTemplate;
+    private final JdbcConcurrencyLimiter concurrencyLimiter;
 
-    public QueryExecutor(org.springframework.jdbc.core.JdbcTemplate jdbcTemplate) {
+    public QueryExecutor(org.springframework.jdbc.core.JdbcTemplate jdbcTemplate, JdbcConcurrencyLimiter concurrencyLimiter) {
         this.jdbcTemplate = jdbcTemplate;
+        this.concurrencyLimiter = concurrencyLimiter;
     }
 
     /**
      * Execute SQL query and return results
      */
     public QueryResult executeSQLQuery(String sql) {
+        QueryContext context = QueryContext.current();
+        if (context != null) {
+            return execute(sql, () -> queryWithDeadline(sql, new Object[0], new int[0], context));
+        }
+        return execute(sql, () -> jdbcTemplate.queryForList(sql));
+    }
+
+    /**
+     * Execute a parameterized SQL statement, binding each parameter with its JDBC type
+     */
+    public QueryResult executeSQLQuery(SqlStatement statement) {
+        if (statement.getParameters().isEmpty()) {
+            return executeSQLQuery(statement.getSql());
+        }
+        QueryContext context = QueryContext.current();
+        if (context != null) {
+            return execute(statement.getSql(), () -> queryWithDeadline(statement.getSql(), statement.getParameterArray(),
+                statement.getParameterTypeArray(), context));
+        }
+        return execute(statement.getSql(), () -> jdbcTemplate.queryForList(
+            statement.getSql(), statement.getParameterArray(), statement.getParameterTypeArray()));
+    }
+
+    /**
+     * Stream the rows of a statement to the consumer as they are read instead of collecting
+     * them, for operators that read more rows than they keep (the federated join). Runs under
+     * the JDBC concurrency limit and the request deadline; returns the number of rows read.
+     */
+    public long streamSQLQuery(SqlStatement statement, Consumer<Map<String, Object>> rows) {
+        QueryContext context = QueryContext.current();
+        return concurrencyLimiter.execute(() -> {
+            if (context != null) context.checkActive();
+            long remainingMs = context != null ? Math.max(1, context.remainingMs()) : 0;
+            String sql = context != null ? withMaxExecutionTime(statement.getSql(), remainingMs) : statement.getSql();
+            Object[] parameters = statement.getParameterArray();
+            int[] types = statement.getParameterTypeArray();
+
+            AtomicReference<Statement> running = new AtomicReference<>();
+            ColumnMapRowMapper mapper = new ColumnMapRowMapper();
+            long[] count = {0};
+            try (QueryContext.Registration ignored = context != null
+                    ? context.onCancel(() -> cancel(running.get())) : () -> { }) {
+                jdbcTemplate.query(connection -> {
+                    PreparedStatement ps = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                    // Connector/J only streams row by row with this fetch size; other drivers fetch in pages
+                    boolean mysql = connection.getMetaData().getDatabaseProductName().toLowerCase().contains("mysql");
+                    ps.setFetchSize(mysql ? Integer.MIN_VALUE : STREAM_FETCH_SIZE);
+                    if (context != null) ps.setQueryTimeout((int) Math.ceil(remainingMs / 1000.0));
+                    for (int i = 0; i < parameters.length; i++) {
+                        StatementCreatorUtils.setParameterValue(ps, i + 1, types[i], parameters[i]);
+                    }
+                    running.set(ps);
+                    return ps;
+                }, (RowCallbackHandler) resultSet -> rows.accept(mapper.mapRow(resultSet, (int) count[0]++)));
+            }
+            return count[0];
+        });
+    }
+
+    /**
+     * Run a query within the request deadline: the server stops it via MAX_EXECUTION_TIME,
+     * the driver via the statement timeout, and cancelling the request cancels the statement.
+     */
+    private List<Map<String, Object>> queryWithDeadline(String sql, Object[] parameters, int[] types, QueryContext context) {
+        // Time spent waiting for a connection permit counts against the deadline
+        context.checkActive();
+        long remainingMs = Math.max(1, context.remainingMs());
+
+        AtomicReference<Statement> running = new AtomicReference<>();
+        try (QueryContext.Registration ignored = context.onCancel(() -> cancel(running.get()))) {
+            return jdbcTemplate.query(withMaxExecutionTime(sql, remainingMs), ps -> {
+                ps.setQueryTimeout((int) Math.ceil(remainingMs / 1000.0));
+                for (int i = 0; i < parameters.length; i++) {
+                    StatementCreatorUtils.setParameterValue(ps, i + 1, types[i], parameters[i]);
+                }
+                running.set(ps);
+                // Cancelled between registration and execution
+                context.checkActive();
+            }, new ColumnMapRowMapper());
+        }
+    }
+
+    /**
+     * Add a MySQL MAX_EXECUTION_TIME optimizer hint to a SELECT
+     */
+    public static String withMaxExecutionTime(String sql, long timeoutMs) {
+        if (MAX_EXECUTION_TIME.matcher(sql).find()) return sql;
+        Matcher select = LEADING_SELECT.matcher(sql);
+        if (!select.find()) return sql;
+        return select.replaceFirst("SELECT /*+ MAX_EXECUTION_TIME(" + timeoutMs + ") */");
+    }
+
+    private void cancel(Statement statement) {
+        if (statement == null) return;
+        try {
+            statement.cancel();
+        } catch (SQLException e) {
+            // The statement already completed or the connection is gone
+        }
+    }
+
+    private QueryResult execute(String sql, Supplier<List<Map<String, Object>>> query) {
         long startTime = System.currentTimeMillis();
+        JdbcExecutionEvent event = new JdbcExecutionEvent();
+        event.begin();
         
+        QueryResult result;
         try {
             // JdbcTemplate.queryForList returns List<Map<String, Object>> with column names as keys
-            List<Map<String, Object>> results = jdbcTemplate.queryForList(sql);
+            // Waits for a free pooled connection instead of timing out inside the pool
+            List<Map<String, Object>> results = concurrencyLimiter.execute(query);
             long executionTime = System.currentTimeMillis() - startTime;
             
-            return new QueryResult(
+            result = new QueryResult(
                 results,
                 results.size(),
                 executionTime,
@@ -41,16 +167,40 @@ public class QueryExecutor {
             
         } catch (Exception e) {
             long executionTime = System.currentTimeMillis() - startTime;
-            return new QueryResult(
+            result = new QueryResult(
                 new ArrayList<>(),
                 0,
                 executionTime,
                 false,
-                e.getMessage()
+                errorMessage(e)
             );
         }
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.sql = sql;
+            event.rows = result.getRowCount();
+            event.bytes = ResultCache.weigh(result);
+            event.success = result.isSuccess();
+            event.commit();
+        }
+        return result;
     }
     
+    /**
+     * Report a query stopped by its deadline or a cancel request as such, not as a driver error
+     */
+    static String errorMessage(Exception e) {
+        QueryContext context = QueryContext.current();
+        if (context != null && context.isCancelled()) {
+            return "Query " + context.getQueryId() + " was cancelled";
+        }
+        if (context != null && context.isExpired()) {
+            return "Query " + context.getQueryId() + " exceeded its deadline of " + context.getTimeoutMs() + "ms";
+        }
+        return e.getMessage();
+    }
+
     // formatResults method is no longer needed
 
     /**
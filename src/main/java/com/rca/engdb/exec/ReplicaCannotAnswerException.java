@@ -0,0 +1,16 @@
+package com.rca.engdb.exec;
+
+/**
+ * Thrown when an in-memory snapshot (a table replica or a materialized aggregate) cannot
+ * answer a query exactly the way MySQL would. The caller runs the query against the database.
+ */
+public class ReplicaCannotAnswerException extends RuntimeException {
+
+    public ReplicaCannotAnswerException(String message) {
+        super(message);
+    }
+
+    public ReplicaCannotAnswerException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,155 @@
+package com.rca.engdb.exec;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight execution: concurrent calls with the same key share one computation.
+ *
+ * The first caller for a key runs the work; callers arriving while it is in flight wait
+ * for and receive the same result (or exception). Nothing is kept once the work completes,
+ * so later calls run again. Keys are grouped into named layers ("request", "sql") and
+ * counted per layer.
+ *
+ * Callers have their own deadlines and query ids. If the leader's query timed out or was
+ * cancelled by the time its work ended, its outcome (an exception, or an error result naming
+ * the leader's query) is not shared: each follower runs the work again under its own context,
+ * the first of them as the new leader.
+ */
+@Service
+public class RequestCoalescer {
+
+    // Outcome of a flight whose leader timed out or was cancelled: followers run the work again
+    static final Object LEADER_ENDED = new Object();
+
+    private final boolean enabled;
+    private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Counters> counters = new ConcurrentHashMap<>();
+
+    public RequestCoalescer(@Value("${engdb.coalescing.enabled:true}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Run the work, or wait for an identical in-flight call in the same layer
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String layer, String key, Supplier<T> work) {
+        Counters layerCounters = counters.computeIfAbsent(layer, l -> new Counters());
+        if (!enabled) {
+            layerCounters.executions.increment();
+            return work.get();
+        }
+
+        String flightKey = layer + "|" + key;
+        while (true) {
+            CompletableFuture<Object> flight = new CompletableFuture<>();
+            CompletableFuture<Object> existing = inFlight.putIfAbsent(flightKey, flight);
+            if (existing != null) {
+                layerCounters.coalesced.increment();
+                Object result = await(existing);
+                if (result != LEADER_ENDED) {
+                    return (T) result;
+                }
+                layerCounters.rerun.increment();
+                continue;
+            }
+
+            layerCounters.executions.increment();
+            // Removed before completing, so a follower running again starts a new flight
+            return lead(flight, () -> inFlight.remove(flightKey, flight), work);
+        }
+    }
+
+    /**
+     * Run the work as the leader of a flight and complete it: with the result or exception,
+     * or with LEADER_ENDED if the leader's own query ended first
+     */
+    private static <T> T lead(CompletableFuture<Object> flight, Runnable beforeComplete, Supplier<T> work) {
+        QueryContext context = QueryContext.current();
+        T result;
+        try {
+            result = work.get();
+        } catch (RuntimeException | Error e) {
+            beforeComplete.run();
+            if (endedEarly(context)) {
+                flight.complete(LEADER_ENDED);
+            } else {
+                flight.completeExceptionally(e);
+            }
+            throw e;
+        }
+        beforeComplete.run();
+        flight.complete(endedEarly(context) ? LEADER_ENDED : result);
+        return result;
+    }
+
+    static boolean endedEarly(QueryContext context) {
+        return context != null && (context.isCancelled() || context.isExpired());
+    }
+
+    /**
+     * Wait for another caller's computation, bounded by the current query's deadline and cancellation
+     */
+    static Object await(CompletableFuture<Object> flight) {
+        QueryContext context = QueryContext.current();
+        try {
+            if (context == null) {
+                return flight.get();
+            }
+            // A follower stops waiting at its own deadline or when it is cancelled;
+            // the shared computation keeps running for the others
+            CompletableFuture<Object> wait = flight.copy();
+            try (QueryContext.Registration ignored = context.onCancel(() -> wait.cancel(false))) {
+                return wait.get(context.remainingMs(), TimeUnit.MILLISECONDS);
+            }
+        } catch (ExecutionException e) {
+            // Followers see the leader's exception as if they had run the work
+            if (e.getCause() instanceof RuntimeException runtime) throw runtime;
+            if (e.getCause() instanceof Error error) throw error;
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException | CancellationException e) {
+            if (context != null) context.checkActive();
+            throw new CancellationException("Stopped waiting for an identical query in flight");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for an identical query in flight");
+        }
+    }
+
+    /**
+     * Per layer: computations run, requests that attached to one, attached requests that ran
+     * again because the leader's query ended first, and computations in flight
+     */
+    public Map<String, Map<String, Long>> getStats() {
+        Map<String, Map<String, Long>> stats = new TreeMap<>();
+        counters.forEach((layer, c) -> {
+            long executing = inFlight.keySet().stream().filter(k -> k.startsWith(layer + "|")).count();
+            Map<String, Long> layerStats = new LinkedHashMap<>();
+            layerStats.put("executions", c.executions.sum());
+            layerStats.put("coalesced", c.coalesced.sum());
+            layerStats.put("rerun", c.rerun.sum());
+            layerStats.put("inFlight", executing);
+            stats.put(layer, layerStats);
+        });
+        return stats;
+    }
+
+    private static class Counters {
+        private final LongAdder executions = new LongAdder();
+        private final LongAdder coalesced = new LongAdder();
+        private final LongAdder rerun = new LongAdder();
+    }
+}
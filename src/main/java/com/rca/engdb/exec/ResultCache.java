@@ -0,0 +1,417 @@
+package com.rca.engdb.exec;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.rca.engdb.engine.SqlStatement;
+import com.rca.engdb.schema.SchemaDiscoveryService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Caches SQL results between the controller and QueryExecutor.
+ *
+ * Entries are keyed by (database, SQL template, bound parameters, schema version of the
+ * database) and the cache is bounded by the estimated size of the cached rows, with
+ * Caffeine's W-TinyLFU eviction. Each entry expires after the shortest TTL of the tables it
+ * reads, and is dropped once information_schema reports a newer UPDATE_TIME for one of them.
+ * Update times are polled in the background, at most once per update check interval and
+ * database, with MySQL 8's information_schema_stats_expiry disabled on the polling session
+ * (it would otherwise serve UPDATE_TIME from a day-old cache). Until the first poll of a
+ * database finishes its results are not cached. Statements reading tables of another
+ * database are not cached.
+ */
+@Service
+public class ResultCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResultCache.class);
+
+    // A table list starts after FROM or JOIN; its entries are [database.]table [[AS] alias], comma separated
+    private static final Pattern TABLE_LIST = Pattern.compile(
+        "\\b(?:from|join|straight_join)\\s+", Pattern.CASE_INSENSITIVE);
+    private static final Pattern TABLE_NAME = Pattern.compile("`?(\\w+)`?(?:\\s*\\.\\s*`?(\\w+)`?)?");
+    private static final Pattern TABLE_ALIAS = Pattern.compile(
+        "\\s+(?:as\\s+)?`?(\\w+)`?", Pattern.CASE_INSENSITIVE);
+    private static final Pattern LIST_SEPARATOR = Pattern.compile("\\s*,\\s*");
+    // Words that can follow a table reference, which are therefore not its alias
+    private static final Set<String> NOT_ALIASES = Set.of("where", "join", "inner", "left", "right", "cross",
+        "natural", "straight_join", "on", "using", "group", "order", "limit", "having", "union", "for", "lock",
+        "window", "into", "partition", "use", "force", "ignore", "except", "intersect");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final String UPDATE_TIMES_SQL =
+        "SELECT TABLE_NAME, UPDATE_TIME FROM information_schema.TABLES " +
+        "WHERE TABLE_SCHEMA = COALESCE(?, DATABASE())";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcConcurrencyLimiter concurrencyLimiter;
+    private final SchemaDiscoveryService schemaDiscoveryService;
+    private final Environment environment;
+    private final boolean enabled;
+    private final long defaultTtlSeconds;
+    private final long updateCheckIntervalMs;
+    private final Cache<CacheKey, CachedResult> cache;
+
+    // Database -> last polled UPDATE_TIME per table
+    private final Map<String, UpdateTimes> updateTimes = new ConcurrentHashMap<>();
+
+    // Databases with a poll scheduled or running, so lookups never queue a second one
+    private final Set<String> polling = ConcurrentHashMap.newKeySet();
+
+    // Polls only wait on information_schema: one at a time on a virtual thread
+    private final ExecutorService pollExecutor = Executors.newSingleThreadExecutor(
+        Thread.ofVirtual().name("result-cache-update-times").factory());
+
+    public ResultCache(JdbcTemplate jdbcTemplate,
+                       JdbcConcurrencyLimiter concurrencyLimiter,
+                       SchemaDiscoveryService schemaDiscoveryService,
+                       Environment environment,
+                       @Value("${engdb.cache.enabled:true}") boolean enabled,
+                       @Value("${engdb.cache.max-bytes:67108864}") long maxBytes,
+                       @Value("${engdb.cache.ttl-seconds:60}") long defaultTtlSeconds,
+                       @Value("${engdb.cache.update-check-interval-ms:1000}") long updateCheckIntervalMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.schemaDiscoveryService = schemaDiscoveryService;
+        this.environment = environment;
+        this.enabled = enabled;
+        this.defaultTtlSeconds = defaultTtlSeconds;
+        this.updateCheckIntervalMs = updateCheckIntervalMs;
+        this.cache = Caffeine.newBuilder()
+            .maximumWeight(maxBytes)
+            .weigher((CacheKey key, CachedResult value) -> value.weight)
+            .expireAfter(Expiry.creating((CacheKey key, CachedResult value) -> value.ttl))
+            .build();
+    }
+
+    /**
+     * Return the cached result for the statement, or run it and cache a successful result
+     */
+    public CacheLookup execute(String dbName, SqlStatement statement, Supplier<QueryExecutor.QueryResult> executor) {
+        Set<String> tables = referencedTables(statement.getSql(), dbName);
+        if (!enabled || tables == null || tables.isEmpty() || ttlFor(tables).isZero()) {
+            return new CacheLookup(executor.get(), false, 0);
+        }
+        Duration ttl = ttlFor(tables);
+
+        CacheKey key = new CacheKey(dbName, normalize(statement.getSql()), statement.getParameters(),
+            schemaDiscoveryService.getSchemaVersion(dbName));
+
+        // Taken before executing: a write during the query makes the entry stale, not lost
+        Map<String, LocalDateTime> current = currentUpdateTimes(dbName, tables);
+        if (current == null) {
+            return new CacheLookup(executor.get(), false, 0);
+        }
+
+        CachedResult cached = cache.getIfPresent(key);
+        if (cached != null) {
+            if (!cached.isStale(current)) {
+                return new CacheLookup(cached.result, true, System.currentTimeMillis() - cached.createdAt);
+            }
+            cache.invalidate(key);
+        }
+
+        QueryExecutor.QueryResult result = executor.get();
+        if (result.isSuccess()) {
+            cache.put(key, new CachedResult(result, current, ttl));
+        }
+        return new CacheLookup(result, false, 0);
+    }
+
+    /**
+     * Tables read by a statement (FROM and JOIN clauses, comma joins and subqueries included),
+     * lowercase without database, or null if it reads a table of another database, whose
+     * update times are not polled, so the result could not be invalidated
+     */
+    public static Set<String> referencedTables(String sql, String dbName) {
+        Set<String> tables = new TreeSet<>();
+        Matcher list = TABLE_LIST.matcher(sql);
+        Matcher name = TABLE_NAME.matcher(sql);
+        Matcher alias = TABLE_ALIAS.matcher(sql);
+        Matcher separator = LIST_SEPARATOR.matcher(sql);
+        int position = 0;
+        while (list.find(position)) {
+            position = list.end();
+            // A derived table "(SELECT ...)" does not match; its own FROM is found next
+            while (name.region(position, sql.length()).lookingAt()) {
+                String database = name.group(2) != null ? name.group(1) : null;
+                if (database != null && !database.equalsIgnoreCase(dbName)) {
+                    return null;
+                }
+                tables.add((name.group(2) != null ? name.group(2) : name.group(1)).toLowerCase(Locale.ROOT));
+                position = name.end();
+
+                if (alias.region(position, sql.length()).lookingAt()
+                        && !NOT_ALIASES.contains(alias.group(1).toLowerCase(Locale.ROOT))) {
+                    position = alias.end();
+                }
+                if (!separator.region(position, sql.length()).lookingAt()) break;
+                position = separator.end();
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * Shortest TTL of the referenced tables: engdb.cache.table-ttl-seconds.<table>, else the default.
+     * A TTL of 0 disables caching for results that read the table.
+     */
+    private Duration ttlFor(Set<String> tables) {
+        long ttl = defaultTtlSeconds;
+        for (String table : tables) {
+            ttl = Math.min(ttl, environment.getProperty("engdb.cache.table-ttl-seconds." + table, Long.class, defaultTtlSeconds));
+        }
+        return Duration.ofSeconds(Math.max(0, ttl));
+    }
+
+    /**
+     * Last polled update times of the tables, or null if the database was never polled.
+     * Schedules a poll when they are older than the update check interval.
+     */
+    private Map<String, LocalDateTime> currentUpdateTimes(String dbName, Set<String> tables) {
+        UpdateTimes times = updateTimes.get(key(dbName));
+        if (times == null || System.currentTimeMillis() - times.checkedAt > updateCheckIntervalMs) {
+            pollAsync(dbName);
+        }
+        if (times == null) {
+            return null;
+        }
+
+        Map<String, LocalDateTime> result = new HashMap<>();
+        for (String table : tables) {
+            LocalDateTime updated = times.byTable.get(table);
+            if (updated != null) result.put(table, updated);
+        }
+        return result;
+    }
+
+    private void pollAsync(String dbName) {
+        String key = key(dbName);
+        if (!polling.add(key)) return;
+        try {
+            pollExecutor.execute(() -> {
+                try {
+                    pollUpdateTimes(dbName);
+                } finally {
+                    polling.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+            polling.remove(key);
+        }
+    }
+
+    /**
+     * Read the update times of the tables of a database now
+     */
+    public void pollUpdateTimes(String dbName) {
+        long checkedAt = System.currentTimeMillis();
+        updateTimes.put(key(dbName), new UpdateTimes(checkedAt, loadUpdateTimes(dbName)));
+    }
+
+    private Map<String, LocalDateTime> loadUpdateTimes(String dbName) {
+        Map<String, LocalDateTime> times = new HashMap<>();
+        try {
+            concurrencyLimiter.execute(() -> jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                // MySQL 8 otherwise answers from its statistics cache, refreshed once a day
+                boolean expiryDisabled = setStatsExpiry(connection, "0");
+                try (PreparedStatement statement = connection.prepareStatement(UPDATE_TIMES_SQL)) {
+                    statement.setString(1, dbName);
+                    try (ResultSet rs = statement.executeQuery()) {
+                        while (rs.next()) {
+                            Object updated = rs.getObject("UPDATE_TIME");
+                            if (updated instanceof Timestamp timestamp) {
+                                times.put(rs.getString("TABLE_NAME").toLowerCase(Locale.ROOT), timestamp.toLocalDateTime());
+                            } else if (updated instanceof LocalDateTime localDateTime) {
+                                times.put(rs.getString("TABLE_NAME").toLowerCase(Locale.ROOT), localDateTime);
+                            }
+                        }
+                    }
+                } finally {
+                    // The connection goes back to the pool; its other users keep the cached statistics
+                    if (expiryDisabled) setStatsExpiry(connection, "DEFAULT");
+                }
+                return null;
+            }));
+        } catch (Exception e) {
+            // Entries then only expire by TTL
+            logger.debug("Could not read table update times for {}: {}", dbName, e.getMessage());
+        }
+        return times;
+    }
+
+    /**
+     * Set information_schema_stats_expiry for the session, false if the server has no such
+     * variable (before MySQL 8, where UPDATE_TIME is not cached)
+     */
+    private static boolean setStatsExpiry(Connection connection, String value) {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET SESSION information_schema_stats_expiry = " + value);
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private static String key(String dbName) {
+        return dbName != null ? dbName : "";
+    }
+
+    private static String normalize(String sql) {
+        return WHITESPACE.matcher(sql.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Rough heap size of a result: row maps, keys and values
+     */
+    static int weigh(QueryExecutor.QueryResult result) {
+        long bytes = 64;
+        for (Map<String, Object> row : result.getData()) {
+            bytes += weighRow(row);
+        }
+        return (int) Math.min(Integer.MAX_VALUE, bytes);
+    }
+
+    /**
+     * Rough heap size of one row map
+     */
+    static long weighRow(Map<String, Object> row) {
+        long bytes = 48;
+        for (Map.Entry<String, Object> entry : row.entrySet()) {
+            bytes += 32 + sizeOf(entry.getKey()) + sizeOf(entry.getValue());
+        }
+        return bytes;
+    }
+
+    private static long sizeOf(Object value) {
+        if (value == null) return 0;
+        if (value instanceof String string) return 40 + 2L * string.length();
+        if (value instanceof byte[] bytes) return 16 + bytes.length;
+        if (value instanceof Number || value instanceof Boolean) return 24;
+        return 48;
+    }
+
+    public void clear() {
+        cache.invalidateAll();
+        updateTimes.clear();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pollExecutor.shutdownNow();
+    }
+
+    /**
+     * Result of a cache lookup: the rows, whether they came from the cache and their age
+     */
+    public static class CacheLookup {
+        private final QueryExecutor.QueryResult result;
+        private final boolean cached;
+        private final long ageMs;
+
+        CacheLookup(QueryExecutor.QueryResult result, boolean cached, long ageMs) {
+            this.result = result;
+            this.cached = cached;
+            this.ageMs = ageMs;
+        }
+
+        public QueryExecutor.QueryResult getResult() { return result; }
+        public boolean isCached() { return cached; }
+        public long getAgeMs() { return ageMs; }
+    }
+
+    private static final class CacheKey {
+        private final String database;
+        private final String template;
+        private final List<Object> parameters;
+        private final long schemaVersion;
+
+        CacheKey(String database, String template, List<Object> parameters, long schemaVersion) {
+            this.database = database;
+            this.template = template;
+            this.parameters = List.copyOf(parameters);
+            this.schemaVersion = schemaVersion;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof CacheKey other)) return false;
+            return schemaVersion == other.schemaVersion
+                && Objects.equals(database, other.database)
+                && template.equals(other.template)
+                && parameters.equals(other.parameters);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(database, template, parameters, schemaVersion);
+        }
+    }
+
+    private static final class CachedResult {
+        private final QueryExecutor.QueryResult result;
+        private final long createdAt = System.currentTimeMillis();
+        private final Map<String, LocalDateTime> updateTimes;
+        private final Duration ttl;
+        private final int weight;
+
+        CachedResult(QueryExecutor.QueryResult result, Map<String, LocalDateTime> updateTimes, Duration ttl) {
+            this.result = result;
+            this.updateTimes = updateTimes;
+            this.ttl = ttl;
+            this.weight = weigh(result);
+        }
+
+        /**
+         * Stale if any referenced table was written after the result was computed
+         */
+        boolean isStale(Map<String, LocalDateTime> current) {
+            for (Map.Entry<String, LocalDateTime> entry : current.entrySet()) {
+                LocalDateTime cachedTime = updateTimes.get(entry.getKey());
+                if (cachedTime == null || entry.getValue().isAfter(cachedTime)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final class UpdateTimes {
+        private final long checkedAt;
+        private final Map<String, LocalDateTime> byTable;
+
+        UpdateTimes(long checkedAt, Map<String, LocalDateTime> byTable) {
+            this.checkedAt = checkedAt;
+            this.byTable = byTable;
+        }
+    }
+}
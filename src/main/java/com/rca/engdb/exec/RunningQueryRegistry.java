@@ -0,0 +1,47 @@
+package com.rca.engdb.exec;
+
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Queries currently running, by query id, so they can be cancelled from another request
+ */
+@Service
+public class RunningQueryRegistry {
+
+    private final Map<String, QueryContext> running = new ConcurrentHashMap<>();
+
+    /**
+     * Open a context for the query on the current thread and register it.
+     * Throws IllegalStateException if a query with the same id is already running.
+     */
+    public QueryContext start(String queryId, long timeoutMs) {
+        QueryContext context = QueryContext.open(queryId, timeoutMs);
+        if (running.putIfAbsent(queryId, context) != null) {
+            context.close();
+            throw new IllegalStateException("A query with id " + queryId + " is already running");
+        }
+        return context;
+    }
+
+    public void finish(QueryContext context) {
+        running.remove(context.getQueryId(), context);
+        context.close();
+    }
+
+    /**
+     * Cancel a running query. Returns false if no query with that id is running.
+     */
+    public boolean cancel(String queryId) {
+        QueryContext context = running.get(queryId);
+        if (context == null) return false;
+        context.cancel();
+        return true;
+    }
+
+    public int size() {
+        return running.size();
+    }
+}
@@ -0,0 +1,371 @@
+package com.rca.engdb.exec;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Pre-execution guard for SQL that was not generated by the rule-based engine (LLM output).
+ *
+ * Runs {@code EXPLAIN FORMAT=JSON} and compares the optimizer's estimated rows examined and
+ * query cost against a configurable budget, in the database the statement will run against.
+ * Estimates are cached by database and statement shape (literals stripped), so repeated
+ * questions differing only in values are explained once.
+ * Over-budget statements are rewritten with a LIMIT when that bounds the work, otherwise rejected.
+ */
+@Service
+public class SqlCostGuard {
+
+    private static final Logger logger = LoggerFactory.getLogger(SqlCostGuard.class);
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^'\\\\]|\\\\.|'')*'");
+    // String literals in either quote and quoted identifiers, which may contain a ';'
+    private static final Pattern QUOTED = Pattern.compile(
+        "'(?:[^'\\\\]|\\\\.|'')*'|\"(?:[^\"\\\\]|\\\\.|\"\")*\"|`(?:[^`]|``)*`");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern HAS_LIMIT = Pattern.compile("\\blimit\\s+\\d+", Pattern.CASE_INSENSITIVE);
+    // Clauses that need the full input before the first row, so a LIMIT does not bound the work
+    private static final Pattern BLOCKING_CLAUSE = Pattern.compile(
+        "\\b(group\\s+by|order\\s+by|distinct|union)\\b|\\b(count|sum|avg|min|max)\\s*\\(",
+        Pattern.CASE_INSENSITIVE);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcConcurrencyLimiter concurrencyLimiter;
+    private final ObjectMapper objectMapper;
+
+    private final boolean enabled;
+    private final long maxRowsExamined;
+    private final double maxCost;
+    private final Action action;
+    private final int limitRows;
+
+    // Database|statement shape -> estimate, LRU bounded
+    private final Map<String, CostEstimate> estimateCache;
+
+    public SqlCostGuard(JdbcTemplate jdbcTemplate,
+                        JdbcConcurrencyLimiter concurrencyLimiter,
+                        ObjectMapper objectMapper,
+                        @Value("${engdb.guard.enabled:true}") boolean enabled,
+                        @Value("${engdb.guard.max-rows-examined:10000000}") long maxRowsExamined,
+                        @Value("${engdb.guard.max-cost:1000000}") double maxCost,
+                        @Value("${engdb.guard.action:LIMIT}") Action action,
+                        @Value("${engdb.guard.limit-rows:1000}") int limitRows,
+                        @Value("${engdb.guard.cache-size:1000}") int cacheSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.maxRowsExamined = maxRowsExamined;
+        this.maxCost = maxCost;
+        this.action = action;
+        this.limitRows = limitRows;
+        this.estimateCache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CostEstimate> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    /**
+     * Check a statement against the cost budget of the connection's default database
+     */
+    public GuardResult check(String sql) {
+        return check(sql, null);
+    }
+
+    /**
+     * Check a statement against the cost budget before it is executed
+     *
+     * @param dbName database the statement runs against, or null for the connection's default
+     */
+    public GuardResult check(String sql, String dbName) {
+        String statement = sql.trim();
+        while (statement.endsWith(";")) {
+            statement = statement.substring(0, statement.length() - 1).trim();
+        }
+
+        if (QUOTED.matcher(statement).replaceAll("").contains(";")) {
+            return GuardResult.rejected("Multiple statements are not allowed", null);
+        }
+
+        String keyword = firstKeyword(statement);
+        if (keyword.equals("show") || keyword.equals("describe") || keyword.equals("desc")) {
+            return GuardResult.allowed(statement, null, null);
+        }
+        if (keyword.equals("with")) {
+            // WITH also prefixes UPDATE and DELETE; only the statement after the CTEs counts
+            keyword = keywordAfterCommonTableExpressions(statement);
+        }
+        if (!keyword.equals("select")) {
+            return GuardResult.rejected("Only read-only SELECT statements can be executed", null);
+        }
+
+        if (!enabled) {
+            return GuardResult.allowed(statement, null, null);
+        }
+
+        CostEstimate estimate = estimate(statement, dbName);
+        if (estimate == null || estimate.isWithin(maxRowsExamined, maxCost)) {
+            return GuardResult.allowed(statement, null, estimate);
+        }
+
+        String overBudget = String.format(
+            "Estimated %d rows examined (cost %.0f) exceeds the budget of %d rows (cost %.0f)",
+            estimate.getRowsExamined(), estimate.getCost(), maxRowsExamined, maxCost);
+
+        if (action == Action.LIMIT
+                && !HAS_LIMIT.matcher(statement).find()
+                && !BLOCKING_CLAUSE.matcher(statement).find()) {
+            logger.warn("{}; adding LIMIT {}: {}", overBudget, limitRows, statement);
+            return GuardResult.allowed(statement + " LIMIT " + limitRows,
+                overBudget + "; result limited to " + limitRows + " rows", estimate);
+        }
+
+        logger.warn("{}; rejecting: {}", overBudget, statement);
+        return GuardResult.rejected(overBudget + "; query rejected", estimate);
+    }
+
+    private CostEstimate estimate(String statement, String dbName) {
+        String key = (dbName != null ? dbName : "") + "|" + shapeOf(statement);
+        CostEstimate cached = estimateCache.get(key);
+        if (cached != null) return cached;
+
+        try {
+            String plan = concurrencyLimiter.execute(() -> explain(statement, dbName));
+            CostEstimate estimate = parseExplain(plan);
+            estimateCache.put(key, estimate);
+            return estimate;
+        } catch (Exception e) {
+            // The statement itself will fail with a more useful error
+            logger.debug("EXPLAIN failed for {}: {}", statement, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * EXPLAIN the statement with the database as the default for its unqualified table names,
+     * the same as USE, restoring the pooled connection's default afterwards
+     */
+    private String explain(String statement, String dbName) {
+        String explain = "EXPLAIN FORMAT=JSON " + statement;
+        if (dbName == null || dbName.isEmpty()) {
+            return jdbcTemplate.queryForObject(explain, String.class);
+        }
+        return jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            String previous = connection.getCatalog();
+            connection.setCatalog(dbName);
+            try (Statement explainStatement = connection.createStatement();
+                 ResultSet rs = explainStatement.executeQuery(explain)) {
+                return rs.next() ? rs.getString(1) : null;
+            } finally {
+                if (previous != null) connection.setCatalog(previous);
+            }
+        });
+    }
+
+    /**
+     * Parse MySQL's JSON plan into rows examined and total query cost
+     */
+    CostEstimate parseExplain(String plan) throws Exception {
+        JsonNode root = objectMapper.readTree(plan);
+        JsonNode queryBlock = root.path("query_block");
+
+        double cost = queryBlock.path("cost_info").path("query_cost").asDouble(0);
+        long rowsExamined = rowsExamined(queryBlock);
+
+        return new CostEstimate(rowsExamined, cost);
+    }
+
+    /**
+     * Sum rows examined over all table accesses. In a nested loop each table is scanned
+     * once per row produced by the tables before it, which is what exposes cartesian joins.
+     */
+    private long rowsExamined(JsonNode node) {
+        long total = 0;
+
+        if (node.isArray()) {
+            for (JsonNode child : node) {
+                total = saturatedAdd(total, rowsExamined(child));
+            }
+            return total;
+        }
+
+        for (Map.Entry<String, JsonNode> field : node.properties()) {
+            JsonNode value = field.getValue();
+
+            if (field.getKey().equals("nested_loop") && value.isArray()) {
+                double prefixRows = 1;
+                for (JsonNode step : value) {
+                    JsonNode table = step.path("table");
+                    total = saturatedAdd(total, toRows(prefixRows * table.path("rows_examined_per_scan").asDouble(0)));
+                    total = saturatedAdd(total, subqueryRows(table));
+                    prefixRows = Math.max(1, table.path("rows_produced_per_join").asDouble(1));
+                }
+            } else if (field.getKey().equals("table")) {
+                total = saturatedAdd(total, toRows(value.path("rows_examined_per_scan").asDouble(0)));
+                total = saturatedAdd(total, subqueryRows(value));
+            } else if (value.isContainerNode()) {
+                total = saturatedAdd(total, rowsExamined(value));
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Rows examined by subqueries attached to a table access
+     */
+    private long subqueryRows(JsonNode table) {
+        long total = 0;
+        for (Map.Entry<String, JsonNode> field : table.properties()) {
+            JsonNode value = field.getValue();
+            if (value.isContainerNode()) {
+                total = saturatedAdd(total, rowsExamined(value));
+            }
+        }
+        return total;
+    }
+
+    private long toRows(double rows) {
+        return rows >= Long.MAX_VALUE ? Long.MAX_VALUE : (long) rows;
+    }
+
+    private long saturatedAdd(long a, long b) {
+        long sum = a + b;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+
+    /**
+     * Normalize a statement to its shape: literals replaced by ?, whitespace collapsed, lowercased
+     */
+    public static String shapeOf(String sql) {
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = WHITESPACE.matcher(shape).replaceAll(" ");
+        return shape.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private String firstKeyword(String statement) {
+        String[] parts = statement.stripLeading().split("[\\s(]+", 2);
+        return parts.length == 0 ? "" : parts[0].toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * First keyword of the main statement of a WITH statement: the CTE list is
+     * {@code name [(columns)] AS (query)}, separated by commas, so it is the first word at
+     * parenthesis depth 0 after a closing parenthesis that is neither a comma nor AS
+     */
+    private String keywordAfterCommonTableExpressions(String statement) {
+        int depth = 0;
+        boolean afterClose = false;
+        int i = 0;
+        while (i < statement.length()) {
+            char c = statement.charAt(i);
+            if (c == '\'' || c == '"' || c == '`') {
+                // Skip quoted strings and identifiers, including doubled and escaped quotes
+                i++;
+                while (i < statement.length()) {
+                    char q = statement.charAt(i);
+                    if (q == '\\' && c != '`') {
+                        i += 2;
+                    } else if (q == c && i + 1 < statement.length() && statement.charAt(i + 1) == c) {
+                        i += 2;
+                    } else if (q == c) {
+                        break;
+                    } else {
+                        i++;
+                    }
+                }
+                i++;
+                continue;
+            }
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+                afterClose = depth == 0;
+            } else if (depth == 0 && afterClose && c == ',') {
+                afterClose = false;
+            } else if (depth == 0 && afterClose && !Character.isWhitespace(c)) {
+                String keyword = firstKeyword(statement.substring(i));
+                if (!keyword.equals("as")) return keyword;
+                afterClose = false;
+            }
+            i++;
+        }
+        return "";
+    }
+
+    public void clearCache() {
+        estimateCache.clear();
+    }
+
+    public enum Action {
+        LIMIT,   // Rewrite over-budget statements with a LIMIT when possible
+        REJECT   // Always reject over-budget statements
+    }
+
+    /**
+     * Optimizer estimate for a statement
+     */
+    public static class CostEstimate {
+        private final long rowsExamined;
+        private final double cost;
+
+        public CostEstimate(long rowsExamined, double cost) {
+            this.rowsExamined = rowsExamined;
+            this.cost = cost;
+        }
+
+        public long getRowsExamined() { return rowsExamined; }
+        public double getCost() { return cost; }
+
+        boolean isWithin(long maxRowsExamined, double maxCost) {
+            return rowsExamined <= maxRowsExamined && cost <= maxCost;
+        }
+    }
+
+    /**
+     * Outcome of a guard check: the (possibly rewritten) statement to run, or a rejection
+     */
+    public static class GuardResult {
+        private final boolean allowed;
+        private final String sql;
+        private final String message;
+        private final CostEstimate estimate;
+
+        private GuardResult(boolean allowed, String sql, String message, CostEstimate estimate) {
+            this.allowed = allowed;
+            this.sql = sql;
+            this.message = message;
+            this.estimate = estimate;
+        }
+
+        static GuardResult allowed(String sql, String message, CostEstimate estimate) {
+            return new GuardResult(true, sql, message, estimate);
+        }
+
+        static GuardResult rejected(String message, CostEstimate estimate) {
+            return new GuardResult(false, null, message, estimate);
+        }
+
+        public boolean isAllowed() { return allowed; }
+        public String getSql() { return sql; }
+        public String getMessage() { return message; }
+        public CostEstimate getEstimate() { return estimate; }
+    }
+}
@@ -0,0 +1,235 @@
+package com.rca.engdb.exec;
+
+import com.rca.engdb.ast.QueryAST;
+import com.rca.engdb.schema.TableStatistics;
+import com.rca.engdb.schema.TableStatisticsService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ColumnMapRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.ResultSetMetaData;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory columnar replicas of small, hot tables (departments, courses), so single-table
+ * questions over them are answered in microseconds without a connection or a round trip.
+ *
+ * Opt-in with engdb.replica.enabled. Every table of engdb.replica.databases whose statistics
+ * show at most engdb.replica.max-rows rows and engdb.replica.max-bytes of data is loaded in
+ * the background, reloaded whenever its information_schema UPDATE_TIME changes (every
+ * refresh when the server does not report one) and in any case once it is older than
+ * engdb.replica.max-age-ms. UPDATE_TIME alone is not a change signal to rely on: MySQL 8
+ * caches it for information_schema_stats_expiry (a day by default), so answers are at most
+ * max-age plus one refresh interval behind the table. The statistics are collected again on
+ * every refresh rather than taken from the schema-TTL cache. Questions a replica cannot
+ * answer exactly go to MySQL.
+ */
+@Service
+public class TableReplicaService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TableReplicaService.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TableStatisticsService statisticsService;
+    private final boolean enabled;
+    private final List<String> databases;
+    private final long maxRows;
+    private final long maxBytes;
+    private final long maxAgeMs;
+
+    // Key: database|lowercase table
+    private final Map<String, Replica> replicas = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService refreshExecutor;
+
+    public TableReplicaService(JdbcTemplate jdbcTemplate,
+                               TableStatisticsService statisticsService,
+                               @Value("${engdb.replica.enabled:false}") boolean enabled,
+                               @Value("${engdb.replica.databases:}") String databases,
+                               @Value("${engdb.replica.max-rows:10000}") long maxRows,
+                               @Value("${engdb.replica.max-bytes:8388608}") long maxBytes,
+                               @Value("${engdb.replica.refresh-interval-ms:30000}") long refreshIntervalMs,
+                               @Value("${engdb.replica.max-age-ms:300000}") long maxAgeMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.statisticsService = statisticsService;
+        this.enabled = enabled;
+        this.databases = Arrays.stream(databases.split(",")).map(String::trim).filter(name -> !name.isEmpty()).toList();
+        this.maxRows = maxRows;
+        this.maxBytes = maxBytes;
+        this.maxAgeMs = maxAgeMs;
+
+        // Loads only wait on MySQL: one at a time on a virtual thread
+        if (enabled && !this.databases.isEmpty() && refreshIntervalMs > 0) {
+            refreshExecutor = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofVirtual().name("table-replica-refresh").factory());
+            refreshExecutor.scheduleWithFixedDelay(this::refresh, 0, refreshIntervalMs, TimeUnit.MILLISECONDS);
+        } else {
+            refreshExecutor = null;
+        }
+    }
+
+    /**
+     * Answer a query from the replica of its table, or null if there is none or it cannot
+     * answer this query
+     */
+    public QueryExecutor.QueryResult execute(QueryAST ast) {
+        if (!enabled || ast.getTargetTable() == null || ast.getDatabaseName() == null || !ast.getJoins().isEmpty()) {
+            return null;
+        }
+        Replica replica = replicas.get(key(ast.getDatabaseName(), ast.getTargetTable()));
+        if (replica == null) {
+            return null;
+        }
+
+        long startTime = System.currentTimeMillis();
+        try {
+            List<Map<String, Object>> data = replica.table.answer(ast);
+            replica.hits.increment();
+            return new QueryExecutor.QueryResult(data, data.size(), System.currentTimeMillis() - startTime, true, null);
+        } catch (ReplicaCannotAnswerException e) {
+            replica.fallbacks.increment();
+            logger.debug("Replica of {} cannot answer the query: {}", replica.table.getName(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Load or reload the replicas of all configured databases
+     */
+    public void refresh() {
+        for (String database : databases) {
+            try {
+                refresh(database);
+            } catch (Exception e) {
+                logger.warn("Failed to refresh table replicas for database {}: {}", database, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Load the small tables of a database that changed since they were loaded or whose
+     * replica reached the maximum age, and drop replicas of tables that are gone or have
+     * grown over the limits
+     */
+    public void refresh(String database) {
+        // The cached statistics are only as fresh as the last schema load, if there was one
+        statisticsService.refresh(database);
+
+        Set<String> current = new HashSet<>();
+        for (TableStatistics statistics : statisticsService.getStatistics(database).values()) {
+            if (statistics.getRowEstimate() > maxRows || statistics.getDataLength() > maxBytes) continue;
+
+            String key = key(database, statistics.getTableName());
+            Replica existing = replicas.get(key);
+            LocalDateTime updateTime = statistics.getUpdateTime();
+            if (existing != null && updateTime != null && updateTime.equals(existing.updateTime)
+                    && System.currentTimeMillis() - existing.loadedAt < maxAgeMs) {
+                current.add(key);
+                continue;
+            }
+
+            ColumnarTable table = load(database, statistics.getTableName());
+            if (table != null) {
+                replicas.put(key, new Replica(table, updateTime, existing));
+                current.add(key);
+            }
+        }
+        replicas.keySet().removeIf(key -> key.startsWith(database + "|") && !current.contains(key));
+    }
+
+    /**
+     * Read a table into a columnar snapshot, or null if it is over the limits after all
+     * (statistics are estimates)
+     */
+    private ColumnarTable load(String database, String table) {
+        long startTime = System.currentTimeMillis();
+        List<String> columns = new ArrayList<>();
+        List<Map<String, Object>> rows = new ArrayList<>();
+        ColumnMapRowMapper mapper = new ColumnMapRowMapper();
+
+        jdbcTemplate.query("SELECT * FROM " + database + "." + table + " LIMIT " + (maxRows + 1), resultSet -> {
+            ResultSetMetaData metaData = resultSet.getMetaData();
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                columns.add(metaData.getColumnLabel(i));
+            }
+            while (resultSet.next()) {
+                rows.add(mapper.mapRow(resultSet, rows.size()));
+            }
+            return null;
+        });
+
+        if (rows.size() > maxRows) {
+            logger.debug("Not replicating {}.{}: more than {} rows", database, table, maxRows);
+            return null;
+        }
+        ColumnarTable replica = ColumnarTable.of(table, columns, rows);
+        if (replica.getBytes() > maxBytes) {
+            logger.debug("Not replicating {}.{}: {} bytes encoded", database, table, replica.getBytes());
+            return null;
+        }
+        logger.info("Loaded replica of {}.{}: {} rows, {} bytes in {} ms", database, table,
+            replica.getRowCount(), replica.getBytes(), System.currentTimeMillis() - startTime);
+        return replica;
+    }
+
+    /**
+     * Per-table replica size, age and how often it answered or fell back to MySQL
+     */
+    public Map<String, Map<String, Long>> getStats() {
+        Map<String, Map<String, Long>> stats = new LinkedHashMap<>();
+        long now = System.currentTimeMillis();
+        replicas.entrySet().stream().sorted(Map.Entry.comparingByKey()).forEach(entry -> {
+            Replica replica = entry.getValue();
+            Map<String, Long> table = new LinkedHashMap<>();
+            table.put("rows", (long) replica.table.getRowCount());
+            table.put("bytes", replica.table.getBytes());
+            table.put("ageMs", now - replica.loadedAt);
+            table.put("hits", replica.hits.sum());
+            table.put("fallbacks", replica.fallbacks.sum());
+            stats.put(entry.getKey().replace('|', '.'), table);
+        });
+        return stats;
+    }
+
+    private static String key(String database, String table) {
+        return database + "|" + table.substring(table.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (refreshExecutor != null) refreshExecutor.shutdownNow();
+    }
+
+    private static final class Replica {
+        private final ColumnarTable table;
+        private final LocalDateTime updateTime;
+        private final long loadedAt = System.currentTimeMillis();
+        private final LongAdder hits;
+        private final LongAdder fallbacks;
+
+        Replica(ColumnarTable table, LocalDateTime updateTime, Replica previous) {
+            this.table = table;
+            this.updateTime = updateTime;
+            // Counters survive reloads
+            this.hits = previous != null ? previous.hits : new LongAdder();
+            this.fallbacks = previous != null ? previous.fallbacks : new LongAdder();
+        }
+    }
+}
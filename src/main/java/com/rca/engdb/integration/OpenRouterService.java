@@ -4,15 +4,26 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rca.engdb.exec.QueryContext;
+import com.rca.engdb.metrics.LlmCallEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClient;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
@@ -20,6 +31,9 @@ public class OpenRouterService {
 
     private static final Logger logger = LoggerFactory.getLogger(OpenRouterService.class);
 
+    // Calls made under a deadline run here so the request thread can stop waiting
+    private static final ExecutorService CALLS = Executors.newVirtualThreadPerTaskExecutor();
+
     @Value("${openrouter.api-key}")
     private String apiKey;
 
@@ -37,8 +51,15 @@ public class OpenRouterService {
         this.objectMapper = objectMapper;
     }
 
+    /**
+     * Whether an API key is configured, i.e. whether generateSQL can call the model at all
+     */
+    public boolean isConfigured() {
+        return apiKey != null && !apiKey.isBlank() && !"YOUR_KEY_HERE".equals(apiKey);
+    }
+
     public String generateSQL(String naturalLanguageQuery, Map<String, List<String>> schema) {
-        if (apiKey == null || apiKey.isBlank() || "YOUR_KEY_HERE".equals(apiKey)) {
+        if (!isConfigured()) {
             logger.warn("OpenRouter API key is not set. Skipping LLM generation.");
             return null;
         }
@@ -72,15 +93,7 @@ public class OpenRouterService {
 
             String requestBody = objectMapper.writeValueAsString(request);
             
-            String responseBody = restClient.post()
-                .uri(apiUrl)
-                .header("Authorization", "Bearer " + apiKey)
-                .header("Content-Type", "application/json")
-                .header("HTTP-Referer", "http://localhost:8080") 
-                .header("X-Title", "EngDB")
-                .body(requestBody)
-                .retrieve()
-                .body(String.class);
+            String responseBody = timedPost(requestBody);
 
             OpenRouterResponse response = objectMapper.readValue(responseBody, OpenRouterResponse.class);
 
@@ -99,6 +112,9 @@ public class OpenRouterService {
                 return generatedSql;
             }
 
+        } catch (QueryTimeoutException | CancellationException e) {
+            // The request is over: let the caller report it instead of falling back
+            throw e;
         } catch (Exception e) {
             logger.error("Failed to call OpenRouter API", e);
         }
@@ -106,6 +122,65 @@ public class OpenRouterService {
         return null;
     }
 
+    /**
+     * Send the completion request, recorded as a JFR LlmCallEvent when that event is enabled
+     */
+    private String timedPost(String requestBody) throws Exception {
+        LlmCallEvent event = new LlmCallEvent();
+        event.begin();
+        String responseBody = null;
+        try {
+            responseBody = post(requestBody);
+            return responseBody;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.model = model;
+                event.promptBytes = requestBody.getBytes(StandardCharsets.UTF_8).length;
+                event.responseBytes = responseBody != null ? responseBody.getBytes(StandardCharsets.UTF_8).length : 0;
+                event.success = responseBody != null;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Send the completion request. Within a query the call is abandoned (and its thread
+     * interrupted) when the deadline passes or the query is cancelled.
+     */
+    private String post(String requestBody) throws Exception {
+        QueryContext context = QueryContext.current();
+        if (context == null) {
+            return send(requestBody);
+        }
+
+        context.checkActive();
+        Future<String> call = CALLS.submit(() -> send(requestBody));
+        try (QueryContext.Registration ignored = context.onCancel(() -> call.cancel(true))) {
+            return call.get(context.remainingMs(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            call.cancel(true);
+            throw new QueryTimeoutException("OpenRouter call exceeded the query deadline of " + context.getTimeoutMs() + "ms");
+        } catch (CancellationException e) {
+            context.checkActive();
+            throw e;
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
+    private String send(String requestBody) {
+        return restClient.post()
+            .uri(apiUrl)
+            .header("Authorization", "Bearer " + apiKey)
+            .header("Content-Type", "application/json")
+            .header("HTTP-Referer", "http://localhost:8080") 
+            .header("X-Title", "EngDB")
+            .body(requestBody)
+            .retrieve()
+            .body(String.class);
+    }
+
     private String formatSchema(Map<String, List<String>> schema) {
         StringBuilder sb = new StringBuilder();
         schema.forEach((table, columns) -> {
@@ -0,0 +1,36 @@
+package com.rca.engdb.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for one JDBC statement, including the wait for a connection permit
+ */
+@Name("com.rca.engdb.JdbcExecution")
+@Label("JDBC Execution")
+@Description("A SQL statement run through QueryExecutor")
+@Category({"EngDB", "JDBC"})
+@Enabled(false)
+@StackTrace(false)
+public class JdbcExecutionEvent extends Event {
+
+    @Label("SQL")
+    public String sql;
+
+    @Label("Rows")
+    public int rows;
+
+    @Label("Result Size")
+    @Description("Estimated heap size of the fetched rows")
+    @DataAmount(DataAmount.BYTES)
+    public long bytes;
+
+    @Label("Success")
+    public boolean success;
+}
@@ -0,0 +1,36 @@
+package com.rca.engdb.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for one OpenRouter completion call; the event duration is the call latency
+ */
+@Name("com.rca.engdb.LlmCall")
+@Label("LLM Call")
+@Description("A text-to-SQL completion request to OpenRouter")
+@Category({"EngDB", "LLM"})
+@Enabled(false)
+@StackTrace(false)
+public class LlmCallEvent extends Event {
+
+    @Label("Model")
+    public String model;
+
+    @Label("Prompt Size")
+    @DataAmount(DataAmount.BYTES)
+    public long promptBytes;
+
+    @Label("Response Size")
+    @DataAmount(DataAmount.BYTES)
+    public long responseBytes;
+
+    @Label("Success")
+    public boolean success;
+}
@@ -0,0 +1,140 @@
+package com.rca.engdb.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Latency of each query pipeline stage, plus counters for LLM fallbacks and result cache lookups.
+ *
+ * Stage timers share the name engdb.query.stage with a stage tag and publish histogram
+ * buckets, so percentiles can be aggregated across instances in Prometheus
+ * (engdb_query_stage_seconds_bucket).
+ *
+ * When the com.rca.engdb.Query JFR event is enabled in a recording, each request also
+ * emits a QueryEvent carrying the same stage durations. While it is disabled the only
+ * added cost is a thread-local lookup per stage.
+ */
+@Service
+public class PipelineMetrics {
+
+    public enum Stage {
+        REQUEST,
+        TOKENIZE,
+        PREPROCESS,
+        INTENT,
+        ENTITY_RECOGNITION,
+        ORDER_LIMIT_EXTRACTION,
+        CONDITION_EXTRACTION,
+        JOIN_DETECTION,
+        LLM_CALL,
+        OPTIMIZE,
+        PLAN,
+        SQL_GENERATION,
+        EXECUTION;
+
+        String tag() {
+            return name().toLowerCase();
+        }
+    }
+
+    // JFR event of the request running on this thread, when the event is enabled
+    private static final ThreadLocal<QueryEvent> CURRENT_EVENT = new ThreadLocal<>();
+
+    private final MeterRegistry registry;
+    private final Map<Stage, Timer> timers = new EnumMap<>(Stage.class);
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+
+    public PipelineMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        for (Stage stage : Stage.values()) {
+            timers.put(stage, Timer.builder("engdb.query.stage")
+                .description("Time spent in each query pipeline stage")
+                .tag("stage", stage.tag())
+                .publishPercentileHistogram()
+                .register(registry));
+        }
+        this.cacheHits = Counter.builder("engdb.cache.hits")
+            .description("Queries answered from the result cache")
+            .register(registry);
+        this.cacheMisses = Counter.builder("engdb.cache.misses")
+            .description("Queries the result cache could not answer")
+            .register(registry);
+    }
+
+    public <T> T time(Stage stage, Supplier<T> work) {
+        QueryEvent event = CURRENT_EVENT.get();
+        if (event == null) {
+            return timers.get(stage).record(work);
+        }
+        long start = System.nanoTime();
+        try {
+            return timers.get(stage).record(work);
+        } finally {
+            event.addStage(stage, System.nanoTime() - start);
+        }
+    }
+
+    public void time(Stage stage, Runnable work) {
+        time(stage, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Time a whole request, and record it as a JFR QueryEvent if that event is enabled.
+     * The question should be normalized so that repeats of it share the query hash.
+     */
+    public <T> T timeRequest(String queryId, String database, String question, Supplier<T> work) {
+        QueryEvent event = new QueryEvent();
+        if (!event.isEnabled()) {
+            return time(Stage.REQUEST, work);
+        }
+
+        QueryEvent outer = CURRENT_EVENT.get();
+        CURRENT_EVENT.set(event);
+        event.begin();
+        try {
+            return time(Stage.REQUEST, work);
+        } finally {
+            event.end();
+            if (outer != null) {
+                CURRENT_EVENT.set(outer);
+            } else {
+                CURRENT_EVENT.remove();
+            }
+            if (event.shouldCommit()) {
+                event.queryId = queryId;
+                event.queryHash = queryHash(question);
+                event.database = database;
+                event.commit();
+            }
+        }
+    }
+
+    static String queryHash(String question) {
+        return question == null ? null : String.format("%08x", question.hashCode());
+    }
+
+    /**
+     * The LLM produced no SQL and the rule-based engine answered instead
+     */
+    public void llmFallback(String reason) {
+        Counter.builder("engdb.llm.fallbacks")
+            .description("Questions answered by the rule-based engine because the LLM produced no SQL or its bulkhead was full")
+            .tag("reason", reason)
+            .register(registry)
+            .increment();
+    }
+
+    public void cacheLookup(boolean hit) {
+        (hit ? cacheHits : cacheMisses).increment();
+    }
+}
@@ -0,0 +1,90 @@
+package com.rca.engdb.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event for one query request, with the time spent in each pipeline stage.
+ *
+ * Disabled by default like the other EngDB events; enable them with the settings in
+ * jfr/engdb.jfc. The event is emitted on the request thread, so a recording can line it
+ * up with the GC pauses, monitor waits and allocation samples of the same thread.
+ */
+@Name("com.rca.engdb.Query")
+@Label("Query")
+@Description("A natural-language query request and its per-stage durations")
+@Category({"EngDB", "Query"})
+@Enabled(false)
+@StackTrace(false)
+class QueryEvent extends Event {
+
+    @Label("Query Id")
+    String queryId;
+
+    @Label("Query Hash")
+    @Description("Hash of the normalized question, stable across requests and instances")
+    String queryHash;
+
+    @Label("Database")
+    String database;
+
+    @Label("Tokenize") @Timespan(Timespan.NANOSECONDS)
+    long tokenize;
+
+    @Label("Preprocess") @Timespan(Timespan.NANOSECONDS)
+    long preprocess;
+
+    @Label("Intent") @Timespan(Timespan.NANOSECONDS)
+    long intent;
+
+    @Label("Entity Recognition") @Timespan(Timespan.NANOSECONDS)
+    long entityRecognition;
+
+    @Label("Order/Limit Extraction") @Timespan(Timespan.NANOSECONDS)
+    long orderLimitExtraction;
+
+    @Label("Condition Extraction") @Timespan(Timespan.NANOSECONDS)
+    long conditionExtraction;
+
+    @Label("Join Detection") @Timespan(Timespan.NANOSECONDS)
+    long joinDetection;
+
+    @Label("LLM Call") @Timespan(Timespan.NANOSECONDS)
+    long llmCall;
+
+    @Label("Optimize") @Timespan(Timespan.NANOSECONDS)
+    long optimize;
+
+    @Label("Plan") @Timespan(Timespan.NANOSECONDS)
+    long plan;
+
+    @Label("SQL Generation") @Timespan(Timespan.NANOSECONDS)
+    long sqlGeneration;
+
+    @Label("Execution") @Timespan(Timespan.NANOSECONDS)
+    long execution;
+
+    void addStage(PipelineMetrics.Stage stage, long nanos) {
+        switch (stage) {
+            case TOKENIZE -> tokenize += nanos;
+            case PREPROCESS -> preprocess += nanos;
+            case INTENT -> intent += nanos;
+            case ENTITY_RECOGNITION -> entityRecognition += nanos;
+            case ORDER_LIMIT_EXTRACTION -> orderLimitExtraction += nanos;
+            case CONDITION_EXTRACTION -> conditionExtraction += nanos;
+            case JOIN_DETECTION -> joinDetection += nanos;
+            case LLM_CALL -> llmCall += nanos;
+            case OPTIMIZE -> optimize += nanos;
+            case PLAN -> plan += nanos;
+            case SQL_GENERATION -> sqlGeneration += nanos;
+            case EXECUTION -> execution += nanos;
+            case REQUEST -> { } // the event's own duration
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.rca.engdb.metrics;
+
+import com.rca.engdb.schema.MongoSchemaDiscoveryService;
+import com.rca.engdb.schema.SchemaDiscoveryService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sizes of the schema caches and the number of schema refreshes, per source (mysql, mongodb)
+ */
+@Component
+public class SchemaCacheMetrics implements MeterBinder {
+
+    private final SchemaDiscoveryService schemaDiscoveryService;
+    private final MongoSchemaDiscoveryService mongoSchemaDiscoveryService;
+
+    public SchemaCacheMetrics(SchemaDiscoveryService schemaDiscoveryService,
+                              MongoSchemaDiscoveryService mongoSchemaDiscoveryService) {
+        this.schemaDiscoveryService = schemaDiscoveryService;
+        this.mongoSchemaDiscoveryService = mongoSchemaDiscoveryService;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("engdb.schema.cache.databases", schemaDiscoveryService, SchemaDiscoveryService::getCachedDatabaseCount)
+            .description("Databases with a cached schema").tag("source", "mysql").register(registry);
+        Gauge.builder("engdb.schema.cache.tables", schemaDiscoveryService, SchemaDiscoveryService::getCachedTableCount)
+            .description("Tables across all cached schemas").tag("source", "mysql").register(registry);
+        Gauge.builder("engdb.schema.cache.columns", schemaDiscoveryService, SchemaDiscoveryService::getCachedColumnCount)
+            .description("Columns across all cached schemas").tag("source", "mysql").register(registry);
+        FunctionCounter.builder("engdb.schema.refreshes", schemaDiscoveryService, SchemaDiscoveryService::getRefreshCount)
+            .description("Completed schema refreshes").tag("source", "mysql").register(registry);
+
+        Gauge.builder("engdb.schema.cache.databases", mongoSchemaDiscoveryService, MongoSchemaDiscoveryService::getCachedDatabaseCount)
+            .description("Databases with a cached schema").tag("source", "mongodb").register(registry);
+        Gauge.builder("engdb.schema.cache.tables", mongoSchemaDiscoveryService, MongoSchemaDiscoveryService::getCachedTableCount)
+            .description("Tables across all cached schemas").tag("source", "mongodb").register(registry);
+        Gauge.builder("engdb.schema.cache.columns", mongoSchemaDiscoveryService, MongoSchemaDiscoveryService::getCachedColumnCount)
+            .description("Columns across all cached schemas").tag("source", "mongodb").register(registry);
+        FunctionCounter.builder("engdb.schema.refreshes", mongoSchemaDiscoveryService, MongoSchemaDiscoveryService::getRefreshCount)
+            .description("Completed schema refreshes").tag("source", "mongodb").register(registry);
+    }
+}
@@ -0,0 +1,37 @@
+package com.rca.engdb.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for one schema refresh of a MySQL or MongoDB database
+ */
+@Name("com.rca.engdb.SchemaRefresh")
+@Label("Schema Refresh")
+@Description("Discovery of the tables and columns of one database")
+@Category({"EngDB", "Schema"})
+@Enabled(false)
+@StackTrace(false)
+public class SchemaRefreshEvent extends Event {
+
+    @Label("Source")
+    @Description("mysql or mongodb")
+    public String source;
+
+    @Label("Database")
+    public String database;
+
+    @Label("Tables")
+    public int tables;
+
+    @Label("Columns")
+    public int columns;
+
+    @Label("Success")
+    public boolean success;
+}
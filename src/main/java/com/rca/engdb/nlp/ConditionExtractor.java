@@ -2,6 +2,7 @@ package com.rca.engdb.nlp;
 
 import com.rca.engdb.ast.ConditionNode;
 import com.rca.engdb.schema.SchemaRegistry;
+import com.rca.engdb.util.LiteralCoercer;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
@@ -34,10 +35,20 @@ public class ConditionExtractor {
     }
 
     public List<ConditionNode> extractConditions(List<String> tokens, String tableName, String dbName) {
-        List<ConditionNode> conditions = new ArrayList<>();
-        if (tableName == null) return conditions;
+        if (tableName == null) return new ArrayList<>();
 
         List<String> columns = schemaRegistry.getSchema(dbName).getOrDefault(tableName, new ArrayList<>());
+        Map<String, Integer> columnTypes = schemaRegistry.getColumnTypes(dbName, tableName);
+        return extractConditions(tokens, columns, columnTypes, dbName);
+    }
+
+    /**
+     * Extract conditions on the given columns, for a table the schema registry does not
+     * resolve by name (the MongoDB side of a federated join)
+     */
+    public List<ConditionNode> extractConditions(List<String> tokens, List<String> columns,
+                                                 Map<String, Integer> columnTypes, String dbName) {
+        List<ConditionNode> conditions = new ArrayList<>();
 
         for (int i = 0; i < tokens.size(); i++) {
             String token = tokens.get(i);
@@ -45,8 +56,10 @@ public class ConditionExtractor {
             // Check if token matches a column
             String column = findColumnMatch(token, columns);
             if (column != null) {
+                Integer sqlType = columnTypes != null ? columnTypes.get(column) : null;
+
                 // Look ahead for value
-                String expectedValue = null;
+                Object expectedValue = null;
                 String operator = "=";
                 
                 if (i + 1 < tokens.size()) {
@@ -56,25 +69,28 @@ public class ConditionExtractor {
                         if (i + 2 < tokens.size()) {
                             String potentialValue = tokens.get(i + 2);
                             if (!isStopWord(potentialValue) && !isTableOrColumn(potentialValue, columns, dbName)) {
-                                expectedValue = potentialValue;
+                                expectedValue = LiteralCoercer.coerce(potentialValue, sqlType);
                             }
                         }
                     } else if (!isStopWord(next) && !isTableOrColumn(next, columns, dbName)) {
                         // Implicit equality: "department CS"
-                        expectedValue = next;
+                        expectedValue = LiteralCoercer.coerce(next, sqlType);
                     }
                 }
                 
-                // If lookahead failed, check previous token (e.g., "CS department")
+                // If lookahead failed (or the value does not fit the column type),
+                // check previous token (e.g., "CS department")
                 if (expectedValue == null && i > 0) {
                     String prev = tokens.get(i - 1);
                     if (!isStopWord(prev) && !isOperatorKeyword(prev) && !isTableOrColumn(prev, columns, dbName)) {
-                        expectedValue = prev;
+                        expectedValue = LiteralCoercer.coerce(prev, sqlType);
                     }
                 }
                 
                 if (expectedValue != null) {
-                    conditions.add(new ConditionNode(column, operator, expectedValue));
+                    ConditionNode condition = new ConditionNode(column, operator, expectedValue);
+                    condition.setSqlType(sqlType);
+                    conditions.add(condition);
                 }
             }
         }
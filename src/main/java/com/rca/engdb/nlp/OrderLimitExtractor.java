@@ -0,0 +1,258 @@
+package com.rca.engdb.nlp;
+
+import com.rca.engdb.ast.QueryAST.OrderDirection;
+import com.rca.engdb.schema.SchemaRegistry;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Extracts ORDER BY and LIMIT from phrases such as "top 10 highest paid instructors",
+ * "first 5 students", "last 3 courses", "oldest students" or "students sorted by age descending".
+ *
+ * Works on preprocessed tokens, so lemmatized forms ("sort", "pai") are accepted next to
+ * the original words.
+ */
+@Service
+public class OrderLimitExtractor {
+
+    private static final Set<String> DESCENDING_SUPERLATIVES = Set.of(
+        "highest", "most", "largest", "biggest", "greatest", "maximum", "best"
+    );
+    private static final Set<String> ASCENDING_SUPERLATIVES = Set.of(
+        "lowest", "least", "smallest", "fewest", "minimum", "worst"
+    );
+    private static final Set<String> SORT_KEYWORDS = Set.of(
+        "sort", "sorted", "order", "ordered", "rank", "ranked"
+    );
+    private static final Set<String> DESCENDING_WORDS = Set.of("desc", "descending", "descend", "decreasing");
+    private static final Set<String> ASCENDING_WORDS = Set.of("asc", "ascending", "ascend", "increasing");
+
+    // Words that name both the column and the direction
+    private static final Map<String, Ordering> ADJECTIVES = Map.of(
+        "oldest", new Ordering("age", OrderDirection.DESC),
+        "youngest", new Ordering("age", OrderDirection.ASC),
+        "cheapest", new Ordering("price", OrderDirection.ASC),
+        "priciest", new Ordering("price", OrderDirection.DESC),
+        "newest", new Ordering("created_at", OrderDirection.DESC),
+        "latest", new Ordering("created_at", OrderDirection.DESC),
+        "earliest", new Ordering("created_at", OrderDirection.ASC)
+    );
+
+    // Words after a superlative that stand for a column ("highest paid" -> salary)
+    private static final Map<String, String> COLUMN_WORDS = Map.of(
+        "paid", "salary",
+        "pai", "salary",
+        "earning", "salary",
+        "expensive", "price",
+        "rated", "rating",
+        "rat", "rating"
+    );
+
+    private static final Map<String, Integer> NUMBER_WORDS = Map.ofEntries(
+        Map.entry("one", 1), Map.entry("two", 2), Map.entry("three", 3), Map.entry("four", 4),
+        Map.entry("five", 5), Map.entry("six", 6), Map.entry("seven", 7), Map.entry("eight", 8),
+        Map.entry("nine", 9), Map.entry("ten", 10), Map.entry("twenty", 20), Map.entry("fifty", 50),
+        Map.entry("hundred", 100)
+    );
+
+    private final SchemaRegistry schemaRegistry;
+    private final SynonymRegistry synonymRegistry;
+
+    public OrderLimitExtractor(SchemaRegistry schemaRegistry, SynonymRegistry synonymRegistry) {
+        this.schemaRegistry = schemaRegistry;
+        this.synonymRegistry = synonymRegistry;
+    }
+
+    public OrderLimitResult extract(List<String> tokens, String tableName) {
+        return extract(tokens, tableName, null);
+    }
+
+    public OrderLimitResult extract(List<String> tokens, String tableName, String dbName) {
+        OrderLimitResult result = new OrderLimitResult();
+        if (tableName == null) return result;
+
+        List<String> columns = schemaRegistry.getSchema(dbName).getOrDefault(tableName, List.of());
+
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get(i).toLowerCase();
+
+            // "top 10", "first 5", "last 3", "bottom 2"
+            if (isCountKeyword(token)) {
+                Integer count = i + 1 < tokens.size() ? parseCount(tokens.get(i + 1)) : null;
+                if (count != null) {
+                    result.limit = count;
+                    result.consume(i, i + 1);
+                    if (result.direction == null) {
+                        result.direction = token.equals("top") || token.equals("last")
+                            ? OrderDirection.DESC : OrderDirection.ASC;
+                    }
+                    result.countKeyword = token;
+                    i++;
+                } else if (token.equals("top") || token.equals("bottom")) {
+                    // "the top student by grade": a single row
+                    result.limit = 1;
+                    result.singleFromKeyword = true;
+                    result.consume(i);
+                    result.direction = token.equals("top") ? OrderDirection.DESC : OrderDirection.ASC;
+                    result.countKeyword = token;
+                }
+                continue;
+            }
+
+            // "oldest", "cheapest"
+            Ordering adjective = ADJECTIVES.get(token);
+            if (adjective != null && findColumn(adjective.column, columns) != null) {
+                result.orderByColumn = findColumn(adjective.column, columns);
+                result.direction = adjective.direction;
+                result.consume(i);
+                countBefore(tokens, i, result);
+                continue;
+            }
+
+            // "highest salary", "most expensive", "lowest paid"
+            if (DESCENDING_SUPERLATIVES.contains(token) || ASCENDING_SUPERLATIVES.contains(token)) {
+                String column = i + 1 < tokens.size() ? resolveColumn(tokens.get(i + 1), columns) : null;
+                if (column != null) {
+                    result.orderByColumn = column;
+                    result.direction = DESCENDING_SUPERLATIVES.contains(token) ? OrderDirection.DESC : OrderDirection.ASC;
+                    result.consume(i, i + 1);
+                    countBefore(tokens, i, result);
+                    i++;
+                }
+                continue;
+            }
+
+            // "sorted by age descending", "order by name", "top 10 students by grade"
+            boolean sortKeyword = SORT_KEYWORDS.contains(token);
+            if (sortKeyword || (token.equals("by") && result.countKeyword != null)) {
+                int next = i + 1;
+                if (sortKeyword && next < tokens.size() && tokens.get(next).equalsIgnoreCase("by")) next++;
+
+                String column = next < tokens.size() ? resolveColumn(tokens.get(next), columns) : null;
+                if (column != null) {
+                    result.orderByColumn = column;
+                    result.consume(i, next);
+                    if (sortKeyword) result.direction = OrderDirection.ASC;
+
+                    String after = next + 1 < tokens.size() ? tokens.get(next + 1).toLowerCase() : "";
+                    if (DESCENDING_WORDS.contains(after)) {
+                        result.direction = OrderDirection.DESC;
+                        result.consume(next + 1);
+                    } else if (ASCENDING_WORDS.contains(after)) {
+                        result.direction = OrderDirection.ASC;
+                        result.consume(next + 1);
+                    }
+                    i = next;
+                }
+            }
+        }
+
+        // "last 3 courses" without a column: newest rows by primary key
+        if (result.orderByColumn == null && "last".equals(result.countKeyword)) {
+            result.orderByColumn = findColumn("id", columns);
+        }
+        // "first 5" without a column keeps the natural order
+        if (result.orderByColumn == null) {
+            result.direction = null;
+            // A bare "top" only means one row when there is something to rank by
+            if (result.singleFromKeyword) result.limit = null;
+        }
+
+        return result;
+    }
+
+    /**
+     * "5 oldest students", "3 highest paid instructors": a count right before the ordering word
+     */
+    private void countBefore(List<String> tokens, int i, OrderLimitResult result) {
+        if (i == 0 || result.countKeyword != null || result.consumed.contains(i - 1)) return;
+        Integer count = parseCount(tokens.get(i - 1));
+        if (count != null) {
+            result.limit = count;
+            result.consume(i - 1);
+        }
+    }
+
+    private boolean isCountKeyword(String token) {
+        return token.equals("top") || token.equals("first") || token.equals("last") || token.equals("bottom");
+    }
+
+    private Integer parseCount(String token) {
+        Integer word = NUMBER_WORDS.get(token.toLowerCase());
+        if (word != null) return word;
+        try {
+            int value = Integer.parseInt(token);
+            return value > 0 ? value : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private String resolveColumn(String token, List<String> columns) {
+        String word = token.toLowerCase();
+        String column = findColumn(word, columns);
+        if (column == null) column = findColumn(synonymRegistry.resolve(word), columns);
+        if (column == null && COLUMN_WORDS.containsKey(word)) column = findColumn(COLUMN_WORDS.get(word), columns);
+        return column;
+    }
+
+    private String findColumn(String word, List<String> columns) {
+        for (String column : columns) {
+            String name = column.toLowerCase();
+            if (name.equals(word) || name.equals(word + "s") || (word.endsWith("s") && name.equals(word.substring(0, word.length() - 1)))) {
+                return column;
+            }
+        }
+        return null;
+    }
+
+    private static class Ordering {
+        private final String column;
+        private final OrderDirection direction;
+
+        Ordering(String column, OrderDirection direction) {
+            this.column = column;
+            this.direction = direction;
+        }
+    }
+
+    /**
+     * Extracted ordering and limit, plus the token positions that expressed them
+     */
+    public static class OrderLimitResult {
+        private Integer limit;
+        private String orderByColumn;
+        private OrderDirection direction;
+        private String countKeyword;
+        private boolean singleFromKeyword;
+        private final Set<Integer> consumed = new HashSet<>();
+
+        private void consume(int... indexes) {
+            for (int index : indexes) consumed.add(index);
+        }
+
+        public Integer getLimit() {
+            return limit;
+        }
+
+        public String getOrderByColumn() {
+            return orderByColumn;
+        }
+
+        public OrderDirection getDirection() {
+            return direction;
+        }
+
+        /**
+         * Tokens that were not part of an ordering or limit phrase, for condition extraction
+         */
+        public List<String> remainingTokens(List<String> tokens) {
+            List<String> remaining = new ArrayList<>();
+            for (int i = 0; i < tokens.size(); i++) {
+                if (!consumed.contains(i)) remaining.add(tokens.get(i));
+            }
+            return remaining;
+        }
+    }
+}
@@ -13,6 +13,13 @@ public class JoinPath {
         this.relations = new ArrayList<>();
     }
 
+    /**
+     * Immutable path over the given relations
+     */
+    public JoinPath(List<ForeignKeyRelation> relations) {
+        this.relations = List.copyOf(relations);
+    }
+
     public void addRelation(ForeignKeyRelation relation) {
         relations.add(relation);
     }
@@ -0,0 +1,308 @@
+package com.rca.engdb.schema;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Projections;
+import com.rca.engdb.metrics.SchemaRefreshEvent;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Infers table/column vocabulary for MongoDB databases.
+ *
+ * Collections have no declared columns, so field sets are inferred from a bounded
+ * {@code $sample} of each collection plus the keys of its existing indexes. As the
+ * first pipeline stage with a sample size below 5% of the collection, {@code $sample}
+ * uses a random cursor instead of scanning, so the cost is bounded by the sample size
+ * rather than by the collection size. Only field names are returned to the client.
+ */
+@Service
+public class MongoSchemaDiscoveryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MongoSchemaDiscoveryService.class);
+
+    private final MongoClient mongoClient;
+
+    // Map<DatabaseName, Map<CollectionName, List<FieldName>>>
+    private final Map<String, Map<String, List<String>>> globalSchemaCache = new ConcurrentHashMap<>();
+
+    // Map<DatabaseName, Map<CollectionName, Map<FieldName, java.sql.Types>>>
+    private final Map<String, Map<String, Map<String, Integer>>> globalColumnTypeCache = new ConcurrentHashMap<>();
+
+    private final Map<String, Long> lastRefreshTimes = new ConcurrentHashMap<>();
+    private final AtomicLong refreshCount = new AtomicLong();
+    private long cacheTtlMs;
+
+    private final int sampleSize;
+    private final long sampleTimeoutMs;
+    private String defaultDatabase = "engdb";
+
+    public MongoSchemaDiscoveryService(MongoClient mongoClient,
+                                       @Value("${engdb.schema.cache-ttl-minutes:60}") long cacheTtlMinutes,
+                                       @Value("${engdb.schema.mongo.sample-size:100}") int sampleSize,
+                                       @Value("${engdb.schema.mongo.sample-timeout-ms:2000}") long sampleTimeoutMs) {
+        this.mongoClient = mongoClient;
+        this.cacheTtlMs = cacheTtlMinutes * 60 * 1000;
+        this.sampleSize = sampleSize;
+        this.sampleTimeoutMs = sampleTimeoutMs;
+    }
+
+    /**
+     * Discover schema for a specific MongoDB database or return cached version
+     */
+    public Map<String, List<String>> discoverSchema(String dbName) {
+        if (dbName == null || dbName.isEmpty()) dbName = defaultDatabase;
+
+        long now = System.currentTimeMillis();
+        long lastRefresh = lastRefreshTimes.getOrDefault(dbName, 0L);
+        boolean cacheExpired = (now - lastRefresh) > cacheTtlMs;
+
+        if (!globalSchemaCache.containsKey(dbName) || cacheExpired) {
+            refreshSchema(dbName);
+            lastRefreshTimes.put(dbName, now);
+        }
+
+        return globalSchemaCache.get(dbName);
+    }
+
+    /**
+     * Force refresh of the inferred schema for a specific database.
+     * A failed refresh caches an empty schema so an unreachable server is retried once per TTL.
+     */
+    public void refreshSchema(String dbName) {
+        Map<String, List<String>> newSchema = new HashMap<>();
+        Map<String, Map<String, Integer>> newColumnTypes = new HashMap<>();
+        SchemaRefreshEvent event = new SchemaRefreshEvent();
+        event.begin();
+
+        try {
+            MongoDatabase database = mongoClient.getDatabase(dbName);
+
+            // Collections are sampled concurrently, one virtual thread each: the work is
+            // waiting on the server, bounded by the driver's connection pool
+            Map<String, Future<List<Map<String, String>>>> samplesByCollection = new LinkedHashMap<>();
+            Map<String, Future<List<String>>> indexesByCollection = new LinkedHashMap<>();
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (String collectionName : database.listCollectionNames()) {
+                    if (collectionName.startsWith("system.")) continue;
+
+                    MongoCollection<Document> collection = database.getCollection(collectionName);
+                    samplesByCollection.put(collectionName, executor.submit(() -> sampleFieldTypes(collection)));
+                    indexesByCollection.put(collectionName, executor.submit(() -> indexedFields(collection)));
+                }
+            }
+
+            for (Map.Entry<String, Future<List<Map<String, String>>>> entry : samplesByCollection.entrySet()) {
+                String collectionName = entry.getKey();
+                List<Map<String, String>> samples = entry.getValue().get();
+
+                List<List<String>> sampledKeys = new ArrayList<>();
+                samples.forEach(sample -> sampledKeys.add(new ArrayList<>(sample.keySet())));
+
+                newSchema.put(collectionName, inferFields(indexesByCollection.get(collectionName).get(), sampledKeys));
+                newColumnTypes.put(collectionName, inferTypes(samples));
+            }
+
+            if (newSchema.isEmpty()) {
+                logger.warn("No collections found in MongoDB database: {}", dbName);
+            }
+            event.success = true;
+        } catch (Exception e) {
+            logger.error("Failed to infer MongoDB schema for database: {}", dbName, e);
+        }
+
+        globalSchemaCache.put(dbName, newSchema);
+        globalColumnTypeCache.put(dbName, newColumnTypes);
+        refreshCount.incrementAndGet();
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.source = "mongodb";
+            event.database = dbName;
+            event.tables = newSchema.size();
+            event.columns = newSchema.values().stream().mapToInt(List::size).sum();
+            event.commit();
+        }
+    }
+
+    /**
+     * Field paths covered by existing indexes, in index order.
+     * These are the fields queries already filter on, so they are used as hints.
+     */
+    private List<String> indexedFields(MongoCollection<Document> collection) {
+        List<String> fields = new ArrayList<>();
+        for (Document index : collection.listIndexes()) {
+            Document key = index.get("key", Document.class);
+            if (key == null) continue;
+
+            for (String field : key.keySet()) {
+                // Skip text index internals and wildcard indexes
+                if (field.startsWith("_fts") || field.contains("$**")) continue;
+                fields.add(field);
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Top-level field names and BSON type names of a bounded random sample of documents
+     */
+    private List<Map<String, String>> sampleFieldTypes(MongoCollection<Document> collection) {
+        List<Map<String, String>> samples = new ArrayList<>();
+        if (sampleSize <= 0) return samples;
+
+        List<Bson> pipeline = List.of(
+            Aggregates.sample(sampleSize),
+            // Return only key names and value types, never the (possibly large) values
+            Aggregates.project(Projections.fields(
+                Projections.excludeId(),
+                Projections.computed("fields",
+                    new Document("$map", new Document("input", new Document("$objectToArray", "$$ROOT"))
+                        .append("in", new Document("k", "$$this.k").append("t", new Document("$type", "$$this.v")))))
+            ))
+        );
+
+        for (Document doc : collection.aggregate(pipeline)
+                .allowDiskUse(false)
+                .maxTime(sampleTimeoutMs, TimeUnit.MILLISECONDS)) {
+            Map<String, String> fieldTypes = new LinkedHashMap<>();
+            for (Document field : doc.getList("fields", Document.class, List.of())) {
+                fieldTypes.put(field.getString("k"), field.getString("t"));
+            }
+            samples.add(fieldTypes);
+        }
+        return samples;
+    }
+
+    /**
+     * Merge index hints and sampled keys into an ordered field list:
+     * indexed fields first, then remaining fields by how often they were sampled.
+     */
+    public static List<String> inferFields(List<String> indexedFields, List<List<String>> sampledKeys) {
+        Map<String, Integer> frequency = new LinkedHashMap<>();
+        for (List<String> keys : sampledKeys) {
+            for (String key : keys) {
+                frequency.merge(key, 1, Integer::sum);
+            }
+        }
+
+        Set<String> fields = new LinkedHashSet<>(indexedFields);
+        frequency.entrySet().stream()
+            .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+            .forEach(entry -> fields.add(entry.getKey()));
+
+        return new ArrayList<>(fields);
+    }
+
+    /**
+     * Map each sampled field to the SQL type of its most frequent BSON type.
+     * Fields whose values have no scalar SQL equivalent (objects, arrays, ids) are left out.
+     */
+    public static Map<String, Integer> inferTypes(List<Map<String, String>> samples) {
+        Map<String, Map<String, Integer>> typeCounts = new LinkedHashMap<>();
+        for (Map<String, String> sample : samples) {
+            sample.forEach((field, type) -> {
+                if (type != null && !type.equals("null") && !type.equals("missing")) {
+                    typeCounts.computeIfAbsent(field, k -> new HashMap<>()).merge(type, 1, Integer::sum);
+                }
+            });
+        }
+
+        Map<String, Integer> types = new LinkedHashMap<>();
+        typeCounts.forEach((field, counts) -> {
+            String dominant = counts.entrySet().stream()
+                .max(Map.Entry.comparingByValue())
+                .map(Map.Entry::getKey)
+                .orElse(null);
+            Integer sqlType = toSqlType(dominant);
+            if (sqlType != null) {
+                types.put(field, sqlType);
+            }
+        });
+        return types;
+    }
+
+    private static Integer toSqlType(String bsonType) {
+        if (bsonType == null) return null;
+        switch (bsonType) {
+            case "int": return java.sql.Types.INTEGER;
+            case "long": return java.sql.Types.BIGINT;
+            case "double": return java.sql.Types.DOUBLE;
+            case "decimal": return java.sql.Types.DECIMAL;
+            case "bool": return java.sql.Types.BOOLEAN;
+            case "date": return java.sql.Types.TIMESTAMP;
+            case "string": return java.sql.Types.VARCHAR;
+            default: return null;
+        }
+    }
+
+    /**
+     * Get the inferred SQL types (java.sql.Types) of a collection's fields
+     */
+    public Map<String, Integer> getColumnTypes(String dbName, String collectionName) {
+        if (dbName == null || dbName.isEmpty()) dbName = defaultDatabase;
+
+        discoverSchema(dbName);
+        return globalColumnTypeCache.getOrDefault(dbName, Map.of()).getOrDefault(collectionName, Map.of());
+    }
+
+    public List<String> getCollectionNames(String dbName) {
+        return new ArrayList<>(discoverSchema(dbName).keySet());
+    }
+
+    public void setDefaultDatabase(String dbName) {
+        this.defaultDatabase = dbName;
+    }
+
+    public void setCacheTtlMinutes(long minutes) {
+        this.cacheTtlMs = minutes * 60 * 1000;
+    }
+
+    public void clearCache() {
+        globalSchemaCache.clear();
+        globalColumnTypeCache.clear();
+        lastRefreshTimes.clear();
+    }
+
+    public int getCachedDatabaseCount() {
+        return globalSchemaCache.size();
+    }
+
+    public int getCachedTableCount() {
+        return globalSchemaCache.values().stream().mapToInt(Map::size).sum();
+    }
+
+    public int getCachedColumnCount() {
+        return globalSchemaCache.values().stream()
+            .flatMap(tables -> tables.values().stream())
+            .mapToInt(List::size)
+            .sum();
+    }
+
+    /**
+     * Number of completed schema refreshes
+     */
+    public long getRefreshCount() {
+        return refreshCount.get();
+    }
+}
@@ -1,5 +1,6 @@
 package com.rca.engdb.schema;
 
+import com.rca.engdb.metrics.SchemaRefreshEvent;
 import org.springframework.stereotype.Service;
 
 import javax.sql.DataSource;
@@ -11,25 +12,37 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class SchemaDiscoveryService {
 
     private final DataSource dataSource;
+    private final TableStatisticsService tableStatisticsService;
     // Map<DatabaseName, Map<TableName, List<ColumnName>>>
     private final Map<String, Map<String, List<String>>> globalSchemaCache = new ConcurrentHashMap<>();
+
+    // Map<DatabaseName, Map<TableName, Map<ColumnName, java.sql.Types>>>
+    private final Map<String, Map<String, Map<String, Integer>>> globalColumnTypeCache = new ConcurrentHashMap<>();
     
     // Map<DatabaseName, SchemaGraph>
     private final Map<String, SchemaGraph> globalGraphCache = new ConcurrentHashMap<>();
     
     private final Map<String, Long> lastRefreshTimes = new ConcurrentHashMap<>();
+
+    // Incremented whenever a schema is (re)loaded, so derived caches can tell they are stale
+    private final AtomicLong schemaVersion = new AtomicLong();
+    // The same per database, so reloading one database leaves the others' derived caches alone
+    private final Map<String, AtomicLong> schemaVersions = new ConcurrentHashMap<>();
+    private final AtomicLong refreshCount = new AtomicLong();
     private static final long DEFAULT_CACHE_TTL_MS = 60 * 60 * 1000; // 1 hour default
     private long cacheTtlMs = DEFAULT_CACHE_TTL_MS;
     
     private String defaultDatabase = "engdb";
 
-    public SchemaDiscoveryService(DataSource dataSource) {
+    public SchemaDiscoveryService(DataSource dataSource, TableStatisticsService tableStatisticsService) {
         this.dataSource = dataSource;
+        this.tableStatisticsService = tableStatisticsService;
     }
 
     /**
@@ -62,7 +75,10 @@ public class SchemaDiscoveryService {
      */
     public void refreshSchema(String dbName) {
         Map<String, List<String>> newSchema = new HashMap<>();
+        Map<String, Map<String, Integer>> newColumnTypes = new HashMap<>();
         SchemaGraph newGraph = new SchemaGraph();
+        SchemaRefreshEvent event = new SchemaRefreshEvent();
+        event.begin();
         
         try (Connection connection = dataSource.getConnection()) {
             DatabaseMetaData metaData = connection.getMetaData();
@@ -72,26 +88,37 @@ public class SchemaDiscoveryService {
                 while (tables.next()) {
                     String tableName = tables.getString("TABLE_NAME");
                     List<String> columns = new ArrayList<>();
+                    Map<String, Integer> columnTypes = new HashMap<>();
                     
-                    // Get columns
+                    // Get columns and their SQL types
                     try (ResultSet cols = metaData.getColumns(dbName, null, tableName, "%")) {
                         while (cols.next()) {
-                            columns.add(cols.getString("COLUMN_NAME"));
+                            String columnName = cols.getString("COLUMN_NAME");
+                            columns.add(columnName);
+                            columnTypes.put(columnName, cols.getInt("DATA_TYPE"));
                         }
                     }
                     
-
-                    
                     // Prefix table name with database name to ensure cross-database queries work
                     newSchema.put(dbName + "." + tableName, columns);
+                    newColumnTypes.put(dbName + "." + tableName, columnTypes);
                 }
             }
             
             globalSchemaCache.put(dbName, newSchema);
-            globalGraphCache.put(dbName, newGraph);
+            globalColumnTypeCache.put(dbName, newColumnTypes);
             
-            // Discover foreign keys
+            // Discover foreign keys, then compile the graph before it is published
             discoverForeignKeys(dbName, newGraph);
+            newGraph.freeze();
+            globalGraphCache.put(dbName, newGraph);
+            schemaVersion.incrementAndGet();
+            schemaVersions.computeIfAbsent(dbName, k -> new AtomicLong()).incrementAndGet();
+            refreshCount.incrementAndGet();
+            event.success = true;
+
+            // Collect planner statistics in the background
+            tableStatisticsService.refreshAsync(dbName);
             
             if (newSchema.isEmpty()) {
                 System.out.println("WARNING: No tables found in database: " + dbName);
@@ -100,6 +127,15 @@ public class SchemaDiscoveryService {
         } catch (Exception e) {
             e.printStackTrace();
         }
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.source = "mysql";
+            event.database = dbName;
+            event.tables = newSchema.size();
+            event.columns = newSchema.values().stream().mapToInt(List::size).sum();
+            event.commit();
+        }
     }
 
     /**
@@ -112,7 +148,9 @@ public class SchemaDiscoveryService {
             
             if (schema == null) return;
             
-            for (String tableName : schema.keySet()) {
+            for (String qualifiedName : schema.keySet()) {
+                // Schema keys are qualified with the database, metadata lookups need the plain name
+                String tableName = qualifiedName.substring(dbName.length() + 1);
                 try (ResultSet foreignKeys = metaData.getImportedKeys(dbName, null, tableName)) {
                     while (foreignKeys.next()) {
                         String fkTable = foreignKeys.getString("FKTABLE_NAME");
@@ -137,6 +175,32 @@ public class SchemaDiscoveryService {
         return discoverSchema(dbName).getOrDefault(tableName, new ArrayList<>());
     }
 
+    /**
+     * Get the SQL types (java.sql.Types) of a table's columns, keyed by column name
+     */
+    public Map<String, Integer> getColumnTypes(String dbName, String tableName) {
+        if (dbName == null || dbName.isEmpty()) dbName = defaultDatabase;
+
+        discoverSchema(dbName);
+        return globalColumnTypeCache.getOrDefault(dbName, Map.of()).getOrDefault(tableName, Map.of());
+    }
+
+    /**
+     * Version of the discovered schemas; changes on every refresh
+     */
+    public long getSchemaVersion() {
+        return schemaVersion.get();
+    }
+
+    /**
+     * Version of one database's discovered schema; changes when that database is refreshed
+     */
+    public long getSchemaVersion(String dbName) {
+        if (dbName == null || dbName.isEmpty()) dbName = defaultDatabase;
+        AtomicLong version = schemaVersions.get(dbName);
+        return version != null ? version.get() : 0;
+    }
+
     /**
      * Get the schema graph for the default database
      */
@@ -166,8 +230,33 @@ public class SchemaDiscoveryService {
     
     public void clearCache() {
         globalSchemaCache.clear();
+        globalColumnTypeCache.clear();
         globalGraphCache.clear();
         lastRefreshTimes.clear();
+        schemaVersion.incrementAndGet();
+        schemaVersions.values().forEach(AtomicLong::incrementAndGet);
+    }
+    
+    public int getCachedDatabaseCount() {
+        return globalSchemaCache.size();
+    }
+
+    public int getCachedTableCount() {
+        return globalSchemaCache.values().stream().mapToInt(Map::size).sum();
+    }
+
+    public int getCachedColumnCount() {
+        return globalSchemaCache.values().stream()
+            .flatMap(tables -> tables.values().stream())
+            .mapToInt(List::size)
+            .sum();
+    }
+
+    /**
+     * Number of completed schema refreshes
+     */
+    public long getRefreshCount() {
+        return refreshCount.get();
     }
     
     public String getCacheStats() {
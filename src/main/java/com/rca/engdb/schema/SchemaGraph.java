@@ -1,135 +1,332 @@
 package com.rca.engdb.schema;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Models database schema relationships as a graph
  * Supports finding JOIN paths between tables
+ *
+ * Relationships are collected during discovery and then compiled into an immutable
+ * snapshot: tables get dense int ids and adjacency is stored in CSR arrays, which the
+ * join planner searches by id. Shortest join paths come from a next-hop row per target
+ * table, computed on its first lookup. Lookups on the request path take no locks.
  */
 public class SchemaGraph {
 
-    private final Map<String, List<ForeignKeyRelation>> adjacencyList;
-    private final Map<String, Map<String, JoinPath>> pathCache;
+    private static final JoinPath EMPTY_PATH = new JoinPath(List.of());
 
-    public SchemaGraph() {
-        this.adjacencyList = new ConcurrentHashMap<>();
-        this.pathCache = new ConcurrentHashMap<>();
-    }
+    private final List<ForeignKeyRelation> relations = new ArrayList<>();
+    private volatile Snapshot snapshot;
 
     /**
      * Add a foreign key relationship to the graph
      */
-    public void addRelationship(String fromTable, String fromColumn, String toTable, String toColumn) {
-        ForeignKeyRelation relation = new ForeignKeyRelation(fromTable, fromColumn, toTable, toColumn);
-        
-        adjacencyList.computeIfAbsent(fromTable, k -> new ArrayList<>()).add(relation);
-        
-        // Add reverse relationship for bidirectional traversal
-        ForeignKeyRelation reverseRelation = new ForeignKeyRelation(toTable, toColumn, fromTable, fromColumn);
-        adjacencyList.computeIfAbsent(toTable, k -> new ArrayList<>()).add(reverseRelation);
+    public synchronized void addRelationship(String fromTable, String fromColumn, String toTable, String toColumn) {
+        relations.add(new ForeignKeyRelation(fromTable, fromColumn, toTable, toColumn));
+        snapshot = null;
     }
 
     /**
-     * Check if two tables are directly related
+     * Compile the relationships added so far.
+     * Called once discovery is complete; otherwise the first lookup compiles the graph.
      */
-    public boolean areDirectlyRelated(String table1, String table2) {
-        List<ForeignKeyRelation> relations = adjacencyList.get(table1);
-        if (relations == null) return false;
-        
-        return relations.stream()
-            .anyMatch(r -> r.getToTable().equalsIgnoreCase(table2));
+    public void freeze() {
+        snapshot();
     }
 
     /**
-     * Find the shortest JOIN path between two tables using BFS
+     * The compiled graph; ids are only meaningful within one snapshot
      */
-    public JoinPath findJoinPath(String fromTable, String toTable) {
-        // Check cache first
-        String cacheKey = fromTable + "->" + toTable;
-        if (pathCache.containsKey(fromTable) && pathCache.get(fromTable).containsKey(toTable)) {
-            return pathCache.get(fromTable).get(toTable);
-        }
+    public Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current != null) return current;
 
-        if (fromTable.equalsIgnoreCase(toTable)) {
-            return new JoinPath(); // Empty path for same table
+        synchronized (this) {
+            if (snapshot == null) {
+                snapshot = new Snapshot(relations);
+            }
+            return snapshot;
         }
+    }
 
-        // BFS to find shortest path
-        Queue<String> queue = new LinkedList<>();
-        Map<String, ForeignKeyRelation> parentMap = new HashMap<>();
-        Set<String> visited = new HashSet<>();
-
-        queue.offer(fromTable);
-        visited.add(fromTable.toLowerCase());
-
-        while (!queue.isEmpty()) {
-            String currentTable = queue.poll();
-
-            if (currentTable.equalsIgnoreCase(toTable)) {
-                // Reconstruct path
-                JoinPath path = reconstructPath(fromTable, toTable, parentMap);
-                
-                // Cache the result
-                pathCache.computeIfAbsent(fromTable, k -> new HashMap<>()).put(toTable, path);
-                
-                return path;
-            }
+    /**
+     * Check if two tables are directly related
+     */
+    public boolean areDirectlyRelated(String table1, String table2) {
+        Snapshot graph = snapshot();
+        int from = graph.idOf(table1);
+        int to = graph.idOf(table2);
+        if (from < 0 || to < 0) return false;
 
-            List<ForeignKeyRelation> relations = adjacencyList.get(currentTable);
-            if (relations != null) {
-                for (ForeignKeyRelation relation : relations) {
-                    String nextTable = relation.getToTable();
-                    if (!visited.contains(nextTable.toLowerCase())) {
-                        visited.add(nextTable.toLowerCase());
-                        parentMap.put(nextTable, relation);
-                        queue.offer(nextTable);
-                    }
-                }
-            }
+        for (int e = graph.offsets[from]; e < graph.offsets[from + 1]; e++) {
+            if (graph.targets[e] == to) return true;
         }
+        return false;
+    }
 
-        return null; // No path found
+    /**
+     * Check whether fromTable.fromColumn is a foreign key referencing toTable.toColumn
+     * (as opposed to the reverse traversal of such a key)
+     */
+    public boolean isForeignKey(String fromTable, String fromColumn, String toTable, String toColumn) {
+        return snapshot().foreignKeys.contains(keyOf(fromTable, fromColumn, toTable, toColumn));
     }
 
-    private JoinPath reconstructPath(String fromTable, String toTable, Map<String, ForeignKeyRelation> parentMap) {
-        JoinPath path = new JoinPath();
-        List<ForeignKeyRelation> relations = new ArrayList<>();
+    private static String keyOf(String fromTable, String fromColumn, String toTable, String toColumn) {
+        return (fromTable + "." + fromColumn + "->" + toTable + "." + toColumn).toLowerCase();
+    }
 
-        String current = toTable;
-        while (!current.equalsIgnoreCase(fromTable)) {
-            ForeignKeyRelation relation = parentMap.get(current);
-            if (relation == null) break;
-            
-            relations.add(0, relation); // Add to front
-            current = relation.getFromTable();
+    /**
+     * Find the shortest JOIN path between two tables.
+     * Returns an empty path for the same table and null if the tables are not connected.
+     */
+    public JoinPath findJoinPath(String fromTable, String toTable) {
+        if (fromTable.equalsIgnoreCase(toTable)) {
+            return EMPTY_PATH;
         }
 
-        for (ForeignKeyRelation relation : relations) {
-            path.addRelation(relation);
-        }
+        Snapshot graph = snapshot();
+        int from = graph.idOf(fromTable);
+        int to = graph.idOf(toTable);
+        if (from < 0 || to < 0) return null;
 
-        return path;
+        return graph.path(from, to);
     }
 
     /**
      * Get all tables in the graph
      */
     public Set<String> getAllTables() {
-        return adjacencyList.keySet();
+        return snapshot().tables;
     }
 
     /**
      * Get all relationships for a table
      */
     public List<ForeignKeyRelation> getRelationships(String table) {
-        return adjacencyList.getOrDefault(table, new ArrayList<>());
+        Snapshot graph = snapshot();
+        int id = graph.idOf(table);
+        return id < 0 ? List.of() : graph.relationsByTable.get(id);
     }
 
     /**
      * Clear the path cache (useful when schema changes)
      */
-    public void clearCache() {
-        pathCache.clear();
+    public synchronized void clearCache() {
+        snapshot = null;
+    }
+
+    /**
+     * Immutable compiled form of the graph: tables 0..size()-1, and the edges of table i
+     * (both directions of every relationship) firstEdge(i) until endEdge(i)
+     */
+    public static final class Snapshot {
+        // Case-insensitive, so lookups need no lowercase copy of the name
+        private final Map<String, Integer> ids = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        private final String[] names;
+        private final Set<String> tables;
+        private final List<List<ForeignKeyRelation>> relationsByTable;
+        private final Set<String> foreignKeys = new HashSet<>();
+
+        // CSR adjacency: edges of table i are offsets[i] until offsets[i + 1]
+        private final int[] offsets;
+        private final int[] targets;
+        private final ForeignKeyRelation[] edges;
+        // Index of the opposite direction of each edge
+        private final int[] reverse;
+
+        // Per target table: next-hop edges towards it and the join paths built so far
+        private final AtomicReferenceArray<Row> rows;
+
+        Snapshot(List<ForeignKeyRelation> relations) {
+            // Dense ids in order of first appearance; table names match case-insensitively
+            List<String> names = new ArrayList<>();
+            for (ForeignKeyRelation relation : relations) {
+                for (String table : List.of(relation.getFromTable(), relation.getToTable())) {
+                    ids.computeIfAbsent(table, k -> {
+                        names.add(table);
+                        return names.size() - 1;
+                    });
+                }
+            }
+            this.names = names.toArray(new String[0]);
+
+            int n = names.size();
+            int m = relations.size() * 2;
+            offsets = new int[n + 1];
+            targets = new int[m];
+            edges = new ForeignKeyRelation[m];
+            reverse = new int[m];
+
+            // Every relationship is traversable in both directions
+            int[] from = new int[m];
+            int[] to = new int[m];
+            ForeignKeyRelation[] oriented = new ForeignKeyRelation[m];
+            for (int i = 0; i < relations.size(); i++) {
+                ForeignKeyRelation relation = relations.get(i);
+                foreignKeys.add(keyOf(relation.getFromTable(), relation.getFromColumn(),
+                    relation.getToTable(), relation.getToColumn()));
+                int a = ids.get(relation.getFromTable());
+                int b = ids.get(relation.getToTable());
+                from[2 * i] = a;
+                to[2 * i] = b;
+                oriented[2 * i] = relation;
+                from[2 * i + 1] = b;
+                to[2 * i + 1] = a;
+                oriented[2 * i + 1] = new ForeignKeyRelation(relation.getToTable(), relation.getToColumn(),
+                    relation.getFromTable(), relation.getFromColumn());
+            }
+
+            for (int i = 0; i < m; i++) {
+                offsets[from[i] + 1]++;
+            }
+            for (int i = 0; i < n; i++) {
+                offsets[i + 1] += offsets[i];
+            }
+
+            int[] fill = Arrays.copyOf(offsets, n);
+            int[] slot = new int[m];
+            for (int i = 0; i < m; i++) {
+                slot[i] = fill[from[i]]++;
+                targets[slot[i]] = to[i];
+                edges[slot[i]] = oriented[i];
+            }
+            for (int i = 0; i < m; i += 2) {
+                reverse[slot[i]] = slot[i + 1];
+                reverse[slot[i + 1]] = slot[i];
+            }
+
+            List<List<ForeignKeyRelation>> byTable = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                byTable.add(List.of(Arrays.copyOfRange(edges, offsets[i], offsets[i + 1])));
+            }
+            relationsByTable = byTable;
+            tables = Collections.unmodifiableSet(new LinkedHashSet<>(names));
+
+            rows = new AtomicReferenceArray<>(n);
+        }
+
+        /**
+         * Id of a table (any case), or -1 if it has no relationships
+         */
+        public int idOf(String table) {
+            Integer id = ids.get(table);
+            return id == null ? -1 : id;
+        }
+
+        public int size() {
+            return names.length;
+        }
+
+        public String name(int table) {
+            return names[table];
+        }
+
+        public int firstEdge(int table) {
+            return offsets[table];
+        }
+
+        public int endEdge(int table) {
+            return offsets[table + 1];
+        }
+
+        /**
+         * Table an edge starts from
+         */
+        public int source(int edge) {
+            return targets[reverse[edge]];
+        }
+
+        /**
+         * Table an edge leads to
+         */
+        public int target(int edge) {
+            return targets[edge];
+        }
+
+        /**
+         * Relationship an edge traverses, oriented from its source to its target
+         */
+        public ForeignKeyRelation relation(int edge) {
+            return edges[edge];
+        }
+
+        JoinPath path(int from, int to) {
+            Row row = row(to);
+            AtomicReferenceArray<JoinPath> paths = row.paths();
+            JoinPath path = paths.get(from);
+            if (path != null) return path;
+
+            int edge = row.nextEdge[from];
+            if (edge < 0) return null;
+
+            List<ForeignKeyRelation> relations = new ArrayList<>();
+            for (int current = from; current != to; current = targets[edge], edge = row.nextEdge[current]) {
+                relations.add(edges[edge]);
+            }
+            path = new JoinPath(relations);
+            paths.compareAndSet(from, null, path);
+            return paths.get(from);
+        }
+
+        private Row row(int target) {
+            Row row = rows.get(target);
+            if (row == null) {
+                rows.compareAndSet(target, null, new Row(nextHops(target)));
+                row = rows.get(target);
+            }
+            return row;
+        }
+
+        /**
+         * BFS outward from the target; each reached table records the edge leading one hop back towards it
+         */
+        private int[] nextHops(int target) {
+            int n = offsets.length - 1;
+            int[] nextEdge = new int[n];
+            Arrays.fill(nextEdge, -1);
+            boolean[] visited = new boolean[n];
+            int[] queue = new int[n];
+            int head = 0;
+            int tail = 0;
+
+            visited[target] = true;
+            queue[tail++] = target;
+            while (head < tail) {
+                int current = queue[head++];
+                for (int e = offsets[current]; e < offsets[current + 1]; e++) {
+                    int next = targets[e];
+                    if (!visited[next]) {
+                        visited[next] = true;
+                        nextEdge[next] = reverse[e];
+                        queue[tail++] = next;
+                    }
+                }
+            }
+            return nextEdge;
+        }
+    }
+
+    private static final class Row {
+        private final int[] nextEdge;
+        // Join paths from each source, allocated once the target is first queried
+        private volatile AtomicReferenceArray<JoinPath> paths;
+
+        Row(int[] nextEdge) {
+            this.nextEdge = nextEdge;
+        }
+
+        AtomicReferenceArray<JoinPath> paths() {
+            AtomicReferenceArray<JoinPath> current = paths;
+            if (current != null) return current;
+
+            synchronized (this) {
+                if (paths == null) {
+                    paths = new AtomicReferenceArray<>(nextEdge.length);
+                }
+                return paths;
+            }
+        }
     }
 }
@@ -9,9 +9,12 @@ import java.util.Map;
 public class SchemaRegistry {
 
     private final SchemaDiscoveryService discoveryService;
+    private final MongoSchemaDiscoveryService mongoDiscoveryService;
 
-    public SchemaRegistry(SchemaDiscoveryService discoveryService) {
+    public SchemaRegistry(SchemaDiscoveryService discoveryService,
+                          MongoSchemaDiscoveryService mongoDiscoveryService) {
         this.discoveryService = discoveryService;
+        this.mongoDiscoveryService = mongoDiscoveryService;
     }
 
     // Hardcoded fallback for now, but primary source is discovery
@@ -27,9 +30,24 @@ public class SchemaRegistry {
     
     public Map<String, List<String>> getSchema(String dbName) {
         Map<String, List<String>> discovered = discoveryService.discoverSchema(dbName);
+        if (discovered == null || discovered.isEmpty()) {
+            // Not a JDBC catalog, try the database as a MongoDB database
+            discovered = mongoDiscoveryService.discoverSchema(dbName);
+        }
         if (discovered == null || discovered.isEmpty()) {
             return FALLBACK_SCHEMA;
         }
         return discovered;
     }
+
+    /**
+     * Get the SQL types (java.sql.Types) of a table's columns, empty if unknown
+     */
+    public Map<String, Integer> getColumnTypes(String dbName, String tableName) {
+        Map<String, Integer> types = discoveryService.getColumnTypes(dbName, tableName);
+        if (types == null || types.isEmpty()) {
+            types = mongoDiscoveryService.getColumnTypes(dbName, tableName);
+        }
+        return types != null ? types : Map.of();
+    }
 }
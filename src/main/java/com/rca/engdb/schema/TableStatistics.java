@@ -0,0 +1,80 @@
+package com.rca.engdb.schema;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Optimizer statistics for a single table, as reported by information_schema.
+ * Row counts and cardinalities are InnoDB estimates, not exact values.
+ */
+public class TableStatistics {
+    private final String tableName;
+    private final long rowEstimate;
+    private final long dataLength;
+    private final LocalDateTime updateTime;
+    private final Map<String, IndexDefinition> indexes;
+    private final Map<String, Long> columnCardinalities;
+
+    public TableStatistics(String tableName, long rowEstimate, long dataLength, LocalDateTime updateTime,
+                           Map<String, IndexDefinition> indexes, Map<String, Long> columnCardinalities) {
+        this.tableName = tableName;
+        this.rowEstimate = rowEstimate;
+        this.dataLength = dataLength;
+        this.updateTime = updateTime;
+        this.indexes = Collections.unmodifiableMap(indexes);
+        this.columnCardinalities = Collections.unmodifiableMap(columnCardinalities);
+    }
+
+    public String getTableName() { return tableName; }
+    public long getRowEstimate() { return rowEstimate; }
+    public long getDataLength() { return dataLength; }
+    public LocalDateTime getUpdateTime() { return updateTime; }
+    public Map<String, IndexDefinition> getIndexes() { return indexes; }
+    public Map<String, Long> getColumnCardinalities() { return columnCardinalities; }
+
+    /**
+     * Estimated number of distinct values of a column, or -1 if the column is not indexed
+     */
+    public long getCardinality(String column) {
+        return columnCardinalities.getOrDefault(column.toLowerCase(), -1L);
+    }
+
+    /**
+     * Check if the column is the leading column of any index (usable for lookups)
+     */
+    public boolean hasIndexOn(String column) {
+        return indexes.values().stream()
+            .anyMatch(index -> index.getColumns().get(0).equalsIgnoreCase(column));
+    }
+
+    /**
+     * Check if a single-column unique index (or the primary key) covers the column
+     */
+    public boolean isUnique(String column) {
+        return indexes.values().stream()
+            .anyMatch(index -> index.isUnique()
+                && index.getColumns().size() == 1
+                && index.getColumns().get(0).equalsIgnoreCase(column));
+    }
+
+    /**
+     * An index definition: name, uniqueness and columns in index order
+     */
+    public static class IndexDefinition {
+        private final String name;
+        private final boolean unique;
+        private final List<String> columns;
+
+        public IndexDefinition(String name, boolean unique, List<String> columns) {
+            this.name = name;
+            this.unique = unique;
+            this.columns = columns;
+        }
+
+        public String getName() { return name; }
+        public boolean isUnique() { return unique; }
+        public List<String> getColumns() { return columns; }
+    }
+}
@@ -0,0 +1,172 @@
+package com.rca.engdb.schema;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Collects table statistics (row estimates, index definitions, column cardinalities)
+ * from information_schema for the cost-based planner.
+ *
+ * Collection runs in the background after each schema refresh, so planning never waits
+ * on information_schema; until the first collection finishes, statistics are unknown.
+ */
+@Service
+public class TableStatisticsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TableStatisticsService.class);
+
+    private static final String TABLES_SQL =
+        "SELECT TABLE_NAME, TABLE_ROWS, DATA_LENGTH, UPDATE_TIME FROM information_schema.TABLES " +
+        "WHERE TABLE_SCHEMA = ? AND TABLE_TYPE = 'BASE TABLE'";
+
+    private static final String STATISTICS_SQL =
+        "SELECT TABLE_NAME, INDEX_NAME, NON_UNIQUE, SEQ_IN_INDEX, COLUMN_NAME, CARDINALITY " +
+        "FROM information_schema.STATISTICS WHERE TABLE_SCHEMA = ? " +
+        "ORDER BY TABLE_NAME, INDEX_NAME, SEQ_IN_INDEX";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Map<DatabaseName, Map<lowercase TableName, TableStatistics>>
+    private final Map<String, Map<String, TableStatistics>> statisticsCache = new ConcurrentHashMap<>();
+
+    // One refresh at a time, on a virtual thread since it only waits on information_schema
+    private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor(
+        Thread.ofVirtual().name("table-statistics-refresh").factory());
+
+    public TableStatisticsService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Schedule a background refresh of the statistics for a database
+     */
+    public void refreshAsync(String dbName) {
+        refreshExecutor.execute(() -> refresh(dbName));
+    }
+
+    /**
+     * Collect statistics for all tables of a database
+     */
+    public void refresh(String dbName) {
+        try {
+            Map<String, List<Map<String, Object>>> indexRows = new HashMap<>();
+            for (Map<String, Object> row : jdbcTemplate.queryForList(STATISTICS_SQL, dbName)) {
+                String table = String.valueOf(row.get("TABLE_NAME")).toLowerCase();
+                indexRows.computeIfAbsent(table, k -> new ArrayList<>()).add(row);
+            }
+
+            Map<String, TableStatistics> newStatistics = new HashMap<>();
+            for (Map<String, Object> row : jdbcTemplate.queryForList(TABLES_SQL, dbName)) {
+                String table = String.valueOf(row.get("TABLE_NAME"));
+
+                Map<String, TableStatistics.IndexDefinition> indexes = new LinkedHashMap<>();
+                Map<String, Long> cardinalities = new HashMap<>();
+                buildIndexes(indexRows.getOrDefault(table.toLowerCase(), List.of()), indexes, cardinalities);
+
+                newStatistics.put(table.toLowerCase(), new TableStatistics(
+                    table,
+                    toLong(row.get("TABLE_ROWS")),
+                    toLong(row.get("DATA_LENGTH")),
+                    toLocalDateTime(row.get("UPDATE_TIME")),
+                    indexes,
+                    cardinalities
+                ));
+            }
+
+            statisticsCache.put(dbName, newStatistics);
+            logger.info("Collected statistics for {} tables in database: {}", newStatistics.size(), dbName);
+        } catch (Exception e) {
+            logger.warn("Failed to collect table statistics for database {}: {}", dbName, e.getMessage());
+        }
+    }
+
+    private void buildIndexes(List<Map<String, Object>> rows,
+                              Map<String, TableStatistics.IndexDefinition> indexes,
+                              Map<String, Long> cardinalities) {
+        Map<String, List<String>> columnsByIndex = new LinkedHashMap<>();
+        Map<String, Boolean> uniqueByIndex = new HashMap<>();
+
+        for (Map<String, Object> row : rows) {
+            String indexName = String.valueOf(row.get("INDEX_NAME"));
+            String column = String.valueOf(row.get("COLUMN_NAME"));
+
+            columnsByIndex.computeIfAbsent(indexName, k -> new ArrayList<>()).add(column);
+            uniqueByIndex.put(indexName, toLong(row.get("NON_UNIQUE")) == 0);
+
+            // CARDINALITY of the first index column is the distinct count of that column
+            if (toLong(row.get("SEQ_IN_INDEX")) == 1 && row.get("CARDINALITY") != null) {
+                cardinalities.merge(column.toLowerCase(), toLong(row.get("CARDINALITY")), Math::max);
+            }
+        }
+
+        columnsByIndex.forEach((name, columns) ->
+            indexes.put(name, new TableStatistics.IndexDefinition(name, uniqueByIndex.get(name), columns)));
+    }
+
+    private LocalDateTime toLocalDateTime(Object value) {
+        // Connector/J maps DATETIME to LocalDateTime, older drivers to Timestamp
+        if (value instanceof LocalDateTime localDateTime) return localDateTime;
+        if (value instanceof Timestamp timestamp) return timestamp.toLocalDateTime();
+        return null;
+    }
+
+    private long toLong(Object value) {
+        if (value instanceof Number number) return number.longValue();
+        if (value == null) return 0;
+        try {
+            return Long.parseLong(value.toString());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Get statistics for a table, or null if they have not been collected (yet).
+     * Accepts both plain and database-qualified table names.
+     */
+    public TableStatistics getStatistics(String dbName, String tableName) {
+        if (tableName == null) return null;
+
+        int dot = tableName.lastIndexOf('.');
+        if ((dbName == null || dbName.isEmpty()) && dot >= 0) {
+            dbName = tableName.substring(0, dot);
+        }
+        if (dbName == null) return null;
+
+        Map<String, TableStatistics> statistics = statisticsCache.get(dbName);
+        if (statistics == null) return null;
+
+        String plainName = dot >= 0 ? tableName.substring(dot + 1) : tableName;
+        return statistics.get(plainName.toLowerCase());
+    }
+
+    /**
+     * Get all collected statistics for a database
+     */
+    public Map<String, TableStatistics> getStatistics(String dbName) {
+        return statisticsCache.getOrDefault(dbName, Map.of());
+    }
+
+    public void clearCache() {
+        statisticsCache.clear();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,71 @@
+package com.rca.engdb.util;
+
+import java.math.BigDecimal;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Converts literal values extracted from natural language into the Java type that matches
+ * a column's SQL type, so predicates compare like with like and stay index-friendly.
+ */
+public class LiteralCoercer {
+
+    /**
+     * Coerce a literal to the Java type for the given java.sql.Types code.
+     * Returns the literal unchanged if the type is unknown, or null if the literal
+     * cannot represent a value of that type (e.g. "cs" for an INT column).
+     */
+    public static Object coerce(String literal, Integer sqlType) {
+        if (literal == null) return null;
+        if (sqlType == null) return literal;
+
+        try {
+            switch (sqlType) {
+                case Types.TINYINT:
+                case Types.SMALLINT:
+                case Types.INTEGER: {
+                    long value = Long.parseLong(literal);
+                    return value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE ? (Object) (int) value : null;
+                }
+                case Types.BIGINT:
+                    return Long.parseLong(literal);
+                case Types.DECIMAL:
+                case Types.NUMERIC:
+                    return new BigDecimal(literal);
+                case Types.REAL:
+                case Types.FLOAT:
+                case Types.DOUBLE:
+                    return Double.parseDouble(literal);
+                case Types.BIT:
+                case Types.BOOLEAN:
+                    return parseBoolean(literal);
+                case Types.DATE:
+                    return LocalDate.parse(literal);
+                case Types.TIMESTAMP:
+                    return literal.length() == 10 ? LocalDate.parse(literal).atStartOfDay() : LocalDateTime.parse(literal);
+                default:
+                    // Character and other types keep the literal as-is
+                    return literal;
+            }
+        } catch (NumberFormatException | DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static Boolean parseBoolean(String literal) {
+        switch (literal.toLowerCase()) {
+            case "true":
+            case "yes":
+            case "1":
+                return Boolean.TRUE;
+            case "false":
+            case "no":
+            case "0":
+                return Boolean.FALSE;
+            default:
+                return null;
+        }
+    }
+}
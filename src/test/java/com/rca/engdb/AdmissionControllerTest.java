@@ -0,0 +1,188 @@
+package com.rca.engdb;
+
+import com.rca.engdb.ast.ConditionNode;
+import com.rca.engdb.ast.JoinNode;
+import com.rca.engdb.ast.QueryAST;
+import com.rca.engdb.engine.QueryPlanner;
+import com.rca.engdb.exec.AdmissionController;
+import com.rca.engdb.exec.AdmissionController.QueryClass;
+import com.rca.engdb.exec.Bulkhead;
+import com.rca.engdb.exec.BulkheadFullException;
+import com.rca.engdb.exec.SqlCostGuard;
+import com.rca.engdb.ml.IntentType;
+import com.rca.engdb.schema.MongoSchemaDiscoveryService;
+import com.rca.engdb.schema.SchemaDiscoveryService;
+import com.rca.engdb.schema.TableStatistics;
+import com.rca.engdb.schema.TableStatisticsService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+class AdmissionControllerTest {
+
+    private QueryPlanner planner;
+    private AdmissionController admissionController;
+
+    @BeforeEach
+    void setUp() {
+        TableStatisticsService statisticsService = Mockito.mock(TableStatisticsService.class);
+        when(statisticsService.getStatistics(any(), eq("students"))).thenReturn(new TableStatistics(
+            "students", 100_000L, 0, null,
+            Map.of("PRIMARY", new TableStatistics.IndexDefinition("PRIMARY", true, List.of("id"))),
+            Map.of("id", 100_000L)
+        ));
+        when(statisticsService.getStatistics(any(), eq("events"))).thenReturn(new TableStatistics(
+            "events", 500_000_000L, 0, null, Map.of(), Map.of()
+        ));
+
+        MockEnvironment environment = new MockEnvironment()
+            .withProperty("engdb.bulkhead.heavy.max-concurrent", "1")
+            .withProperty("engdb.bulkhead.heavy.max-queue", "0")
+            .withProperty("engdb.bulkhead.heavy.retry-after-seconds", "7");
+        planner = new QueryPlanner(statisticsService, Mockito.mock(SchemaDiscoveryService.class),
+            Mockito.mock(MongoSchemaDiscoveryService.class), environment, 1000, 50_000_000L);
+        admissionController = new AdmissionController(planner, environment, 10_000, 1_000_000);
+    }
+
+    private QueryAST ast(IntentType intent, String table) {
+        QueryAST ast = new QueryAST();
+        ast.setIntent(intent);
+        ast.setTargetTable(table);
+        return ast;
+    }
+
+    private QueryClass classify(QueryAST ast) {
+        return admissionController.classify(ast, planner.plan(ast));
+    }
+
+    @Test
+    void testIndexedLookupIsCheap() {
+        QueryAST ast = ast(IntentType.SELECT, "students");
+        ast.getWhereConditions().add(new ConditionNode("id", "=", 42));
+
+        assertEquals(QueryClass.LOOKUP, classify(ast));
+    }
+
+    @Test
+    void testAggregatesAndScansAreAggregations() {
+        assertEquals(QueryClass.AGGREGATION, classify(ast(IntentType.COUNT, "students")));
+        // Full scan of 100k rows exceeds the aggregation cost threshold
+        assertEquals(QueryClass.AGGREGATION, classify(ast(IntentType.SELECT, "students")));
+    }
+
+    @Test
+    void testMultiJoinAndExpensiveQueriesAreHeavy() {
+        QueryAST joins = ast(IntentType.SELECT, "enrollments");
+        joins.getJoins().add(new JoinNode("enrollments", "students", "student_id", "id", JoinNode.JoinType.INNER));
+        joins.getJoins().add(new JoinNode("enrollments", "courses", "course_id", "id", JoinNode.JoinType.INNER));
+        assertEquals(QueryClass.HEAVY, classify(joins));
+
+        assertEquals(QueryClass.HEAVY, classify(ast(IntentType.SUM, "events")));
+    }
+
+    @Test
+    void testLlmSqlIsClassifiedByItsExplainEstimate() {
+        assertEquals(QueryClass.LOOKUP, admissionController.classify(new SqlCostGuard.CostEstimate(1, 1.0)));
+        assertEquals(QueryClass.AGGREGATION, admissionController.classify(new SqlCostGuard.CostEstimate(100_000, 20_000.0)));
+        assertEquals(QueryClass.HEAVY, admissionController.classify(new SqlCostGuard.CostEstimate(5_000_000, 900_000.0)));
+        // Unknown cost
+        assertEquals(QueryClass.HEAVY, admissionController.classify((SqlCostGuard.CostEstimate) null));
+    }
+
+    @Test
+    void testSaturatedBulkheadRejectsWithRetryAfter() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<String> heavy = executor.submit(() -> admissionController.execute(QueryClass.HEAVY, () -> {
+                running.countDown();
+                await(release);
+                return "done";
+            }));
+            running.await();
+
+            BulkheadFullException e = assertThrows(BulkheadFullException.class,
+                () -> admissionController.execute(QueryClass.HEAVY, () -> "rejected"));
+            assertEquals("heavy", e.getBulkhead());
+            assertEquals(7, e.getRetryAfterSeconds());
+
+            // Other classes are unaffected by a saturated heavy bulkhead, LLM calls included
+            assertEquals("ok", admissionController.execute(QueryClass.LOOKUP, () -> "ok"));
+            assertEquals("ok", admissionController.execute(QueryClass.LLM, () -> "ok"));
+
+            release.countDown();
+            assertEquals("done", heavy.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1L, admissionController.getStats().get("heavy").get("rejected"));
+    }
+
+    @Test
+    void testSaturatedLlmBulkheadFallsBackInsteadOfRejecting() throws Exception {
+        MockEnvironment environment = new MockEnvironment()
+            .withProperty("engdb.bulkhead.llm.max-concurrent", "1")
+            .withProperty("engdb.bulkhead.llm.max-queue", "0");
+        AdmissionController controller = new AdmissionController(planner, environment, 10_000, 1_000_000);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<String> llm = executor.submit(() -> controller.execute(QueryClass.LLM, () -> {
+                running.countDown();
+                await(release);
+                return "SELECT 1";
+            }, () -> "rule-based"));
+            running.await();
+
+            // A burst beyond the LLM bulkhead is answered by the rule-based engine, not with a 503
+            for (int i = 0; i < 20; i++) {
+                assertEquals("rule-based", controller.execute(QueryClass.LLM, () -> "SELECT 2", () -> "rule-based"));
+            }
+
+            release.countDown();
+            assertEquals("SELECT 1", llm.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals("SELECT 2", controller.execute(QueryClass.LLM, () -> "SELECT 2", () -> "rule-based"));
+        assertEquals(20L, controller.getStats().get("llm").get("rejected"));
+    }
+
+    @Test
+    void testQueuedRequestTimesOut() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("lookup", 1, 5, 50, 1);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            executor.submit(() -> bulkhead.execute(() -> {
+                running.countDown();
+                await(release);
+                return null;
+            }));
+            running.await();
+
+            long start = System.nanoTime();
+            assertThrows(BulkheadFullException.class, () -> bulkhead.execute(() -> "late"));
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+            release.countDown();
+        }
+        assertEquals("now", bulkhead.execute(() -> "now"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.rca.engdb;
+
+import com.rca.engdb.ast.QueryAST;
+import com.rca.engdb.engine.JoinPlanner;
+import com.rca.engdb.engine.QueryGenerator;
+import com.rca.engdb.engine.QueryParser;
+import com.rca.engdb.metrics.PipelineMetrics;
+import com.rca.engdb.ml.IntentClassifier;
+import com.rca.engdb.ml.IntentResult;
+import com.rca.engdb.nlp.ConditionExtractor;
+import com.rca.engdb.nlp.EntityRecognizer;
+import com.rca.engdb.nlp.JoinDetector;
+import com.rca.engdb.nlp.OrderLimitExtractor;
+import com.rca.engdb.nlp.PreprocessService;
+import com.rca.engdb.nlp.SynonymRegistry;
+import com.rca.engdb.nlp.TokenizerService;
+import com.rca.engdb.schema.SchemaDiscoveryService;
+import com.rca.engdb.schema.SchemaGraph;
+import com.rca.engdb.schema.SchemaRegistry;
+import com.rca.engdb.schema.TableStatisticsService;
+import com.rca.engdb.workload.GeneratedSchema;
+import com.rca.engdb.workload.SchemaGenerator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Fails the build when the rule-based request path allocates more per request than the
+ * budget in allocation-budget.properties.
+ *
+ * Runs the questions in allocation-corpus.txt through tokenizer -> preprocess -> intent ->
+ * parser -> generator against a stub SchemaRegistry (Mockito would dominate the allocation
+ * it records) and reads the bytes each stage allocated on this thread from
+ * com.sun.management.ThreadMXBean. Measurement starts after a warmup so the JIT has had
+ * its chance to remove allocations by escape analysis; the lowest of several passes is used.
+ */
+class AllocationBudgetTest {
+
+    private static final String DATABASE = "engdb";
+    private static final int WARMUP_PASSES = 300;
+    private static final int MEASURED_PASSES = 15;
+
+    private static final String[] STAGES = {"tokenize", "preprocess", "intent", "parse", "generate"};
+
+    private final com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final long threadId = Thread.currentThread().threadId();
+
+    private final TokenizerService tokenizer = new TokenizerService();
+    private final PreprocessService preprocessor = new PreprocessService();
+    private final IntentClassifier intentClassifier = new IntentClassifier();
+    private final QueryGenerator queryGenerator = new QueryGenerator();
+    private QueryParser queryParser;
+
+    @Test
+    void testRequestPathStaysWithinAllocationBudget() throws IOException {
+        assumeTrue(threads.isThreadAllocatedMemorySupported(), "Thread allocation accounting not supported");
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        setUpPipeline();
+        List<String> corpus = readCorpus();
+        Properties budget = readBudget();
+
+        for (int pass = 0; pass < WARMUP_PASSES; pass++) {
+            measurePass(corpus);
+        }
+        long[] lowest = measurePass(corpus);
+        for (int pass = 1; pass < MEASURED_PASSES; pass++) {
+            long[] bytes = measurePass(corpus);
+            for (int s = 0; s < lowest.length; s++) {
+                lowest[s] = Math.min(lowest[s], bytes[s]);
+            }
+        }
+
+        Map<String, Long> perRequest = new LinkedHashMap<>();
+        long total = 0;
+        for (int s = 0; s < STAGES.length; s++) {
+            perRequest.put(STAGES[s], lowest[s] / corpus.size());
+            total += lowest[s];
+        }
+        perRequest.put("total", total / corpus.size());
+        System.out.println("Bytes allocated per request: " + perRequest);
+
+        List<String> overBudget = new ArrayList<>();
+        perRequest.forEach((stage, bytes) -> {
+            long allowed = Long.parseLong(budget.getProperty(stage, String.valueOf(Long.MAX_VALUE)).trim());
+            if (bytes > allowed) {
+                overBudget.add(stage + " allocates " + bytes + " bytes per request, budget " + allowed);
+            }
+        });
+        assertTrue(overBudget.isEmpty(), String.join("; ", overBudget)
+            + ". Reduce the allocation, or raise the budget in allocation-budget.properties if the increase is intended.");
+    }
+
+    /**
+     * Bytes allocated by each stage over one pass of the corpus
+     */
+    private long[] measurePass(List<String> corpus) {
+        long[] bytes = new long[STAGES.length];
+        for (String question : corpus) {
+            long start = allocated();
+            List<String> tokens = tokenizer.tokenize(question);
+            long tokenized = allocated();
+            List<String> cleaned = preprocessor.clean(tokens);
+            long preprocessed = allocated();
+            IntentResult intent = intentClassifier.classify(cleaned);
+            long classified = allocated();
+            QueryAST ast = queryParser.parse(cleaned, intent, DATABASE);
+            long parsed = allocated();
+            if (ast.getTargetTable() != null) {
+                queryGenerator.generateParameterizedSQL(ast);
+            }
+            long generated = allocated();
+
+            bytes[0] += tokenized - start;
+            bytes[1] += preprocessed - tokenized;
+            bytes[2] += classified - preprocessed;
+            bytes[3] += parsed - classified;
+            bytes[4] += generated - parsed;
+        }
+        return bytes;
+    }
+
+    private long allocated() {
+        return threads.getThreadAllocatedBytes(threadId);
+    }
+
+    private void setUpPipeline() {
+        GeneratedSchema schema = SchemaGenerator.generate(30, 8,
+            SchemaGenerator.Topology.SNOWFLAKE, SchemaGenerator.Naming.SNAKE_CASE);
+        SchemaRegistry schemaRegistry = schema.toRegistry();
+        SynonymRegistry synonymRegistry = schema.toSynonymRegistry();
+        SchemaGraph graph = schema.toGraph();
+
+        SchemaDiscoveryService schemaDiscoveryService = new SchemaDiscoveryService(null, null) {
+            @Override
+            public SchemaGraph getSchemaGraph(String dbName) {
+                return graph;
+            }
+
+            @Override
+            public long getSchemaVersion(String dbName) {
+                return 1;
+            }
+        };
+        JoinPlanner joinPlanner = new JoinPlanner(schemaDiscoveryService, new TableStatisticsService(null));
+
+        queryParser = new QueryParser(
+            new EntityRecognizer(schemaRegistry, synonymRegistry),
+            new ConditionExtractor(schemaRegistry),
+            new OrderLimitExtractor(schemaRegistry, synonymRegistry),
+            new JoinDetector(schemaRegistry),
+            joinPlanner,
+            new PipelineMetrics(new SimpleMeterRegistry()));
+    }
+
+    private List<String> readCorpus() throws IOException {
+        List<String> corpus = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource("allocation-corpus.txt"), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank() && !line.startsWith("#")) corpus.add(line.trim());
+            }
+        }
+        assertFalse(corpus.isEmpty());
+        return corpus;
+    }
+
+    private Properties readBudget() throws IOException {
+        Properties budget = new Properties();
+        try (InputStream in = resource("allocation-budget.properties")) {
+            budget.load(in);
+        }
+        return budget;
+    }
+
+    private InputStream resource(String name) {
+        InputStream in = getClass().getClassLoader().getResourceAsStream(name);
+        assertNotNull(in, name + " is missing from src/test/resources");
+        return in;
+    }
+}
@@ -0,0 +1,141 @@
+package com.rca.engdb;
+
+import com.rca.engdb.ast.ConditionNode;
+import com.rca.engdb.ast.QueryAST;
+import com.rca.engdb.engine.QueryGenerator;
+import com.rca.engdb.exec.ApproximateQueryExecutor;
+import com.rca.engdb.exec.JdbcConcurrencyLimiter;
+import com.rca.engdb.exec.QueryExecutor;
+import com.rca.engdb.ml.IntentType;
+import com.rca.engdb.schema.TableStatistics;
+import com.rca.engdb.schema.TableStatisticsService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+class ApproximateQueryTest {
+
+    private static final String DATABASE = "analytics";
+
+    private QueryExecutor queryExecutor;
+    private TableStatisticsService statisticsService;
+    private ApproximateQueryExecutor approximate;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+            "jdbc:h2:mem:approximate;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DROP SCHEMA IF EXISTS analytics CASCADE");
+        jdbcTemplate.execute("CREATE SCHEMA analytics");
+        jdbcTemplate.execute("CREATE TABLE analytics.payments (id BIGINT PRIMARY KEY, amount DECIMAL(10,2), status VARCHAR(8))");
+        jdbcTemplate.execute("CREATE TABLE analytics.clicks (session VARCHAR(32), page VARCHAR(64))");
+        // Every run of 100 ids looks the same, so any sample of 100-id cells estimates exactly
+        List<Object[]> payments = new ArrayList<>();
+        for (long id = 1; id <= 10000; id++) {
+            payments.add(new Object[] {id, BigDecimal.valueOf(id % 4).add(new BigDecimal("0.25")), id % 2 == 0 ? "paid" : "open"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO analytics.payments VALUES (?, ?, ?)", payments);
+
+        statisticsService = Mockito.mock(TableStatisticsService.class);
+        when(statisticsService.getStatistics(DATABASE, "payments")).thenReturn(new TableStatistics("payments",
+            80_000_000L, 0, null, Map.of("PRIMARY", new TableStatistics.IndexDefinition("PRIMARY", true, List.of("id"))),
+            Map.of()));
+        when(statisticsService.getStatistics(DATABASE, "clicks")).thenReturn(new TableStatistics("clicks",
+            90_000_000L, 0, null, Map.of(), Map.of()));
+
+        queryExecutor = new QueryExecutor(jdbcTemplate, new JdbcConcurrencyLimiter(dataSource, 4, 0, 1000));
+        // 10 cells of 100 ids: a tenth of the table
+        approximate = new ApproximateQueryExecutor(queryExecutor, new QueryGenerator(), statisticsService, 0.1, 10, 0.5);
+    }
+
+    @Test
+    void testCountWithoutConditionsComesFromTheRowEstimate() {
+        ApproximateQueryExecutor.Estimate estimate = approximate.execute(ast(IntentType.COUNT, "payments", null), true);
+
+        assertEquals(ApproximateQueryExecutor.METHOD_STATISTICS, estimate.getMethod());
+        assertEquals(80_000_000L, value(estimate, "COUNT(*)"));
+        assertEquals(40_000_000L, estimate.getLower());
+        assertEquals(120_000_000L, estimate.getUpper());
+        assertNull(estimate.getConfidenceLevel());
+        assertNull(estimate.getSampleFraction());
+    }
+
+    @Test
+    void testRoutedCountIsSampledRatherThanTakenFromTheRowEstimate() {
+        // The planner chose the estimate, so it is held to the sample's bounds, not InnoDB's factor of two
+        ApproximateQueryExecutor.Estimate estimate = approximate.execute(ast(IntentType.COUNT, "payments", null), false);
+
+        assertEquals(ApproximateQueryExecutor.METHOD_SAMPLE, estimate.getMethod());
+        assertEquals(10_000L, value(estimate, "COUNT(*)"));
+        assertEquals(0.95, estimate.getConfidenceLevel());
+    }
+
+    @Test
+    void testSampledCellsAreScaledUpToTheWholeTable() {
+        QueryAST paid = ast(IntentType.COUNT, "payments", null);
+        paid.getWhereConditions().add(new ConditionNode("status", "=", "paid"));
+        ApproximateQueryExecutor.Estimate count = approximate.execute(paid, true);
+        assertEquals(ApproximateQueryExecutor.METHOD_SAMPLE, count.getMethod());
+        assertEquals(5000L, value(count, "COUNT(*)"));
+        assertEquals(5000L, count.getLower(), "identical cells leave no sampling error");
+        assertEquals(5000L, count.getUpper());
+        assertEquals(0.95, count.getConfidenceLevel());
+        assertEquals(0.1, count.getSampleFraction(), 1e-9);
+
+        ApproximateQueryExecutor.Estimate sum = approximate.execute(ast(IntentType.SUM, "payments", "amount"), true);
+        assertEquals(new BigDecimal("17500.00"), value(sum, "SUM(amount)"));
+
+        // AVG keeps MySQL's typing: the column's scale plus 4
+        QueryAST average = ast(IntentType.AVG, "payments", "amount");
+        average.getWhereConditions().add(new ConditionNode("status", "=", "paid"));
+        assertEquals(new BigDecimal("1.250000"), value(approximate.execute(average, true), "AVG(amount)"));
+    }
+
+    @Test
+    void testBoundsWidenWithUnevenCells() {
+        // Amounts grow with the id: cells differ, and the interval says so
+        ApproximateQueryExecutor.Estimate sum = approximate.execute(ast(IntentType.SUM, "payments", "id"), true);
+
+        BigDecimal estimate = (BigDecimal) value(sum, "SUM(id)");
+        BigDecimal lower = (BigDecimal) sum.getLower();
+        BigDecimal upper = (BigDecimal) sum.getUpper();
+        assertTrue(lower.compareTo(estimate) < 0 && estimate.compareTo(upper) < 0, lower + " < " + estimate + " < " + upper);
+    }
+
+    @Test
+    void testQueriesThatCannotBeSampledRunExactly() {
+        assertNull(approximate.execute(ast(IntentType.MAX, "payments", "amount"), true), "extremes cannot be estimated");
+        assertNull(approximate.execute(ast(IntentType.SUM, "clicks", "page"), true), "no primary key to sample along");
+
+        // Ten cells of a thousand ids: the whole table
+        ApproximateQueryExecutor wholeTable = new ApproximateQueryExecutor(queryExecutor, new QueryGenerator(),
+            statisticsService, 1.0, 10, 0.5);
+        assertNull(wholeTable.execute(ast(IntentType.SUM, "payments", "amount"), true));
+    }
+
+    private static QueryAST ast(IntentType intent, String table, String aggregateColumn) {
+        QueryAST ast = new QueryAST();
+        ast.setIntent(intent);
+        ast.setTargetTable(table);
+        ast.setDatabaseName(DATABASE);
+        ast.setAggregateColumn(aggregateColumn);
+        return ast;
+    }
+
+    private static Object value(ApproximateQueryExecutor.Estimate estimate, String column) {
+        assertNotNull(estimate, "answered approximately");
+        assertEquals(1, estimate.getResult().getRowCount());
+        return estimate.getResult().getData().get(0).get(column);
+    }
+}
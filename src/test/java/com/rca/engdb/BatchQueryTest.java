@@ -0,0 +1,279 @@
+package com.rca.engdb;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rca.engdb.engine.SqlStatement;
+import com.rca.engdb.exec.BatchDeduplicator;
+import com.rca.engdb.exec.QueryContext;
+import com.rca.engdb.exec.QueryExecutor;
+import com.rca.engdb.exec.RequestCoalescer;
+import com.rca.engdb.schema.SchemaDiscoveryService;
+import com.rca.engdb.workload.GeneratedSchema;
+import com.rca.engdb.workload.SchemaGenerator;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * POST /api/query/batch against an embedded H2 database holding a generated schema,
+ * with the LLM switched off so answers come from the rule-based engine.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "spring.datasource.url=jdbc:h2:mem:engdb;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+    "spring.sql.init.mode=never",
+    "spring.data.mongodb.uri=mongodb://127.0.0.1:27017/engdb?serverSelectionTimeoutMS=200",
+    "openrouter.url=http://127.0.0.1:1/unused",
+    "openrouter.api-key=",
+    "openrouter.model=none",
+    "engdb.batch.parallelism=4",
+    "engdb.batch.max-size=50"
+})
+class BatchQueryTest {
+
+    private static final String DATABASE = "engdb";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private SchemaDiscoveryService schemaDiscoveryService;
+
+    @Autowired
+    private RequestCoalescer requestCoalescer;
+
+    @MockitoSpyBean
+    private QueryExecutor queryExecutor;
+
+    @LocalServerPort
+    private int port;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void testBatchStreamsOneAnswerPerQuestion() throws Exception {
+        GeneratedSchema schema = SchemaGenerator.generate(4, 4,
+            SchemaGenerator.Topology.CHAIN, SchemaGenerator.Naming.SNAKE_CASE);
+        schema.install(dataSource, DATABASE, 20);
+        schemaDiscoveryService.refreshSchema(DATABASE);
+
+        // Every question twice: the duplicates share the statement of their first copy
+        List<Map<String, Object>> batch = new ArrayList<>();
+        for (int copy = 0; copy < 2; copy++) {
+            for (String table : schema.getTableNames()) {
+                batch.add(Map.of("query", "count " + table, "databaseName", DATABASE));
+            }
+        }
+
+        long executionsBefore = sqlExecutions();
+        HttpResponse<String> response = post(batch);
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("application/x-ndjson"));
+        List<String> lines = response.body().lines().filter(line -> !line.isBlank()).toList();
+        assertEquals(batch.size(), lines.size());
+
+        Set<Integer> indexes = new HashSet<>();
+        Set<String> queryIds = new HashSet<>();
+        Map<String, String> sqlByQuestion = new HashMap<>();
+        for (String line : lines) {
+            JsonNode result = objectMapper.readTree(line);
+            int index = result.get("index").asInt();
+            assertTrue(indexes.add(index), "Index answered twice: " + index);
+            assertTrue(queryIds.add(result.get("queryId").asText()));
+            assertEquals(200, result.get("status").asInt(), line);
+
+            JsonNode answer = result.get("response");
+            assertEquals("COUNT", answer.get("intent").asText(), line);
+            assertEquals(1, answer.get("rowCount").asInt(), line);
+            String question = (String) batch.get(index).get("query");
+            String previous = sqlByQuestion.putIfAbsent(question, answer.get("generatedQuery").asText());
+            if (previous != null) assertEquals(previous, answer.get("generatedQuery").asText());
+        }
+        assertEquals(batch.size(), indexes.size());
+        assertEquals(schema.getTableNames().size(), sqlExecutions() - executionsBefore);
+    }
+
+    @Test
+    void testOversizedAndEmptyBatchesAreRejected() throws Exception {
+        List<Map<String, Object>> oversized = new ArrayList<>();
+        for (int i = 0; i < 51; i++) {
+            oversized.add(Map.of("query", "count students", "databaseName", DATABASE));
+        }
+
+        assertEquals(413, post(oversized).statusCode());
+        assertEquals(400, post(List.of()).statusCode());
+    }
+
+    @Test
+    void testItemWhoseStatementTimesOutIsAnsweredWith504() throws Exception {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE SCHEMA IF NOT EXISTS engdb");
+            statement.execute("CREATE TABLE IF NOT EXISTS engdb.parcels (id INT PRIMARY KEY, name VARCHAR(32))");
+        }
+        schemaDiscoveryService.refreshSchema(DATABASE);
+        // The statement holds its connection past the item's deadline
+        doAnswer(invocation -> {
+            Thread.sleep(400);
+            return invocation.callRealMethod();
+        }).when(queryExecutor).executeSQLQuery(argThat((SqlStatement statement) -> statement != null
+            && statement.getSql().contains("parcels")));
+
+        HttpResponse<String> response = post(List.of(
+            Map.of("query", "count parcels", "databaseName", DATABASE, "timeoutMs", 200)));
+
+        assertEquals(200, response.statusCode());
+        List<String> lines = response.body().lines().filter(line -> !line.isBlank()).toList();
+        assertEquals(1, lines.size());
+        JsonNode result = objectMapper.readTree(lines.get(0));
+        assertEquals(504, result.get("status").asInt(), lines.get(0));
+        assertTrue(result.get("response").get("errorMessage").asText().contains("exceeded its deadline"), lines.get(0));
+    }
+
+    @Test
+    void testDeduplicatorRunsEachKeyOnceAndKeepsTheResult() throws Exception {
+        BatchDeduplicator deduplicator = new BatchDeduplicator();
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            Future<Integer> leader = pool.submit(() -> deduplicator.execute("engdb|SELECT 1|[]", () -> {
+                executions.incrementAndGet();
+                await(release);
+                return 1;
+            }));
+            List<Future<Integer>> followers = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                followers.add(pool.submit(() -> deduplicator.execute("engdb|SELECT 1|[]", executions::incrementAndGet)));
+            }
+            release.countDown();
+
+            assertEquals(1, leader.get(5, TimeUnit.SECONDS));
+            for (Future<Integer> follower : followers) {
+                assertEquals(1, follower.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // Unlike the request coalescer, a finished statement is reused for the rest of the batch
+        assertEquals(1, deduplicator.execute("engdb|SELECT 1|[]", executions::incrementAndGet));
+        assertEquals(1, executions.get());
+        assertEquals(1, deduplicator.getDistinct());
+        assertEquals(5, deduplicator.getShared());
+    }
+
+    @Test
+    void testDeduplicatorFollowerStopsWaitingAtItsDeadline() throws Exception {
+        BatchDeduplicator deduplicator = new BatchDeduplicator();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            Future<String> leader = pool.submit(() -> deduplicator.execute("slow", () -> {
+                started.countDown();
+                await(release);
+                return "done";
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            try (QueryContext ignored = QueryContext.open("follower", 50)) {
+                assertThrows(RuntimeException.class, () -> deduplicator.execute("slow", () -> "other"));
+            } finally {
+                release.countDown();
+            }
+            assertEquals("done", leader.get(5, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void testDeduplicatorDoesNotKeepAResultWhoseItemTimedOut() throws Exception {
+        BatchDeduplicator deduplicator = new BatchDeduplicator();
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            Future<String> leader = pool.submit(() -> {
+                try (QueryContext ignored = QueryContext.open("short", 50)) {
+                    return deduplicator.execute("engdb|SELECT 1|[]", () -> {
+                        started.countDown();
+                        await(release);
+                        return "Query short exceeded its deadline of 50ms";
+                    });
+                }
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<String> follower = pool.submit(() -> {
+                try (QueryContext ignored = QueryContext.open("long", 30_000)) {
+                    return deduplicator.execute("engdb|SELECT 1|[]", () -> "1");
+                }
+            });
+            Thread.sleep(100);
+            release.countDown();
+
+            assertEquals("Query short exceeded its deadline of 50ms", leader.get(5, TimeUnit.SECONDS));
+            assertEquals("1", follower.get(5, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals("1", deduplicator.execute("engdb|SELECT 1|[]", () -> "again"), "the rerun's result is kept");
+    }
+
+    private long sqlExecutions() {
+        return requestCoalescer.getStats().getOrDefault("sql", Map.of()).getOrDefault("executions", 0L);
+    }
+
+    private HttpResponse<String> post(Object body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/api/query/batch"))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)))
+            .build();
+        try (HttpClient client = HttpClient.newHttpClient()) {
+            return client.send(request, HttpResponse.BodyHandlers.ofString());
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException();
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.rca.engdb;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rca.engdb.exec.JdbcConcurrencyLimiter;
+import com.rca.engdb.ml.IntentType;
+import com.rca.engdb.schema.SchemaDiscoveryService;
+import com.rca.engdb.workload.GeneratedSchema;
+import com.rca.engdb.workload.LatencyDistribution;
+import com.rca.engdb.workload.OpenLoopLoadGenerator;
+import com.rca.engdb.workload.OpenRouterStub;
+import com.rca.engdb.workload.PoolSaturationSampler;
+import com.rca.engdb.workload.QuestionGenerator;
+import com.rca.engdb.workload.QuestionGenerator.GeneratedQuestion;
+import com.rca.engdb.workload.SchemaGenerator;
+import com.zaxxer.hikari.HikariDataSource;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * End-to-end load test: the application on a random port against an embedded H2 database
+ * holding a generated schema, with a local stub in place of OpenRouter.
+ *
+ * Requests for a generated question corpus arrive open-loop at a fixed rate; the report
+ * gives throughput, latency percentiles from each request's intended start, outcomes by
+ * status and how saturated the connection pool was. Run with
+ *
+ *   mvn test -Pload-test -Dtest=EndToEndLoadTest -Dloadtest.rate=200 -Dloadtest.llm-latency=lognormal:800:0.6
+ *
+ * Settings (system properties): loadtest.rate, loadtest.duration-seconds, loadtest.warmup-seconds,
+ * loadtest.timeout-ms, loadtest.tables, loadtest.topology, loadtest.rows, loadtest.questions,
+ * loadtest.llm (false = rule-based engine only), loadtest.llm-latency, loadtest.llm-error-rate.
+ * Application properties (engdb.bulkhead.*, engdb.cache.enabled, ...) can be overridden the same way.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "spring.datasource.url=jdbc:h2:mem:engdb;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.show-sql=false",
+    "spring.sql.init.mode=never",
+    "spring.data.mongodb.uri=mongodb://127.0.0.1:27017/engdb?serverSelectionTimeoutMS=200",
+    "logging.level.org.hibernate.SQL=WARN",
+    "logging.level.com.rca.engdb=WARN"
+})
+class EndToEndLoadTest {
+
+    private static final String DATABASE = "engdb";
+
+    private static final GeneratedSchema SCHEMA = SchemaGenerator.generate(
+        Integer.getInteger("loadtest.tables", 20), 8,
+        SchemaGenerator.Topology.valueOf(System.getProperty("loadtest.topology", "SNOWFLAKE")),
+        SchemaGenerator.Naming.SNAKE_CASE);
+    private static final List<GeneratedQuestion> QUESTIONS =
+        new QuestionGenerator(SCHEMA, 42).generate(Integer.getInteger("loadtest.questions", 500));
+
+    private static OpenRouterStub openRouterStub;
+
+    @Autowired
+    private HikariDataSource dataSource;
+
+    @Autowired
+    private SchemaDiscoveryService schemaDiscoveryService;
+
+    @Autowired
+    private JdbcConcurrencyLimiter concurrencyLimiter;
+
+    @LocalServerPort
+    private int port;
+
+    @DynamicPropertySource
+    static void openRouter(DynamicPropertyRegistry registry) throws Exception {
+        // The stub answers each question with SQL over the table the question is about
+        Map<String, GeneratedQuestion> byText = new HashMap<>();
+        QUESTIONS.forEach(question -> byText.putIfAbsent(question.text(), question));
+        openRouterStub = new OpenRouterStub(
+            LatencyDistribution.parse(System.getProperty("loadtest.llm-latency", "lognormal:300:0.5")),
+            Double.parseDouble(System.getProperty("loadtest.llm-error-rate", "0.02")),
+            text -> sqlFor(byText.get(text)));
+
+        boolean llm = Boolean.parseBoolean(System.getProperty("loadtest.llm", "true"));
+        registry.add("openrouter.url", openRouterStub::getUrl);
+        registry.add("openrouter.api-key", () -> llm ? "stub-key" : "");
+        registry.add("openrouter.model", () -> "stub");
+    }
+
+    private static String sqlFor(GeneratedQuestion question) {
+        if (question == null) return "SELECT 1";
+        String table = DATABASE + "." + question.tables().get(0);
+        return question.intent() == IntentType.COUNT
+            ? "SELECT COUNT(*) FROM " + table
+            : "SELECT * FROM " + table + " LIMIT 20";
+    }
+
+    @AfterAll
+    static void stopStub() {
+        if (openRouterStub != null) openRouterStub.close();
+    }
+
+    @Test
+    void testOpenLoopLoad() throws Exception {
+        SCHEMA.install(dataSource, DATABASE, Integer.getInteger("loadtest.rows", 1000));
+        schemaDiscoveryService.refreshSchema(DATABASE);
+
+        double rate = Double.parseDouble(System.getProperty("loadtest.rate", "50"));
+        Duration duration = Duration.ofSeconds(Long.getLong("loadtest.duration-seconds", 20));
+        Duration warmup = Duration.ofSeconds(Long.getLong("loadtest.warmup-seconds", 5));
+        Duration timeout = Duration.ofMillis(Long.getLong("loadtest.timeout-ms", 10_000));
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        OpenLoopLoadGenerator generator = new OpenLoopLoadGenerator(URI.create("http://127.0.0.1:" + port + "/api/query"));
+        String[] bodies = new String[QUESTIONS.size()];
+        for (int i = 0; i < bodies.length; i++) {
+            bodies[i] = objectMapper.writeValueAsString(Map.of("query", QUESTIONS.get(i).text(), "databaseName", DATABASE));
+        }
+
+        generator.run(rate, warmup, timeout, i -> bodies[i % bodies.length]);
+
+        long llmCallsBefore = openRouterStub.getCalls();
+        OpenLoopLoadGenerator.Result result;
+        String poolSummary;
+        try (PoolSaturationSampler sampler = new PoolSaturationSampler(dataSource.getHikariPoolMXBean(),
+                dataSource.getMaximumPoolSize(), concurrencyLimiter::getQueueLength, 50)) {
+            result = generator.run(rate, duration, timeout, i -> bodies[i % bodies.length]);
+            poolSummary = sampler.summary();
+        }
+
+        Histogram latency = result.getLatencyMicros();
+        System.out.printf("""
+
+            ==== End-to-end load test ====
+            schema        %d tables (%s), %d questions, LLM %s
+            offered       %.0f req/s for %.1f s, %d requests
+            throughput    %.1f req/s succeeded
+            outcomes      %s
+            latency (ms)  p50 %.1f  p90 %.1f  p99 %.1f  p99.9 %.1f  max %.1f
+            LLM stub      %d calls, %d injected errors in total
+            pool          %s
+            %n""",
+            SCHEMA.getTables().size(), SCHEMA.getTopology(), QUESTIONS.size(),
+            System.getProperty("loadtest.llm", "true").equals("true") ? System.getProperty("loadtest.llm-latency", "lognormal:300:0.5") : "off",
+            rate, result.getElapsedSeconds(), result.getTotal(),
+            result.getSucceeded() / result.getElapsedSeconds(),
+            result.getOutcomes(),
+            latency.getValueAtPercentile(50) / 1000.0, latency.getValueAtPercentile(90) / 1000.0,
+            latency.getValueAtPercentile(99) / 1000.0, latency.getValueAtPercentile(99.9) / 1000.0,
+            latency.getMaxValue() / 1000.0,
+            openRouterStub.getCalls() - llmCallsBefore, openRouterStub.getErrors(),
+            poolSummary);
+        result.getSamples().forEach((outcome, sample) -> System.out.println("first " + outcome + ": " + sample));
+
+        // The harness measures, it does not judge: it only checks that the run happened
+        assertEquals(rate * duration.toSeconds(), (double) result.getTotal(), 1.0);
+        assertTrue(result.getSucceeded() > 0, "No request succeeded: " + result.getOutcomes());
+    }
+}
@@ -0,0 +1,205 @@
+package com.rca.engdb;
+
+import com.rca.engdb.ast.ConditionNode;
+import com.rca.engdb.ast.QueryAST;
+import com.rca.engdb.engine.QueryGenerator;
+import com.rca.engdb.engine.SqlStatement;
+import com.rca.engdb.exec.FanOutExecutor;
+import com.rca.engdb.exec.QueryContext;
+import com.rca.engdb.exec.QueryExecutor;
+import com.rca.engdb.ml.IntentType;
+import com.rca.engdb.schema.DatabaseDiscoveryService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+class FanOutExecutorTest {
+
+    private static final List<String> TENANTS = List.of("tenant_a", "tenant_b", "tenant_c");
+
+    private FanOutExecutor fanOutExecutor;
+    private final Map<String, String> executedSql = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        DatabaseDiscoveryService databaseDiscoveryService = Mockito.mock(DatabaseDiscoveryService.class);
+        when(databaseDiscoveryService.getAllDatabases("mysql"))
+            .thenReturn(List.of("tenant_c", "engdb", "tenant_a", "tenant_b", "reporting"));
+        fanOutExecutor = new FanOutExecutor(new QueryGenerator(), databaseDiscoveryService, 2, 3);
+    }
+
+    @Test
+    void testPatternSelectsMatchingDatabasesInNameOrder() {
+        assertEquals(TENANTS, fanOutExecutor.resolveDatabases("tenant_*"));
+        assertEquals(TENANTS, fanOutExecutor.resolveDatabases("tenant_?"));
+        assertEquals(List.of("tenant_b"), fanOutExecutor.resolveDatabases("TENANT_B"));
+        assertEquals(List.of(), fanOutExecutor.resolveDatabases("archive_*"));
+        assertThrows(IllegalArgumentException.class, () -> fanOutExecutor.resolveDatabases("*"));
+    }
+
+    @Test
+    void testCountsAreSummedAndEachDatabaseGetsItsOwnStatement() {
+        QueryAST ast = ast(IntentType.COUNT);
+        ast.getWhereConditions().add(new ConditionNode("age", ">", 20));
+
+        FanOutExecutor.FanOutResult fanOut = fanOutExecutor.execute(ast, TENANTS, respond(Map.of(
+            "tenant_a", rows(row("COUNT(*)", 3L)),
+            "tenant_b", rows(row("COUNT(*)", 0L)),
+            "tenant_c", rows(row("COUNT(*)", 4L)))));
+
+        assertEquals(List.of(row("COUNT(*)", 7L)), fanOut.getResult().getData());
+        assertNull(fanOut.getResult().getErrorMessage());
+        assertEquals("SELECT COUNT(*) FROM tenant_b.students WHERE age > ?", executedSql.get("tenant_b"));
+        assertEquals(TENANTS, fanOut.getPartials().stream().map(FanOutExecutor.Partial::getDatabase).toList());
+        assertEquals("tenant_a", ast.getDatabaseName());
+    }
+
+    @Test
+    void testAverageIsDividedFromPartialSumsAndCounts() {
+        QueryAST ast = ast(IntentType.AVG);
+        ast.setAggregateColumn("age");
+
+        // Averaging the averages (20 and 30) would give 25
+        FanOutExecutor.FanOutResult fanOut = fanOutExecutor.execute(ast, TENANTS, respond(Map.of(
+            "tenant_a", rows(partialAverage(new BigDecimal("20"), 1L)),
+            "tenant_b", rows(partialAverage(new BigDecimal("90"), 3L)),
+            "tenant_c", rows(partialAverage(null, 0L)))));
+
+        assertEquals("SELECT SUM(age) AS partial_sum, COUNT(age) AS partial_count FROM tenant_a.students",
+            executedSql.get("tenant_a"));
+        Object average = fanOut.getResult().getData().get(0).get("AVG(age)");
+        assertEquals(0, new BigDecimal("27.5").compareTo((BigDecimal) average));
+    }
+
+    @Test
+    void testMaxAndMinAreReducedAcrossNumericTypes() {
+        QueryAST max = ast(IntentType.MAX);
+        max.setAggregateColumn("age");
+        Map<String, List<Map<String, Object>>> partials = Map.of(
+            "tenant_a", rows(row("MAX(age)", 41)),
+            "tenant_b", rows(row("MAX(age)", null)),
+            "tenant_c", rows(row("MAX(age)", 57L)));
+
+        assertEquals(57L, fanOutExecutor.execute(max, TENANTS, respond(partials)).getResult().getData().get(0).get("MAX(age)"));
+
+        QueryAST min = ast(IntentType.MIN);
+        min.setAggregateColumn("age");
+        assertEquals(41, fanOutExecutor.execute(min, TENANTS, respond(partials)).getResult().getData().get(0).get("MAX(age)"));
+    }
+
+    @Test
+    void testOrderedSelectIsMergedUnderTheGlobalLimit() {
+        QueryAST ast = ast(IntentType.SELECT);
+        ast.setOrderByColumn("students.age");
+        ast.setOrderDirection(QueryAST.OrderDirection.DESC);
+        ast.setLimit(3);
+
+        FanOutExecutor.FanOutResult fanOut = fanOutExecutor.execute(ast, TENANTS, respond(Map.of(
+            "tenant_a", rows(row("age", 50), row("age", 20)),
+            "tenant_b", rows(row("age", 60), row("age", 45), row("age", 10)),
+            "tenant_c", rows())));
+
+        assertEquals(List.of(row("age", 60), row("age", 50), row("age", 45)), fanOut.getResult().getData());
+        assertEquals(3, fanOut.getResult().getRowCount());
+        assertEquals("SELECT * FROM tenant_c.students ORDER BY students.age DESC LIMIT 3", executedSql.get("tenant_c"));
+    }
+
+    @Test
+    void testFailedDatabaseIsReportedAndTheRestMerged() {
+        QueryAST ast = ast(IntentType.SUM);
+        ast.setAggregateColumn("credits");
+
+        FanOutExecutor.FanOutResult fanOut = fanOutExecutor.execute(ast, TENANTS, (database, statement) -> {
+            if (database.equals("tenant_b")) {
+                return new QueryExecutor.QueryResult(List.of(), 0, 1, false, "Table 'tenant_b.students' doesn't exist");
+            }
+            if (database.equals("tenant_c")) throw new IllegalStateException("connection refused");
+            return new QueryExecutor.QueryResult(rows(row("SUM(credits)", new BigDecimal("12.5"))), 1, 1, true, null);
+        });
+
+        assertTrue(fanOut.getResult().isSuccess());
+        assertEquals(new BigDecimal("12.5"), fanOut.getResult().getData().get(0).get("SUM(credits)"));
+        String error = fanOut.getResult().getErrorMessage();
+        assertTrue(error.startsWith("2 of 3 databases failed"), error);
+        assertTrue(error.contains("tenant_b: Table 'tenant_b.students' doesn't exist"), error);
+        assertTrue(error.contains("tenant_c: connection refused"), error);
+    }
+
+    @Test
+    void testDatabasesRunInParallelWithinTheLimitAndUnderTheRequestDeadline() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        List<QueryContext> contexts = new ArrayList<>();
+        List<String> databases = List.of("t1", "t2", "t3", "t4", "t5", "t6");
+
+        try (QueryContext context = QueryContext.open("fan-out", 5000)) {
+            fanOutExecutor.execute(ast(IntentType.COUNT), databases, (database, statement) -> {
+                peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                synchronized (contexts) {
+                    contexts.add(QueryContext.current());
+                }
+                sleep(20);
+                running.decrementAndGet();
+                return new QueryExecutor.QueryResult(rows(row("COUNT(*)", 1L)), 1, 20, true, null);
+            });
+
+            assertEquals(2, peak.get());
+            assertEquals(databases.size(), contexts.size());
+            contexts.forEach(bound -> assertSame(context, bound));
+        }
+    }
+
+    private QueryAST ast(IntentType intent) {
+        QueryAST ast = new QueryAST();
+        ast.setIntent(intent);
+        ast.setTargetTable("students");
+        ast.setDatabaseName("tenant_a");
+        return ast;
+    }
+
+    private java.util.function.BiFunction<String, SqlStatement, QueryExecutor.QueryResult> respond(
+            Map<String, List<Map<String, Object>>> results) {
+        return (database, statement) -> {
+            executedSql.put(database, statement.getSql());
+            List<Map<String, Object>> data = results.get(database);
+            return new QueryExecutor.QueryResult(data, data.size(), 1, true, null);
+        };
+    }
+
+    @SafeVarargs
+    private static List<Map<String, Object>> rows(Map<String, Object>... rows) {
+        return List.of(rows);
+    }
+
+    private static Map<String, Object> row(String column, Object value) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put(column, value);
+        return row;
+    }
+
+    private static Map<String, Object> partialAverage(BigDecimal sum, long count) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("partial_sum", sum);
+        row.put("partial_count", count);
+        return row;
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.rca.engdb;
+
+import com.rca.engdb.ast.QueryAST;
+import com.rca.engdb.engine.FederatedJoinPlanner;
+import com.rca.engdb.engine.SqlStatement;
+import com.rca.engdb.exec.FederatedJoinExecutor;
+import com.rca.engdb.exec.MongoQueryExecutor;
+import com.rca.engdb.exec.QueryExecutor;
+import com.rca.engdb.ml.IntentType;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+class FederatedJoinExecutorTest {
+
+    private static final FederatedJoinPlanner.Link LINK = new FederatedJoinPlanner.Link("orders", "user_id", "users", "_id");
+    private static final ObjectId ALICE = new ObjectId();
+    private static final ObjectId BOB = new ObjectId();
+
+    @TempDir
+    Path spillDirectory;
+
+    private FederatedJoinExecutor federatedJoinExecutor;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        QueryExecutor queryExecutor = Mockito.mock(QueryExecutor.class);
+        MongoQueryExecutor mongoQueryExecutor = Mockito.mock(MongoQueryExecutor.class);
+
+        List<Map<String, Object>> orders = List.of(
+            row("id", 1, "user_id", ALICE.toHexString(), "amount", new BigDecimal("10.50")),
+            row("id", 2, "user_id", ALICE.toHexString(), "amount", new BigDecimal("4.50")),
+            row("id", 3, "user_id", BOB.toHexString(), "amount", new BigDecimal("30.00")),
+            row("id", 4, "user_id", new ObjectId().toHexString(), "amount", new BigDecimal("99.00")));
+        List<Map<String, Object>> users = List.of(
+            row("_id", ALICE, "name", "alice", "country", "NL"),
+            row("_id", BOB, "name", "bob", "country", "NL"));
+
+        doAnswer(invocation -> {
+            orders.forEach(invocation.<Consumer<Map<String, Object>>>getArgument(1));
+            return (long) orders.size();
+        }).when(queryExecutor).streamSQLQuery(any(), any());
+        doAnswer(invocation -> {
+            users.forEach(invocation.<Consumer<Map<String, Object>>>getArgument(4));
+            return (long) users.size();
+        }).when(mongoQueryExecutor).streamMongoQuery(eq("shop"), eq("users"), any(), any(), any());
+        when(mongoQueryExecutor.estimateDocumentCount("shop", "users")).thenReturn(2L);
+
+        federatedJoinExecutor = new FederatedJoinExecutor(queryExecutor, mongoQueryExecutor, 1 << 20, spillDirectory.toString(), 4);
+    }
+
+    @Test
+    void testAggregatesAreComputedOverTheJoinedRows() {
+        assertEquals(3L, single(execute(ast(IntentType.COUNT, null))).get("COUNT(*)"));
+        assertEquals(new BigDecimal("45.00"), single(execute(ast(IntentType.SUM, "amount"))).get("SUM(amount)"));
+        assertEquals(0, new BigDecimal("15").compareTo((BigDecimal) single(execute(ast(IntentType.AVG, "amount"))).get("AVG(amount)")));
+        assertEquals(new BigDecimal("30.00"), single(execute(ast(IntentType.MAX, "orders.amount"))).get("MAX(orders.amount)"));
+    }
+
+    @Test
+    void testSelectIsOrderedAndLimitedWithColumnsOfBothSides() {
+        QueryAST ast = ast(IntentType.SELECT, null);
+        ast.setOrderByColumn("amount");
+        ast.setOrderDirection(QueryAST.OrderDirection.DESC);
+        ast.setLimit(2);
+
+        QueryExecutor.QueryResult result = execute(ast);
+
+        assertTrue(result.isSuccess());
+        assertEquals(2, result.getRowCount());
+        assertEquals("bob", result.getData().get(0).get("users.name"));
+        assertEquals(new BigDecimal("10.50"), result.getData().get(1).get("orders.amount"));
+    }
+
+    @Test
+    void testLinksAreParsedMySqlSideFirst() {
+        assertEquals(List.of(LINK, new FederatedJoinPlanner.Link("payments", "customer", "customers", "code")),
+            FederatedJoinPlanner.parseLinks(" orders.user_id=users._id, payments.customer = customers.code"));
+        assertEquals(List.of(), FederatedJoinPlanner.parseLinks(""));
+        assertThrows(IllegalArgumentException.class, () -> FederatedJoinPlanner.parseLinks("orders.user_id"));
+        assertThrows(IllegalArgumentException.class, () -> FederatedJoinPlanner.parseLinks("orders=users._id"));
+    }
+
+    private QueryExecutor.QueryResult execute(QueryAST ast) {
+        FederatedJoinPlanner.FederatedJoin join = new FederatedJoinPlanner.FederatedJoin(LINK, true, "shop",
+            new SqlStatement("SELECT * FROM shop.orders", List.of(), List.of()), 4,
+            new Document(), new Document(), 0, ast, "");
+        return federatedJoinExecutor.execute(join);
+    }
+
+    private static QueryAST ast(IntentType intent, String aggregateColumn) {
+        QueryAST ast = new QueryAST();
+        ast.setIntent(intent);
+        ast.setTargetTable("orders");
+        ast.setDatabaseName("shop");
+        ast.setAggregateColumn(aggregateColumn);
+        return ast;
+    }
+
+    private static Map<String, Object> single(QueryExecutor.QueryResult result) {
+        assertTrue(result.isSuccess(), result.getErrorMessage());
+        assertEquals(1, result.getRowCount());
+        return result.getData().get(0);
+    }
+
+    private static Map<String, Object> row(String c1, Object v1, String c2, Object v2, String c3, Object v3) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put(c1, v1);
+        row.put(c2, v2);
+        row.put(c3, v3);
+        return row;
+    }
+}
@@ -0,0 +1,154 @@
+package com.rca.engdb;
+
+import com.rca.engdb.exec.HashJoin;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashJoinTest {
+
+    @TempDir
+    Path spillDirectory;
+
+    @Test
+    void testInnerJoinMatchesKeysByValueAcrossTypes() {
+        ObjectId alice = new ObjectId();
+        List<Map<String, Object>> orders = List.of(
+            row("id", 1, "user_id", alice.toHexString()),
+            row("id", 2, "user_id", 7L),
+            row("id", 3, "user_id", null),
+            row("id", 4, "user_id", 8));
+        List<Map<String, Object>> users = List.of(
+            row("_id", alice, "name", "alice"),
+            row("_id", new BigDecimal("7.0"), "name", "bob"));
+
+        List<Map<String, Object>> joined = join(new HashJoin(1 << 20, spillDirectory, 4),
+            side("orders", "user_id", orders, 10), side("users", "_id", users, 2), false);
+
+        assertEquals(2, joined.size());
+        assertEquals(List.of("orders.id", "orders.user_id", "users._id", "users.name"), new ArrayList<>(joined.get(0).keySet()));
+        assertEquals(Map.of(1, "alice", 2, "bob"), Map.of(
+            joined.get(0).get("orders.id"), joined.get(0).get("users.name"),
+            joined.get(1).get("orders.id"), joined.get(1).get("users.name")));
+    }
+
+    @Test
+    void testSmallerEstimateIsBuiltAndOutputKeepsLeftColumnsFirst() {
+        List<Map<String, Object>> orders = List.of(row("id", 1, "user_id", 1), row("id", 2, "user_id", 1));
+        List<Map<String, Object>> users = List.of(row("_id", 1, "name", "alice"));
+        AtomicInteger usersRead = new AtomicInteger();
+        HashJoin.Side usersSide = new HashJoin.Side("users", "_id", rows -> users.forEach(row -> {
+            usersRead.incrementAndGet();
+            rows.accept(row);
+        }), 1);
+
+        List<Map<String, Object>> joined = new ArrayList<>();
+        HashJoin.Stats stats = new HashJoin(1 << 20, spillDirectory, 4)
+            .join(side("orders", "user_id", orders, 1000), usersSide, false, joined::add);
+
+        assertEquals("users", stats.getBuildSide());
+        assertEquals(1, usersRead.get());
+        assertEquals(2, joined.size());
+        assertEquals("orders.id", joined.get(0).keySet().iterator().next());
+        assertFalse(stats.isSpilled());
+    }
+
+    @Test
+    void testLeftOuterJoinKeepsUnmatchedLeftRowsWhicheverSideIsBuilt() {
+        List<Map<String, Object>> orders = List.of(row("id", 1, "user_id", 1), row("id", 2, "user_id", 99), row("id", 3, "user_id", null));
+        List<Map<String, Object>> users = List.of(row("_id", 1, "name", "alice"), row("_id", 2, "name", "carol"));
+
+        for (long ordersEstimate : new long[] {1, 1000}) {
+            List<Map<String, Object>> joined = join(new HashJoin(1 << 20, spillDirectory, 4),
+                side("orders", "user_id", orders, ordersEstimate), side("users", "_id", users, 10), true);
+
+            joined.sort(Comparator.comparing(row -> (Integer) row.get("orders.id")));
+            assertEquals(3, joined.size(), "orders estimate " + ordersEstimate);
+            assertEquals("alice", joined.get(0).get("users.name"));
+            assertFalse(joined.get(1).containsKey("users.name"));
+            assertFalse(joined.get(2).containsKey("users.name"));
+        }
+    }
+
+    @Test
+    void testBuildSideOverBudgetSpillsToPartitionsWithTheSameResult() throws IOException {
+        List<Map<String, Object>> users = new ArrayList<>();
+        List<Map<String, Object>> orders = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            users.add(row("_id", i, "name", "user-" + i));
+            orders.add(row("id", i, "user_id", i % 2500));
+        }
+
+        List<Map<String, Object>> inMemory = new ArrayList<>();
+        new HashJoin(64L << 20, spillDirectory, 8).join(side("users", "_id", users, 10), side("orders", "user_id", orders, 20),
+            true, inMemory::add);
+
+        List<Map<String, Object>> spilled = new ArrayList<>();
+        HashJoin.Stats stats = new HashJoin(16 * 1024, spillDirectory, 8).join(side("users", "_id", users, 10),
+            side("orders", "user_id", orders, 20), true, spilled::add);
+
+        assertTrue(stats.isSpilled());
+        assertEquals(8, stats.getSpilledPartitions());
+        assertTrue(stats.getSpilledBytes() > 0);
+        // 2500 users have two orders each, the other 2500 none
+        assertEquals(7500, spilled.size());
+        assertEquals(sorted(inMemory), sorted(spilled));
+        try (Stream<Path> files = Files.list(spillDirectory)) {
+            assertEquals(0, files.count(), "spill files are deleted");
+        }
+    }
+
+    @Test
+    void testConsumerStopsTheJoinEarly() {
+        List<Map<String, Object>> users = List.of(row("_id", 1, "name", "alice"));
+        List<Map<String, Object>> orders = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            orders.add(row("id", i, "user_id", 1));
+        }
+
+        List<Map<String, Object>> joined = new ArrayList<>();
+        HashJoin.Stats stats = new HashJoin(1 << 20, spillDirectory, 4).join(side("orders", "user_id", orders, 100),
+            side("users", "_id", users, 1), false, row -> {
+                joined.add(row);
+                return joined.size() < 5;
+            });
+
+        assertEquals(5, joined.size());
+        assertEquals(5, stats.getProbeRows());
+    }
+
+    private static List<Map<String, Object>> join(HashJoin hashJoin, HashJoin.Side left, HashJoin.Side right, boolean leftOuter) {
+        List<Map<String, Object>> joined = new ArrayList<>();
+        hashJoin.join(left, right, leftOuter, joined::add);
+        return joined;
+    }
+
+    private static HashJoin.Side side(String name, String key, List<Map<String, Object>> rows, long estimate) {
+        return new HashJoin.Side(name, key, consumer -> rows.forEach(consumer), estimate);
+    }
+
+    private static List<String> sorted(List<Map<String, Object>> rows) {
+        return rows.stream().map(Object::toString).sorted().toList();
+    }
+
+    private static Map<String, Object> row(String column, Object value, String otherColumn, Object otherValue) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put(column, value);
+        row.put(otherColumn, otherValue);
+        return row;
+    }
+}
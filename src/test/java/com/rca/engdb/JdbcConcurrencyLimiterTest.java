@@ -0,0 +1,86 @@
+package com.rca.engdb;
+
+import com.rca.engdb.exec.JdbcConcurrencyLimiter;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JdbcConcurrencyLimiterTest {
+
+    @Test
+    void testConcurrencyNeverExceedsLimit() throws Exception {
+        JdbcConcurrencyLimiter limiter = new JdbcConcurrencyLimiter(null, 4, 0, 10_000);
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                results.add(executor.submit(() -> limiter.execute(() -> {
+                    peak.accumulateAndGet(active.incrementAndGet(), Math::max);
+                    sleep(2);
+                    active.decrementAndGet();
+                    return 1;
+                })));
+            }
+            for (Future<Integer> result : results) {
+                assertEquals(1, result.get(10, TimeUnit.SECONDS));
+            }
+        }
+
+        assertTrue(peak.get() <= 4, "peak concurrency " + peak.get());
+        assertEquals(4, limiter.getAvailablePermits());
+    }
+
+    @Test
+    void testWaitingPastTimeoutFails() throws Exception {
+        JdbcConcurrencyLimiter limiter = new JdbcConcurrencyLimiter(null, 1, 0, 50);
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            executor.submit(() -> limiter.execute(() -> {
+                holding.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            }));
+            holding.await();
+
+            assertThrows(CannotGetJdbcConnectionException.class, () -> limiter.execute(() -> 1));
+            release.countDown();
+        }
+
+        assertEquals(1, limiter.execute(() -> 1));
+    }
+
+    @Test
+    void testDefaultsToHikariPoolSizeLessReservedConnections() {
+        try (HikariDataSource dataSource = new HikariDataSource()) {
+            dataSource.setMaximumPoolSize(7);
+
+            assertEquals(7, new JdbcConcurrencyLimiter(dataSource, 0, 0, 1000).getMaxConcurrency());
+            assertEquals(4, new JdbcConcurrencyLimiter(dataSource, 0, 3, 1000).getMaxConcurrency());
+            assertEquals(1, new JdbcConcurrencyLimiter(dataSource, 0, 10, 1000).getMaxConcurrency());
+            assertEquals(3, new JdbcConcurrencyLimiter(dataSource, 3, 3, 1000).getMaxConcurrency());
+        }
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.rca.engdb;
+
+import com.rca.engdb.engine.JoinPlanner;
+import com.rca.engdb.schema.ForeignKeyRelation;
+import com.rca.engdb.schema.SchemaDiscoveryService;
+import com.rca.engdb.schema.SchemaGraph;
+import com.rca.engdb.schema.TableStatistics;
+import com.rca.engdb.schema.TableStatisticsService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class JoinPlannerTest {
+
+    private SchemaDiscoveryService schemaDiscoveryService;
+    private TableStatisticsService statisticsService;
+    private JoinPlanner joinPlanner;
+
+    @BeforeEach
+    void setUp() {
+        // Star schema: sales fact with customer/product/store dimensions,
+        // plus a large orders table that also links customers and products
+        SchemaGraph graph = new SchemaGraph();
+        graph.addRelationship("sales", "customer_id", "customers", "id");
+        graph.addRelationship("sales", "product_id", "products", "id");
+        graph.addRelationship("sales", "store_id", "stores", "id");
+        graph.addRelationship("orders", "customer_id", "customers", "id");
+        graph.addRelationship("orders", "product_id", "products", "id");
+        graph.addRelationship("stores", "region_id", "regions", "id");
+
+        schemaDiscoveryService = Mockito.mock(SchemaDiscoveryService.class);
+        when(schemaDiscoveryService.getSchemaGraph(any())).thenReturn(graph);
+        when(schemaDiscoveryService.getSchemaVersion(any())).thenReturn(1L);
+
+        statisticsService = Mockito.mock(TableStatisticsService.class);
+        stats("sales", 1_000_000L);
+        stats("orders", 50_000_000L);
+        stats("customers", 10_000L);
+        stats("products", 500L);
+        stats("stores", 20L);
+        stats("regions", 5L);
+
+        joinPlanner = new JoinPlanner(schemaDiscoveryService, statisticsService);
+    }
+
+    private void stats(String table, long rows) {
+        when(statisticsService.getStatistics(any(), eq(table)))
+            .thenReturn(new TableStatistics(table, rows, 0, null, Map.of(), Map.of()));
+    }
+
+    private Set<String> edges(List<ForeignKeyRelation> relations) {
+        return relations.stream()
+            .map(r -> r.getFromTable() + "->" + r.getToTable())
+            .collect(Collectors.toSet());
+    }
+
+    @Test
+    void testBridgesThroughSmallerTable() {
+        // customers and products connect via sales (1M) or orders (50M)
+        List<ForeignKeyRelation> joins = joinPlanner.planJoins(null, "customers", List.of("customers", "products"));
+
+        assertEquals(Set.of("customers->sales", "sales->products"), edges(joins));
+    }
+
+    @Test
+    void testSharedPathIsJoinedOnce() {
+        List<ForeignKeyRelation> joins = joinPlanner.planJoins(null, "sales",
+            List.of("sales", "customers", "stores", "regions"));
+
+        assertEquals(3, joins.size());
+        assertEquals(Set.of("sales->customers", "sales->stores", "stores->regions"), edges(joins));
+    }
+
+    @Test
+    void testJoinsAreOrientedFromBaseTable() {
+        List<ForeignKeyRelation> joins = joinPlanner.planJoins("engdb", "engdb.regions",
+            List.of("engdb.regions", "engdb.sales"));
+
+        assertEquals(List.of("regions->stores", "stores->sales"),
+            joins.stream().map(r -> r.getFromTable() + "->" + r.getToTable()).toList());
+        assertEquals("id", joins.get(0).getFromColumn());
+        assertEquals("region_id", joins.get(0).getToColumn());
+    }
+
+    @Test
+    void testTreeIsCachedPerTableSetAndSchemaVersion() {
+        joinPlanner.planJoins(null, "customers", List.of("customers", "products"));
+        // Same table set, different base: tree is reused, only its orientation changes
+        List<ForeignKeyRelation> joins = joinPlanner.planJoins(null, "products", List.of("products", "customers"));
+
+        assertEquals(Set.of("products->sales", "sales->customers"), edges(joins));
+        verify(statisticsService, times(1)).getStatistics(any(), eq("sales"));
+
+        when(schemaDiscoveryService.getSchemaVersion(any())).thenReturn(2L);
+        joinPlanner.planJoins(null, "customers", List.of("customers", "products"));
+        verify(statisticsService, times(2)).getStatistics(any(), eq("sales"));
+    }
+
+    @Test
+    void testUnreachableTablesAreSkipped() {
+        List<ForeignKeyRelation> joins = joinPlanner.planJoins(null, "sales", List.of("sales", "unknown"));
+
+        assertTrue(joins.isEmpty());
+    }
+}
@@ -2,17 +2,22 @@ package com.rca.engdb;
 
 import com.rca.engdb.ast.JoinNode;
 import com.rca.engdb.ast.QueryAST;
+import com.rca.engdb.engine.JoinPlanner;
 import com.rca.engdb.engine.QueryGenerator;
 import com.rca.engdb.engine.QueryParser;
+import com.rca.engdb.metrics.PipelineMetrics;
 import com.rca.engdb.ml.IntentResult;
 import com.rca.engdb.ml.IntentType;
 import com.rca.engdb.nlp.ConditionExtractor;
 import com.rca.engdb.nlp.EntityRecognizer;
 import com.rca.engdb.nlp.JoinDetector;
+import com.rca.engdb.nlp.OrderLimitExtractor;
 import com.rca.engdb.nlp.SynonymRegistry;
 import com.rca.engdb.schema.SchemaDiscoveryService;
 import com.rca.engdb.schema.SchemaGraph;
 import com.rca.engdb.schema.SchemaRegistry;
+import com.rca.engdb.schema.TableStatisticsService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -22,6 +27,7 @@ import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
 
 class JoinSupportTest {
@@ -40,7 +46,7 @@ class JoinSupportTest {
     void setUp() {
         // Mock Schema
         schemaRegistry = Mockito.mock(SchemaRegistry.class);
-        when(schemaRegistry.getSchema()).thenReturn(Map.of(
+        when(schemaRegistry.getSchema(any())).thenReturn(Map.of(
             "students", List.of("id", "name", "age", "department"),
             "courses", List.of("id", "name", "credits"),
             "enrollments", List.of("id", "student_id", "course_id", "grade")
@@ -53,14 +59,17 @@ class JoinSupportTest {
 
         // Mock SchemaDiscoveryService
         schemaDiscoveryService = Mockito.mock(SchemaDiscoveryService.class);
-        when(schemaDiscoveryService.getSchemaGraph()).thenReturn(schemaGraph);
+        when(schemaDiscoveryService.getSchemaGraph(any())).thenReturn(schemaGraph);
 
         // Initialize components
         synonymRegistry = new SynonymRegistry();
         entityRecognizer = new EntityRecognizer(schemaRegistry, synonymRegistry);
         conditionExtractor = new ConditionExtractor(schemaRegistry);
         joinDetector = new JoinDetector(schemaRegistry);
-        queryParser = new QueryParser(entityRecognizer, conditionExtractor, joinDetector, schemaDiscoveryService);
+        JoinPlanner joinPlanner = new JoinPlanner(schemaDiscoveryService, Mockito.mock(TableStatisticsService.class));
+        queryParser = new QueryParser(entityRecognizer, conditionExtractor,
+            new OrderLimitExtractor(schemaRegistry, synonymRegistry), joinDetector, joinPlanner,
+            new PipelineMetrics(new SimpleMeterRegistry()));
         queryGenerator = new QueryGenerator();
     }
 
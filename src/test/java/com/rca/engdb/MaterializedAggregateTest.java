@@ -0,0 +1,183 @@
+package com.rca.engdb;
+
+import com.rca.engdb.ast.ConditionNode;
+import com.rca.engdb.ast.QueryAST;
+import com.rca.engdb.exec.MaterializedAggregateService;
+import com.rca.engdb.exec.QueryExecutor;
+import com.rca.engdb.ml.IntentType;
+import com.rca.engdb.schema.TableStatistics;
+import com.rca.engdb.schema.TableStatisticsService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+class MaterializedAggregateTest {
+
+    private static final String DATABASE = "shop";
+
+    private JdbcTemplate jdbcTemplate;
+    private TableStatisticsService statisticsService;
+    private MaterializedAggregateService materialized;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+            "jdbc:h2:mem:materialized;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1"));
+        jdbcTemplate.execute("DROP SCHEMA IF EXISTS shop CASCADE");
+        jdbcTemplate.execute("CREATE SCHEMA shop");
+        jdbcTemplate.execute("CREATE TABLE shop.orders (id INT PRIMARY KEY, status VARCHAR(16), region VARCHAR(16), "
+            + "amount DECIMAL(10,2))");
+        jdbcTemplate.update("INSERT INTO shop.orders VALUES "
+            + "(1, 'paid', 'EU', 10.00), (2, 'paid', 'US', 20.50), (3, 'open', 'EU', 5.25), "
+            + "(4, 'shipped', 'EU', 40.00), (5, 'paid', 'EU', NULL)");
+
+        statisticsService = Mockito.mock(TableStatisticsService.class);
+        when(statisticsService.getStatistics(eq(DATABASE), eq("orders"))).thenReturn(new TableStatistics("orders",
+            5, 0, null, Map.of("PRIMARY", new TableStatistics.IndexDefinition("PRIMARY", true, List.of("id"))), Map.of()));
+
+        // Materialized after two questions of a shape; no scheduler, refresh() is called by the tests
+        materialized = new MaterializedAggregateService(jdbcTemplate, statisticsService, new MockEnvironment(),
+            true, 2, 4, 3, 0, 3_600_000);
+    }
+
+    @Test
+    void testRecurringShapeIsAnsweredForAnyLiteral() {
+        assertNull(materialized.execute(sum("status", "=", "paid")));
+        assertNull(materialized.execute(sum("status", "=", "open")));
+        materialized.refresh();
+
+        assertEquals(new BigDecimal("30.50"), value(materialized.execute(sum("status", "=", "paid")), "SUM(amount)"));
+        assertEquals(new BigDecimal("45.25"), value(materialized.execute(sum("status", "!=", "PAID")), "SUM(amount)"));
+        assertNull(value(materialized.execute(sum("status", "=", "refunded")), "SUM(amount)"), "no rows, NULL as in SQL");
+
+        // Same table, condition columns and aggregated column: every aggregate of the shape
+        QueryAST average = sum("status", "=", "paid");
+        average.setIntent(IntentType.AVG);
+        assertEquals(new BigDecimal("15.250000"), value(materialized.execute(average), "AVG(amount)"));
+        QueryAST max = sum("status", "LIKE", "%p%");
+        max.setIntent(IntentType.MAX);
+        assertEquals(new BigDecimal("40.00"), value(materialized.execute(max), "MAX(amount)"));
+
+        assertEquals(1, materialized.getStats().size());
+        assertEquals(3L, materialized.getStats().get("shop.orders(amount) by [status]").get("groups"));
+    }
+
+    @Test
+    void testRowsPastTheHighWaterMarkAreMergedIncrementally() {
+        QueryAST paid = count("status", "=", "paid");
+        materialized.execute(paid);
+        materialized.execute(paid);
+        materialized.refresh();
+        assertEquals(3L, value(materialized.execute(paid), "COUNT(*)"));
+
+        jdbcTemplate.update("INSERT INTO shop.orders VALUES (6, 'paid', 'US', 7.00), (7, 'open', 'US', 1.00)");
+        // Rows below the mark are only seen by a rebuild
+        jdbcTemplate.update("UPDATE shop.orders SET status = 'open' WHERE id = 1");
+        materialized.refresh();
+
+        assertEquals(4L, value(materialized.execute(paid), "COUNT(*)"));
+        assertEquals(2L, value(materialized.execute(count("status", "=", "open")), "COUNT(*)"));
+    }
+
+    @Test
+    void testAgeCountsFromTheLastRebuild() throws Exception {
+        QueryAST paid = count("status", "=", "paid");
+        materialized.execute(paid);
+        materialized.execute(paid);
+        materialized.refresh();
+        Thread.sleep(50);
+
+        // A delete below the mark leaves the watermark where it was: the answer is as old as the build
+        jdbcTemplate.update("DELETE FROM shop.orders WHERE id = 1");
+        materialized.refresh();
+
+        assertEquals(3L, value(materialized.execute(paid), "COUNT(*)"));
+        assertTrue(materialized.ageMs(paid) >= 50, "age " + materialized.ageMs(paid) + "ms");
+        assertTrue(materialized.getStats().get("shop.orders(*) by [status]").get("ageMs") >= 50);
+    }
+
+    @Test
+    void testShapesWithTooManyGroupsOrOrConditionsAreNotMaterialized() {
+        // Five distinct ids, three groups allowed
+        QueryAST byId = sum("id", ">", 2);
+        materialized.execute(byId);
+        materialized.execute(byId);
+        materialized.refresh();
+        assertNull(materialized.execute(byId));
+        assertTrue(materialized.getStats().isEmpty());
+
+        QueryAST or = count("status", "=", "paid");
+        or.getWhereConditions().add(new ConditionNode("region", "=", "US", ConditionNode.LogicalOperator.OR));
+        materialized.execute(or);
+        materialized.execute(or);
+        materialized.refresh();
+        assertNull(materialized.execute(or));
+    }
+
+    @Test
+    void testRejectedShapesAreRetriedAfterTheRebuildInterval() throws Exception {
+        MaterializedAggregateService retrying = new MaterializedAggregateService(jdbcTemplate, statisticsService,
+            new MockEnvironment(), true, 2, 4, 3, 0, 200);
+        QueryAST byId = sum("id", ">", 2);
+        retrying.execute(byId);
+        retrying.execute(byId);
+        retrying.refresh();
+        assertNull(retrying.execute(byId));
+
+        // Down to three groups, but the rejection stands until the rebuild interval has passed
+        jdbcTemplate.update("DELETE FROM shop.orders WHERE id > 3");
+        retrying.execute(byId);
+        retrying.execute(byId);
+        retrying.refresh();
+        assertNull(retrying.execute(byId));
+
+        Thread.sleep(250);
+        retrying.execute(byId);
+        retrying.execute(byId);
+        retrying.refresh();
+        assertEquals(new BigDecimal("5.25"), value(retrying.execute(byId), "SUM(amount)"));
+    }
+
+    @Test
+    void testRarelyAskedShapesAreNotMaterialized() {
+        materialized.execute(count("region", "=", "EU"));
+        materialized.refresh();
+        materialized.execute(count("region", "=", "US"));
+        materialized.refresh();
+
+        assertNull(materialized.execute(count("region", "=", "EU")), "one question per refresh interval");
+    }
+
+    private static QueryAST sum(String column, String operator, Object value) {
+        QueryAST ast = count(column, operator, value);
+        ast.setIntent(IntentType.SUM);
+        ast.setAggregateColumn("amount");
+        return ast;
+    }
+
+    private static QueryAST count(String column, String operator, Object value) {
+        QueryAST ast = new QueryAST();
+        ast.setIntent(IntentType.COUNT);
+        ast.setTargetTable("orders");
+        ast.setDatabaseName(DATABASE);
+        ast.getWhereConditions().add(new ConditionNode(column, operator, value));
+        return ast;
+    }
+
+    private static Object value(QueryExecutor.QueryResult result, String column) {
+        assertNotNull(result, "answered from the materialized aggregate");
+        assertEquals(1, result.getRowCount());
+        return result.getData().get(0).get(column);
+    }
+}
@@ -0,0 +1,52 @@
+package com.rca.engdb;
+
+import com.rca.engdb.schema.MongoSchemaDiscoveryService;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MongoSchemaInferenceTest {
+
+    @Test
+    void testIndexedFieldsComeFirst() {
+        List<String> fields = MongoSchemaDiscoveryService.inferFields(
+            List.of("_id", "email"),
+            List.of(
+                List.of("_id", "name", "email"),
+                List.of("_id", "name", "age")
+            )
+        );
+
+        assertEquals(List.of("_id", "email", "name", "age"), fields);
+    }
+
+    @Test
+    void testSampledFieldsOrderedByFrequency() {
+        List<String> fields = MongoSchemaDiscoveryService.inferFields(
+            List.of(),
+            List.of(
+                List.of("nickname"),
+                List.of("name", "age"),
+                List.of("name", "age"),
+                List.of("name")
+            )
+        );
+
+        assertEquals(List.of("name", "age", "nickname"), fields);
+    }
+
+    @Test
+    void testIndexOnlyFieldsAreKept() {
+        // Sparse fields may not appear in a small sample but are still indexed
+        List<String> fields = MongoSchemaDiscoveryService.inferFields(
+            List.of("address.city"),
+            List.of(List.of("_id", "name"))
+        );
+
+        assertTrue(fields.contains("address.city"));
+        assertEquals(3, fields.size());
+    }
+}
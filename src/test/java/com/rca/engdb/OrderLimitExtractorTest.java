@@ -0,0 +1,156 @@
+package com.rca.engdb;
+
+import com.rca.engdb.ast.QueryAST;
+import com.rca.engdb.engine.JoinPlanner;
+import com.rca.engdb.engine.QueryGenerator;
+import com.rca.engdb.engine.QueryParser;
+import com.rca.engdb.metrics.PipelineMetrics;
+import com.rca.engdb.ml.IntentClassifier;
+import com.rca.engdb.ml.IntentResult;
+import com.rca.engdb.ml.IntentType;
+import com.rca.engdb.nlp.ConditionExtractor;
+import com.rca.engdb.nlp.EntityRecognizer;
+import com.rca.engdb.nlp.JoinDetector;
+import com.rca.engdb.nlp.OrderLimitExtractor;
+import com.rca.engdb.nlp.PreprocessService;
+import com.rca.engdb.nlp.SynonymRegistry;
+import com.rca.engdb.nlp.TokenizerService;
+import com.rca.engdb.schema.SchemaDiscoveryService;
+import com.rca.engdb.schema.SchemaRegistry;
+import com.rca.engdb.schema.TableStatisticsService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+class OrderLimitExtractorTest {
+
+    private final TokenizerService tokenizer = new TokenizerService();
+    private final PreprocessService preprocessor = new PreprocessService();
+    private OrderLimitExtractor extractor;
+    private QueryParser queryParser;
+    private QueryGenerator queryGenerator;
+    private final IntentClassifier intentClassifier = new IntentClassifier();
+
+    @BeforeEach
+    void setUp() {
+        SchemaRegistry schemaRegistry = Mockito.mock(SchemaRegistry.class);
+        when(schemaRegistry.getSchema(any())).thenReturn(Map.of(
+            "students", List.of("id", "name", "age", "grade"),
+            "instructors", List.of("id", "name", "salary", "department")
+        ));
+
+        SynonymRegistry synonymRegistry = new SynonymRegistry();
+        extractor = new OrderLimitExtractor(schemaRegistry, synonymRegistry);
+
+        SchemaDiscoveryService schemaDiscoveryService = Mockito.mock(SchemaDiscoveryService.class);
+        queryParser = new QueryParser(
+            new EntityRecognizer(schemaRegistry, synonymRegistry),
+            new ConditionExtractor(schemaRegistry),
+            extractor,
+            new JoinDetector(schemaRegistry),
+            new JoinPlanner(schemaDiscoveryService, Mockito.mock(TableStatisticsService.class)),
+            new PipelineMetrics(new SimpleMeterRegistry()));
+        queryGenerator = new QueryGenerator();
+    }
+
+    private List<String> tokens(String question) {
+        return preprocessor.clean(tokenizer.tokenize(question));
+    }
+
+    private QueryAST parse(String question, IntentType intent) {
+        return queryParser.parse(tokens(question), new IntentResult(intent, 0.9), null);
+    }
+
+    private QueryAST parse(String question) {
+        List<String> tokens = tokens(question);
+        return queryParser.parse(tokens, intentClassifier.classify(tokens), null);
+    }
+
+    @Test
+    void testTopNWithSuperlative() {
+        // Classified as MAX for "highest"; the row count makes it a listing
+        QueryAST ast = parse("top 10 highest paid instructors");
+
+        assertEquals(IntentType.SELECT, ast.getIntent());
+        assertEquals("SELECT * FROM instructors ORDER BY salary DESC LIMIT 10", queryGenerator.generateSQL(ast));
+    }
+
+    @Test
+    void testCountBeforeAdjectiveWithoutIntentKeyword() {
+        QueryAST ast = parse("5 oldest students");
+
+        assertEquals(IntentType.SELECT, ast.getIntent());
+        assertTrue(ast.getWhereConditions().isEmpty());
+        assertEquals("SELECT * FROM students ORDER BY age DESC LIMIT 5", queryGenerator.generateSQL(ast));
+    }
+
+    @Test
+    void testSuperlativeWithoutCountStaysAnAggregate() {
+        QueryAST ast = parse("highest salary of instructors");
+
+        assertEquals(IntentType.MAX, ast.getIntent());
+        assertNull(ast.getLimit());
+    }
+
+    @Test
+    void testTopNByColumn() {
+        OrderLimitExtractor.OrderLimitResult result = extractor.extract(tokens("top 3 students by grade"), "students");
+
+        assertEquals(3, result.getLimit());
+        assertEquals("grade", result.getOrderByColumn());
+        assertEquals(QueryAST.OrderDirection.DESC, result.getDirection());
+    }
+
+    @Test
+    void testFirstAndLastK() {
+        OrderLimitExtractor.OrderLimitResult first = extractor.extract(tokens("first five students"), "students");
+        assertEquals(5, first.getLimit());
+        assertNull(first.getOrderByColumn());
+
+        OrderLimitExtractor.OrderLimitResult last = extractor.extract(tokens("last 3 students"), "students");
+        assertEquals(3, last.getLimit());
+        assertEquals("id", last.getOrderByColumn());
+        assertEquals(QueryAST.OrderDirection.DESC, last.getDirection());
+    }
+
+    @Test
+    void testSortedByIsNotTakenAsCondition() {
+        QueryAST ast = parse("students sorted by age descending", IntentType.SELECT);
+
+        assertTrue(ast.getWhereConditions().isEmpty());
+        assertEquals("SELECT * FROM students ORDER BY age DESC", queryGenerator.generateSQL(ast));
+    }
+
+    @Test
+    void testAdjectiveOrdering() {
+        OrderLimitExtractor.OrderLimitResult result = extractor.extract(tokens("youngest students"), "students");
+
+        assertEquals("age", result.getOrderByColumn());
+        assertEquals(QueryAST.OrderDirection.ASC, result.getDirection());
+        assertNull(result.getLimit());
+    }
+
+    @Test
+    void testAggregatesIgnoreOrdering() {
+        QueryAST ast = parse("count top 5 students", IntentType.COUNT);
+
+        assertNull(ast.getLimit());
+        assertNull(ast.getOrderByColumn());
+    }
+
+    @Test
+    void testMongoQueryIsSortedAndLimited() {
+        QueryAST ast = parse("top 5 oldest students", IntentType.SELECT);
+
+        assertEquals("db.students.find({}).sort({\"age\": -1}).limit(5)", queryGenerator.generateMongoQuery(ast));
+        assertEquals(-1, queryGenerator.buildMongoSortDocument(ast).get("age"));
+    }
+}
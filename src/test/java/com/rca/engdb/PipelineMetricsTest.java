@@ -0,0 +1,114 @@
+package com.rca.engdb;
+
+import com.rca.engdb.metrics.PipelineMetrics;
+import com.rca.engdb.metrics.PipelineMetrics.Stage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PipelineMetricsTest {
+
+    @Test
+    void testStagesAreTimedUnderOneMetricWithStageTag() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        PipelineMetrics metrics = new PipelineMetrics(registry);
+
+        assertEquals("rows", metrics.time(Stage.EXECUTION, () -> "rows"));
+        metrics.time(Stage.EXECUTION, () -> { });
+        metrics.time(Stage.TOKENIZE, () -> { });
+
+        assertEquals(2, registry.get("engdb.query.stage").tag("stage", "execution").timer().count());
+        assertEquals(1, registry.get("engdb.query.stage").tag("stage", "tokenize").timer().count());
+        assertEquals(0, registry.get("engdb.query.stage").tag("stage", "llm_call").timer().count());
+    }
+
+    @Test
+    void testFailedStageIsStillTimed() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        PipelineMetrics metrics = new PipelineMetrics(registry);
+
+        assertThrows(IllegalStateException.class, () -> metrics.time(Stage.PLAN, () -> {
+            throw new IllegalStateException("no plan");
+        }));
+
+        assertEquals(1, registry.get("engdb.query.stage").tag("stage", "plan").timer().count());
+    }
+
+    @Test
+    void testCacheAndFallbackCounters() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        PipelineMetrics metrics = new PipelineMetrics(registry);
+
+        metrics.cacheLookup(true);
+        metrics.cacheLookup(false);
+        metrics.cacheLookup(false);
+        metrics.llmFallback("not_configured");
+        metrics.llmFallback("not_configured");
+        metrics.llmFallback("no_sql");
+
+        assertEquals(1, registry.get("engdb.cache.hits").counter().count());
+        assertEquals(2, registry.get("engdb.cache.misses").counter().count());
+        assertEquals(2, registry.get("engdb.llm.fallbacks").tag("reason", "not_configured").counter().count());
+        assertEquals(1, registry.get("engdb.llm.fallbacks").tag("reason", "no_sql").counter().count());
+    }
+
+    @Test
+    void testRequestEmitsJfrEventWithStageDurationsWhenEnabled() throws Exception {
+        PipelineMetrics metrics = new PipelineMetrics(new SimpleMeterRegistry());
+        Path file = Files.createTempFile("engdb", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.rca.engdb.Query").withThreshold(Duration.ZERO);
+            recording.start();
+            String answer = metrics.timeRequest("q-1", "school", "count students", () -> {
+                metrics.time(Stage.TOKENIZE, () -> sleep(2));
+                metrics.time(Stage.EXECUTION, () -> sleep(5));
+                return "42";
+            });
+            recording.stop();
+            recording.dump(file);
+            assertEquals("42", answer);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                .filter(e -> e.getEventType().getName().equals("com.rca.engdb.Query"))
+                .toList();
+            assertEquals(1, events.size());
+            RecordedEvent event = events.get(0);
+            assertEquals("q-1", event.getString("queryId"));
+            assertEquals("school", event.getString("database"));
+            assertEquals(String.format("%08x", "count students".hashCode()), event.getString("queryHash"));
+            assertTrue(event.getDuration("tokenize").toMillis() >= 2);
+            assertTrue(event.getDuration("execution").toMillis() >= 5);
+            assertEquals(Duration.ZERO, event.getDuration("plan"));
+            assertTrue(event.getDuration().compareTo(event.getDuration("execution")) >= 0);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void testRequestIsStillTimedWithoutRecording() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        PipelineMetrics metrics = new PipelineMetrics(registry);
+
+        assertEquals("42", metrics.timeRequest("q-2", "school", "count students", () -> "42"));
+
+        assertEquals(1, registry.get("engdb.query.stage").tag("stage", "request").timer().count());
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
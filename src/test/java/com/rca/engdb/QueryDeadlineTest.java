@@ -0,0 +1,194 @@
+package com.rca.engdb;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rca.engdb.engine.SqlStatement;
+import com.rca.engdb.exec.Bulkhead;
+import com.rca.engdb.exec.JdbcConcurrencyLimiter;
+import com.rca.engdb.exec.QueryContext;
+import com.rca.engdb.exec.QueryExecutor;
+import com.rca.engdb.exec.RunningQueryRegistry;
+import com.rca.engdb.integration.OpenRouterService;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestClient;
+
+import java.net.InetSocketAddress;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class QueryDeadlineTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private QueryExecutor queryExecutor;
+    private PreparedStatement preparedStatement;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = Mockito.mock(JdbcTemplate.class);
+        preparedStatement = Mockito.mock(PreparedStatement.class);
+        queryExecutor = new QueryExecutor(jdbcTemplate, new JdbcConcurrencyLimiter(null, 4, 0, 1000));
+    }
+
+    @Test
+    void testMaxExecutionTimeHint() {
+        assertEquals("SELECT /*+ MAX_EXECUTION_TIME(1500) */ * FROM students",
+            QueryExecutor.withMaxExecutionTime("SELECT * FROM students", 1500));
+        assertEquals("SELECT /*+ MAX_EXECUTION_TIME(200) */ COUNT(*) FROM t",
+            QueryExecutor.withMaxExecutionTime("  select COUNT(*) FROM t", 200));
+        assertEquals("SHOW TABLES", QueryExecutor.withMaxExecutionTime("SHOW TABLES", 200));
+        assertEquals("SELECT /*+ MAX_EXECUTION_TIME(10) */ 1",
+            QueryExecutor.withMaxExecutionTime("SELECT /*+ MAX_EXECUTION_TIME(10) */ 1", 500));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testStatementTimeoutAndHintFollowDeadline() throws Exception {
+        when(jdbcTemplate.query(anyString(), any(PreparedStatementSetter.class), any(RowMapper.class)))
+            .thenAnswer(invocation -> {
+                invocation.getArgument(1, PreparedStatementSetter.class).setValues(preparedStatement);
+                return List.of(Map.of("count", 3));
+            });
+
+        QueryExecutor.QueryResult result;
+        try (QueryContext ignored = QueryContext.open("q1", 1500)) {
+            result = queryExecutor.executeSQLQuery(new SqlStatement(
+                "SELECT COUNT(*) FROM students WHERE age > ?", List.of(20), List.of(Types.INTEGER)));
+        }
+
+        assertTrue(result.isSuccess());
+        verify(jdbcTemplate).query(startsWith("SELECT /*+ MAX_EXECUTION_TIME("), any(PreparedStatementSetter.class), any(RowMapper.class));
+        verify(preparedStatement).setQueryTimeout(2);
+        verify(preparedStatement).setObject(1, 20, Types.INTEGER);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testCancelAbortsRunningStatement() throws Exception {
+        RunningQueryRegistry registry = new RunningQueryRegistry();
+        when(jdbcTemplate.query(anyString(), any(PreparedStatementSetter.class), any(RowMapper.class)))
+            .thenAnswer(invocation -> {
+                invocation.getArgument(1, PreparedStatementSetter.class).setValues(preparedStatement);
+                // DELETE /api/query/q2 arrives while the statement runs
+                assertTrue(registry.cancel("q2"));
+                throw new SQLException("Statement cancelled due to client request");
+            });
+
+        QueryContext context = registry.start("q2", 10_000);
+        QueryExecutor.QueryResult result;
+        try {
+            result = queryExecutor.executeSQLQuery("SELECT * FROM students");
+        } finally {
+            registry.finish(context);
+        }
+
+        verify(preparedStatement).cancel();
+        assertFalse(result.isSuccess());
+        assertEquals("Query q2 was cancelled", result.getErrorMessage());
+        assertFalse(registry.cancel("q2"));
+    }
+
+    @Test
+    void testExpiredDeadlineSkipsDatabase() throws Exception {
+        QueryExecutor.QueryResult result;
+        try (QueryContext ignored = QueryContext.open("q3", 1)) {
+            Thread.sleep(5);
+            result = queryExecutor.executeSQLQuery("SELECT * FROM students");
+        }
+
+        assertFalse(result.isSuccess());
+        assertEquals("Query q3 exceeded its deadline of 1ms", result.getErrorMessage());
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void testDuplicateQueryIdRejected() {
+        RunningQueryRegistry registry = new RunningQueryRegistry();
+        QueryContext context = registry.start("same", 1000);
+        try {
+            assertThrows(IllegalStateException.class, () -> registry.start("same", 1000));
+            assertSame(context, QueryContext.current());
+        } finally {
+            registry.finish(context);
+        }
+        assertNull(QueryContext.current());
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    void testBulkheadWaitEndsAtDeadline() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("heavy", 1, 10, 10_000, 1);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            executor.submit(() -> bulkhead.execute(() -> {
+                running.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            }));
+            running.await();
+
+            long start = System.nanoTime();
+            try (QueryContext ignored = QueryContext.open("q4", 100)) {
+                assertThrows(QueryTimeoutException.class, () -> bulkhead.execute(() -> "late"));
+            } finally {
+                release.countDown();
+            }
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        }
+    }
+
+    @Test
+    void testOpenRouterCallAbandonedAtDeadline() throws Exception {
+        HttpServer slowStub = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        slowStub.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        slowStub.createContext("/", exchange -> {
+            try {
+                Thread.sleep(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(500, -1);
+            exchange.close();
+        });
+        slowStub.start();
+
+        try {
+            OpenRouterService openRouterService = new OpenRouterService(RestClient.builder(), new ObjectMapper());
+            ReflectionTestUtils.setField(openRouterService, "apiKey", "test-key");
+            ReflectionTestUtils.setField(openRouterService, "model", "stub");
+            ReflectionTestUtils.setField(openRouterService, "apiUrl",
+                "http://127.0.0.1:" + slowStub.getAddress().getPort() + "/");
+
+            long start = System.nanoTime();
+            try (QueryContext ignored = QueryContext.open("q5", 200)) {
+                assertThrows(QueryTimeoutException.class,
+                    () -> openRouterService.generateSQL("how many students", Map.of("students", List.of("id"))));
+            }
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(3));
+        } finally {
+            slowStub.stop(0);
+        }
+    }
+}
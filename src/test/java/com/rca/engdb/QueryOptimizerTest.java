@@ -0,0 +1,136 @@
+package com.rca.engdb;
+
+import com.rca.engdb.ast.ConditionNode;
+import com.rca.engdb.ast.JoinNode;
+import com.rca.engdb.ast.QueryAST;
+import com.rca.engdb.engine.QueryGenerator;
+import com.rca.engdb.engine.QueryOptimizer;
+import com.rca.engdb.ml.IntentType;
+import com.rca.engdb.schema.SchemaDiscoveryService;
+import com.rca.engdb.schema.SchemaGraph;
+import com.rca.engdb.schema.SchemaRegistry;
+import com.rca.engdb.schema.TableStatisticsService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+class QueryOptimizerTest {
+
+    private QueryOptimizer optimizer;
+    private QueryGenerator generator;
+
+    @BeforeEach
+    void setUp() {
+        SchemaRegistry schemaRegistry = Mockito.mock(SchemaRegistry.class);
+        when(schemaRegistry.getSchema(any())).thenReturn(Map.of(
+            "students", List.of("id", "name", "age", "department_id"),
+            "departments", List.of("id", "dept_name"),
+            "enrollments", List.of("id", "student_id", "course_id", "grade")
+        ));
+
+        SchemaGraph graph = new SchemaGraph();
+        graph.addRelationship("students", "department_id", "departments", "id");
+        graph.addRelationship("enrollments", "student_id", "students", "id");
+
+        SchemaDiscoveryService schemaDiscoveryService = Mockito.mock(SchemaDiscoveryService.class);
+        when(schemaDiscoveryService.getSchemaGraph(any())).thenReturn(graph);
+
+        optimizer = new QueryOptimizer(schemaRegistry, schemaDiscoveryService,
+            Mockito.mock(TableStatisticsService.class));
+        generator = new QueryGenerator();
+    }
+
+    private QueryAST ast(IntentType intent, String table, JoinNode... joins) {
+        QueryAST ast = new QueryAST();
+        ast.setIntent(intent);
+        ast.setTargetTable(table);
+        ast.setSelectColumns(List.of("*"));
+        for (JoinNode join : joins) {
+            ast.getJoins().add(join);
+        }
+        return ast;
+    }
+
+    private JoinNode join(String left, String right, String leftColumn, String rightColumn) {
+        return new JoinNode(left, right, leftColumn, rightColumn, JoinNode.JoinType.INNER);
+    }
+
+    @Test
+    void testUnreferencedForeignKeyJoinIsRemoved() {
+        QueryAST ast = ast(IntentType.COUNT, "students", join("students", "departments", "department_id", "id"));
+
+        optimizer.optimize(ast);
+
+        assertTrue(ast.getJoins().isEmpty());
+        assertEquals("SELECT COUNT(*) FROM students WHERE students.department_id IS NOT NULL",
+            generator.generateSQL(ast));
+    }
+
+    @Test
+    void testRowMultiplyingJoinIsKept() {
+        QueryAST ast = ast(IntentType.COUNT, "students", join("students", "enrollments", "id", "student_id"));
+
+        optimizer.optimize(ast);
+
+        assertEquals(1, ast.getJoins().size());
+        assertEquals(JoinNode.JoinType.INNER, ast.getJoins().get(0).getJoinType());
+    }
+
+    @Test
+    void testSelectAllKeepsJoins() {
+        QueryAST ast = ast(IntentType.SELECT, "students", join("students", "departments", "department_id", "id"));
+
+        optimizer.optimize(ast);
+
+        assertEquals(1, ast.getJoins().size());
+        assertEquals(JoinNode.JoinType.INNER, ast.getJoins().get(0).getJoinType());
+    }
+
+    @Test
+    void testFilterOnlyJoinBecomesSemiJoin() {
+        QueryAST ast = ast(IntentType.SELECT, "students", join("students", "departments", "department_id", "id"));
+        ast.setSelectColumns(List.of("name"));
+        ast.getWhereConditions().add(new ConditionNode("dept_name", "=", "cs"));
+        ast.getWhereConditions().add(new ConditionNode("age", ">", 20));
+
+        optimizer.optimize(ast);
+
+        assertEquals(JoinNode.JoinType.SEMI, ast.getJoins().get(0).getJoinType());
+        assertEquals("SELECT name FROM students WHERE students.age > 20 AND EXISTS (SELECT 1 FROM departments "
+                + "WHERE departments.id = students.department_id AND departments.dept_name = 'cs')",
+            generator.generateSQL(ast));
+        assertEquals(List.of(20, "cs"), generator.generateParameterizedSQL(ast).getParameters());
+    }
+
+    @Test
+    void testEliminationCascadesToParentJoin() {
+        QueryAST ast = ast(IntentType.COUNT, "enrollments",
+            join("enrollments", "students", "student_id", "id"),
+            join("students", "departments", "department_id", "id"));
+
+        optimizer.optimize(ast);
+
+        assertEquals("SELECT COUNT(*) FROM enrollments WHERE EXISTS (SELECT 1 FROM students "
+                + "WHERE students.id = enrollments.student_id AND students.department_id IS NOT NULL)",
+            generator.generateSQL(ast));
+    }
+
+    @Test
+    void testColumnsAreQualifiedWhenJoinsRemain() {
+        QueryAST ast = ast(IntentType.SELECT, "students", join("students", "enrollments", "id", "student_id"));
+        ast.setSelectColumns(List.of("name", "grade"));
+
+        optimizer.optimize(ast);
+
+        assertEquals("SELECT students.name, enrollments.grade FROM students "
+                + "INNER JOIN enrollments ON students.id = enrollments.student_id",
+            generator.generateSQL(ast));
+    }
+}
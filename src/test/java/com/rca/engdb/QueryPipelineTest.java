@@ -2,26 +2,34 @@ package com.rca.engdb;
 
 import com.rca.engdb.ast.ConditionNode;
 import com.rca.engdb.ast.QueryAST;
+import com.rca.engdb.engine.JoinPlanner;
 import com.rca.engdb.engine.QueryGenerator;
 import com.rca.engdb.engine.QueryParser;
+import com.rca.engdb.metrics.PipelineMetrics;
 import com.rca.engdb.ml.IntentResult;
 import com.rca.engdb.ml.IntentType;
 import com.rca.engdb.nlp.ConditionExtractor;
 import com.rca.engdb.nlp.EntityRecognizer;
 import com.rca.engdb.nlp.JoinDetector;
+import com.rca.engdb.nlp.OrderLimitExtractor;
 import com.rca.engdb.nlp.SynonymRegistry;
 import com.rca.engdb.schema.SchemaDiscoveryService;
 import com.rca.engdb.schema.SchemaRegistry;
+import com.rca.engdb.schema.TableStatisticsService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
+import java.sql.Types;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 
 class QueryPipelineTest {
@@ -37,10 +45,17 @@ class QueryPipelineTest {
     void setUp() {
         // Mock Schema Discovery
         schemaRegistry = Mockito.mock(SchemaRegistry.class);
-        when(schemaRegistry.getSchema()).thenReturn(Map.of(
+        when(schemaRegistry.getSchema(any())).thenReturn(Map.of(
             "students", List.of("id", "name", "age", "department", "grade"),
             "courses", List.of("id", "name", "credits")
         ));
+        when(schemaRegistry.getColumnTypes(any(), eq("students"))).thenReturn(Map.of(
+            "id", Types.INTEGER, "name", Types.VARCHAR, "age", Types.INTEGER,
+            "department", Types.VARCHAR, "grade", Types.VARCHAR
+        ));
+        when(schemaRegistry.getColumnTypes(any(), eq("courses"))).thenReturn(Map.of(
+            "id", Types.INTEGER, "name", Types.VARCHAR, "credits", Types.INTEGER
+        ));
 
         // Mock SchemaDiscoveryService
         SchemaDiscoveryService schemaDiscoveryService = Mockito.mock(SchemaDiscoveryService.class);
@@ -50,7 +65,10 @@ class QueryPipelineTest {
         entityRecognizer = new EntityRecognizer(schemaRegistry, synonymRegistry);
         conditionExtractor = new ConditionExtractor(schemaRegistry);
         JoinDetector joinDetector = new JoinDetector(schemaRegistry);
-        queryParser = new QueryParser(entityRecognizer, conditionExtractor, joinDetector, schemaDiscoveryService);
+        JoinPlanner joinPlanner = new JoinPlanner(schemaDiscoveryService, Mockito.mock(TableStatisticsService.class));
+        queryParser = new QueryParser(entityRecognizer, conditionExtractor,
+            new OrderLimitExtractor(schemaRegistry, synonymRegistry), joinDetector, joinPlanner,
+            new PipelineMetrics(new SimpleMeterRegistry()));
         queryGenerator = new QueryGenerator();
     }
 
@@ -0,0 +1,176 @@
+package com.rca.engdb;
+
+import com.rca.engdb.ast.ConditionNode;
+import com.rca.engdb.ast.JoinNode;
+import com.rca.engdb.ast.QueryAST;
+import com.rca.engdb.engine.QueryPlan;
+import com.rca.engdb.engine.QueryPlanner;
+import com.rca.engdb.ml.IntentType;
+import com.rca.engdb.schema.MongoSchemaDiscoveryService;
+import com.rca.engdb.schema.SchemaDiscoveryService;
+import com.rca.engdb.schema.TableStatistics;
+import com.rca.engdb.schema.TableStatisticsService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+class QueryPlannerTest {
+
+    private TableStatisticsService statisticsService;
+    private SchemaDiscoveryService schemaDiscoveryService;
+    private MongoSchemaDiscoveryService mongoSchemaDiscoveryService;
+    private MockEnvironment environment;
+    private QueryPlanner planner;
+
+    @BeforeEach
+    void setUp() {
+        statisticsService = Mockito.mock(TableStatisticsService.class);
+        schemaDiscoveryService = Mockito.mock(SchemaDiscoveryService.class);
+        mongoSchemaDiscoveryService = Mockito.mock(MongoSchemaDiscoveryService.class);
+
+        // students: 100M rows, PK on id, secondary index on department (20 distinct values)
+        when(statisticsService.getStatistics(any(), eq("students"))).thenReturn(new TableStatistics(
+            "students", 100_000_000L, 0, null,
+            Map.of(
+                "PRIMARY", new TableStatistics.IndexDefinition("PRIMARY", true, List.of("id")),
+                "idx_department", new TableStatistics.IndexDefinition("idx_department", false, List.of("department"))
+            ),
+            Map.of("id", 100_000_000L, "department", 20L)
+        ));
+        when(statisticsService.getStatistics(any(), eq("courses"))).thenReturn(new TableStatistics(
+            "courses", 10L, 0, null,
+            Map.of("PRIMARY", new TableStatistics.IndexDefinition("PRIMARY", true, List.of("id"))),
+            Map.of("id", 10L)
+        ));
+        when(statisticsService.getStatistics(any(), eq("enrollments"))).thenReturn(new TableStatistics(
+            "enrollments", 1_000_000L, 0, null, Map.of(), Map.of()
+        ));
+
+        environment = new MockEnvironment().withProperty("engdb.planner.safety-limits.reporting", "200");
+        planner = new QueryPlanner(statisticsService, schemaDiscoveryService, mongoSchemaDiscoveryService, environment,
+            1000, 50_000_000L);
+    }
+
+    private QueryAST ast(IntentType intent, String table) {
+        QueryAST ast = new QueryAST();
+        ast.setIntent(intent);
+        ast.setTargetTable(table);
+        return ast;
+    }
+
+    @Test
+    void testPrimaryKeyLookupIsCheap() {
+        QueryAST ast = ast(IntentType.SELECT, "students");
+        ast.getWhereConditions().add(new ConditionNode("id", "=", 42));
+
+        QueryPlan plan = planner.plan(ast);
+
+        assertEquals(1, plan.getEstimatedRows());
+        assertTrue(plan.getEstimatedCost() < 100, "Index lookup should not scan the table");
+        assertEquals(QueryPlan.Route.EXACT, plan.getRoute());
+        assertNull(plan.getSafetyLimit());
+    }
+
+    @Test
+    void testFullScanGetsSafetyLimit() {
+        QueryAST ast = ast(IntentType.SELECT, "students");
+
+        QueryPlan plan = planner.plan(ast);
+
+        assertEquals(100_000_000L, plan.getEstimatedRows());
+        assertEquals(1000, plan.getSafetyLimit());
+        assertEquals(QueryPlan.Route.EXACT, plan.getRoute());
+
+        planner.applyPlan(ast, plan);
+        assertEquals(1000, ast.getLimit());
+    }
+
+    @Test
+    void testLargeAggregateIsApproximate() {
+        QueryPlan plan = planner.plan(ast(IntentType.COUNT, "students"));
+
+        assertEquals(QueryPlan.Route.APPROXIMATE, plan.getRoute());
+        assertNull(plan.getSafetyLimit(), "Aggregates return a single row");
+    }
+
+    @Test
+    void testMaxAndMinAreNeverApproximate() {
+        // A sample cannot bound an extreme value
+        assertNotEquals(QueryPlan.Route.APPROXIMATE, planner.plan(ast(IntentType.MAX, "students")).getRoute());
+        assertNotEquals(QueryPlan.Route.APPROXIMATE, planner.plan(ast(IntentType.MIN, "students")).getRoute());
+    }
+
+    @Test
+    void testSmallestTableJoinedFirst() {
+        QueryAST ast = ast(IntentType.SELECT, "enrollments");
+        ast.getJoins().add(new JoinNode("enrollments", "students", "student_id", "id", JoinNode.JoinType.INNER));
+        ast.getJoins().add(new JoinNode("enrollments", "courses", "course_id", "id", JoinNode.JoinType.INNER));
+
+        QueryPlan plan = planner.plan(ast);
+
+        assertEquals("courses", plan.getJoinOrder().get(0).getRightTable());
+        assertEquals("students", plan.getJoinOrder().get(1).getRightTable());
+    }
+
+    @Test
+    void testJoinOrientedFromJoinTree() {
+        QueryAST ast = ast(IntentType.SELECT, "students");
+        ast.getJoins().add(new JoinNode("courses", "enrollments", "id", "course_id", JoinNode.JoinType.INNER));
+        ast.getJoins().add(new JoinNode("students", "enrollments", "id", "student_id", JoinNode.JoinType.INNER));
+
+        List<JoinNode> order = planner.plan(ast).getJoinOrder();
+
+        assertEquals("enrollments", order.get(0).getRightTable());
+        assertEquals("enrollments", order.get(1).getLeftTable());
+        assertEquals("courses", order.get(1).getRightTable());
+        assertEquals("course_id", order.get(1).getLeftColumn());
+    }
+
+    @Test
+    void testMongoOnlyCollectionRoutedToMongo() {
+        when(schemaDiscoveryService.discoverSchema(any())).thenReturn(Map.of());
+        when(mongoSchemaDiscoveryService.discoverSchema(any())).thenReturn(Map.of("profiles", List.of("_id", "name")));
+
+        assertEquals(QueryPlanner.DatabaseType.MONGODB, planner.chooseDatabaseType(ast(IntentType.SELECT, "profiles")));
+        assertEquals(QueryPlanner.DatabaseType.MYSQL, planner.chooseDatabaseType(ast(IntentType.SELECT, "students")));
+    }
+
+    @Test
+    void testSafetyLimitConfiguredPerDatabase() {
+        QueryAST ast = ast(IntentType.SELECT, "students");
+        ast.setDatabaseName("reporting");
+
+        assertEquals(200, planner.plan(ast).getSafetyLimit());
+
+        ast.setDatabaseName("engdb");
+        assertEquals(1000, planner.plan(ast).getSafetyLimit());
+    }
+
+    @Test
+    void testUnknownTableGetsSafetyLimit() {
+        assertEquals(1000, planner.plan(ast(IntentType.SELECT, "unknown")).getSafetyLimit());
+    }
+
+    @Test
+    void testTopNOnIndexedColumnStopsEarly() {
+        QueryAST ast = ast(IntentType.SELECT, "students");
+        ast.setOrderByColumn("department");
+        ast.setOrderDirection(QueryAST.OrderDirection.DESC);
+        ast.setLimit(10);
+
+        QueryPlan plan = planner.plan(ast);
+
+        assertEquals(10, plan.getEstimatedRows());
+        assertTrue(plan.getEstimatedCost() < 100, "Index-ordered scan should stop after the limit");
+        assertNull(plan.getSafetyLimit());
+    }
+}
@@ -0,0 +1,194 @@
+package com.rca.engdb;
+
+import com.rca.engdb.exec.QueryContext;
+import com.rca.engdb.exec.RequestCoalescer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestCoalescerTest {
+
+    @Test
+    void testConcurrentIdenticalCallsShareOneExecution() throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer(true);
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        int callers = 8;
+
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            results.add(pool.submit(() -> coalescer.execute("request", "count students", () -> {
+                executions.incrementAndGet();
+                await(release);
+                return "42";
+            })));
+            // Let the leader register before the others arrive
+            waitUntil(() -> stat(coalescer, "request", "inFlight") == 1);
+
+            for (int i = 1; i < callers; i++) {
+                results.add(pool.submit(() -> coalescer.execute("request", "count students", () -> {
+                    executions.incrementAndGet();
+                    return "other";
+                })));
+            }
+            waitUntil(() -> stat(coalescer, "request", "coalesced") == callers - 1);
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertEquals("42", result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(1, executions.get());
+        assertEquals(1, stat(coalescer, "request", "executions"));
+        assertEquals(0, stat(coalescer, "request", "inFlight"));
+    }
+
+    @Test
+    void testCompletedCallsAreNotReused() {
+        RequestCoalescer coalescer = new RequestCoalescer(true);
+        AtomicInteger executions = new AtomicInteger();
+
+        coalescer.execute("sql", "SELECT 1", executions::incrementAndGet);
+        coalescer.execute("sql", "SELECT 1", executions::incrementAndGet);
+
+        assertEquals(2, executions.get());
+        assertEquals(0, stat(coalescer, "sql", "coalesced"));
+    }
+
+    @Test
+    void testFollowersReceiveLeaderException() throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer(true);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<Object> leader = pool.submit(() -> coalescer.execute("sql", "bad", () -> {
+                await(release);
+                throw new IllegalStateException("Connection refused");
+            }));
+            waitUntil(() -> stat(coalescer, "sql", "inFlight") == 1);
+            Future<Object> follower = pool.submit(() -> coalescer.execute("sql", "bad", () -> "unused"));
+            waitUntil(() -> stat(coalescer, "sql", "coalesced") == 1);
+            release.countDown();
+
+            for (Future<Object> call : List.of(leader, follower)) {
+                ExecutionException e = assertThrows(ExecutionException.class, () -> call.get(5, TimeUnit.SECONDS));
+                assertInstanceOf(IllegalStateException.class, e.getCause());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void testFollowerRunsAgainWhenTheLeaderTimesOut() throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer(true);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            // The leader's work outlives its 100 ms deadline and reports its own timeout as a result
+            Future<String> leader = pool.submit(() -> {
+                try (QueryContext ignored = QueryContext.open("leader", 100)) {
+                    return coalescer.execute("request", "count students", () -> {
+                        await(release);
+                        return "Query leader exceeded its deadline of 100ms";
+                    });
+                }
+            });
+            waitUntil(() -> stat(coalescer, "request", "inFlight") == 1);
+            Future<String> follower = pool.submit(() -> {
+                try (QueryContext ignored = QueryContext.open("follower", 30_000)) {
+                    return coalescer.execute("request", "count students", () -> "42");
+                }
+            });
+            waitUntil(() -> stat(coalescer, "request", "coalesced") == 1);
+            Thread.sleep(150);
+            release.countDown();
+
+            assertEquals("Query leader exceeded its deadline of 100ms", leader.get(5, TimeUnit.SECONDS));
+            assertEquals("42", follower.get(5, TimeUnit.SECONDS), "the follower's own deadline has not passed");
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(2, stat(coalescer, "request", "executions"));
+        assertEquals(1, stat(coalescer, "request", "rerun"));
+    }
+
+    @Test
+    void testCancellingTheLeaderDoesNotCancelFollowers() throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer(true);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicReference<QueryContext> leaderContext = new AtomicReference<>();
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<Object> leader = pool.submit(() -> {
+                try (QueryContext context = QueryContext.open("leader", 30_000)) {
+                    leaderContext.set(context);
+                    return coalescer.execute("sql", "SELECT COUNT(*) FROM students", () -> {
+                        await(release);
+                        QueryContext.checkCurrent();
+                        return "unused";
+                    });
+                }
+            });
+            waitUntil(() -> stat(coalescer, "sql", "inFlight") == 1);
+            Future<Object> follower = pool.submit(() -> {
+                try (QueryContext ignored = QueryContext.open("follower", 30_000)) {
+                    return coalescer.execute("sql", "SELECT COUNT(*) FROM students", () -> "42");
+                }
+            });
+            waitUntil(() -> stat(coalescer, "sql", "coalesced") == 1);
+            leaderContext.get().cancel();
+            release.countDown();
+
+            ExecutionException e = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(CancellationException.class, e.getCause());
+            assertEquals("42", follower.get(5, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void testLayersDoNotShareKeys() {
+        RequestCoalescer coalescer = new RequestCoalescer(true);
+
+        String outer = coalescer.execute("request", "k", () -> coalescer.execute("sql", "k", () -> "inner"));
+
+        assertEquals("inner", outer);
+        assertEquals(1, stat(coalescer, "sql", "executions"));
+    }
+
+    private static long stat(RequestCoalescer coalescer, String layer, String name) {
+        return coalescer.getStats().getOrDefault(layer, Map.of()).getOrDefault(name, 0L);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitUntil(Callable<Boolean> condition) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.call()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition not reached");
+            Thread.sleep(5);
+        }
+    }
+}
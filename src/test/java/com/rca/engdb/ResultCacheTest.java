@@ -0,0 +1,206 @@
+package com.rca.engdb;
+
+import com.rca.engdb.engine.SqlStatement;
+import com.rca.engdb.exec.JdbcConcurrencyLimiter;
+import com.rca.engdb.exec.QueryExecutor;
+import com.rca.engdb.exec.ResultCache;
+import com.rca.engdb.schema.SchemaDiscoveryService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class ResultCacheTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private SchemaDiscoveryService schemaDiscoveryService;
+    private ResultCache resultCache;
+    private Statement session;
+    private LocalDateTime studentsUpdated;
+    private AtomicInteger executions;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        studentsUpdated = LocalDateTime.of(2026, 1, 1, 12, 0);
+        executions = new AtomicInteger();
+
+        session = Mockito.mock(Statement.class);
+        jdbcTemplate = Mockito.mock(JdbcTemplate.class);
+        doAnswer(invocation -> {
+            ResultSet rs = Mockito.mock(ResultSet.class);
+            when(rs.next()).thenReturn(true, false);
+            when(rs.getString("TABLE_NAME")).thenReturn("students");
+            when(rs.getObject("UPDATE_TIME")).thenReturn(Timestamp.valueOf(studentsUpdated));
+            PreparedStatement query = Mockito.mock(PreparedStatement.class);
+            when(query.executeQuery()).thenReturn(rs);
+            Connection connection = Mockito.mock(Connection.class);
+            when(connection.createStatement()).thenReturn(session);
+            when(connection.prepareStatement(anyString())).thenReturn(query);
+            ConnectionCallback<?> callback = invocation.getArgument(0);
+            return callback.doInConnection(connection);
+        }).when(jdbcTemplate).execute(any(ConnectionCallback.class));
+
+        schemaDiscoveryService = Mockito.mock(SchemaDiscoveryService.class);
+        when(schemaDiscoveryService.getSchemaVersion("engdb")).thenReturn(1L);
+
+        MockEnvironment environment = new MockEnvironment()
+            .withProperty("engdb.cache.table-ttl-seconds.audit_log", "0");
+
+        // Update times are polled by the tests only
+        resultCache = new ResultCache(jdbcTemplate, new JdbcConcurrencyLimiter(null, 1, 0, 1000), schemaDiscoveryService,
+            environment, true, 1_000_000, 60, 3_600_000);
+        resultCache.pollUpdateTimes("engdb");
+    }
+
+    @AfterEach
+    void tearDown() {
+        resultCache.shutdown();
+    }
+
+    private SqlStatement statement(String sql, Object... parameters) {
+        List<Integer> types = java.util.Arrays.stream(parameters).map(p -> Types.VARCHAR).toList();
+        return new SqlStatement(sql, List.of(parameters), types);
+    }
+
+    private ResultCache.CacheLookup run(SqlStatement statement) {
+        return resultCache.execute("engdb", statement, () -> {
+            executions.incrementAndGet();
+            return new QueryExecutor.QueryResult(List.of(Map.of("count", 42)), 1, 5, true, null);
+        });
+    }
+
+    @Test
+    void testRepeatedQueryIsServedFromCache() {
+        SqlStatement statement = statement("SELECT COUNT(*) FROM students WHERE department = ?", "cs");
+
+        assertFalse(run(statement).isCached());
+        ResultCache.CacheLookup second = run(statement("SELECT  COUNT(*)\nFROM students WHERE department = ?", "cs"));
+
+        assertTrue(second.isCached());
+        assertEquals(42, second.getResult().getData().get(0).get("count"));
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void testParametersArePartOfTheKey() {
+        run(statement("SELECT * FROM students WHERE department = ?", "cs"));
+        run(statement("SELECT * FROM students WHERE department = ?", "math"));
+
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    void testTableUpdateInvalidates() {
+        SqlStatement statement = statement("SELECT COUNT(*) FROM students");
+        run(statement);
+
+        studentsUpdated = studentsUpdated.plusSeconds(1);
+        resultCache.pollUpdateTimes("engdb");
+
+        assertFalse(run(statement).isCached());
+        assertTrue(run(statement).isCached());
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    void testUpdateTimesAreReadPastTheStatisticsCache() throws Exception {
+        // MySQL 8 would otherwise report the UPDATE_TIME it cached up to a day ago
+        verify(session).execute("SET SESSION information_schema_stats_expiry = 0");
+        verify(session).execute("SET SESSION information_schema_stats_expiry = DEFAULT");
+    }
+
+    @Test
+    void testFirstLookupPollsInTheBackground() throws Exception {
+        SqlStatement statement = statement("SELECT COUNT(*) FROM students");
+        resultCache.clear();
+
+        // Not cached until the database's update times are known
+        assertFalse(run(statement).isCached());
+        for (int i = 0; i < 100 && !run(statement).isCached(); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(run(statement).isCached());
+    }
+
+    @Test
+    void testSchemaVersionInvalidates() {
+        SqlStatement statement = statement("SELECT COUNT(*) FROM students");
+        run(statement);
+
+        when(schemaDiscoveryService.getSchemaVersion("engdb")).thenReturn(2L);
+
+        assertFalse(run(statement).isCached());
+    }
+
+    @Test
+    void testRefreshingAnotherDatabaseKeepsEntries() {
+        SqlStatement statement = statement("SELECT COUNT(*) FROM students");
+        run(statement);
+
+        when(schemaDiscoveryService.getSchemaVersion("sales")).thenReturn(5L);
+
+        assertTrue(run(statement).isCached());
+    }
+
+    @Test
+    void testEveryTableOfACommaJoinIsReferenced() {
+        assertEquals(Set.of("courses", "enrollments", "students"), ResultCache.referencedTables(
+            "SELECT * FROM students s, enrollments AS e, `engdb`.courses WHERE s.id = e.student_id", "engdb"));
+        assertEquals(Set.of("departments", "students"), ResultCache.referencedTables(
+            "SELECT * FROM (SELECT id FROM students) t JOIN departments d ON d.id = t.id", "engdb"));
+    }
+
+    @Test
+    void testStatementsReadingAnotherDatabaseAreNotCached() {
+        SqlStatement statement = statement("SELECT * FROM students s, archive.students a WHERE a.id = s.id");
+        run(statement);
+        run(statement);
+
+        assertEquals(2, executions.get());
+        assertNull(ResultCache.referencedTables(statement.getSql(), "engdb"));
+    }
+
+    @Test
+    void testZeroTableTtlDisablesCaching() {
+        SqlStatement statement = statement("SELECT * FROM students s JOIN engdb.audit_log a ON a.student_id = s.id");
+        run(statement);
+        run(statement);
+
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    void testFailedResultsAreNotCached() {
+        SqlStatement statement = statement("SELECT * FROM students");
+        AtomicInteger failures = new AtomicInteger();
+        for (int i = 0; i < 2; i++) {
+            resultCache.execute("engdb", statement, () -> {
+                failures.incrementAndGet();
+                return new QueryExecutor.QueryResult(List.of(), 0, 1, false, "Connection refused");
+            });
+        }
+
+        assertEquals(2, failures.get());
+        assertEquals(0, resultCache.size());
+    }
+}
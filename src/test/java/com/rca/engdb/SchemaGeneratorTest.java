@@ -0,0 +1,118 @@
+package com.rca.engdb;
+
+import com.rca.engdb.ml.IntentClassifier;
+import com.rca.engdb.nlp.PreprocessService;
+import com.rca.engdb.nlp.TokenizerService;
+import com.rca.engdb.schema.JoinPath;
+import com.rca.engdb.schema.SchemaDiscoveryService;
+import com.rca.engdb.schema.SchemaGraph;
+import com.rca.engdb.schema.TableStatisticsService;
+import com.rca.engdb.workload.GeneratedSchema;
+import com.rca.engdb.workload.QuestionGenerator;
+import com.rca.engdb.workload.QuestionGenerator.GeneratedQuestion;
+import com.rca.engdb.workload.SchemaGenerator;
+import com.rca.engdb.workload.SchemaGenerator.Naming;
+import com.rca.engdb.workload.SchemaGenerator.Topology;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SchemaGeneratorTest {
+
+    @Test
+    void testTopologiesShapeTheForeignKeyTree() {
+        GeneratedSchema chain = SchemaGenerator.generate(10, 6, Topology.CHAIN, Naming.SNAKE_CASE);
+        GeneratedSchema star = SchemaGenerator.generate(10, 6, Topology.STAR, Naming.SNAKE_CASE);
+        GeneratedSchema snowflake = SchemaGenerator.generate(10, 6, Topology.SNOWFLAKE, Naming.SNAKE_CASE);
+
+        // A tree: one foreign key per table except the root
+        assertEquals(9, chain.getForeignKeys().size());
+        assertEquals(9, star.getForeignKeys().size());
+        assertEquals(9, snowflake.getForeignKeys().size());
+
+        assertEquals(1, chain.getTables().get(0).getForeignKeys().size());
+        assertEquals(9, star.getTables().get(0).getForeignKeys().size());
+        assertEquals(3, snowflake.getTables().get(0).getForeignKeys().size());
+
+        String first = chain.getTableNames().get(0);
+        String last = chain.getTableNames().get(9);
+        assertEquals(9, chain.toGraph().findJoinPath(first, last).length());
+        assertEquals(1, star.toGraph().findJoinPath(star.getTableNames().get(0), star.getTableNames().get(9)).length());
+    }
+
+    @Test
+    void testNamingConventionsAndUniqueNamesAtScale() {
+        GeneratedSchema snake = SchemaGenerator.generate(1000, 8, Topology.SNOWFLAKE, Naming.SNAKE_CASE);
+        GeneratedSchema camel = SchemaGenerator.generate(40, 8, Topology.CHAIN, Naming.CAMEL_CASE);
+        GeneratedSchema prefixed = SchemaGenerator.generate(5, 8, Topology.CHAIN, Naming.PREFIXED);
+
+        assertEquals(1000, new HashSet<>(snake.getTableNames()).size());
+        assertEquals("customers", snake.getTableNames().get(0));
+        assertTrue(snake.getTableNames().contains("regional_customers"));
+        assertTrue(snake.getTables().get(0).getColumnTypes().containsKey("created_at"));
+
+        assertTrue(camel.getTableNames().contains("archivedCustomers"));
+        assertTrue(camel.getTables().get(0).getColumnTypes().containsKey("createdAt"));
+        assertFalse(camel.getTables().get(0).getColumnTypes().containsKey("ordersId"));
+        assertTrue(camel.getTables().get(0).getColumnTypes().containsKey("orderId"));
+
+        assertTrue(prefixed.getTableNames().stream().allMatch(name -> name.startsWith("tbl_")));
+        assertEquals("customers", snake.getSynonyms().get("clients"));
+    }
+
+    @Test
+    void testQuestionsCarryIntentTheClassifierAgreesWith() {
+        GeneratedSchema schema = SchemaGenerator.generate(50, 8, Topology.SNOWFLAKE, Naming.SNAKE_CASE);
+        List<GeneratedQuestion> questions = new QuestionGenerator(schema, 7).generate(200);
+
+        assertEquals(questions, new QuestionGenerator(schema, 7).generate(200));
+
+        TokenizerService tokenizer = new TokenizerService();
+        PreprocessService preprocessor = new PreprocessService();
+        IntentClassifier classifier = new IntentClassifier();
+        for (GeneratedQuestion question : questions) {
+            assertFalse(question.tables().isEmpty());
+            assertTrue(schema.getTableNames().containsAll(question.tables()), question.text());
+            assertEquals(question.intent(),
+                classifier.classify(preprocessor.clean(tokenizer.tokenize(question.text()))).getIntent(),
+                question.text());
+        }
+        assertTrue(questions.stream().anyMatch(q -> q.tables().size() == 2));
+    }
+
+    @Test
+    void testInstalledSchemaIsDiscoveredFromEmbeddedDatabase() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+            "jdbc:h2:mem:synthetic;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        GeneratedSchema schema = SchemaGenerator.generate(12, 6, Topology.SNOWFLAKE, Naming.SNAKE_CASE);
+
+        schema.install(dataSource, "synthetic", 25);
+        // Installing again replaces the tables
+        schema.install(dataSource, "synthetic", 25);
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        assertEquals(25, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM synthetic.customers", Integer.class));
+        assertEquals(25, jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM synthetic.customers c JOIN synthetic.orders o ON c.order_id = o.id", Integer.class));
+
+        SchemaDiscoveryService discovery = new SchemaDiscoveryService(dataSource, Mockito.mock(TableStatisticsService.class));
+        Map<String, List<String>> discovered = discovery.discoverSchema("synthetic");
+        // H2 also lists its INFORMATION_SCHEMA views as tables of the catalog
+        for (String table : schema.getTableNames()) {
+            assertTrue(discovered.containsKey("synthetic." + table), table);
+        }
+        assertTrue(discovered.get("synthetic.customers").contains("order_id"));
+
+        SchemaGraph graph = discovery.getSchemaGraph("synthetic");
+        JoinPath path = graph.findJoinPath("customers", schema.getTableNames().get(11));
+        assertNotNull(path);
+        assertEquals(2, path.length());
+    }
+}
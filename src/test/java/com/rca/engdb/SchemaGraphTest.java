@@ -98,4 +98,65 @@ class SchemaGraphTest {
         assertNotNull(path);
         assertEquals(2, path.length());
     }
+
+    @Test
+    void testFindJoinPath_ReturnsCachedPath() {
+        JoinPath first = schemaGraph.findJoinPath("students", "courses");
+        JoinPath second = schemaGraph.findJoinPath("students", "courses");
+        
+        assertSame(first, second);
+    }
+
+    @Test
+    void testFindJoinPath_IgnoresCase() {
+        JoinPath path = schemaGraph.findJoinPath("Students", "COURSES");
+        
+        assertNotNull(path);
+        assertEquals(2, path.length());
+        assertTrue(schemaGraph.areDirectlyRelated("ENROLLMENTS", "students"));
+    }
+
+    @Test
+    void testSnapshotEdgesByTableId() {
+        SchemaGraph.Snapshot graph = schemaGraph.snapshot();
+        int enrollments = graph.idOf("Enrollments");
+        assertEquals(enrollments, graph.idOf("ENROLLMENTS"));
+        assertEquals("enrollments", graph.name(enrollments));
+        assertEquals(-1, graph.idOf("professors"));
+
+        // Both relationships leave enrollments, each oriented from it
+        assertEquals(2, graph.endEdge(enrollments) - graph.firstEdge(enrollments));
+        for (int edge = graph.firstEdge(enrollments); edge < graph.endEdge(enrollments); edge++) {
+            assertEquals(enrollments, graph.source(edge));
+            assertEquals("enrollments", graph.relation(edge).getFromTable());
+            assertEquals(graph.name(graph.target(edge)), graph.relation(edge).getToTable());
+        }
+    }
+
+    @Test
+    void testRelationshipAddedAfterLookup() {
+        assertNull(schemaGraph.findJoinPath("students", "professors"));
+        
+        schemaGraph.addRelationship("courses", "professor_id", "professors", "id");
+        
+        JoinPath path = schemaGraph.findJoinPath("students", "professors");
+        assertNotNull(path);
+        assertEquals(3, path.length());
+        assertEquals("professors", path.getRelations().get(2).getToTable());
+    }
+
+    @Test
+    void testFindJoinPath_ShortestInLargerGraph() {
+        // Chain t0 - t1 - ... - t49 with a shortcut t0 - t40
+        SchemaGraph graph = new SchemaGraph();
+        for (int i = 1; i < 50; i++) {
+            graph.addRelationship("t" + i, "prev_id", "t" + (i - 1), "id");
+        }
+        graph.addRelationship("t40", "root_id", "t0", "id");
+        graph.freeze();
+        
+        assertEquals(10, graph.findJoinPath("t0", "t49").length());
+        assertEquals(2, graph.findJoinPath("t1", "t40").length());
+        assertEquals(50, graph.getAllTables().size());
+    }
 }
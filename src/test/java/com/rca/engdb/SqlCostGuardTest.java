@@ -0,0 +1,175 @@
+package com.rca.engdb;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rca.engdb.exec.JdbcConcurrencyLimiter;
+import com.rca.engdb.exec.SqlCostGuard;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SqlCostGuardTest {
+
+    // Two full scans without a join condition: 100k x 50k rows
+    private static final String CARTESIAN_PLAN = """
+        {"query_block": {"select_id": 1, "cost_info": {"query_cost": "500012345.00"},
+          "nested_loop": [
+            {"table": {"table_name": "students", "access_type": "ALL",
+                       "rows_examined_per_scan": 100000, "rows_produced_per_join": 100000}},
+            {"table": {"table_name": "enrollments", "access_type": "ALL",
+                       "rows_examined_per_scan": 50000, "rows_produced_per_join": 5000000000}}
+          ]}}
+        """;
+
+    private static final String LOOKUP_PLAN = """
+        {"query_block": {"select_id": 1, "cost_info": {"query_cost": "1.00"},
+          "table": {"table_name": "students", "access_type": "const",
+                    "rows_examined_per_scan": 1, "rows_produced_per_join": 1}}}
+        """;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = Mockito.mock(JdbcTemplate.class);
+    }
+
+    private SqlCostGuard guard(SqlCostGuard.Action action) {
+        return new SqlCostGuard(jdbcTemplate, new JdbcConcurrencyLimiter(null, 1, 0, 1000), new ObjectMapper(),
+            true, 1_000_000, 1_000_000, action, 100, 10);
+    }
+
+    @Test
+    void testCheapQueryAllowedUnchanged() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(String.class))).thenReturn(LOOKUP_PLAN);
+
+        SqlCostGuard.GuardResult result = guard(SqlCostGuard.Action.LIMIT).check("SELECT * FROM students WHERE id = 1;");
+
+        assertTrue(result.isAllowed());
+        assertEquals("SELECT * FROM students WHERE id = 1", result.getSql());
+        assertNull(result.getMessage());
+        assertEquals(1, result.getEstimate().getRowsExamined());
+    }
+
+    @Test
+    void testCartesianJoinRewrittenWithLimit() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(String.class))).thenReturn(CARTESIAN_PLAN);
+
+        SqlCostGuard.GuardResult result = guard(SqlCostGuard.Action.LIMIT).check("SELECT * FROM students, enrollments");
+
+        assertTrue(result.isAllowed());
+        assertEquals("SELECT * FROM students, enrollments LIMIT 100", result.getSql());
+        assertEquals(100_000L + 100_000L * 50_000L, result.getEstimate().getRowsExamined());
+        assertNotNull(result.getMessage());
+    }
+
+    @Test
+    void testOverBudgetAggregateRejected() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(String.class))).thenReturn(CARTESIAN_PLAN);
+
+        // A LIMIT would not reduce the work of an aggregate
+        SqlCostGuard.GuardResult result = guard(SqlCostGuard.Action.LIMIT).check("SELECT COUNT(*) FROM students, enrollments");
+
+        assertFalse(result.isAllowed());
+        assertTrue(result.getMessage().contains("rejected"));
+    }
+
+    @Test
+    void testRejectAction() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(String.class))).thenReturn(CARTESIAN_PLAN);
+
+        SqlCostGuard.GuardResult result = guard(SqlCostGuard.Action.REJECT).check("SELECT * FROM students, enrollments");
+
+        assertFalse(result.isAllowed());
+    }
+
+    @Test
+    void testWriteStatementsRejected() {
+        SqlCostGuard guard = guard(SqlCostGuard.Action.LIMIT);
+
+        assertFalse(guard.check("DELETE FROM students").isAllowed());
+        assertFalse(guard.check("SELECT 1; DROP TABLE students").isAllowed());
+        assertTrue(guard.check("SHOW TABLES").isAllowed());
+    }
+
+    @Test
+    void testSemicolonInsideALiteralIsNotASecondStatement() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(String.class))).thenReturn(LOOKUP_PLAN);
+        SqlCostGuard guard = guard(SqlCostGuard.Action.LIMIT);
+
+        assertTrue(guard.check("SELECT * FROM notes WHERE body = 'a; b' AND title = \"x;y\";").isAllowed());
+        assertTrue(guard.check("SELECT `odd;name` FROM notes WHERE body LIKE 'it''s;%'").isAllowed());
+        assertFalse(guard.check("SELECT 'a;' FROM notes; DROP TABLE notes").isAllowed());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testExplainRunsInTheQueriedDatabase() throws Exception {
+        Connection connection = Mockito.mock(Connection.class);
+        Statement statement = Mockito.mock(Statement.class);
+        ResultSet rs = Mockito.mock(ResultSet.class);
+        when(connection.getCatalog()).thenReturn("engdb");
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenReturn(rs);
+        when(rs.next()).thenReturn(true);
+        when(rs.getString(1)).thenReturn(LOOKUP_PLAN);
+        doAnswer(invocation -> invocation.getArgument(0, ConnectionCallback.class).doInConnection(connection))
+            .when(jdbcTemplate).execute(any(ConnectionCallback.class));
+        SqlCostGuard guard = guard(SqlCostGuard.Action.LIMIT);
+
+        assertTrue(guard.check("SELECT * FROM orders WHERE id = 1", "sales").isAllowed());
+
+        // Unqualified tables resolve in sales, and the pooled connection gets its default back
+        var order = inOrder(connection, statement);
+        order.verify(connection).setCatalog("sales");
+        order.verify(statement).executeQuery("EXPLAIN FORMAT=JSON SELECT * FROM orders WHERE id = 1");
+        order.verify(connection).setCatalog("engdb");
+
+        // Estimates are per database: the same statement elsewhere is explained again
+        when(jdbcTemplate.queryForObject(anyString(), eq(String.class))).thenReturn(LOOKUP_PLAN);
+        guard.check("SELECT * FROM orders WHERE id = 2");
+        verify(jdbcTemplate, times(1)).queryForObject(anyString(), eq(String.class));
+    }
+
+    @Test
+    void testWithIsOnlyAllowedBeforeASelect() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(String.class))).thenReturn(LOOKUP_PLAN);
+        SqlCostGuard guard = guard(SqlCostGuard.Action.LIMIT);
+
+        assertFalse(guard.check("WITH old AS (SELECT id FROM students WHERE age > 30) "
+            + "DELETE FROM students WHERE id IN (SELECT id FROM old)").isAllowed());
+        assertFalse(guard.check("WITH RECURSIVE ids (n) AS (SELECT 1 UNION ALL SELECT n + 1 FROM ids WHERE n < 5), "
+            + "names AS (SELECT ')' AS name) UPDATE students SET age = 0").isAllowed());
+
+        assertTrue(guard.check("WITH adults (id, name) AS (SELECT id, name FROM students WHERE age >= 18), "
+            + "`a)b` AS (SELECT 'it''s (' AS x) SELECT * FROM adults").isAllowed());
+    }
+
+    @Test
+    void testEstimateCachedByShape() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(String.class))).thenReturn(LOOKUP_PLAN);
+        SqlCostGuard guard = guard(SqlCostGuard.Action.LIMIT);
+
+        guard.check("SELECT * FROM students WHERE name = 'Alice' AND age = 20");
+        guard.check("SELECT * FROM students  WHERE name = 'Bob' AND age = 21");
+
+        verify(jdbcTemplate, times(1)).queryForObject(anyString(), eq(String.class));
+        assertEquals(SqlCostGuard.shapeOf("select * from students where name = 'x' and age = 1"),
+            SqlCostGuard.shapeOf("SELECT * FROM students WHERE name = 'Bob' AND age = 21"));
+    }
+}
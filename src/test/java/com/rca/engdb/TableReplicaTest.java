@@ -0,0 +1,208 @@
+package com.rca.engdb;
+
+import com.rca.engdb.ast.ConditionNode;
+import com.rca.engdb.ast.JoinNode;
+import com.rca.engdb.ast.QueryAST;
+import com.rca.engdb.exec.QueryExecutor;
+import com.rca.engdb.exec.TableReplicaService;
+import com.rca.engdb.ml.IntentType;
+import com.rca.engdb.schema.TableStatistics;
+import com.rca.engdb.schema.TableStatisticsService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TableReplicaTest {
+
+    private static final String DATABASE = "campus";
+    private static final LocalDateTime LOADED = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    private JdbcTemplate jdbcTemplate;
+    private TableStatisticsService statisticsService;
+    private TableReplicaService replicas;
+
+    // What information_schema reports, and what the statistics cache holds until it is refreshed
+    private LocalDateTime departmentsUpdated = LOADED;
+    private Map<String, TableStatistics> cachedStatistics = Map.of();
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+            "jdbc:h2:mem:replica;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1"));
+        jdbcTemplate.execute("DROP SCHEMA IF EXISTS campus CASCADE");
+        jdbcTemplate.execute("CREATE SCHEMA campus");
+        jdbcTemplate.execute("CREATE TABLE campus.departments (id INT PRIMARY KEY, name VARCHAR(64), "
+            + "budget DECIMAL(10,2), building VARCHAR(32), floors INT)");
+        jdbcTemplate.execute("CREATE TABLE campus.enrollments (student_id INT, course_id INT)");
+        jdbcTemplate.update("INSERT INTO campus.departments VALUES "
+            + "(1, 'Computer Science', 100000.00, 'North', 3), "
+            + "(2, 'Mathematics', 80000.50, 'North', 2), "
+            + "(3, 'Physics', 120000.00, NULL, NULL), "
+            + "(4, 'History', 50000.25, 'South', 1)");
+
+        statisticsService = Mockito.mock(TableStatisticsService.class);
+        when(statisticsService.getStatistics(DATABASE)).thenAnswer(invocation -> cachedStatistics);
+        doAnswer(invocation -> {
+            cachedStatistics = Map.of(
+                "departments", new TableStatistics("departments", 4, 16384, departmentsUpdated, Map.of(), Map.of()),
+                "enrollments", new TableStatistics("enrollments", 2_000_000, 64 << 20, LOADED, Map.of(), Map.of()));
+            return null;
+        }).when(statisticsService).refresh(DATABASE);
+        replicas = new TableReplicaService(jdbcTemplate, statisticsService, true, DATABASE, 100, 1 << 20, 0, 3_600_000);
+        replicas.refresh();
+    }
+
+    @Test
+    void testOnlyTablesWithinTheLimitsAreReplicated() {
+        assertEquals(List.of("campus.departments"), List.copyOf(replicas.getStats().keySet()));
+        assertEquals(4L, replicas.getStats().get("campus.departments").get("rows"));
+        assertNull(replicas.execute(ast(IntentType.COUNT, "enrollments")));
+    }
+
+    @Test
+    void testAggregatesMatchMySqlSemantics() {
+        // String comparison ignores case, as MySQL's default collations do
+        QueryAST north = ast(IntentType.COUNT, "departments");
+        north.getWhereConditions().add(new ConditionNode("building", "=", "north"));
+        assertEquals(2L, value(replicas.execute(north), "COUNT(*)"));
+
+        QueryAST sum = ast(IntentType.SUM, "departments");
+        sum.setAggregateColumn("budget");
+        assertEquals(new BigDecimal("350000.75"), value(replicas.execute(sum), "SUM(budget)"));
+
+        // NULLs are skipped, and AVG of an integer column is a DECIMAL with scale 4
+        QueryAST average = ast(IntentType.AVG, "departments");
+        average.setAggregateColumn("floors");
+        assertEquals(new BigDecimal("2.0000"), value(replicas.execute(average), "AVG(floors)"));
+
+        QueryAST max = ast(IntentType.MAX, "departments");
+        max.setAggregateColumn("name");
+        assertEquals("Physics", value(replicas.execute(max), "MAX(name)"));
+
+        // NULL matches no comparison, != included
+        QueryAST min = ast(IntentType.MIN, "departments");
+        min.setAggregateColumn("budget");
+        min.getWhereConditions().add(new ConditionNode("building", "!=", "North"));
+        assertEquals(new BigDecimal("50000.25"), value(replicas.execute(min), "MIN(budget)"));
+    }
+
+    @Test
+    void testSelectFiltersOrdersAndLimits() {
+        QueryAST top = ast(IntentType.SELECT, "departments");
+        top.setOrderByColumn("departments.budget");
+        top.setOrderDirection(QueryAST.OrderDirection.DESC);
+        top.setLimit(2);
+        List<Map<String, Object>> rows = replicas.execute(top).getData();
+        assertEquals(List.of(3, 1), rows.stream().map(row -> row.get("ID")).toList());
+        assertEquals(List.of("id", "name", "budget", "building", "floors"), List.copyOf(rows.get(0).keySet()));
+
+        QueryAST like = ast(IntentType.SELECT, "departments");
+        like.setSelectColumns(List.of("name"));
+        like.getWhereConditions().add(new ConditionNode("name", "LIKE", "%MATH%"));
+        rows = replicas.execute(like).getData();
+        assertEquals(1, rows.size());
+        assertEquals(Map.of("name", "Mathematics"), Map.copyOf(rows.get(0)));
+
+        QueryAST noBuilding = ast(IntentType.SELECT, "departments");
+        noBuilding.getWhereConditions().add(new ConditionNode("building", "IS NULL", null));
+        noBuilding.getWhereConditions().add(new ConditionNode("id", ">=", new BigDecimal("2.5")));
+        assertEquals(List.of("Physics"), replicas.execute(noBuilding).getData().stream().map(row -> row.get("name")).toList());
+    }
+
+    @Test
+    void testQueriesTheReplicaCannotAnswerFallBack() {
+        QueryAST or = ast(IntentType.COUNT, "departments");
+        or.getWhereConditions().add(new ConditionNode("building", "=", "North"));
+        or.getWhereConditions().add(new ConditionNode("floors", "=", 1, ConditionNode.LogicalOperator.OR));
+        assertNull(replicas.execute(or));
+
+        QueryAST unknownColumn = ast(IntentType.SUM, "departments");
+        unknownColumn.setAggregateColumn("headcount");
+        assertNull(replicas.execute(unknownColumn));
+
+        QueryAST join = ast(IntentType.SELECT, "departments");
+        join.getJoins().add(new JoinNode("departments", "courses", "id", "department_id", JoinNode.JoinType.INNER));
+        assertNull(replicas.execute(join));
+
+        QueryAST stringSum = ast(IntentType.SUM, "departments");
+        stringSum.setAggregateColumn("name");
+        assertNull(replicas.execute(stringSum));
+
+        assertEquals(3L, replicas.getStats().get("campus.departments").get("fallbacks"));
+    }
+
+    @Test
+    void testReplicaIsReloadedWhenTheTableChanges() {
+        jdbcTemplate.update("INSERT INTO campus.departments VALUES (5, 'Biology', 90000.00, 'East', 2)");
+        replicas.refresh();
+        assertEquals(4L, value(replicas.execute(ast(IntentType.COUNT, "departments")), "COUNT(*)"),
+            "same UPDATE_TIME, the replica is current");
+
+        departmentsUpdated = LOADED.plusMinutes(1);
+        replicas.refresh();
+        assertEquals(5L, value(replicas.execute(ast(IntentType.COUNT, "departments")), "COUNT(*)"));
+
+        // Grown over the row limit after all: no longer replicated
+        for (int id = 6; id <= 101; id++) {
+            jdbcTemplate.update("INSERT INTO campus.departments (id, name) VALUES (?, ?)", id, "Department " + id);
+        }
+        departmentsUpdated = LOADED.plusMinutes(2);
+        replicas.refresh();
+        assertNull(replicas.execute(ast(IntentType.COUNT, "departments")));
+    }
+
+    @Test
+    void testReplicaIsReloadedAtMaxAgeWhenUpdateTimeDoesNotMove() {
+        // Every refresh reaches the maximum age
+        replicas = new TableReplicaService(jdbcTemplate, statisticsService, true, DATABASE, 100, 1 << 20, 0, 0);
+        replicas.refresh();
+
+        // information_schema keeps reporting the UPDATE_TIME it cached before the write
+        jdbcTemplate.update("UPDATE campus.departments SET budget = 0 WHERE id = 1");
+        replicas.refresh();
+
+        QueryAST sum = ast(IntentType.SUM, "departments");
+        sum.setAggregateColumn("budget");
+        assertEquals(new BigDecimal("250000.75"), value(replicas.execute(sum), "SUM(budget)"));
+    }
+
+    @Test
+    void testChangesAreSeenWithoutAnythingElseRefreshingTheStatistics() {
+        // No question was ever asked about this database, so only the replica refreshes its statistics
+        jdbcTemplate.update("UPDATE campus.departments SET budget = 0 WHERE id = 1");
+        departmentsUpdated = LOADED.plusSeconds(5);
+        replicas.refresh();
+
+        QueryAST sum = ast(IntentType.SUM, "departments");
+        sum.setAggregateColumn("budget");
+        assertEquals(new BigDecimal("250000.75"), value(replicas.execute(sum), "SUM(budget)"));
+        verify(statisticsService, times(2)).refresh(DATABASE);
+    }
+
+    private static QueryAST ast(IntentType intent, String table) {
+        QueryAST ast = new QueryAST();
+        ast.setIntent(intent);
+        ast.setTargetTable(table);
+        ast.setDatabaseName(DATABASE);
+        return ast;
+    }
+
+    private static Object value(QueryExecutor.QueryResult result, String column) {
+        assertNotNull(result, "answered from the replica");
+        assertEquals(1, result.getRowCount());
+        return result.getData().get(0).get(column);
+    }
+}
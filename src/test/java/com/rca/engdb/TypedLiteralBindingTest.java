@@ -0,0 +1,115 @@
+package com.rca.engdb;
+
+import com.rca.engdb.ast.ConditionNode;
+import com.rca.engdb.ast.QueryAST;
+import com.rca.engdb.engine.QueryGenerator;
+import com.rca.engdb.engine.SqlStatement;
+import com.rca.engdb.ml.IntentType;
+import com.rca.engdb.nlp.ConditionExtractor;
+import com.rca.engdb.schema.SchemaRegistry;
+import com.rca.engdb.util.LiteralCoercer;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.math.BigDecimal;
+import java.sql.Types;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+class TypedLiteralBindingTest {
+
+    private ConditionExtractor conditionExtractor;
+    private QueryGenerator queryGenerator;
+
+    @BeforeEach
+    void setUp() {
+        SchemaRegistry schemaRegistry = Mockito.mock(SchemaRegistry.class);
+        when(schemaRegistry.getSchema(any())).thenReturn(Map.of(
+            "students", List.of("id", "name", "age", "department")
+        ));
+        when(schemaRegistry.getColumnTypes(any(), eq("students"))).thenReturn(Map.of(
+            "id", Types.INTEGER,
+            "name", Types.VARCHAR,
+            "age", Types.INTEGER,
+            "department", Types.VARCHAR
+        ));
+
+        conditionExtractor = new ConditionExtractor(schemaRegistry);
+        queryGenerator = new QueryGenerator();
+    }
+
+    @Test
+    void testIntegerColumnGetsIntegerValue() {
+        List<ConditionNode> conditions = conditionExtractor.extractConditions(List.of("age", "is", "20"), "students");
+
+        assertEquals(1, conditions.size());
+        assertEquals(20, conditions.get(0).getValue());
+        assertEquals(Types.INTEGER, conditions.get(0).getSqlType());
+    }
+
+    @Test
+    void testNumericLookingValueStaysStringForVarcharColumn() {
+        List<ConditionNode> conditions = conditionExtractor.extractConditions(List.of("department", "101"), "students");
+
+        assertEquals(1, conditions.size());
+        assertEquals("101", conditions.get(0).getValue());
+    }
+
+    @Test
+    void testIncompatibleValueFallsBackToPreviousToken() {
+        // "cs" cannot be an age, "21" before the column can
+        List<ConditionNode> conditions = conditionExtractor.extractConditions(List.of("21", "age", "cs"), "students");
+
+        assertEquals(1, conditions.size());
+        assertEquals(21, conditions.get(0).getValue());
+    }
+
+    @Test
+    void testParameterizedSqlBindsTypes() {
+        QueryAST ast = new QueryAST();
+        ast.setIntent(IntentType.SELECT);
+        ast.setTargetTable("students");
+        ast.setWhereConditions(conditionExtractor.extractConditions(List.of("department", "cs", "age", "20"), "students"));
+
+        SqlStatement statement = queryGenerator.generateParameterizedSQL(ast);
+
+        assertEquals("SELECT * FROM students WHERE department = ? AND age = ?", statement.getSql());
+        assertEquals(List.of("cs", 20), statement.getParameters());
+        assertEquals(List.of(Types.VARCHAR, Types.INTEGER), statement.getParameterTypes());
+        assertEquals("SELECT * FROM students WHERE department = 'cs' AND age = 20", queryGenerator.generateSQL(ast));
+    }
+
+    @Test
+    void testMongoFilterUsesTypedValues() {
+        Document filter = queryGenerator.buildMongoFilterDocument(List.of(
+            new ConditionNode("age", ">=", 18),
+            new ConditionNode("age", "<", 30),
+            new ConditionNode("department", "=", "cs")
+        ));
+
+        Document age = filter.get("age", Document.class);
+        assertEquals(18, age.get("$gte"));
+        assertInstanceOf(Integer.class, age.get("$gte"));
+        assertEquals(30, age.get("$lt"));
+        assertEquals("cs", filter.get("department"));
+    }
+
+    @Test
+    void testLiteralCoercer() {
+        assertEquals(42, LiteralCoercer.coerce("42", Types.INTEGER));
+        assertEquals(42L, LiteralCoercer.coerce("42", Types.BIGINT));
+        assertEquals(new BigDecimal("42"), LiteralCoercer.coerce("42", Types.DECIMAL));
+        assertEquals(Boolean.TRUE, LiteralCoercer.coerce("yes", Types.BOOLEAN));
+        assertEquals("42", LiteralCoercer.coerce("42", Types.VARCHAR));
+        assertEquals("42", LiteralCoercer.coerce("42", null));
+        assertNull(LiteralCoercer.coerce("cs", Types.INTEGER));
+        assertNull(LiteralCoercer.coerce("99999999999", Types.INTEGER));
+    }
+}
@@ -0,0 +1,169 @@
+package com.rca.engdb;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rca.engdb.exec.JdbcConcurrencyLimiter;
+import com.rca.engdb.exec.QueryExecutor;
+import com.rca.engdb.integration.OpenRouterService;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.Mockito;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestClient;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+/**
+ * Load test of the blocking query path (OpenRouter call, then JDBC) at 1k/5k concurrent clients.
+ *
+ * OpenRouter is a local HTTP stub with fixed latency; the database is a fake connection pool
+ * of POOL_SIZE connections that, like Hikari, fails a borrower after CONNECTION_TIMEOUT_MS.
+ * Compares a Tomcat-sized platform thread pool with virtual threads, with and without the
+ * JDBC concurrency limiter. Run with: mvn test -Pload-test
+ */
+@Tag("load")
+class VirtualThreadLoadTest {
+
+    private static final int LLM_LATENCY_MS = 200;
+    private static final int QUERY_MS = 1;
+    private static final int POOL_SIZE = 10;
+    private static final long CONNECTION_TIMEOUT_MS = 250;
+    private static final int TOMCAT_MAX_THREADS = 200;
+
+    private static final String STUB_RESPONSE =
+        "{\"choices\":[{\"message\":{\"role\":\"assistant\",\"content\":\"SELECT COUNT(*) FROM students\"}}]}";
+
+    private HttpServer openRouterStub;
+    private OpenRouterService openRouterService;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        openRouterStub = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 10_000);
+        openRouterStub.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        openRouterStub.createContext("/api/v1/chat/completions", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            sleep(LLM_LATENCY_MS);
+            byte[] body = STUB_RESPONSE.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        openRouterStub.start();
+
+        openRouterService = new OpenRouterService(RestClient.builder(), new ObjectMapper());
+        ReflectionTestUtils.setField(openRouterService, "apiKey", "test-key");
+        ReflectionTestUtils.setField(openRouterService, "model", "stub");
+        ReflectionTestUtils.setField(openRouterService, "apiUrl",
+            "http://127.0.0.1:" + openRouterStub.getAddress().getPort() + "/api/v1/chat/completions");
+
+        // Fake connection pool: borrowers give up after the connection timeout
+        Semaphore connections = new Semaphore(POOL_SIZE, true);
+        jdbcTemplate = Mockito.mock(JdbcTemplate.class);
+        when(jdbcTemplate.queryForList(anyString())).thenAnswer(invocation -> {
+            if (!connections.tryAcquire(CONNECTION_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                throw new CannotGetJdbcConnectionException("Connection is not available, request timed out");
+            }
+            try {
+                sleep(QUERY_MS);
+                return List.of(Map.of("COUNT(*)", 42));
+            } finally {
+                connections.release();
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        openRouterStub.stop(0);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1000, 5000})
+    void testThroughputAndTailLatency(int clients) throws Exception {
+        QueryExecutor limited = new QueryExecutor(jdbcTemplate, new JdbcConcurrencyLimiter(null, POOL_SIZE, 0, 30_000));
+        QueryExecutor unlimited = new QueryExecutor(jdbcTemplate, new JdbcConcurrencyLimiter(null, Integer.MAX_VALUE, 0, 30_000));
+
+        // Warm up the HTTP client and JIT
+        run(Executors.newVirtualThreadPerTaskExecutor(), limited, 200);
+
+        Result platform = run(Executors.newFixedThreadPool(TOMCAT_MAX_THREADS), limited, clients);
+        Result virtualUnlimited = run(Executors.newVirtualThreadPerTaskExecutor(), unlimited, clients);
+        Result virtualLimited = run(Executors.newVirtualThreadPerTaskExecutor(), limited, clients);
+
+        System.out.printf("%n%d clients, %dms OpenRouter stub, %d connections%n", clients, LLM_LATENCY_MS, POOL_SIZE);
+        System.out.println("  platform threads (" + TOMCAT_MAX_THREADS + "):  " + platform);
+        System.out.println("  virtual, no limiter:     " + virtualUnlimited);
+        System.out.println("  virtual + limiter:       " + virtualLimited);
+
+        assertEquals(0, virtualLimited.failures, "limiter should prevent connection-pool timeouts");
+        assertTrue(virtualLimited.throughput > platform.throughput,
+            "virtual threads should outperform a " + TOMCAT_MAX_THREADS + "-thread pool on blocking I/O");
+    }
+
+    private Result run(ExecutorService executor, QueryExecutor queryExecutor, int clients) throws Exception {
+        long[] latencies = new long[clients];
+        AtomicInteger failures = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        // Latency counts from the common start, so time queued for a thread is included
+        AtomicLong began = new AtomicLong();
+        try (executor) {
+            List<Future<?>> calls = new ArrayList<>(clients);
+            for (int i = 0; i < clients; i++) {
+                int client = i;
+                calls.add(executor.submit(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    String sql = openRouterService.generateSQL("how many students", Map.of("students", List.of("id")));
+                    boolean ok = sql != null && queryExecutor.executeSQLQuery(sql).isSuccess();
+                    latencies[client] = System.nanoTime() - began.get();
+                    if (!ok) failures.incrementAndGet();
+                }));
+            }
+            began.set(System.nanoTime());
+            start.countDown();
+            for (Future<?> call : calls) {
+                call.get(5, TimeUnit.MINUTES);
+            }
+        }
+        long elapsed = System.nanoTime() - began.get();
+
+        Arrays.sort(latencies);
+        long p99 = latencies[(int) Math.ceil(clients * 0.99) - 1];
+        return new Result(clients * 1e9 / elapsed, p99 / 1_000_000, failures.get());
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record Result(double throughput, long p99Ms, int failures) {
+        @Override
+        public String toString() {
+            return String.format("%8.0f req/s, p99 %5d ms, %5d failed", throughput, p99Ms, failures);
+        }
+    }
+}
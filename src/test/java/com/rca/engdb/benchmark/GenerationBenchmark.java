@@ -0,0 +1,114 @@
+package com.rca.engdb.benchmark;
+
+import com.rca.engdb.ast.ConditionNode;
+import com.rca.engdb.ast.JoinNode;
+import com.rca.engdb.ast.QueryAST;
+import com.rca.engdb.engine.QueryGenerator;
+import com.rca.engdb.ml.IntentType;
+import com.rca.engdb.schema.ForeignKeyRelation;
+import com.rca.engdb.schema.JoinPath;
+import com.rca.engdb.schema.SchemaGraph;
+import com.rca.engdb.workload.GeneratedSchema;
+import com.rca.engdb.workload.SchemaGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Join path search and SQL/MongoDB generation, by schema size and shape and number of conditions.
+ * Run with mvn -Pbenchmark test; allocation per call is reported as gc.alloc.rate.norm.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GenerationBenchmark {
+
+    @Param({"10", "100", "1000"})
+    int tables;
+
+    @Param({"CHAIN", "STAR", "SNOWFLAKE"})
+    SchemaGenerator.Topology topology;
+
+    @Param({"1", "8"})
+    int conditions;
+
+    private final QueryGenerator queryGenerator = new QueryGenerator();
+    private SchemaGraph graph;
+    private String from;
+    private String to;
+    private QueryAST sqlAst;
+    private QueryAST mongoAst;
+
+    @Setup
+    public void setUp() {
+        GeneratedSchema schema = SchemaGenerator.generate(tables, 8, topology, SchemaGenerator.Naming.SNAKE_CASE);
+        List<String> names = schema.getTableNames();
+        graph = schema.toGraph();
+
+        // Two tables far apart: the ends of a chain, two dimensions of a star or snowflake
+        from = names.get(1);
+        to = names.get(tables - 1);
+
+        // Joins along the path from a table to the root, as the planner produces for multi-table questions
+        String root = names.get(0);
+        String target = names.get(Math.min(3, tables - 1));
+        sqlAst = ast(target, conditions);
+        JoinPath path = graph.findJoinPath(target, root);
+        List<JoinNode> joins = new ArrayList<>();
+        for (ForeignKeyRelation relation : path.getRelations()) {
+            joins.add(new JoinNode(relation.getFromTable(), relation.getToTable(),
+                relation.getFromColumn(), relation.getToColumn(), JoinNode.JoinType.INNER));
+        }
+        sqlAst.setJoins(joins);
+
+        mongoAst = ast(target, conditions);
+    }
+
+    private static QueryAST ast(String table, int conditions) {
+        QueryAST ast = new QueryAST();
+        ast.setIntent(IntentType.SELECT);
+        ast.setTargetTable(table);
+        ast.setSelectColumns(new ArrayList<>(List.of("name", "status", "amount")));
+        List<ConditionNode> where = new ArrayList<>();
+        for (int i = 0; i < conditions; i++) {
+            where.add(i % 2 == 0
+                ? new ConditionNode("amount", ">", 100 + i)
+                : new ConditionNode("status", "=", "shipped"));
+        }
+        ast.setWhereConditions(where);
+        ast.setOrderByColumn("amount");
+        ast.setOrderDirection(QueryAST.OrderDirection.DESC);
+        ast.setLimit(50);
+        return ast;
+    }
+
+    @Benchmark
+    public JoinPath findJoinPath() {
+        return graph.findJoinPath(from, to);
+    }
+
+    @Benchmark
+    public String generateSQL() {
+        return queryGenerator.generateSQL(sqlAst);
+    }
+
+    @Benchmark
+    public String generateMongoQuery() {
+        return queryGenerator.generateMongoQuery(mongoAst);
+    }
+}
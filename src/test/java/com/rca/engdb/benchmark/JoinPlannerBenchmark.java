@@ -0,0 +1,113 @@
+package com.rca.engdb.benchmark;
+
+import com.rca.engdb.engine.JoinPlanner;
+import com.rca.engdb.schema.ForeignKeyRelation;
+import com.rca.engdb.schema.SchemaDiscoveryService;
+import com.rca.engdb.schema.SchemaGraph;
+import com.rca.engdb.schema.TableStatistics;
+import com.rca.engdb.schema.TableStatisticsService;
+import com.rca.engdb.workload.GeneratedSchema;
+import com.rca.engdb.workload.SchemaGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Steiner-tree join planning over a snowflake schema, by schema size and number of tables
+ * the question references: cold (every call builds the tree, as the first question over a
+ * table set does) and from the tree cache.
+ * Run with mvn -Pbenchmark test -Djmh.args=JoinPlannerBenchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JoinPlannerBenchmark {
+
+    private static final String DATABASE = "engdb";
+
+    @Param({"10", "100", "1000"})
+    int tables;
+
+    @Param({"2", "4", "8"})
+    int terminals;
+
+    private TableStatisticsService statisticsService;
+    private JoinPlanner joinPlanner;
+    private String base;
+    private List<String> others;
+
+    @Setup
+    public void setUp() {
+        GeneratedSchema schema = SchemaGenerator.generate(tables, 8,
+            SchemaGenerator.Topology.SNOWFLAKE, SchemaGenerator.Naming.SNAKE_CASE);
+        List<String> names = schema.getTableNames();
+        SchemaGraph graph = schema.toGraph();
+
+        // Row estimates from 10 to 1M, so bridges through large tables cost more
+        Map<String, TableStatistics> statistics = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            statistics.put(names.get(i), new TableStatistics(names.get(i), (long) Math.pow(10, 1 + i % 6),
+                0, null, Map.of(), Map.of()));
+        }
+
+        SchemaDiscoveryService schemaDiscoveryService = new SchemaDiscoveryService(null, null) {
+            @Override
+            public SchemaGraph getSchemaGraph(String dbName) {
+                return graph;
+            }
+
+            @Override
+            public long getSchemaVersion(String dbName) {
+                return 1;
+            }
+        };
+        statisticsService = new TableStatisticsService(null) {
+            @Override
+            public TableStatistics getStatistics(String dbName, String tableName) {
+                return statistics.get(tableName);
+            }
+        };
+        joinPlanner = new JoinPlanner(schemaDiscoveryService, statisticsService);
+
+        // Referenced tables spread evenly over the schema
+        base = names.get(0);
+        others = new ArrayList<>();
+        for (int i = 1; i < terminals; i++) {
+            others.add(names.get(i * names.size() / terminals));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        statisticsService.shutdown();
+    }
+
+    @Benchmark
+    public List<ForeignKeyRelation> planJoinsColdCache() {
+        joinPlanner.clearCache();
+        return joinPlanner.planJoins(DATABASE, base, others);
+    }
+
+    @Benchmark
+    public List<ForeignKeyRelation> planJoinsCached() {
+        return joinPlanner.planJoins(DATABASE, base, others);
+    }
+}
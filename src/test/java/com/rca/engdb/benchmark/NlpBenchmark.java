@@ -0,0 +1,106 @@
+package com.rca.engdb.benchmark;
+
+import com.rca.engdb.ast.ConditionNode;
+import com.rca.engdb.ml.IntentClassifier;
+import com.rca.engdb.ml.IntentResult;
+import com.rca.engdb.nlp.ConditionExtractor;
+import com.rca.engdb.nlp.EntityRecognizer;
+import com.rca.engdb.nlp.JoinDetector;
+import com.rca.engdb.nlp.PreprocessService;
+import com.rca.engdb.nlp.TokenizerService;
+import com.rca.engdb.schema.SchemaRegistry;
+import com.rca.engdb.workload.GeneratedSchema;
+import com.rca.engdb.workload.QuestionGenerator;
+import com.rca.engdb.workload.SchemaGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * NLP stages of the rule-based pipeline, by schema size and question length.
+ * Run with mvn -Pbenchmark test; allocation per call is reported as gc.alloc.rate.norm.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NlpBenchmark {
+
+    @Param({"10", "100", "1000"})
+    int tables;
+
+    @Param({"16", "64"})
+    int words;
+
+    private final TokenizerService tokenizer = new TokenizerService();
+    private final PreprocessService preprocessor = new PreprocessService();
+    private final IntentClassifier intentClassifier = new IntentClassifier();
+    private EntityRecognizer entityRecognizer;
+    private ConditionExtractor conditionExtractor;
+    private JoinDetector joinDetector;
+
+    private String question;
+    private List<String> tokens;
+    private List<String> cleaned;
+    private String table;
+
+    @Setup
+    public void setUp() {
+        GeneratedSchema schema = SchemaGenerator.generate(tables, 8,
+            SchemaGenerator.Topology.SNOWFLAKE, SchemaGenerator.Naming.SNAKE_CASE);
+        SchemaRegistry registry = schema.toRegistry();
+        entityRecognizer = new EntityRecognizer(registry, schema.toSynonymRegistry());
+        conditionExtractor = new ConditionExtractor(registry);
+        joinDetector = new JoinDetector(registry);
+
+        // The last table is the worst case for scans over the schema
+        GeneratedSchema.Table last = schema.getTables().get(tables - 1);
+        table = last.getName();
+        question = new QuestionGenerator(schema, 42).longQuestion(last, words);
+        tokens = tokenizer.tokenize(question);
+        cleaned = preprocessor.clean(tokens);
+    }
+
+    @Benchmark
+    public List<String> tokenize() {
+        return tokenizer.tokenize(question);
+    }
+
+    @Benchmark
+    public List<String> clean() {
+        return preprocessor.clean(tokens);
+    }
+
+    @Benchmark
+    public IntentResult classify() {
+        return intentClassifier.classify(cleaned);
+    }
+
+    @Benchmark
+    public EntityRecognizer.EntityRecognitionResult recognize() {
+        return entityRecognizer.recognize(cleaned, null);
+    }
+
+    @Benchmark
+    public List<ConditionNode> extractConditions() {
+        return conditionExtractor.extractConditions(cleaned, table, null);
+    }
+
+    @Benchmark
+    public JoinDetector.JoinDetectionResult detectJoins() {
+        return joinDetector.detectJoins(cleaned, null);
+    }
+}
@@ -0,0 +1,293 @@
+package com.rca.engdb.workload;
+
+import com.rca.engdb.nlp.SynonymRegistry;
+import com.rca.engdb.schema.SchemaGraph;
+import com.rca.engdb.schema.SchemaRegistry;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.DatabaseMetaData;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * A schema produced by SchemaGenerator: tables, foreign keys and synonyms, usable in memory
+ * (SchemaRegistry, SchemaGraph) or installed with sample rows into MySQL or an embedded database
+ */
+public class GeneratedSchema {
+
+    static final String[] STATUSES = {"active", "pending", "shipped", "closed"};
+
+    // InnoDB allows 64 indexes per table and every foreign key needs one
+    private static final int MYSQL_MAX_FOREIGN_KEYS = 63;
+    private static final int BATCH_SIZE = 1000;
+    private static final LocalDateTime BASE_TIME = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private final List<Table> tables;
+    private final Map<String, Table> tablesByName = new LinkedHashMap<>();
+    private final List<ForeignKey> foreignKeys;
+    private final Map<String, String> synonyms;
+    private final SchemaGenerator.Topology topology;
+    private final SchemaGenerator.Naming naming;
+
+    GeneratedSchema(List<Table> tables, List<ForeignKey> foreignKeys, Map<String, String> synonyms,
+                    SchemaGenerator.Topology topology, SchemaGenerator.Naming naming) {
+        this.tables = tables;
+        this.foreignKeys = foreignKeys;
+        this.synonyms = synonyms;
+        this.topology = topology;
+        this.naming = naming;
+        tables.forEach(table -> tablesByName.put(table.getName(), table));
+        foreignKeys.forEach(fk -> tablesByName.get(fk.getFromTable()).foreignKeys.add(fk));
+    }
+
+    public List<Table> getTables() {
+        return tables;
+    }
+
+    public Table getTable(String name) {
+        return tablesByName.get(name);
+    }
+
+    public List<String> getTableNames() {
+        return new ArrayList<>(tablesByName.keySet());
+    }
+
+    public List<ForeignKey> getForeignKeys() {
+        return foreignKeys;
+    }
+
+    /**
+     * Synonym -> table or column name it stands for
+     */
+    public Map<String, String> getSynonyms() {
+        return synonyms;
+    }
+
+    public SchemaGenerator.Topology getTopology() {
+        return topology;
+    }
+
+    public SchemaGenerator.Naming getNaming() {
+        return naming;
+    }
+
+    /**
+     * Table name -> column names, in the shape SchemaRegistry returns
+     */
+    public Map<String, List<String>> toSchemaMap() {
+        Map<String, List<String>> schema = new LinkedHashMap<>();
+        tables.forEach(table -> schema.put(table.getName(), List.copyOf(table.columns.keySet())));
+        return schema;
+    }
+
+    /**
+     * Join graph of the foreign keys, frozen
+     */
+    public SchemaGraph toGraph() {
+        SchemaGraph graph = new SchemaGraph();
+        foreignKeys.forEach(fk -> graph.addRelationship(fk.getFromTable(), fk.getFromColumn(), fk.getToTable(), fk.getToColumn()));
+        graph.freeze();
+        return graph;
+    }
+
+    /**
+     * A SchemaRegistry serving this schema for every database, without discovery services
+     */
+    public SchemaRegistry toRegistry() {
+        Map<String, List<String>> schema = toSchemaMap();
+        return new SchemaRegistry(null, null) {
+            @Override
+            public Map<String, List<String>> getSchema(String dbName) {
+                return schema;
+            }
+
+            @Override
+            public Map<String, Integer> getColumnTypes(String dbName, String tableName) {
+                Table table = tablesByName.get(tableName);
+                return table != null ? table.columns : Map.of();
+            }
+        };
+    }
+
+    /**
+     * The default synonyms plus the generated ones
+     */
+    public SynonymRegistry toSynonymRegistry() {
+        SynonymRegistry registry = new SynonymRegistry();
+        synonyms.forEach(registry::addSynonym);
+        return registry;
+    }
+
+    /**
+     * Create the tables, replacing earlier ones of the same name, and fill each with sample rows.
+     *
+     * On MySQL the tables go into the given database, created if missing. Other databases
+     * (H2) get them in a schema of that name, so the engine's database-qualified SQL resolves;
+     * discovery looks tables up by catalog, so name the embedded database the same.
+     */
+    public void install(DataSource dataSource, String database, int rowsPerTable) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        String[] product = jdbcTemplate.execute((ConnectionCallback<String[]>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            return new String[]{metaData.getDatabaseProductName(), metaData.getIdentifierQuoteString().trim()};
+        });
+        boolean mysql = product[0].toLowerCase(Locale.ROOT).contains("mysql")
+            || product[0].toLowerCase(Locale.ROOT).contains("mariadb");
+        String quote = product[1];
+
+        if (mysql) {
+            for (Table table : tables) {
+                if (table.foreignKeys.size() > MYSQL_MAX_FOREIGN_KEYS) {
+                    throw new IllegalArgumentException("Table " + table.getName() + " has " + table.foreignKeys.size()
+                        + " foreign keys, MySQL allows " + MYSQL_MAX_FOREIGN_KEYS + ": use a snowflake instead of a star");
+                }
+            }
+            jdbcTemplate.execute("CREATE DATABASE IF NOT EXISTS " + quote + database + quote);
+        } else {
+            jdbcTemplate.execute("CREATE SCHEMA IF NOT EXISTS " + quote + database + quote);
+        }
+        String prefix = quote + database + quote + ".";
+
+        // Tables reference tables after them: drop front to back, create and fill back to front
+        for (Table table : tables) {
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + prefix + quote + table.getName() + quote);
+        }
+        for (int i = tables.size() - 1; i >= 0; i--) {
+            Table table = tables.get(i);
+            jdbcTemplate.execute(createTable(table, prefix, quote));
+            insertRows(jdbcTemplate, table, i, prefix, quote, rowsPerTable);
+        }
+    }
+
+    private String createTable(Table table, String prefix, String quote) {
+        List<String> definitions = new ArrayList<>();
+        table.columns.forEach((column, type) -> definitions.add(quote + column + quote + " " + sqlType(type)
+            + (column.equals("id") ? " PRIMARY KEY" : "")));
+        for (ForeignKey fk : table.foreignKeys) {
+            definitions.add("FOREIGN KEY (" + quote + fk.getFromColumn() + quote + ") REFERENCES "
+                + prefix + quote + fk.getToTable() + quote + " (" + quote + fk.getToColumn() + quote + ")");
+        }
+        return "CREATE TABLE " + prefix + quote + table.getName() + quote + " (" + String.join(", ", definitions) + ")";
+    }
+
+    private static String sqlType(int type) {
+        return switch (type) {
+            case Types.INTEGER -> "INT";
+            case Types.DECIMAL -> "DECIMAL(12,2)";
+            case Types.TIMESTAMP -> "TIMESTAMP";
+            default -> "VARCHAR(100)";
+        };
+    }
+
+    private void insertRows(JdbcTemplate jdbcTemplate, Table table, int index, String prefix, String quote, int rows) {
+        if (rows <= 0) return;
+        String columns = table.columns.keySet().stream().map(c -> quote + c + quote).collect(Collectors.joining(", "));
+        String placeholders = table.columns.keySet().stream().map(c -> "?").collect(Collectors.joining(", "));
+        String sql = "INSERT INTO " + prefix + quote + table.getName() + quote + " (" + columns + ") VALUES (" + placeholders + ")";
+
+        Set<String> foreignKeyColumns = table.foreignKeys.stream().map(ForeignKey::getFromColumn).collect(Collectors.toSet());
+        Random random = new Random(index);
+        List<Object[]> batch = new ArrayList<>();
+        for (int id = 1; id <= rows; id++) {
+            Object[] values = new Object[table.columns.size()];
+            int c = 0;
+            for (Map.Entry<String, Integer> column : table.columns.entrySet()) {
+                values[c++] = value(table, column.getKey(), column.getValue(), id, foreignKeyColumns, random, rows);
+            }
+            batch.add(values);
+            if (batch.size() == BATCH_SIZE) {
+                jdbcTemplate.batchUpdate(sql, batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) jdbcTemplate.batchUpdate(sql, batch);
+    }
+
+    private static Object value(Table table, String column, int type, int id, Set<String> foreignKeyColumns,
+                                Random random, int rows) {
+        if (column.equals("id")) return id;
+        // Every table has the same number of rows, so any id in range exists
+        if (foreignKeyColumns.contains(column)) return 1 + random.nextInt(rows);
+        if (column.equals("name")) return String.join(" ", table.singularWords) + " " + id;
+        if (column.equals("status")) return STATUSES[id % STATUSES.length];
+        return switch (type) {
+            case Types.INTEGER -> random.nextInt(100);
+            case Types.DECIMAL -> BigDecimal.valueOf(random.nextInt(100_000), 2);
+            case Types.TIMESTAMP -> Timestamp.valueOf(BASE_TIME.plusHours(id));
+            default -> column + " " + id;
+        };
+    }
+
+    /**
+     * A generated table: its name, the words it is called in questions and its columns
+     */
+    public static class Table {
+        private final String name;
+        private final String phrase;
+        private final List<String> singularWords;
+        private final List<String> synonyms;
+        private final Map<String, Integer> columns = new LinkedHashMap<>();
+        private final List<ForeignKey> foreignKeys = new ArrayList<>();
+
+        Table(String name, String phrase, List<String> singularWords, List<String> synonyms) {
+            this.name = name;
+            this.phrase = phrase;
+            this.singularWords = singularWords;
+            this.synonyms = synonyms;
+        }
+
+        void addColumn(String column, int sqlType) {
+            columns.put(column, sqlType);
+        }
+
+        public String getName() { return name; }
+        public String getPhrase() { return phrase; }
+        List<String> singularWords() { return singularWords; }
+        public List<String> getSynonyms() { return synonyms; }
+        public Map<String, Integer> getColumnTypes() { return Collections.unmodifiableMap(columns); }
+        public List<ForeignKey> getForeignKeys() { return Collections.unmodifiableList(foreignKeys); }
+
+        /**
+         * Numeric columns that are neither the key nor a foreign key: candidates for aggregates
+         */
+        public List<String> numericColumns() {
+            Set<String> foreignKeyColumns = foreignKeys.stream().map(ForeignKey::getFromColumn).collect(Collectors.toSet());
+            List<String> numeric = new ArrayList<>();
+            columns.forEach((column, type) -> {
+                if ((type == Types.INTEGER || type == Types.DECIMAL)
+                    && !column.equals("id") && !foreignKeyColumns.contains(column)) {
+                    numeric.add(column);
+                }
+            });
+            return numeric;
+        }
+    }
+
+    /**
+     * fromTable.fromColumn references toTable.toColumn
+     */
+    public static class ForeignKey {
+        private final String fromTable;
+        private final String fromColumn;
+        private final String toTable;
+        private final String toColumn;
+
+        ForeignKey(String fromTable, String fromColumn, String toTable, String toColumn) {
+            this.fromTable = fromTable;
+            this.fromColumn = fromColumn;
+            this.toTable = toTable;
+            this.toColumn = toColumn;
+        }
+
+        public String getFromTable() { return fromTable; }
+        public String getFromColumn() { return fromColumn; }
+        public String getToTable() { return toTable; }
+        public String getToColumn() { return toColumn; }
+    }
+}
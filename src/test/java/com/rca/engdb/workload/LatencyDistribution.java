@@ -0,0 +1,39 @@
+package com.rca.engdb.workload;
+
+import java.util.Random;
+
+/**
+ * Latency of a simulated dependency, parsed from a spec:
+ * none, fixed:MS, uniform:MIN_MS:MAX_MS or lognormal:MEDIAN_MS:SIGMA
+ */
+public interface LatencyDistribution {
+
+    long sampleMs(Random random);
+
+    static LatencyDistribution parse(String spec) {
+        String[] parts = spec.trim().toLowerCase().split(":");
+        try {
+            return switch (parts[0]) {
+                case "none" -> random -> 0;
+                case "fixed" -> {
+                    long ms = Long.parseLong(parts[1]);
+                    yield random -> ms;
+                }
+                case "uniform" -> {
+                    long min = Long.parseLong(parts[1]);
+                    long max = Long.parseLong(parts[2]);
+                    yield random -> min + (long) (random.nextDouble() * (max - min));
+                }
+                case "lognormal" -> {
+                    // Median m and shape sigma: a long right tail as seen from remote LLM APIs
+                    double mu = Math.log(Double.parseDouble(parts[1]));
+                    double sigma = Double.parseDouble(parts[2]);
+                    yield random -> Math.round(Math.exp(mu + sigma * random.nextGaussian()));
+                }
+                default -> throw new IllegalArgumentException("Unknown latency distribution: " + spec);
+            };
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid latency distribution: " + spec, e);
+        }
+    }
+}
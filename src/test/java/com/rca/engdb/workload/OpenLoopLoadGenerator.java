@@ -0,0 +1,144 @@
+package com.rca.engdb.workload;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntFunction;
+
+/**
+ * Sends POST requests at a fixed arrival rate, whether or not earlier ones have completed.
+ *
+ * Closed-loop clients slow down with the server and hide queueing delay (coordinated
+ * omission). Here every request has an intended start time on the schedule and its latency
+ * is measured from that time, so a stalled server shows up in the percentiles.
+ */
+public class OpenLoopLoadGenerator {
+
+    private final HttpClient client;
+    private final URI uri;
+
+    public OpenLoopLoadGenerator(URI uri) {
+        this.uri = uri;
+        this.client = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    }
+
+    /**
+     * Send requests at the rate for the duration and wait for all of them to complete
+     *
+     * @param body JSON body of the i-th request
+     */
+    public Result run(double requestsPerSecond, Duration duration, Duration requestTimeout, IntFunction<String> body) {
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond);
+        long count = duration.toNanos() / intervalNanos;
+        Result result = new Result(requestTimeout);
+
+        long start = System.nanoTime();
+        try (ExecutorService requests = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < count; i++) {
+                long intended = start + i * intervalNanos;
+                long wait;
+                while ((wait = intended - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                String json = body.apply(i);
+                requests.submit(() -> send(json, intended, requestTimeout, result));
+            }
+        }
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    private void send(String json, long intended, Duration timeout, Result result) {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+            .timeout(timeout)
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(json))
+            .build();
+        String outcome;
+        String detail = null;
+        try {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            outcome = String.valueOf(response.statusCode());
+            if (response.statusCode() == 200 && response.body().contains("\"errorMessage\":\"")) {
+                // The pipeline answered, but with an error instead of rows
+                outcome = "200 (error)";
+            }
+            detail = response.body();
+        } catch (HttpTimeoutException e) {
+            outcome = "timeout";
+        } catch (Exception e) {
+            outcome = e.getClass().getSimpleName();
+            detail = e.getMessage();
+        }
+        result.record(outcome, System.nanoTime() - intended);
+        if (!outcome.equals("200") && detail != null) {
+            result.samples.putIfAbsent(outcome, detail.length() > 300 ? detail.substring(0, 300) + "..." : detail);
+        }
+    }
+
+    /**
+     * Latency histogram (from intended start, in microseconds) and outcome counts
+     */
+    public static class Result {
+        private final Histogram latencyMicros;
+        private final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+        private final Map<String, String> samples = new ConcurrentHashMap<>();
+        private long elapsedNanos;
+
+        Result(Duration requestTimeout) {
+            this.latencyMicros = new ConcurrentHistogram(Math.max(2, 2 * requestTimeout.toNanos() / 1000), 3);
+        }
+
+        void record(String outcome, long latencyNanos) {
+            outcomes.computeIfAbsent(outcome, o -> new LongAdder()).increment();
+            latencyMicros.recordValue(Math.min(latencyMicros.getHighestTrackableValue(),
+                Math.max(0, TimeUnit.NANOSECONDS.toMicros(latencyNanos))));
+        }
+
+        public Histogram getLatencyMicros() {
+            return latencyMicros;
+        }
+
+        public Map<String, Long> getOutcomes() {
+            Map<String, Long> counts = new TreeMap<>();
+            outcomes.forEach((outcome, count) -> counts.put(outcome, count.sum()));
+            return counts;
+        }
+
+        /**
+         * First response body (or exception message) seen for each unsuccessful outcome
+         */
+        public Map<String, String> getSamples() {
+            return new TreeMap<>(samples);
+        }
+
+        public long getTotal() {
+            return latencyMicros.getTotalCount();
+        }
+
+        public long getSucceeded() {
+            return getOutcomes().getOrDefault("200", 0L);
+        }
+
+        public double getElapsedSeconds() {
+            return elapsedNanos / 1e9;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.rca.engdb.workload;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local HTTP server standing in for the OpenRouter chat completions API.
+ *
+ * Each call waits for a latency drawn from the distribution, then fails with the given
+ * probability (alternating 500 and 429) or answers with the SQL the responder returns for
+ * the question found in the prompt.
+ */
+public class OpenRouterStub implements AutoCloseable {
+
+    public static final String PATH = "/api/v1/chat/completions";
+
+    private static final Pattern USER_QUERY = Pattern.compile("User Query: (.*)");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final LatencyDistribution latency;
+    private final double errorRate;
+    private final Function<String, String> responder;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    public OpenRouterStub(LatencyDistribution latency, double errorRate, Function<String, String> responder) throws IOException {
+        this.latency = latency;
+        this.errorRate = errorRate;
+        this.responder = responder;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 10_000);
+        server.setExecutor(executor);
+        server.createContext(PATH, this::handle);
+        server.start();
+    }
+
+    public String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + PATH;
+    }
+
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            calls.increment();
+            String question = question(exchange.getRequestBody().readAllBytes());
+            Random random = ThreadLocalRandom.current();
+            Thread.sleep(latency.sampleMs(random));
+
+            if (random.nextDouble() < errorRate) {
+                errors.increment();
+                int status = errors.sum() % 2 == 0 ? 429 : 500;
+                exchange.sendResponseHeaders(status, -1);
+                return;
+            }
+
+            Map<String, Object> response = Map.of("choices", new Object[]{
+                Map.of("message", Map.of("role", "assistant", "content", responder.apply(question)))});
+            byte[] body = objectMapper.writeValueAsBytes(response);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private String question(byte[] requestBody) throws IOException {
+        JsonNode messages = objectMapper.readTree(requestBody).path("messages");
+        for (JsonNode message : messages) {
+            Matcher matcher = USER_QUERY.matcher(message.path("content").asText());
+            if (matcher.find()) return matcher.group(1).trim();
+        }
+        return "";
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.close();
+    }
+}
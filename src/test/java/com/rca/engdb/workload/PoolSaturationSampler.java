@@ -0,0 +1,61 @@
+package com.rca.engdb.workload;
+
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+/**
+ * Samples the Hikari pool (and the JDBC permit queue in front of it) at a fixed interval
+ * while a load test runs, to show whether the pool was the bottleneck
+ */
+public class PoolSaturationSampler implements AutoCloseable {
+
+    private final HikariPoolMXBean pool;
+    private final int poolSize;
+    private final IntSupplier permitQueue;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    private long samples;
+    private long saturatedSamples;
+    private long activeSum;
+    private int maxActive;
+    private int maxAwaiting;
+    private int maxPermitQueue;
+
+    public PoolSaturationSampler(HikariPoolMXBean pool, int poolSize, IntSupplier permitQueue, long intervalMs) {
+        this.pool = pool;
+        this.poolSize = poolSize;
+        this.permitQueue = permitQueue;
+        scheduler.scheduleAtFixedRate(this::sample, 0, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void sample() {
+        int active = pool.getActiveConnections();
+        samples++;
+        activeSum += active;
+        if (active >= poolSize) saturatedSamples++;
+        maxActive = Math.max(maxActive, active);
+        maxAwaiting = Math.max(maxAwaiting, pool.getThreadsAwaitingConnection());
+        maxPermitQueue = Math.max(maxPermitQueue, permitQueue.getAsInt());
+    }
+
+    public synchronized String summary() {
+        if (samples == 0) return "no samples";
+        return String.format("pool size %d, active mean %.1f / max %d, saturated %.1f%% of samples, "
+                + "max threads awaiting a connection %d, max JDBC permit queue %d",
+            poolSize, (double) activeSum / samples, maxActive, 100.0 * saturatedSamples / samples,
+            maxAwaiting, maxPermitQueue);
+    }
+
+    public synchronized double saturatedFraction() {
+        return samples == 0 ? 0 : (double) saturatedSamples / samples;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
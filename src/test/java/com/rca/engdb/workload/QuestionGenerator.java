@@ -0,0 +1,125 @@
+package com.rca.engdb.workload;
+
+import com.rca.engdb.ml.IntentType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates natural-language questions about a GeneratedSchema, each with the intent and
+ * tables a correct answer has to use. Questions use the words tables are called by
+ * ("regional customers"), and sometimes a synonym ("clients"), not the table name itself.
+ */
+public class QuestionGenerator {
+
+    private static final double SYNONYM_RATE = 0.25;
+
+    private final GeneratedSchema schema;
+    private final Random random;
+
+    public QuestionGenerator(GeneratedSchema schema, long seed) {
+        this.schema = schema;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * A question with the intent and the tables it is about
+     */
+    public record GeneratedQuestion(String text, IntentType intent, List<String> tables) {
+    }
+
+    /**
+     * A corpus of questions over random tables, cycling through the question kinds
+     */
+    public List<GeneratedQuestion> generate(int count) {
+        List<GeneratedQuestion> questions = new ArrayList<>(count);
+        List<GeneratedSchema.Table> tables = schema.getTables();
+        for (int i = 0; i < count; i++) {
+            GeneratedSchema.Table table = tables.get(random.nextInt(tables.size()));
+            questions.add(question(table, i % 9));
+        }
+        return questions;
+    }
+
+    private GeneratedQuestion question(GeneratedSchema.Table table, int kind) {
+        String subject = subject(table);
+        List<String> numeric = table.numericColumns();
+        String number = numeric.isEmpty() ? null : words(numeric.get(random.nextInt(numeric.size())));
+        boolean hasStatus = table.getColumnTypes().containsKey("status");
+
+        // Kinds needing a column the table lacks fall back to the simplest question
+        if (kind == 8 && !table.getForeignKeys().isEmpty()) {
+            GeneratedSchema.ForeignKey fk = table.getForeignKeys().get(random.nextInt(table.getForeignKeys().size()));
+            String related = schema.getTable(fk.getToTable()).getPhrase();
+            return new GeneratedQuestion("show " + subject + " with their " + related, IntentType.SELECT,
+                List.of(table.getName(), fk.getToTable()));
+        }
+        if (kind == 2 && hasStatus) {
+            String status = GeneratedSchema.STATUSES[random.nextInt(GeneratedSchema.STATUSES.length)];
+            return select("find " + subject + " where status = " + status, table);
+        }
+        if (number != null) {
+            int threshold = 1 + random.nextInt(99);
+            switch (kind) {
+                case 1: return select("list " + subject + " where " + number + " is greater than " + threshold, table);
+                case 4: return new GeneratedQuestion("count " + subject + " where " + number + " is less than " + threshold,
+                    IntentType.COUNT, List.of(table.getName()));
+                case 5: return aggregate("sum of " + number + " in " + subject, IntentType.SUM, table);
+                case 6: return aggregate("average " + number + " of " + subject, IntentType.AVG, table);
+                case 7: return random.nextBoolean()
+                    ? aggregate("highest " + number + " in " + subject, IntentType.MAX, table)
+                    : aggregate("lowest " + number + " in " + subject, IntentType.MIN, table);
+                default: break;
+            }
+        }
+        return kind % 2 == 0
+            ? select("show all " + subject, table)
+            : new GeneratedQuestion("how many " + subject + " are there", IntentType.COUNT, List.of(table.getName()));
+    }
+
+    /**
+     * A question of roughly the given number of words about the table: a projection,
+     * then comparisons on its columns until the length is reached
+     */
+    public String longQuestion(GeneratedSchema.Table table, int words) {
+        StringBuilder question = new StringBuilder("show the name of ").append(table.getPhrase());
+        List<String> numeric = table.numericColumns();
+        int count = 4 + table.getPhrase().split(" ").length;
+        int clause = 0;
+        while (count < words) {
+            if (numeric.isEmpty() || clause % 2 == 1) {
+                question.append(clause == 0 ? " where" : " and").append(" name = item").append(clause);
+                count += 4;
+            } else {
+                question.append(clause == 0 ? " where " : " and ").append(words(numeric.get(clause % numeric.size())))
+                    .append(" is greater than ").append(clause * 10);
+                count += 6;
+            }
+            clause++;
+        }
+        return question.toString();
+    }
+
+    private GeneratedQuestion select(String text, GeneratedSchema.Table table) {
+        return new GeneratedQuestion(text, IntentType.SELECT, List.of(table.getName()));
+    }
+
+    private GeneratedQuestion aggregate(String text, IntentType intent, GeneratedSchema.Table table) {
+        return new GeneratedQuestion(text, intent, List.of(table.getName()));
+    }
+
+    private String subject(GeneratedSchema.Table table) {
+        if (!table.getSynonyms().isEmpty() && random.nextDouble() < SYNONYM_RATE) {
+            return table.getSynonyms().get(random.nextInt(table.getSynonyms().size()));
+        }
+        return table.getPhrase();
+    }
+
+    /**
+     * Column name as words: created_at and createdAt both become "created at"
+     */
+    static String words(String column) {
+        return column.replaceAll("([a-z])([A-Z])", "$1 $2").replace('_', ' ').toLowerCase();
+    }
+}
@@ -0,0 +1,189 @@
+package com.rca.engdb.workload;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates business-like schemas of any size for benchmarks and load tests.
+ *
+ * Tables are named from a vocabulary of entities (customers, orders, ...) and qualifiers
+ * (regional_customers, ...), so names and synonyms look like a real schema rather than t1..tn.
+ * Foreign keys form a tree whose shape is set by the topology: table i is referenced by
+ * table (i - 1) / branching, i.e. a chain, a star around table 0, or a snowflake.
+ */
+public class SchemaGenerator {
+
+    public enum Topology {
+        /** Each table references the next one: the longest join paths */
+        CHAIN,
+        /** Table 0 is a fact table referencing every other table */
+        STAR,
+        /** Fact table referencing three dimensions, each referencing three more, and so on */
+        SNOWFLAKE;
+
+        int branching(int tables) {
+            return switch (this) {
+                case CHAIN -> 1;
+                case STAR -> Math.max(1, tables - 1);
+                case SNOWFLAKE -> 3;
+            };
+        }
+    }
+
+    public enum Naming {
+        /** regional_customers, created_at */
+        SNAKE_CASE,
+        /** regionalCustomers, createdAt */
+        CAMEL_CASE,
+        /** tbl_regional_customers, created_at */
+        PREFIXED
+    }
+
+    // Plural, singular, then synonyms
+    private static final String[][] ENTITIES = {
+        {"customers", "customer", "clients", "buyers"},
+        {"orders", "order", "purchases"},
+        {"products", "product", "items", "goods"},
+        {"employees", "employee", "staff", "workers"},
+        {"suppliers", "supplier", "vendors"},
+        {"invoices", "invoice", "bills"},
+        {"payments", "payment", "transactions"},
+        {"shipments", "shipment", "deliveries"},
+        {"departments", "department", "divisions"},
+        {"warehouses", "warehouse", "depots"},
+        {"categories", "category", "groups"},
+        {"reviews", "review", "feedback"},
+        {"stores", "store", "shops", "outlets"},
+        {"regions", "region", "areas", "territories"},
+        {"accounts", "account"},
+        {"projects", "project", "initiatives"},
+        {"tasks", "task", "jobs"},
+        {"tickets", "ticket", "issues", "incidents"},
+        {"students", "student", "pupils"},
+        {"courses", "course", "classes", "lessons"},
+        {"instructors", "instructor", "teachers", "lecturers"},
+        {"vehicles", "vehicle", "cars"},
+        {"drivers", "driver"},
+        {"contracts", "contract", "agreements"},
+        {"assets", "asset", "equipment"},
+        {"campaigns", "campaign", "promotions"},
+        {"leads", "lead", "prospects"},
+        {"patients", "patient"},
+        {"doctors", "doctor", "physicians"},
+        {"appointments", "appointment", "visits"}
+    };
+
+    private static final String[] QUALIFIERS = {
+        null, "archived", "regional", "legacy", "staging", "daily", "monthly", "partner", "internal", "external"
+    };
+
+    // Column words and SQL type, in the order columns are added after id and name
+    private static final Object[][] ATTRIBUTES = {
+        {"status", Types.VARCHAR}, {"amount", Types.DECIMAL}, {"price", Types.DECIMAL},
+        {"quantity", Types.INTEGER}, {"created at", Types.TIMESTAMP}, {"rating", Types.INTEGER},
+        {"city", Types.VARCHAR}, {"score", Types.INTEGER}, {"email", Types.VARCHAR},
+        {"balance", Types.DECIMAL}, {"code", Types.VARCHAR}, {"priority", Types.INTEGER},
+        {"weight", Types.DECIMAL}, {"updated at", Types.TIMESTAMP}, {"discount", Types.DECIMAL},
+        {"title", Types.VARCHAR}, {"level", Types.INTEGER}, {"age", Types.INTEGER},
+        {"salary", Types.DECIMAL}, {"description", Types.VARCHAR}
+    };
+
+    private static final Map<String, String> COLUMN_SYNONYMS = Map.of(
+        "cost", "price",
+        "pay", "salary",
+        "qty", "quantity"
+    );
+
+    private SchemaGenerator() {
+    }
+
+    /**
+     * Generate a schema.
+     *
+     * @param tables          number of tables
+     * @param columnsPerTable columns of each table besides its foreign keys, at least 2 (id and name)
+     */
+    public static GeneratedSchema generate(int tables, int columnsPerTable, Topology topology, Naming naming) {
+        if (tables < 1) throw new IllegalArgumentException("A schema needs at least one table");
+        int columnCount = Math.max(2, columnsPerTable);
+
+        List<GeneratedSchema.Table> generated = new ArrayList<>();
+        for (int i = 0; i < tables; i++) {
+            generated.add(table(i, columnCount, naming));
+        }
+
+        // Tree of foreign keys: the referencing table is the parent in the tree
+        int branching = topology.branching(tables);
+        List<GeneratedSchema.ForeignKey> foreignKeys = new ArrayList<>();
+        for (int i = 1; i < tables; i++) {
+            GeneratedSchema.Table referenced = generated.get(i);
+            GeneratedSchema.Table referencing = generated.get((i - 1) / branching);
+            List<String> words = new ArrayList<>(referenced.singularWords());
+            words.add("id");
+            String column = name(words, naming == Naming.CAMEL_CASE);
+            referencing.addColumn(column, Types.INTEGER);
+            foreignKeys.add(new GeneratedSchema.ForeignKey(referencing.getName(), column, referenced.getName(), "id"));
+        }
+
+        Map<String, String> synonyms = new LinkedHashMap<>();
+        for (GeneratedSchema.Table table : generated) {
+            for (String synonym : table.getSynonyms()) {
+                synonyms.putIfAbsent(synonym, table.getName());
+            }
+        }
+        COLUMN_SYNONYMS.forEach(synonyms::putIfAbsent);
+
+        return new GeneratedSchema(generated, foreignKeys, synonyms, topology, naming);
+    }
+
+    private static GeneratedSchema.Table table(int index, int columnCount, Naming naming) {
+        String[] entity = ENTITIES[index % ENTITIES.length];
+        int variant = index / ENTITIES.length;
+        String qualifier = QUALIFIERS[variant % QUALIFIERS.length];
+        int round = variant / QUALIFIERS.length;
+
+        List<String> words = new ArrayList<>();
+        List<String> singular = new ArrayList<>();
+        if (qualifier != null) {
+            words.add(qualifier);
+            singular.add(qualifier);
+        }
+        words.add(entity[0]);
+        singular.add(entity[1]);
+        if (round > 0) {
+            words.add(String.valueOf(round + 1));
+            singular.add(String.valueOf(round + 1));
+        }
+
+        String name = name(words, naming == Naming.CAMEL_CASE);
+        if (naming == Naming.PREFIXED) name = "tbl_" + name;
+
+        // Synonyms only stand for the unqualified entity
+        List<String> synonyms = qualifier == null && round == 0
+            ? List.of(entity).subList(2, entity.length)
+            : List.of();
+
+        GeneratedSchema.Table table = new GeneratedSchema.Table(name, String.join(" ", words), singular, synonyms);
+        table.addColumn("id", Types.INTEGER);
+        table.addColumn("name", Types.VARCHAR);
+        for (int c = 0; c < columnCount - 2; c++) {
+            Object[] attribute = ATTRIBUTES[c % ATTRIBUTES.length];
+            String columnWords = (String) attribute[0];
+            if (c >= ATTRIBUTES.length) columnWords += " " + (c / ATTRIBUTES.length + 1);
+            table.addColumn(name(List.of(columnWords.split(" ")), naming == Naming.CAMEL_CASE), (Integer) attribute[1]);
+        }
+        return table;
+    }
+
+    private static String name(List<String> words, boolean camelCase) {
+        if (!camelCase) return String.join("_", words);
+        StringBuilder name = new StringBuilder(words.get(0));
+        for (String word : words.subList(1, words.size())) {
+            name.append(Character.toUpperCase(word.charAt(0))).append(word.substring(1));
+        }
+        return name.toString();
+    }
+}